@@ -0,0 +1,69 @@
+package com.example.webdisk.benchmarks;
+
+import com.example.webdisk.service.CacheService;
+import com.example.webdisk.service.FilesService;
+import com.example.webdisk.service.SearchCache;
+
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+
+/**
+ * Deterministic file names for populating registries in benchmarks.
+ * 
+ * <p>Each index is encoded in the 64 symbols allowed in file names, behind a short prefix
+ * so names have a realistic length. Distinct indexes always produce distinct names, which
+ * avoids the uniqueness checks and the randomness of a real name supplier while setting up
+ * registries of 10^8 names.</p>
+ */
+final class BenchmarkNames {
+
+    private static final char[] ALPHABET =
+            "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz-_".toCharArray();
+
+    private BenchmarkNames() {
+    }
+
+    /**
+     * Returns the name for the given index.
+     *
+     * @param index a non negative index
+     * @return a valid file name, unique for the index
+     */
+    static String of(long index) {
+        char[] buffer = new char[16];
+        int pos = buffer.length;
+        long value = index;
+        do {
+            buffer[--pos] = ALPHABET[(int) (value & 63)];
+            value >>>= 6;
+        } while (value != 0);
+        buffer[--pos] = '_';
+        buffer[--pos] = 'f';
+        return new String(buffer, pos, buffer.length - pos);
+    }
+
+    /**
+     * Creates a registry holding the names for indexes {@code 0} to {@code count - 1}.
+     *
+     * @param count the number of names to add
+     * @return the populated registry
+     */
+    static CacheService registry(int count) {
+        return registry(count, new SearchCache());
+    }
+
+    /**
+     * Creates a registry holding the names for indexes {@code 0} to {@code count - 1},
+     * serving its searches from the given cache.
+     *
+     * @param count       the number of names to add
+     * @param searchCache the cache of search results
+     * @return the populated registry
+     */
+    static CacheService registry(int count, SearchCache searchCache) {
+        CacheService cache = new CacheService(new FilesService(), new CompositeMeterRegistry(), searchCache);
+        for (int i = 0; i < count; i++) {
+            cache.putFile(of(i));
+        }
+        return cache;
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.webdisk.benchmarks;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the benchmarks jar.
+ * 
+ * <p>Runs the benchmarks selected by the usual JMH command line, always with the GC
+ * profiler, which reports both collection counts and allocation rates, and writes the
+ * results as JSON to {@value #RESULT_FILE} so they can be kept and compared between
+ * builds. Any JMH option given on the command line takes precedence, e.g.
+ * {@code -p names=100000000 -jvmArgsAppend -Xmx24g -rff other.json}.</p>
+ */
+public final class BenchmarkRunner {
+
+    private static final String RESULT_FILE = "jmh-result.json";
+
+    private BenchmarkRunner() {
+    }
+
+    /**
+     * Runs the benchmarks.
+     *
+     * @param args JMH command line options
+     * @throws RunnerException if the benchmarks fail to run
+     * @throws CommandLineOptionException if the command line options are invalid
+     * @throws IOException if the help cannot be printed
+     */
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException, IOException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        if (commandLine.shouldHelp()) {
+            commandLine.showHelp();
+            return;
+        }
+        if (commandLine.shouldList()) {
+            new Runner(commandLine).list();
+            return;
+        }
+        OptionsBuilder builder = new OptionsBuilder();
+        builder.addProfiler(GCProfiler.class);
+        if (!commandLine.getResultFormat().hasValue()) {
+            builder.resultFormat(ResultFormatType.JSON);
+        }
+        if (!commandLine.getResult().hasValue()) {
+            builder.result(RESULT_FILE);
+        }
+        Options options = builder.parent(commandLine).build();
+        new Runner(options).run();
+    }
+}
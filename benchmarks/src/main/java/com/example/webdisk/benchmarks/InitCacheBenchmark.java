@@ -0,0 +1,90 @@
+package com.example.webdisk.benchmarks;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.webdisk.service.CacheService;
+import com.example.webdisk.service.FilesService;
+
+/**
+ * Startup scan of a storage location holding empty files.
+ * 
+ * <p>The directory is generated under {@code java.io.tmpdir} once per trial, unless the
+ * {@code dir} parameter points to an existing, already generated location which is then
+ * used as is and left untouched.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(1)
+public class InitCacheBenchmark {
+
+    @Param({"1000000", "10000000"})
+    private int names;
+
+    @Param({""})
+    private String dir;
+
+    private Path storagePath;
+    private boolean generated;
+    private FilesService storage;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        if (dir.isEmpty()) {
+            storagePath = Files.createTempDirectory("webdisk-bench");
+            generated = true;
+            for (int i = 0; i < names; i++) {
+                Files.createFile(storagePath.resolve(BenchmarkNames.of(i)));
+            }
+        } else {
+            storagePath = Path.of(dir);
+        }
+        storage = new FilesService();
+        storage.setPath(storagePath.toString());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (!generated) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(storagePath)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.delete(path);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    @Benchmark
+    public CacheService initCache() throws IOException {
+        CacheService cache = new CacheService(storage);
+        cache.initCache();
+        return cache;
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.webdisk.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.webdisk.service.CacheService;
+import com.example.webdisk.util.FilesNameSupplier;
+
+/**
+ * Name generation, alone and as part of a new file registration, for registries of
+ * increasing size. The registry is kept at its size by deleting each generated name.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NewFileBenchmark {
+
+    @Param({"1000000", "10000000"})
+    private int names;
+
+    private CacheService cache;
+    private FilesNameSupplier supplier;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        cache = BenchmarkNames.registry(names);
+        supplier = new FilesNameSupplier();
+    }
+
+    @Benchmark
+    public String newFile() {
+        String fileName = cache.newFile();
+        cache.deleteFile(fileName);
+        return fileName;
+    }
+
+    @Benchmark
+    public String nameSupplierGet() {
+        return supplier.get();
+    }
+}
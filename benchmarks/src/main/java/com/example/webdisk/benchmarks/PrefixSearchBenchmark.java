@@ -0,0 +1,69 @@
+package com.example.webdisk.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.webdisk.search.SearchMode;
+import com.example.webdisk.service.CacheService;
+import com.example.webdisk.service.SearchCache;
+
+/**
+ * Searches served by the sorted name index, for a short and a longer literal prefix: prefix
+ * search, a glob starting with the prefix, and the anchored regular expression, the search
+ * cache being cleared before each invocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class PrefixSearchBenchmark {
+
+    @Param({"1000000", "10000000"})
+    private int names;
+
+    @Param({"f_A", "f_A0"})
+    private String prefix;
+
+    private SearchCache searchCache;
+    private CacheService cache;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        searchCache = new SearchCache();
+        cache = BenchmarkNames.registry(names, searchCache);
+    }
+
+    @Setup(Level.Invocation)
+    public void clear() {
+        searchCache.clear();
+    }
+
+    @Benchmark
+    public String[] findFilesByPrefix() {
+        return cache.findFiles(prefix, SearchMode.PREFIX);
+    }
+
+    @Benchmark
+    public String[] findFilesByGlob() {
+        return cache.findFiles(prefix + "*_?", SearchMode.GLOB);
+    }
+
+    @Benchmark
+    public String[] findFilesForAnchoredPattern() {
+        return cache.findFilesForPattern("^" + prefix);
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.webdisk.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.webdisk.service.CacheService;
+
+/**
+ * Point operations of the registry: lookups, inserts and deletes.
+ * 
+ * <p>The {@code contended} group runs lookups on three threads while a fourth one keeps
+ * adding and removing names, the access pattern of concurrent GET/HEAD requests during
+ * PUT/DELETE traffic.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RegistryBenchmark {
+
+    @Param({"1000000", "10000000"})
+    private int names;
+
+    private CacheService cache;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        cache = BenchmarkNames.registry(names);
+    }
+
+    /**
+     * Per thread cursor over present and absent names.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private long next;
+        private int bound;
+
+        @Setup(Level.Trial)
+        public void setup(RegistryBenchmark benchmark) {
+            next = Thread.currentThread().getId() * 7919L;
+            bound = benchmark.names;
+        }
+
+        String present() {
+            return BenchmarkNames.of(Math.floorMod(next++ * 31L, bound));
+        }
+
+        String absent() {
+            return BenchmarkNames.of(bound + (next++ & 0xFFFF));
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean containsPresent(Cursor cursor) {
+        return cache.containsFile(cursor.present());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean containsAbsent(Cursor cursor) {
+        return cache.containsFile(cursor.absent());
+    }
+
+    @Benchmark
+    public boolean putAndDelete(Cursor cursor) {
+        String fileName = cursor.absent();
+        boolean added = cache.putFile(fileName);
+        cache.deleteFile(fileName);
+        return added;
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(3)
+    public boolean contendedContains(Cursor cursor) {
+        return cache.containsFile(cursor.present());
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(1)
+    public boolean contendedPutAndDelete(Cursor cursor) {
+        String fileName = cursor.absent();
+        boolean added = cache.putFile(fileName);
+        cache.deleteFile(fileName);
+        return added;
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.webdisk.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.webdisk.service.CacheService;
+import com.example.webdisk.service.SearchCache;
+
+/**
+ * Pattern search over the whole registry, for a set of representative patterns: a plain
+ * substring, an anchored prefix, a character class repetition, a suffix behind a greedy
+ * wildcard, an alternation and a nested repetition, which makes backtracking matchers
+ * exponential.
+ * 
+ * <p>{@link #findFilesForPattern()} measures the full scan, the search cache being cleared
+ * before each invocation; {@link #findFilesForPatternCached()} measures repeated searches
+ * answered from the cache.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class SearchBenchmark {
+
+    @Param({"1000000", "10000000"})
+    private int names;
+
+    @Param({"f_A0", "^f_1", "[0-9]{3}", ".*_z$", "(Ab|Ba)c", "(a+)+$"})
+    private String pattern;
+
+    private SearchCache searchCache;
+    private CacheService cache;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        searchCache = new SearchCache();
+        cache = BenchmarkNames.registry(names, searchCache);
+    }
+
+    /**
+     * Clears the search cache before each invocation of the benchmarks using it.
+     */
+    @State(Scope.Thread)
+    public static class ColdCache {
+
+        @Setup(Level.Invocation)
+        public void clear(SearchBenchmark benchmark) {
+            benchmark.searchCache.clear();
+        }
+    }
+
+    @Benchmark
+    public String[] findFilesForPattern(ColdCache coldCache) {
+        return cache.findFilesForPattern(pattern);
+    }
+
+    @Benchmark
+    public String[] findFilesForPatternCached() {
+        return cache.findFilesForPattern(pattern);
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.webdisk.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.webdisk.service.CacheService;
+
+/**
+ * Fuzzy lookup of a mistyped name, one character substituted, within edit distances of one
+ * and two, by intersecting a Levenshtein automaton with the sorted names.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class SimilarSearchBenchmark {
+
+    @Param({"1000000", "10000000"})
+    private int names;
+
+    @Param({"1", "2"})
+    private int distance;
+
+    private CacheService cache;
+    private String mistyped;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        cache = BenchmarkNames.registry(names);
+        String name = BenchmarkNames.of(names / 2);
+        mistyped = name.substring(0, 3) + 'x' + name.substring(4);
+    }
+
+    @Benchmark
+    public String[] findSimilarFiles() {
+        return cache.findSimilarFiles(mistyped, distance);
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.webdisk.loadtest;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.example.webdisk.WebdiskApplication;
+
+/**
+ * Entry point of the WebDisk load test.
+ * 
+ * <p>Prepares the storage described by the workload profile, starts the application on a random
+ * local port against it - unless the profile targets an already running instance by {@code url} -
+ * then drives the profile's operations mix from its worker threads. After the warmup, latencies
+ * are recorded per operation; the report gives throughput and p50/p99/p999 latencies, and the full
+ * HdrHistogram percentile distribution of every operation is written to the output directory.</p>
+ * 
+ * <pre>
+ * mvn -q exec:java -Dexec.args="mixed threads=32 duration.seconds=120"
+ * </pre>
+ */
+public final class LoadTest {
+
+    private LoadTest() {
+    }
+
+    /**
+     * Runs a load test.
+     *
+     * @param args the profile name or path, followed by {@code key=value} profile overrides
+     * @throws IOException if the storage or the reports cannot be written
+     * @throws InterruptedException if interrupted while waiting for the workers
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String profileName = "mixed";
+        Properties overrides = new Properties();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator > 0) {
+                overrides.setProperty(arg.substring(0, separator), arg.substring(separator + 1));
+            } else {
+                profileName = arg;
+            }
+        }
+        WorkloadProfile profile = WorkloadProfile.load(profileName, overrides);
+
+        byte[] content = new byte[(int) Math.max(profile.sizes().max(), 1)];
+        new SplittableRandom(profile.seed()).nextBytes(content);
+
+        System.out.printf("Preparing storage for profile %s%n", profile.name());
+        StorageFixture storage = StorageFixture.prepare(profile);
+        String[] keys = storage.names();
+        if (keys.length == 0) {
+            throw new IllegalStateException("The storage has no files to run the test on");
+        }
+        System.out.printf("Storage %s holds %d files%n", storage.directory(), keys.length);
+
+        ConfigurableApplicationContext context = null;
+        String baseUrl = profile.url();
+        if (baseUrl.isEmpty()) {
+            context = startApplication(profile, storage.directory());
+            baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        }
+
+        try {
+            Map<Operation, OperationStats> stats = run(profile, baseUrl, keys, content);
+            report(profile, stats, System.out);
+            Files.createDirectories(profile.output());
+            try (PrintStream summary = new PrintStream(profile.output().resolve("summary.txt").toFile())) {
+                report(profile, stats, summary);
+            }
+            for (OperationStats operationStats : stats.values()) {
+                Path file = profile.output().resolve(operationStats.operation().key() + ".hgrm");
+                try (PrintStream out = new PrintStream(file.toFile())) {
+                    // Microseconds recorded, milliseconds reported
+                    operationStats.latencies().outputPercentileDistribution(out, 1000.0);
+                }
+            }
+            System.out.printf("Histograms written to %s%n", profile.output().toAbsolutePath());
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+            if (profile.storage() == null) {
+                delete(storage.directory());
+            }
+        }
+    }
+
+    private static ConfigurableApplicationContext startApplication(WorkloadProfile profile, Path storage) {
+        // Passed as command line arguments, for taking precedence over application.properties
+        List<String> args = new ArrayList<>();
+        args.add("--webdisk.path=" + storage);
+        args.add("--server.port=0");
+        profile.appProperties().forEach(property -> args.add("--" + property));
+        return new SpringApplicationBuilder(WebdiskApplication.class)
+                .run(args.toArray(String[]::new));
+    }
+
+    private static Map<Operation, OperationStats> run(WorkloadProfile profile, String baseUrl, String[] keys,
+            byte[] content) throws InterruptedException {
+        Map<Operation, OperationStats> stats = new EnumMap<>(Operation.class);
+        profile.mix().keySet().forEach(operation -> stats.put(operation, new OperationStats(operation)));
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        ZipfianSampler popularity = new ZipfianSampler(keys.length, profile.zipfExponent());
+        ConcurrentLinkedQueue<String> posted = new ConcurrentLinkedQueue<>();
+
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.SECONDS.toNanos(profile.warmupSeconds());
+        long end = measureFrom + TimeUnit.SECONDS.toNanos(profile.durationSeconds());
+        System.out.printf("Running %d workers for %ds of warmup and %ds of measurement against %s%n",
+                profile.threads(), profile.warmupSeconds(), profile.durationSeconds(), baseUrl);
+
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < profile.threads(); i++) {
+            Thread worker = new Thread(new LoadWorker(client, baseUrl, profile, keys, popularity, content, posted,
+                    stats, i, measureFrom, end), "loadtest-worker-" + i);
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return stats;
+    }
+
+    private static void report(WorkloadProfile profile, Map<Operation, OperationStats> stats, PrintStream out) {
+        out.printf("Profile %s, %d threads, %ds measured, seed %d%n", profile.name(), profile.threads(),
+                profile.durationSeconds(), profile.seed());
+        out.printf("%-8s %10s %12s %10s %10s %10s %10s %8s %8s%n",
+                "op", "count", "ops/s", "p50 ms", "p99 ms", "p999 ms", "max ms", "404", "errors");
+        for (OperationStats operationStats : stats.values()) {
+            Histogram latencies = operationStats.latencies();
+            out.printf("%-8s %10d %12.1f %10.3f %10.3f %10.3f %10.3f %8d %8d%n",
+                    operationStats.operation().key(),
+                    latencies.getTotalCount(),
+                    (double) latencies.getTotalCount() / profile.durationSeconds(),
+                    latencies.getValueAtPercentile(50) / 1000.0,
+                    latencies.getValueAtPercentile(99) / 1000.0,
+                    latencies.getValueAtPercentile(99.9) / 1000.0,
+                    latencies.getMaxValue() / 1000.0,
+                    operationStats.notFound(),
+                    operationStats.errors());
+        }
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.delete(path);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.webdisk.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublisher;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Queue;
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * One load generating client, issuing requests sequentially.
+ * 
+ * <p>Operations are drawn from the profile mix, target names from the Zipfian popularity over the
+ * initial key space, and upload sizes from the profile distribution, all from a random source
+ * seeded per worker. Files created by POST are deleted first, so DELETE does not deplete the
+ * initial key space while there are uploads to remove.</p>
+ * 
+ * <p>Without a target rate the worker runs in a closed loop. With one, requests are paced at fixed
+ * intervals and latencies are measured from the intended start, so that queueing caused by a slow
+ * server is accounted for.</p>
+ */
+class LoadWorker implements Runnable {
+
+    private static final String BOUNDARY = "webdisk-loadtest-boundary";
+
+    private final HttpClient client;
+    private final String baseUrl;
+    private final WorkloadProfile profile;
+    private final String[] keys;
+    private final ZipfianSampler popularity;
+    private final byte[] content;
+    private final Queue<String> posted;
+    private final Map<Operation, OperationStats> stats;
+    private final SplittableRandom random;
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+    private final long measureFromNanos;
+    private final long endNanos;
+    private final long intervalNanos;
+
+    LoadWorker(HttpClient client, String baseUrl, WorkloadProfile profile, String[] keys, ZipfianSampler popularity,
+            byte[] content, Queue<String> posted, Map<Operation, OperationStats> stats, int index,
+            long measureFromNanos, long endNanos) {
+        this.client = client;
+        this.baseUrl = baseUrl;
+        this.profile = profile;
+        this.keys = keys;
+        this.popularity = popularity;
+        this.content = content;
+        this.posted = posted;
+        this.stats = stats;
+        this.random = new SplittableRandom(profile.seed() * 31 + index);
+        this.measureFromNanos = measureFromNanos;
+        this.endNanos = endNanos;
+        this.intervalNanos = profile.rate() > 0 ? (long) (1e9 * profile.threads() / profile.rate()) : 0;
+
+        this.operations = profile.mix().keySet().toArray(Operation[]::new);
+        this.cumulativeWeights = new int[operations.length];
+        int total = 0;
+        for (int i = 0; i < operations.length; i++) {
+            total += profile.mix().get(operations[i]);
+            cumulativeWeights[i] = total;
+        }
+    }
+
+    @Override
+    public void run() {
+        long intended = System.nanoTime();
+        while (intended < endNanos) {
+            if (intervalNanos > 0) {
+                long wait = intended - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+            }
+            long start = intervalNanos > 0 ? intended : System.nanoTime();
+            Operation operation = nextOperation();
+            int status = execute(operation);
+            long end = System.nanoTime();
+            if (start >= measureFromNanos) {
+                stats.get(operation).record(start, end, status);
+            }
+            intended = intervalNanos > 0 ? intended + intervalNanos : end;
+        }
+    }
+
+    private Operation nextOperation() {
+        int draw = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (draw < cumulativeWeights[i]) {
+                return operations[i];
+            }
+        }
+        return operations[operations.length - 1];
+    }
+
+    private String popularKey() {
+        return keys[(int) popularity.sample(random) - 1];
+    }
+
+    private int execute(Operation operation) {
+        try {
+            return switch (operation) {
+                case GET -> send(request("/files/" + popularKey()).GET());
+                case HEAD -> send(request("/files/" + popularKey()).method("HEAD", BodyPublishers.noBody()));
+                case PUT -> send(upload("/files/" + popularKey(), "PUT"));
+                case POST -> post();
+                case DELETE -> {
+                    String name = posted.poll();
+                    yield send(request("/files/" + (name != null ? name : popularKey())).DELETE());
+                }
+                case SEARCH -> {
+                    String pattern = profile.searchPatterns().get(random.nextInt(profile.searchPatterns().size()));
+                    yield send(request("/files/search?pattern=" + URLEncoder.encode(pattern, StandardCharsets.UTF_8))
+                            .GET());
+                }
+            };
+        } catch (IOException e) {
+            return -1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return -1;
+        }
+    }
+
+    private int post() throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(upload("/files/upload", "POST").build(),
+                BodyHandlers.ofString());
+        if (response.statusCode() == 200) {
+            // {"fileName":"..."}
+            String body = response.body();
+            int start = body.indexOf(":\"") + 2;
+            posted.add(body.substring(start, body.indexOf('"', start)));
+        }
+        return response.statusCode();
+    }
+
+    private int send(HttpRequest.Builder request) throws IOException, InterruptedException {
+        return client.send(request.build(), BodyHandlers.discarding()).statusCode();
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path));
+    }
+
+    private HttpRequest.Builder upload(String path, String method) {
+        int size = (int) profile.sizes().next(random);
+        int offset = random.nextInt(content.length - size + 1);
+        byte[] head = ("--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"upload\"\r\n"
+                + "Content-Type: application/octet-stream\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+        byte[] tail = ("\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        BodyPublisher body = BodyPublishers.concat(
+                BodyPublishers.ofByteArray(head),
+                BodyPublishers.ofByteArray(content, offset, size),
+                BodyPublishers.ofByteArray(tail));
+        return request(path)
+                .header("Content-Type", "multipart/form-data; boundary=" + BOUNDARY)
+                .method(method, body);
+    }
+}
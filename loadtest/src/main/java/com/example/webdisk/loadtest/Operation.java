@@ -0,0 +1,22 @@
+package com.example.webdisk.loadtest;
+
+/**
+ * Operations of the WebDisk REST API driven by the load test.
+ */
+enum Operation {
+    GET,
+    HEAD,
+    PUT,
+    POST,
+    DELETE,
+    SEARCH;
+
+    /**
+     * Returns the name used for the operation in workload profiles and reports.
+     *
+     * @return the lower case operation name
+     */
+    String key() {
+        return name().toLowerCase();
+    }
+}
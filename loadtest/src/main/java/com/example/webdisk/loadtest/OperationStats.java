@@ -0,0 +1,61 @@
+package com.example.webdisk.loadtest;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Latencies and outcomes of one operation, shared by all workers.
+ * 
+ * <p>Latencies are recorded in microseconds, up to one minute, with three significant
+ * digits. When requests are paced at a fixed rate, latencies are measured from the intended
+ * start of each request, so a stalled server is not hidden by the client waiting for it.</p>
+ */
+class OperationStats {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private final Operation operation;
+    private final Histogram latencies = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+    private final LongAdder notFound = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    OperationStats(Operation operation) {
+        this.operation = operation;
+    }
+
+    /**
+     * Records a completed request.
+     *
+     * @param startNanos the intended start of the request, from {@link System#nanoTime()}
+     * @param endNanos   the end of the request, from {@link System#nanoTime()}
+     * @param status     the HTTP status of the response, or {@code -1} if the request failed
+     */
+    void record(long startNanos, long endNanos, int status) {
+        long micros = Math.min(TimeUnit.NANOSECONDS.toMicros(endNanos - startNanos), HIGHEST_TRACKABLE_MICROS);
+        latencies.recordValue(micros);
+        if (status == 404) {
+            notFound.increment();
+        } else if (status < 200 || status >= 300) {
+            errors.increment();
+        }
+    }
+
+    Operation operation() {
+        return operation;
+    }
+
+    Histogram latencies() {
+        return latencies;
+    }
+
+    long notFound() {
+        return notFound.sum();
+    }
+
+    long errors() {
+        return errors.sum();
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.webdisk.loadtest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import com.example.webdisk.util.DatasetGenerator;
+
+/**
+ * The storage directory a load test starts from.
+ * 
+ * <p>An existing, non empty directory is used as is, and its file names become the key space of
+ * the test. Otherwise the directory - a temporary one when none is given - is filled by the
+ * {@link DatasetGenerator} with the number of files, the size distribution and the seed of the
+ * profile.</p>
+ */
+class StorageFixture {
+
+    private final Path directory;
+    private final List<String> names;
+
+    private StorageFixture(Path directory, List<String> names) {
+        this.directory = directory;
+        this.names = names;
+    }
+
+    /**
+     * Prepares the storage of the given profile.
+     *
+     * @param profile the workload profile
+     * @return the prepared storage
+     * @throws IOException if the directory cannot be listed or written
+     */
+    static StorageFixture prepare(WorkloadProfile profile) throws IOException {
+        Path directory = profile.storage() != null
+                ? Files.createDirectories(profile.storage())
+                : Files.createTempDirectory("webdisk-loadtest");
+        List<String> existing = list(directory);
+        if (existing.isEmpty()) {
+            new DatasetGenerator(directory, profile.files(), Runtime.getRuntime().availableProcessors(),
+                    profile.seed(), profile.sizes(), DatasetGenerator.Layout.FLAT, 0, null).generate();
+            existing = list(directory);
+        }
+        return new StorageFixture(directory, existing);
+    }
+
+    Path directory() {
+        return directory;
+    }
+
+    /**
+     * Returns the file names present when the test starts, the key space for popularity.
+     *
+     * @return the initial file names
+     */
+    String[] names() {
+        return names.toArray(String[]::new);
+    }
+
+    private static List<String> list(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(Files::isRegularFile)
+                    .map(file -> file.getFileName().toString())
+                    .filter(name -> name.matches("^[a-zA-Z0-9-_]{1,64}$"))
+                    .sorted()
+                    .toList();
+        }
+    }
+}
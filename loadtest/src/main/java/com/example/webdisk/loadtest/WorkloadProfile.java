@@ -0,0 +1,100 @@
+package com.example.webdisk.loadtest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import com.example.webdisk.util.SizeDistribution;
+
+/**
+ * A reproducible description of a load test: storage to start from, client concurrency,
+ * duration, operations mix, key popularity and file sizes.
+ * 
+ * <p>Profiles are properties files, either bundled - {@code read-heavy}, {@code write-heavy},
+ * {@code mixed} - or given by path. Any property can be overridden from the command line as
+ * {@code key=value}. The same profile and seed always produce the same storage and the same
+ * sequence of requests per worker.</p>
+ */
+record WorkloadProfile(
+        String name,
+        String url,
+        Path storage,
+        int files,
+        int threads,
+        int warmupSeconds,
+        int durationSeconds,
+        double rate,
+        long seed,
+        double zipfExponent,
+        SizeDistribution sizes,
+        Map<Operation, Integer> mix,
+        List<String> searchPatterns,
+        List<String> appProperties,
+        Path output) {
+
+    /**
+     * Largest generated file, below the default multipart limit of the application.
+     */
+    private static final long MAX_FILE_SIZE = 10L * 1024 * 1024 - 4096;
+
+    /**
+     * Loads a profile, bundled or from a file, applying the given overrides.
+     *
+     * @param profile   the name of a bundled profile or the path of a properties file
+     * @param overrides properties overriding the profile values
+     * @return the loaded profile
+     * @throws IOException if the profile cannot be read
+     */
+    static WorkloadProfile load(String profile, Properties overrides) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream bundled = WorkloadProfile.class.getResourceAsStream("/profiles/" + profile + ".properties")) {
+            if (bundled != null) {
+                properties.load(bundled);
+            } else {
+                try (Reader reader = Files.newBufferedReader(Path.of(profile))) {
+                    properties.load(reader);
+                }
+            }
+        }
+        properties.putAll(overrides);
+
+        Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            int weight = Integer.parseInt(properties.getProperty("mix." + operation.key(), "0"));
+            if (weight > 0) {
+                mix.put(operation, weight);
+            }
+        }
+        if (mix.isEmpty()) {
+            throw new IllegalArgumentException("Profile has no operations in its mix: " + profile);
+        }
+        String storage = properties.getProperty("storage", "");
+        return new WorkloadProfile(
+                profile,
+                properties.getProperty("url", ""),
+                storage.isBlank() ? null : Path.of(storage),
+                Integer.parseInt(properties.getProperty("files", "10000")),
+                Integer.parseInt(properties.getProperty("threads", "8")),
+                Integer.parseInt(properties.getProperty("warmup.seconds", "10")),
+                Integer.parseInt(properties.getProperty("duration.seconds", "60")),
+                Double.parseDouble(properties.getProperty("rate", "0")),
+                Long.parseLong(properties.getProperty("seed", "42")),
+                Double.parseDouble(properties.getProperty("zipf.exponent", "0.99")),
+                SizeDistribution.parse(properties.getProperty("sizes", "lognormal:8:2"), MAX_FILE_SIZE),
+                mix,
+                split(properties.getProperty("search.patterns", "one")),
+                split(properties.getProperty("app.properties", "")),
+                Path.of(properties.getProperty("output", "target/loadtest")));
+    }
+
+    private static List<String> split(String value) {
+        return Arrays.stream(value.split(",")).map(String::trim).filter(s -> !s.isEmpty()).toList();
+    }
+}
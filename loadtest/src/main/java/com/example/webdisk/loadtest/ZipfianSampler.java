@@ -0,0 +1,99 @@
+package com.example.webdisk.loadtest;
+
+import java.util.SplittableRandom;
+
+/**
+ * Samples ranks from a Zipf distribution, by rejection-inversion (W. Hörmann and G. Derflinger,
+ * "Rejection-inversion to generate variates from monotone discrete distributions").
+ * 
+ * <p>Rank {@code 1} is the most popular one. Sampling takes constant time and no precomputed
+ * tables, so key spaces of any size can be used. Instances are immutable; the source of
+ * randomness is passed on each call, so one sampler can be shared by all workers.</p>
+ */
+class ZipfianSampler {
+
+    private final long numberOfElements;
+    private final double exponent;
+    private final double hIntegralX1;
+    private final double hIntegralNumberOfElements;
+    private final double s;
+
+    /**
+     * Creates a sampler for ranks between {@code 1} and {@code numberOfElements}.
+     *
+     * @param numberOfElements the number of ranks
+     * @param exponent         the Zipf exponent, larger values concentrate samples on the first ranks
+     */
+    ZipfianSampler(long numberOfElements, double exponent) {
+        if (numberOfElements < 1) {
+            throw new IllegalArgumentException("At least one element is required");
+        }
+        if (exponent <= 0) {
+            throw new IllegalArgumentException("Exponent must be positive: " + exponent);
+        }
+        this.numberOfElements = numberOfElements;
+        this.exponent = exponent;
+        this.hIntegralX1 = hIntegral(1.5) - 1d;
+        this.hIntegralNumberOfElements = hIntegral(numberOfElements + 0.5);
+        this.s = 2d - hIntegralInverse(hIntegral(2.5) - h(2));
+    }
+
+    /**
+     * Returns the next rank.
+     *
+     * @param random the source of randomness
+     * @return a rank between {@code 1} and the number of elements, inclusive
+     */
+    long sample(SplittableRandom random) {
+        while (true) {
+            double u = hIntegralNumberOfElements + random.nextDouble() * (hIntegralX1 - hIntegralNumberOfElements);
+            double x = hIntegralInverse(u);
+            long k = (long) (x + 0.5);
+            if (k < 1) {
+                k = 1;
+            } else if (k > numberOfElements) {
+                k = numberOfElements;
+            }
+            if (k - x <= s || u >= hIntegral(k + 0.5) - h(k)) {
+                return k;
+            }
+        }
+    }
+
+    private double hIntegral(double x) {
+        double logX = Math.log(x);
+        return helper2((1d - exponent) * logX) * logX;
+    }
+
+    private double h(double x) {
+        return Math.exp(-exponent * Math.log(x));
+    }
+
+    private double hIntegralInverse(double x) {
+        double t = x * (1d - exponent);
+        if (t < -1d) {
+            t = -1d;
+        }
+        return Math.exp(helper1(t) * x);
+    }
+
+    /**
+     * Returns {@code log1p(x) / x}, accurate near zero.
+     */
+    private static double helper1(double x) {
+        if (Math.abs(x) > 1e-8) {
+            return Math.log1p(x) / x;
+        }
+        return 1 - x * (0.5 - x * (1d / 3 - 0.25 * x));
+    }
+
+    /**
+     * Returns {@code expm1(x) / x}, accurate near zero.
+     */
+    private static double helper2(double x) {
+        if (Math.abs(x) > 1e-8) {
+            return Math.expm1(x) / x;
+        }
+        return 1 + x * 0.5 * (1 + x * (1d / 3) * (1 + 0.25 * x));
+    }
+}
@@ -2,17 +2,20 @@ package com.example.webdisk;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 import org.springframework.scheduling.annotation.EnableAsync;
 
 /**
  * The main entry point for the Webdisk application.
  * This class is annotated with @SpringBootApplication to indicate a Spring Boot application.
- * It also enables asynchronous method execution with the @EnableAsync annotation.
+ * It also enables asynchronous method execution with the @EnableAsync annotation, and
+ * binds the application settings classes found by @ConfigurationPropertiesScan.
  * 
  * The main method uses SpringApplication.run to launch the application.
  */
 @SpringBootApplication
 @EnableAsync
+@ConfigurationPropertiesScan
 public class WebdiskApplication {
 
     /**
@@ -0,0 +1,165 @@
+package com.example.webdisk.admission;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.authentication.preauth.PreAuthenticatedAuthenticationToken;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Admission control in front of the files endpoints.
+ * 
+ * <p>Each {@link RequestClass} - search, upload, download, metadata - is processed within its own
+ * {@link ConcurrencyLimiter}, so a burst of one kind of requests cannot starve the others. Requests
+ * beyond the concurrency limit wait in a bounded queue; when the queue is full, or no slot frees up
+ * within the queue timeout, the request fails fast with 429 Too Many Requests and a Retry-After
+ * header. Optionally, requests authenticated by {@link com.example.webdisk.security.BearerAuthenticationFilter}
+ * are also rate limited per bearer principal.</p>
+ * 
+ * <p>The filter runs after the security filter chain, which provides the principal. Rejections are
+ * counted by the "webdisk.admission.rejected" meter, and the current limit, in flight and queued
+ * requests of every class are published as gauges.</p>
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 10)
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdmissionControlFilter.class);
+    private static final String REJECTED_BODY =
+            "{\"type\":\"about:blank\",\"title\":\"Too Many Requests\",\"status\":429,\"detail\":\"%s\"}";
+
+    private final boolean enabled;
+    private final Map<RequestClass, ConcurrencyLimiter> limiters = new EnumMap<>(RequestClass.class);
+    private final Map<RequestClass, Counter> queueRejections = new EnumMap<>(RequestClass.class);
+    private final Map<RequestClass, Counter> rateRejections = new EnumMap<>(RequestClass.class);
+    private final ClientRateLimiter rateLimiter;
+
+    /**
+     * Constructs a new AdmissionControlFilter.
+     *
+     * @param properties the admission control settings
+     * @param registry   the meter registry receiving the admission metrics
+     */
+    public AdmissionControlFilter(AdmissionProperties properties, MeterRegistry registry) {
+        this.enabled = properties.isEnabled();
+        this.rateLimiter = properties.getRateLimit().getRequestsPerSecond() > 0
+                ? new ClientRateLimiter(properties.getRateLimit())
+                : null;
+        for (RequestClass requestClass : RequestClass.values()) {
+            ConcurrencyLimiter limiter = new ConcurrencyLimiter(properties.limitsFor(requestClass),
+                    properties.getQueueTimeout().toMillis());
+            limiters.put(requestClass, limiter);
+            String tag = requestClass.key();
+            Gauge.builder("webdisk.admission.limit", limiter, ConcurrencyLimiter::getLimit)
+                    .description("Concurrency limit of a request class")
+                    .tag("class", tag)
+                    .register(registry);
+            Gauge.builder("webdisk.admission.inflight", limiter, ConcurrencyLimiter::getInFlight)
+                    .description("Requests of a class being processed")
+                    .tag("class", tag)
+                    .register(registry);
+            Gauge.builder("webdisk.admission.queued", limiter, ConcurrencyLimiter::getWaiting)
+                    .description("Requests of a class waiting for a slot")
+                    .tag("class", tag)
+                    .register(registry);
+            queueRejections.put(requestClass, rejectedCounter(registry, tag, "queue"));
+            rateRejections.put(requestClass, rejectedCounter(registry, tag, "rate"));
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (rateLimiter != null) {
+            rateLimiter.close();
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !enabled || RequestClass.of(request) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain) throws ServletException, IOException {
+        RequestClass requestClass = RequestClass.of(request);
+
+        if (rateLimiter != null) {
+            String principal = bearerPrincipal();
+            if (principal != null) {
+                long retryAfter = rateLimiter.tryAcquire(principal);
+                if (retryAfter > 0) {
+                    rateRejections.get(requestClass).increment();
+                    reject(request, response, retryAfter, "Request rate limit exceeded.");
+                    return;
+                }
+            }
+        }
+
+        ConcurrencyLimiter limiter = limiters.get(requestClass);
+        boolean admitted;
+        try {
+            admitted = limiter.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            admitted = false;
+        }
+        if (!admitted) {
+            queueRejections.get(requestClass).increment();
+            reject(request, response, limiter.retryAfterSeconds(),
+                    "Too many concurrent " + requestClass.key() + " requests.");
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            limiter.release(System.nanoTime() - start);
+        }
+    }
+
+    private static String bearerPrincipal() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication instanceof PreAuthenticatedAuthenticationToken ? authentication.getName() : null;
+    }
+
+    private static void reject(HttpServletRequest request, HttpServletResponse response, long retryAfter,
+            String detail) throws IOException {
+        logger.warn("Rejected. @Request:{} {} @Cause:{}", request.getMethod(), request.getRequestURI(), detail);
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfter));
+        response.setContentType(MediaType.APPLICATION_PROBLEM_JSON_VALUE);
+        response.getWriter().write(String.format(REJECTED_BODY, detail));
+    }
+
+    private static Counter rejectedCounter(MeterRegistry registry, String requestClass, String reason) {
+        return Counter.builder("webdisk.admission.rejected")
+                .description("Requests rejected by admission control")
+                .tag("class", requestClass)
+                .tag("reason", reason)
+                .register(registry);
+    }
+}
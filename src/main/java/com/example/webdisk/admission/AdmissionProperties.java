@@ -0,0 +1,203 @@
+package com.example.webdisk.admission;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Admission control settings, bound from the "webdisk.admission" properties.
+ * 
+ * <pre>
+ * webdisk.admission.enabled=true
+ * webdisk.admission.queue-timeout=1s
+ * webdisk.admission.search.max-concurrency=4
+ * webdisk.admission.search.queue-size=16
+ * webdisk.admission.search.target-latency=2s
+ * webdisk.admission.rate-limit.requests-per-second=100
+ * webdisk.admission.rate-limit.burst=200
+ * </pre>
+ *
+ * <p>The latency adapting the concurrency limits is measured over the whole request, the
+ * transfer of its body included, so it only reflects the load of the node for classes with
+ * small bodies. The limits of the uploads and downloads, bound by the speed of the clients
+ * and the size of the files, are not adaptive by default.</p>
+ */
+@ConfigurationProperties(prefix = "webdisk.admission")
+public class AdmissionProperties {
+
+    private boolean enabled = true;
+    private Duration queueTimeout = Duration.ofSeconds(1);
+    private Limits search = new Limits(4, 16, true, Duration.ofSeconds(2));
+    private Limits upload = new Limits(32, 64, false, Duration.ofSeconds(1));
+    private Limits download = new Limits(128, 256, false, Duration.ofMillis(500));
+    private Limits metadata = new Limits(256, 512, true, Duration.ofMillis(100));
+    private RateLimit rateLimit = new RateLimit();
+
+    /**
+     * Concurrency and queueing limits of one request class.
+     */
+    public static class Limits {
+
+        private int maxConcurrency;
+        private int minConcurrency = 1;
+        private int queueSize;
+        private boolean adaptive = true;
+        private Duration targetLatency;
+
+        public Limits() {
+        }
+
+        Limits(int maxConcurrency, int queueSize, boolean adaptive, Duration targetLatency) {
+            this.maxConcurrency = maxConcurrency;
+            this.queueSize = queueSize;
+            this.adaptive = adaptive;
+            this.targetLatency = targetLatency;
+        }
+
+        public int getMaxConcurrency() {
+            return maxConcurrency;
+        }
+
+        public void setMaxConcurrency(int maxConcurrency) {
+            this.maxConcurrency = maxConcurrency;
+        }
+
+        public int getMinConcurrency() {
+            return minConcurrency;
+        }
+
+        public void setMinConcurrency(int minConcurrency) {
+            this.minConcurrency = minConcurrency;
+        }
+
+        public int getQueueSize() {
+            return queueSize;
+        }
+
+        public void setQueueSize(int queueSize) {
+            this.queueSize = queueSize;
+        }
+
+        public boolean isAdaptive() {
+            return adaptive;
+        }
+
+        public void setAdaptive(boolean adaptive) {
+            this.adaptive = adaptive;
+        }
+
+        public Duration getTargetLatency() {
+            return targetLatency;
+        }
+
+        public void setTargetLatency(Duration targetLatency) {
+            this.targetLatency = targetLatency;
+        }
+    }
+
+    /**
+     * Request rate allowed to each authenticated client, identified by its bearer token.
+     * A rate of 0 disables rate limiting.
+     */
+    public static class RateLimit {
+
+        private double requestsPerSecond = 0;
+        private int burst = 100;
+        private int maxClients = 100_000;
+
+        public double getRequestsPerSecond() {
+            return requestsPerSecond;
+        }
+
+        public void setRequestsPerSecond(double requestsPerSecond) {
+            this.requestsPerSecond = requestsPerSecond;
+        }
+
+        public int getBurst() {
+            return burst;
+        }
+
+        public void setBurst(int burst) {
+            this.burst = burst;
+        }
+
+        public int getMaxClients() {
+            return maxClients;
+        }
+
+        public void setMaxClients(int maxClients) {
+            this.maxClients = maxClients;
+        }
+    }
+
+    /**
+     * Returns the limits of the given request class.
+     *
+     * @param requestClass the request class
+     * @return the limits of the class
+     */
+    public Limits limitsFor(RequestClass requestClass) {
+        return switch (requestClass) {
+            case SEARCH -> search;
+            case UPLOAD -> upload;
+            case DOWNLOAD -> download;
+            case METADATA -> metadata;
+        };
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Duration getQueueTimeout() {
+        return queueTimeout;
+    }
+
+    public void setQueueTimeout(Duration queueTimeout) {
+        this.queueTimeout = queueTimeout;
+    }
+
+    public Limits getSearch() {
+        return search;
+    }
+
+    public void setSearch(Limits search) {
+        this.search = search;
+    }
+
+    public Limits getUpload() {
+        return upload;
+    }
+
+    public void setUpload(Limits upload) {
+        this.upload = upload;
+    }
+
+    public Limits getDownload() {
+        return download;
+    }
+
+    public void setDownload(Limits download) {
+        this.download = download;
+    }
+
+    public Limits getMetadata() {
+        return metadata;
+    }
+
+    public void setMetadata(Limits metadata) {
+        this.metadata = metadata;
+    }
+
+    public RateLimit getRateLimit() {
+        return rateLimit;
+    }
+
+    public void setRateLimit(RateLimit rateLimit) {
+        this.rateLimit = rateLimit;
+    }
+}
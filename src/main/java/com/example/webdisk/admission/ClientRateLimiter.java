@@ -0,0 +1,116 @@
+package com.example.webdisk.admission;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the request rate of each client with a token bucket per client.
+ * 
+ * <p>Buckets refill continuously at the configured rate, up to the burst size. A background
+ * thread checks the number of tracked clients once per refill period, the time an empty bucket
+ * takes to fill up, and when it exceeds its bound, drops the buckets which have refilled
+ * completely - clients idle long enough to be indistinguishable from new ones - so that the
+ * requests never scan the buckets.</p>
+ */
+public class ClientRateLimiter {
+
+    private final double tokensPerNano;
+    private final double burst;
+    private final int maxClients;
+    private final ConcurrentHashMap<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService evictor;
+
+    /**
+     * Constructs a new ClientRateLimiter.
+     *
+     * @param rateLimit the rate, burst and client bounds
+     */
+    public ClientRateLimiter(AdmissionProperties.RateLimit rateLimit) {
+        this.tokensPerNano = rateLimit.getRequestsPerSecond() / TimeUnit.SECONDS.toNanos(1);
+        this.burst = Math.max(1, rateLimit.getBurst());
+        this.maxClients = rateLimit.getMaxClients();
+        long periodNanos = Math.max(TimeUnit.SECONDS.toNanos(1), (long) (burst / tokensPerNano));
+        this.evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "webdisk-rate-limiter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        evictor.scheduleWithFixedDelay(() -> {
+            if (buckets.size() > maxClients) {
+                evictIdle();
+            }
+        }, periodNanos, periodNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Takes one request token for the client.
+     *
+     * @param client the client identity
+     * @return 0 if the request is allowed, otherwise the number of whole seconds until a token
+     *         is available
+     */
+    public long tryAcquire(String client) {
+        long now = System.nanoTime();
+        return buckets.computeIfAbsent(client, c -> new Bucket(now)).tryAcquire(now);
+    }
+
+    /**
+     * Drops the buckets which have refilled completely.
+     *
+     * @return the number of clients dropped
+     */
+    public int evictIdle() {
+        long now = System.nanoTime();
+        int before = buckets.size();
+        buckets.values().removeIf(bucket -> bucket.isFull(now));
+        return before - buckets.size();
+    }
+
+    /**
+     * Returns the number of tracked clients.
+     *
+     * @return the number of buckets
+     */
+    public int getClients() {
+        return buckets.size();
+    }
+
+    /**
+     * Stops the background eviction.
+     */
+    public void close() {
+        evictor.shutdownNow();
+    }
+
+    private class Bucket {
+
+        private double tokens = burst;
+        private long updatedNanos;
+
+        Bucket(long now) {
+            this.updatedNanos = now;
+        }
+
+        synchronized long tryAcquire(long now) {
+            refill(now);
+            if (tokens >= 1) {
+                tokens--;
+                return 0;
+            }
+            double missingNanos = (1 - tokens) / tokensPerNano;
+            return Math.max(1, (long) Math.ceil(missingNanos / TimeUnit.SECONDS.toNanos(1)));
+        }
+
+        synchronized boolean isFull(long now) {
+            refill(now);
+            return tokens >= burst;
+        }
+
+        private void refill(long now) {
+            tokens = Math.min(burst, tokens + (now - updatedNanos) * tokensPerNano);
+            updatedNanos = now;
+        }
+    }
+}
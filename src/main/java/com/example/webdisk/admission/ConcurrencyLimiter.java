@@ -0,0 +1,164 @@
+package com.example.webdisk.admission;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounds the number of requests of one class processed at once, with a bounded queue of
+ * requests waiting for a slot.
+ * 
+ * <p>When adaptive, the concurrency limit follows the observed latency, with additive increase and
+ * multiplicative decrease: a request completing above the target latency lowers the limit by 10%,
+ * at most once per target latency interval, while a request completing within target, when all
+ * slots were in use, raises it by one. The limit stays between the configured minimum and
+ * maximum, starting at the maximum.</p>
+ */
+public class ConcurrencyLimiter {
+
+    private static final double SMOOTHING = 0.1;
+    private static final double DECREASE_FACTOR = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final int queueSize;
+    private final long queueTimeoutNanos;
+    private final long targetLatencyNanos;
+    private final boolean adaptive;
+
+    private final ReentrantLock lock = new ReentrantLock(true);
+    private final Condition slotAvailable = lock.newCondition();
+    private int limit;
+    private int inFlight;
+    private int waiting;
+    private double smoothedLatencyNanos;
+    private long lastDecreaseNanos;
+
+    /**
+     * Constructs a new ConcurrencyLimiter.
+     *
+     * @param limits       the concurrency, queue and latency limits
+     * @param queueTimeout the longest time a request may wait for a slot, in milliseconds
+     */
+    public ConcurrencyLimiter(AdmissionProperties.Limits limits, long queueTimeout) {
+        this.maxLimit = Math.max(1, limits.getMaxConcurrency());
+        this.minLimit = Math.max(1, Math.min(limits.getMinConcurrency(), maxLimit));
+        this.queueSize = Math.max(0, limits.getQueueSize());
+        this.queueTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(queueTimeout);
+        this.targetLatencyNanos = limits.getTargetLatency() != null ? limits.getTargetLatency().toNanos() : 0;
+        this.adaptive = limits.isAdaptive() && targetLatencyNanos > 0;
+        this.limit = maxLimit;
+        this.lastDecreaseNanos = System.nanoTime();
+    }
+
+    /**
+     * Takes a slot, waiting in the queue if none is free.
+     *
+     * @return {@code true} if a slot was taken and must be released, {@code false} if the queue is
+     *         full or no slot was freed within the queue timeout
+     * @throws InterruptedException if interrupted while waiting in the queue
+     */
+    public boolean acquire() throws InterruptedException {
+        lock.lock();
+        try {
+            if (inFlight < limit) {
+                inFlight++;
+                return true;
+            }
+            if (waiting >= queueSize) {
+                return false;
+            }
+            waiting++;
+            try {
+                long remaining = queueTimeoutNanos;
+                while (inFlight >= limit) {
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    remaining = slotAvailable.awaitNanos(remaining);
+                }
+                inFlight++;
+                return true;
+            } finally {
+                waiting--;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Releases a slot taken by {@link #acquire()}, adapting the limit to the request latency.
+     *
+     * @param latencyNanos the processing time of the request, in nanoseconds
+     */
+    public void release(long latencyNanos) {
+        lock.lock();
+        try {
+            boolean saturated = inFlight >= limit;
+            inFlight--;
+            smoothedLatencyNanos = smoothedLatencyNanos == 0
+                    ? latencyNanos
+                    : (1 - SMOOTHING) * smoothedLatencyNanos + SMOOTHING * latencyNanos;
+            if (adaptive) {
+                long now = System.nanoTime();
+                if (latencyNanos > targetLatencyNanos) {
+                    if (now - lastDecreaseNanos >= targetLatencyNanos) {
+                        limit = Math.max(minLimit, (int) (limit * DECREASE_FACTOR));
+                        lastDecreaseNanos = now;
+                    }
+                } else if (saturated && limit < maxLimit) {
+                    limit++;
+                }
+            }
+            if (inFlight < limit) {
+                slotAvailable.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Estimates how long a rejected request should wait before retrying: the time for the
+     * requests in the queue to be processed, at the observed latency.
+     *
+     * @return the suggested delay, in whole seconds, at least one
+     */
+    public long retryAfterSeconds() {
+        lock.lock();
+        try {
+            double queueDrainNanos = smoothedLatencyNanos * (waiting + 1) / Math.max(1, limit);
+            return Math.max(1, (long) Math.ceil(queueDrainNanos / TimeUnit.SECONDS.toNanos(1)));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getLimit() {
+        lock.lock();
+        try {
+            return limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getWaiting() {
+        lock.lock();
+        try {
+            return waiting;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.webdisk.admission;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Classes of requests to the files endpoints, each one admitted within its own limits so that
+ * one kind of traffic cannot starve the others.
+ */
+public enum RequestClass {
+    /** Searches over the registry: GET /files/search and GET /files/similar. */
+    SEARCH,
+    /** File content writes: POST /files/upload, PUT /files/{fileName} and the chunked uploads. */
+    UPLOAD,
+    /** File content reads: GET /files/{fileName}. */
+    DOWNLOAD,
+    /**
+     * Calls answered from the registry or cheap on storage: HEAD, DELETE, size, list, stats,
+     * watch and others.
+     */
+    METADATA;
+
+    /**
+     * Returns the name used for the class in metrics and messages.
+     *
+     * @return the lower case class name
+     */
+    public String key() {
+        return name().toLowerCase();
+    }
+
+    /**
+     * Classifies a request to the files endpoints.
+     *
+     * @param request the HTTP request
+     * @return the class of the request, or {@code null} if it is not a files endpoint request
+     */
+    public static RequestClass of(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (!path.startsWith("/files/")) {
+            return null;
+        }
+        String method = request.getMethod();
+        if ("/files/search".equals(path) || "/files/similar".equals(path)) {
+            return SEARCH;
+        }
+        if ("POST".equals(method) || "PUT".equals(method)) {
+            return UPLOAD;
+        }
+        if ("GET".equals(method) && !"/files/size".equals(path) && !"/files/list".equals(path)
+                && !"/files/stats".equals(path) && !"/files/watch".equals(path)
+                && !"/files/restricted".equals(path) && !path.startsWith("/files/uploads/")) {
+            return DOWNLOAD;
+        }
+        return METADATA;
+    }
+}
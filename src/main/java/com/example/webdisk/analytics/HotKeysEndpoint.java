@@ -0,0 +1,55 @@
+package com.example.webdisk.analytics;
+
+import java.time.Duration;
+
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import com.example.webdisk.response.HotKeysResponse;
+
+/**
+ * Actuator endpoint of the heaviest keys of the requests, at /actuator/hotkeys.
+ *
+ * <pre>
+ * curl "http://localhost:8080/actuator/hotkeys?window=5m&amp;limit=3"
+ *
+ * {"window":"PT5M","dropped":0,"reads":[{"key":"one","count":1204,"error":0},...],
+ *  "writes":[...],"bytes":[...],"principals":[{"key":"reporting","count":5230,"error":0},...]}
+ * </pre>
+ */
+@Component
+@Endpoint(id = "hotkeys")
+public class HotKeysEndpoint {
+
+    private final HotKeysService hotKeys;
+
+    /**
+     * Constructs a new HotKeysEndpoint.
+     *
+     * @param hotKeys the hot keys tracker
+     */
+    public HotKeysEndpoint(HotKeysService hotKeys) {
+        this.hotKeys = hotKeys;
+    }
+
+    /**
+     * Returns the heaviest keys over a time window.
+     *
+     * @param window the time window, such as "5m" or "PT5M", the current bucket if absent
+     * @param limit  the maximum number of keys of each dimension, the configured one if absent
+     * @return the heaviest keys of each dimension
+     */
+    @ReadOperation
+    public HotKeysResponse hotKeys(@Nullable String window, @Nullable Integer limit) {
+        try {
+            Duration duration = window == null ? hotKeys.getDefaultWindow() : DurationStyle.detectAndParse(window);
+            return hotKeys.getHotKeys(duration, limit == null ? hotKeys.getDefaultLimit() : Math.max(limit, 0));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidEndpointRequestException(e.getMessage(), e.getMessage());
+        }
+    }
+}
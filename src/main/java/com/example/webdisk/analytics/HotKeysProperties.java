@@ -0,0 +1,90 @@
+package com.example.webdisk.analytics;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Hot keys settings, bound from the "webdisk.hotkeys" properties. The requests are counted
+ * in {@code buckets} time buckets of {@code bucket} each, which bound the longest window,
+ * each dimension of a bucket keeping {@code capacity} counters. Requests are queued in a
+ * buffer of {@code buffer-size} slots, drained every {@code drain-interval}; requests finding
+ * the buffer full are not counted.
+ *
+ * <pre>
+ * webdisk.hotkeys.enabled=true
+ * webdisk.hotkeys.capacity=512
+ * webdisk.hotkeys.limit=20
+ * webdisk.hotkeys.bucket=1m
+ * webdisk.hotkeys.buckets=15
+ * webdisk.hotkeys.buffer-size=65536
+ * webdisk.hotkeys.drain-interval=100ms
+ * </pre>
+ */
+@ConfigurationProperties(prefix = "webdisk.hotkeys")
+public class HotKeysProperties {
+
+    private boolean enabled = true;
+    private int capacity = 512;
+    private int limit = 20;
+    private Duration bucket = Duration.ofMinutes(1);
+    private int buckets = 15;
+    private int bufferSize = 65_536;
+    private Duration drainInterval = Duration.ofMillis(100);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public void setLimit(int limit) {
+        this.limit = limit;
+    }
+
+    public Duration getBucket() {
+        return bucket;
+    }
+
+    public void setBucket(Duration bucket) {
+        this.bucket = bucket;
+    }
+
+    public int getBuckets() {
+        return buckets;
+    }
+
+    public void setBuckets(int buckets) {
+        this.buckets = buckets;
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public void setBufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    public Duration getDrainInterval() {
+        return drainInterval;
+    }
+
+    public void setDrainInterval(Duration drainInterval) {
+        this.drainInterval = drainInterval;
+    }
+}
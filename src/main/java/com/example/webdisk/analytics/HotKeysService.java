@@ -0,0 +1,337 @@
+package com.example.webdisk.analytics;
+
+import java.nio.charset.StandardCharsets;
+import java.security.Principal;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32C;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import com.example.webdisk.response.HotKeysResponse;
+import com.example.webdisk.security.AuthProperties;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Service tracking the heaviest keys of the requests: the file names read, written and
+ * transferring the most bytes, and the bearer principals sending the most requests.
+ *
+ * <p>The request paths only queue an event in a fixed size ring buffer, without locking or
+ * allocating beyond the event itself. Each slot carries a sequence telling whether it is free
+ * for the position of the tail, which a request then claims by a compare-and-set, or still
+ * holds an event of the previous lap. In the latter case the buffer is full, and the event is
+ * dropped and counted, the tail staying put so that the buffer never holds a hole.
+ * A drainer thread empties the buffer into {@link SpaceSaving} summaries, one per dimension
+ * and time bucket, which thus need no synchronization with the requests.</p>
+ *
+ * <p>The buckets form a ring covering the longest window. A window is answered by merging
+ * the summaries of its buckets, the current bucket included, so windows slide by whole
+ * buckets. The merged count of a key is an upper bound of its true count: a key missing
+ * from a full summary is counted with the lowest count of that summary, added to its
+ * error.</p>
+ *
+ * <p>When the bearer tokens are not verified, they are not principals but opaque secrets,
+ * and are tracked by a fingerprint of the token instead.</p>
+ */
+@Service
+public class HotKeysService {
+
+    private static final Logger logger = LoggerFactory.getLogger(HotKeysService.class);
+
+    private static final String ANONYMOUS = "anonymous";
+
+    private static final int READS = 0;
+    private static final int WRITES = 1;
+    private static final int BYTES = 2;
+    private static final int PRINCIPALS = 3;
+
+    /**
+     * A request queued for the drainer: a read or a write of a file, or another request,
+     * which only counts for its principal.
+     */
+    private record Event(int dimension, String fileName, long bytes, Principal principal) { }
+
+    private final HotKeysProperties properties;
+    private final boolean tokensVerified;
+    private final AtomicReferenceArray<Event> buffer;
+    // The position a slot is free for, or that position plus one once it holds its event
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private final LongAdder dropped = new LongAdder();
+    private final long bucketMillis;
+
+    // Owned by the drainer, under the lock of the service
+    private long head;
+    private final SpaceSaving[][] summaries;
+    private final long[] bucketEpochs;
+    private volatile Thread drainer;
+
+    /**
+     * Constructs a new HotKeysService.
+     *
+     * @param properties the hot keys settings
+     * @param auth       the authentication settings, telling whether bearer tokens name principals
+     * @param registry   the meter registry receiving the number of dropped requests
+     */
+    public HotKeysService(HotKeysProperties properties, AuthProperties auth, MeterRegistry registry) {
+        this.properties = properties;
+        this.tokensVerified = auth.isVerified();
+        int slots = Integer.highestOneBit(Math.max(properties.getBufferSize(), 2) - 1) << 1;
+        this.buffer = new AtomicReferenceArray<>(slots);
+        this.sequences = new AtomicLongArray(slots);
+        for (int i = 0; i < slots; i++) {
+            sequences.set(i, i);
+        }
+        this.mask = slots - 1;
+        this.bucketMillis = Math.max(properties.getBucket().toMillis(), 1);
+        this.summaries = new SpaceSaving[PRINCIPALS + 1][properties.getBuckets()];
+        for (SpaceSaving[] dimension : summaries) {
+            for (int i = 0; i < dimension.length; i++) {
+                dimension[i] = new SpaceSaving(properties.getCapacity());
+            }
+        }
+        this.bucketEpochs = new long[properties.getBuckets()];
+        FunctionCounter.builder("webdisk.hotkeys.dropped", dropped, LongAdder::sum)
+                .description("Requests not counted by the hot keys tracker, its buffer being full")
+                .register(registry);
+    }
+
+    /**
+     * Starts the drainer thread, if the tracking is enabled.
+     */
+    @PostConstruct
+    public void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    drain();
+                    Thread.sleep(properties.getDrainInterval().toMillis());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (RuntimeException e) {
+                    logger.warn("Unable to count hot keys. @Cause:{}", e.toString());
+                }
+            }
+        }, "webdisk-hotkeys");
+        thread.setDaemon(true);
+        drainer = thread;
+        thread.start();
+    }
+
+    /**
+     * Stops the drainer thread.
+     */
+    @PreDestroy
+    public void stop() {
+        Thread thread = drainer;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    /**
+     * Records a read of a file.
+     *
+     * @param fileName  the name of the file
+     * @param bytes     the size of the file
+     * @param principal the authenticated principal, or {@code null}
+     */
+    public void recordRead(String fileName, long bytes, Principal principal) {
+        offer(READS, fileName, bytes, principal);
+    }
+
+    /**
+     * Records a write or a delete of a file.
+     *
+     * @param fileName  the name of the file
+     * @param bytes     the size written, 0 for a delete
+     * @param principal the authenticated principal, or {@code null}
+     */
+    public void recordWrite(String fileName, long bytes, Principal principal) {
+        offer(WRITES, fileName, bytes, principal);
+    }
+
+    /**
+     * Records a request which neither reads nor writes a file, such as a search.
+     *
+     * @param principal the authenticated principal, or {@code null}
+     */
+    public void recordRequest(Principal principal) {
+        offer(PRINCIPALS, null, 0, principal);
+    }
+
+    /**
+     * Returns the heaviest keys over a time window.
+     *
+     * @param window the time window, rounded up to whole buckets
+     * @param limit  the maximum number of keys of each dimension
+     * @return the heaviest keys of each dimension
+     * @throws IllegalArgumentException if the window is not positive or longer than the buckets
+     */
+    public synchronized HotKeysResponse getHotKeys(Duration window, int limit) {
+        long count = (window.toMillis() + bucketMillis - 1) / bucketMillis;
+        if (window.isNegative() || window.isZero() || count > bucketEpochs.length) {
+            throw new IllegalArgumentException("Window out of range: " + window + ", up to "
+                    + properties.getBucket().multipliedBy(bucketEpochs.length));
+        }
+        drain();
+        long epoch = rotate();
+        return new HotKeysResponse(window.toString(), dropped.sum(),
+                merge(READS, epoch, count, limit),
+                merge(WRITES, epoch, count, limit),
+                merge(BYTES, epoch, count, limit),
+                merge(PRINCIPALS, epoch, count, limit));
+    }
+
+    /**
+     * Returns the default time window: a single bucket, the current one.
+     *
+     * @return the duration of a bucket
+     */
+    public Duration getDefaultWindow() {
+        return properties.getBucket();
+    }
+
+    /**
+     * Returns the default number of keys of each dimension.
+     *
+     * @return the number of keys
+     */
+    public int getDefaultLimit() {
+        return properties.getLimit();
+    }
+
+    private void offer(int dimension, String fileName, long bytes, Principal principal) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        Event event = new Event(dimension, fileName, bytes, principal);
+        while (true) {
+            long position = tail.get();
+            int slot = (int) position & mask;
+            long sequence = sequences.get(slot);
+            if (sequence == position && tail.compareAndSet(position, position + 1)) {
+                buffer.set(slot, event);
+                sequences.set(slot, position + 1);
+                return;
+            }
+            if (sequence < position) {
+                // Still holding the event of the previous lap
+                dropped.increment();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Empties the buffer into the summaries of the current bucket.
+     */
+    synchronized void drain() {
+        rotate();
+        int current = bucketIndex(System.currentTimeMillis() / bucketMillis);
+        for (int drained = 0; drained < buffer.length(); drained++) {
+            int slot = (int) head & mask;
+            if (sequences.get(slot) != head + 1) {
+                // Empty, or claimed by a request not done storing its event
+                return;
+            }
+            Event event = buffer.get(slot);
+            buffer.set(slot, null);
+            sequences.set(slot, head + buffer.length());
+            head++;
+            if (event.fileName() != null) {
+                summaries[event.dimension()][current].add(event.fileName(), 1);
+                if (event.bytes() > 0) {
+                    // A delete transfers nothing, and would only evict a key from a full summary
+                    summaries[BYTES][current].add(event.fileName(), event.bytes());
+                }
+            }
+            summaries[PRINCIPALS][current].add(principalKey(event.principal()), 1);
+        }
+    }
+
+    /**
+     * Clears the bucket of the current time if it still holds an older one.
+     *
+     * @return the current epoch, in buckets
+     */
+    private long rotate() {
+        long epoch = System.currentTimeMillis() / bucketMillis;
+        int index = bucketIndex(epoch);
+        if (bucketEpochs[index] != epoch) {
+            for (SpaceSaving[] dimension : summaries) {
+                dimension[index].clear();
+            }
+            bucketEpochs[index] = epoch;
+        }
+        return epoch;
+    }
+
+    /**
+     * Merges the summaries of a dimension over the last buckets.
+     */
+    private List<HotKeysResponse.Entry> merge(int dimension, long epoch, long count, int limit) {
+        Map<String, long[]> merged = new HashMap<>();
+        long minTotal = 0;
+        for (long bucket = epoch - count + 1; bucket <= epoch; bucket++) {
+            int index = bucketIndex(bucket);
+            if (bucket < 0 || bucketEpochs[index] != bucket) {
+                continue;
+            }
+            SpaceSaving summary = summaries[dimension][index];
+            long min = summary.getMinCount();
+            minTotal += min;
+            for (SpaceSaving.Counter counter : summary.getCounters()) {
+                // count, error, and lowest counts of the summaries holding the key
+                long[] totals = merged.computeIfAbsent(counter.key(), key -> new long[3]);
+                totals[0] += counter.count();
+                totals[1] += counter.error();
+                totals[2] += min;
+            }
+        }
+        long missing = minTotal;
+        return merged.entrySet().stream()
+                .map(entry -> {
+                    long[] totals = entry.getValue();
+                    long absent = missing - totals[2];
+                    return new HotKeysResponse.Entry(entry.getKey(), totals[0] + absent, totals[1] + absent);
+                })
+                .sorted(Comparator.comparingLong(HotKeysResponse.Entry::count).reversed()
+                        .thenComparing(HotKeysResponse.Entry::key))
+                .limit(limit)
+                .toList();
+    }
+
+    private int bucketIndex(long epoch) {
+        return (int) Math.floorMod(epoch, (long) bucketEpochs.length);
+    }
+
+    private String principalKey(Principal principal) {
+        if (principal == null) {
+            return ANONYMOUS;
+        }
+        if (tokensVerified) {
+            return principal.getName();
+        }
+        CRC32C fingerprint = new CRC32C();
+        fingerprint.update(principal.getName().getBytes(StandardCharsets.UTF_8));
+        return String.format("token-%08x", (int) fingerprint.getValue());
+    }
+}
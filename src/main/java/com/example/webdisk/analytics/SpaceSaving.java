@@ -0,0 +1,177 @@
+package com.example.webdisk.analytics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Space-Saving summary of a weighted stream of keys, keeping the approximate heaviest keys
+ * in a fixed number of counters.
+ *
+ * <p>A key already counted adds its weight to its counter. A new key takes a free counter,
+ * or else replaces the key of the lowest counter, inheriting its count as the error of its
+ * own. The count of a key is thus an upper bound of its true weight, exceeding it by at
+ * most its error, and every key whose weight exceeds the total divided by the number of
+ * counters is guaranteed to be kept.</p>
+ *
+ * <p>Counters are held in a binary min-heap indexed by key, so an update takes logarithmic
+ * time. The summary is not thread-safe.</p>
+ */
+public final class SpaceSaving {
+
+    /**
+     * A counted key.
+     *
+     * @param key   the key
+     * @param count the estimated weight of the key, an upper bound of its true weight
+     * @param error the maximum overestimation of the count
+     */
+    public record Counter(String key, long count, long error) { }
+
+    private final String[] keys;
+    private final long[] counts;
+    private final long[] errors;
+    private final Map<String, Integer> positions;
+    private int size;
+
+    /**
+     * Constructs an empty summary.
+     *
+     * @param capacity the number of counters
+     */
+    public SpaceSaving(int capacity) {
+        this.keys = new String[capacity];
+        this.counts = new long[capacity];
+        this.errors = new long[capacity];
+        this.positions = new HashMap<>(capacity * 2);
+    }
+
+    /**
+     * Adds the weight of an occurrence of a key.
+     *
+     * @param key    the key
+     * @param weight the weight of the occurrence
+     */
+    public void add(String key, long weight) {
+        Integer position = positions.get(key);
+        if (position != null) {
+            counts[position] += weight;
+            siftDown(position);
+        } else if (size < keys.length) {
+            int last = size++;
+            keys[last] = key;
+            counts[last] = weight;
+            errors[last] = 0;
+            positions.put(key, last);
+            siftUp(last);
+        } else {
+            // Replaces the key of the lowest counter
+            long min = counts[0];
+            positions.remove(keys[0]);
+            keys[0] = key;
+            counts[0] = min + weight;
+            errors[0] = min;
+            positions.put(key, 0);
+            siftDown(0);
+        }
+    }
+
+    /**
+     * Returns the number of counted keys.
+     *
+     * @return the number of counters in use
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the lowest count, which bounds the weight of any key not counted.
+     *
+     * @return the lowest count if all the counters are in use, or 0
+     */
+    public long getMinCount() {
+        return size < keys.length ? 0 : counts[0];
+    }
+
+    /**
+     * Returns the counters, in no particular order.
+     *
+     * @return a copy of the counters in use
+     */
+    public List<Counter> getCounters() {
+        List<Counter> counters = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            counters.add(new Counter(keys[i], counts[i], errors[i]));
+        }
+        return counters;
+    }
+
+    /**
+     * Returns the heaviest keys.
+     *
+     * @param limit the maximum number of keys returned
+     * @return the counters of the heaviest keys, by decreasing count
+     */
+    public List<Counter> top(int limit) {
+        return getCounters().stream()
+                .sorted(Comparator.comparingLong(Counter::count).reversed())
+                .limit(limit)
+                .toList();
+    }
+
+    /**
+     * Removes all the counters.
+     */
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            keys[i] = null;
+        }
+        positions.clear();
+        size = 0;
+    }
+
+    private void siftUp(int position) {
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (counts[parent] <= counts[position]) {
+                return;
+            }
+            swap(parent, position);
+            position = parent;
+        }
+    }
+
+    private void siftDown(int position) {
+        while (true) {
+            int child = 2 * position + 1;
+            if (child >= size) {
+                return;
+            }
+            if (child + 1 < size && counts[child + 1] < counts[child]) {
+                child++;
+            }
+            if (counts[position] <= counts[child]) {
+                return;
+            }
+            swap(position, child);
+            position = child;
+        }
+    }
+
+    private void swap(int i, int j) {
+        String key = keys[i];
+        long count = counts[i];
+        long error = errors[i];
+        keys[i] = keys[j];
+        counts[i] = counts[j];
+        errors[i] = errors[j];
+        keys[j] = key;
+        counts[j] = count;
+        errors[j] = error;
+        positions.put(keys[i], i);
+        positions.put(keys[j], j);
+    }
+}
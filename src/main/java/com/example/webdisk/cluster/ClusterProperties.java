@@ -0,0 +1,69 @@
+package com.example.webdisk.cluster;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Cluster settings, bound from the "webdisk.cluster" properties. The cluster mode is enabled
+ * by listing the nodes; the list is static and must be the same on every node.
+ * 
+ * <pre>
+ * webdisk.cluster.nodes=http://localhost:8081,http://localhost:8082,http://localhost:8083
+ * webdisk.cluster.self=http://localhost:8081
+ * webdisk.cluster.virtual-nodes=128
+ * webdisk.cluster.timeout=5s
+ * webdisk.cluster.rebalance=true
+ * </pre>
+ */
+@ConfigurationProperties(prefix = "webdisk.cluster")
+public class ClusterProperties {
+
+    private List<String> nodes = new ArrayList<>();
+    private String self = "";
+    private int virtualNodes = 128;
+    private Duration timeout = Duration.ofSeconds(5);
+    private boolean rebalance = true;
+
+    public List<String> getNodes() {
+        return nodes;
+    }
+
+    public void setNodes(List<String> nodes) {
+        this.nodes = nodes;
+    }
+
+    public String getSelf() {
+        return self;
+    }
+
+    public void setSelf(String self) {
+        this.self = self;
+    }
+
+    public int getVirtualNodes() {
+        return virtualNodes;
+    }
+
+    public void setVirtualNodes(int virtualNodes) {
+        this.virtualNodes = virtualNodes;
+    }
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(Duration timeout) {
+        this.timeout = timeout;
+    }
+
+    public boolean isRebalance() {
+        return rebalance;
+    }
+
+    public void setRebalance(boolean rebalance) {
+        this.rebalance = rebalance;
+    }
+}
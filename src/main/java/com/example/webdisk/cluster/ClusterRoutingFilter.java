@@ -0,0 +1,81 @@
+package com.example.webdisk.cluster;
+
+import java.io.IOException;
+import java.util.Set;
+
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Filter routing the requests for a file - GET, HEAD, PUT and DELETE /files/{fileName} - to
+ * the node owning it, when the cluster mode is enabled. Requests for files owned by this
+ * node, and requests forwarded by another node, go on to the controller.
+ *
+ * <p>The filter runs after admission control, so proxied requests are admitted by both the
+ * receiving and the owner node.</p>
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE)
+public class ClusterRoutingFilter extends OncePerRequestFilter {
+
+    private static final String PREFIX = "/files/";
+    private static final Set<String> METHODS = Set.of("GET", "HEAD", "PUT", "DELETE");
+
+    /**
+     * Paths under /files which are endpoints rather than file names.
+     */
+    private static final Set<String> ENDPOINTS = Set.of("size", "stats", "search", "similar", "list", "watch",
+            "restricted", "upload");
+
+    private final ClusterService cluster;
+
+    /**
+     * Constructs a new ClusterRoutingFilter.
+     *
+     * @param cluster the cluster placing the files
+     */
+    public ClusterRoutingFilter(ClusterService cluster) {
+        this.cluster = cluster;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !cluster.isEnabled()
+                || request.getHeader(ClusterService.FORWARDED_HEADER) != null
+                || !METHODS.contains(request.getMethod())
+                || fileNameOf(request) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain) throws ServletException, IOException {
+        String fileName = fileNameOf(request);
+        if (cluster.isLocal(fileName)) {
+            filterChain.doFilter(request, response);
+        } else {
+            cluster.proxy(request, response, cluster.ownerOf(fileName));
+        }
+    }
+
+    /**
+     * Returns the file name of a request for a file, or {@code null} for other requests.
+     */
+    private static String fileNameOf(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (!path.startsWith(PREFIX)) {
+            return null;
+        }
+        String fileName = path.substring(PREFIX.length());
+        return fileName.isEmpty() || fileName.indexOf('/') >= 0 || ENDPOINTS.contains(fileName) ? null : fileName;
+    }
+}
@@ -0,0 +1,390 @@
+package com.example.webdisk.cluster;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.Lock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import com.example.webdisk.service.CacheService;
+import com.example.webdisk.service.FilesService;
+import com.example.webdisk.service.NameLocks;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Service placing the files on the nodes of a cluster, by a consistent hash ring of their
+ * names.
+ *
+ * <p>The cluster mode is enabled by the "webdisk.cluster.nodes" property, listing the node
+ * URLs, and "webdisk.cluster.self", the URL of this node among them. Requests for a file
+ * owned by another node are proxied to it by the {@link ClusterRoutingFilter}, and new files
+ * are given names owned by this node. Proxied requests carry the {@link #FORWARDED_HEADER}
+ * header and are always served locally, so nodes with different views of the ring cannot
+ * forward a request in circles.</p>
+ *
+ * <p>Membership is static. Once a node starts, it moves the files it holds but no longer
+ * owns to their owners, so files follow the ring when nodes join or leave: after changing
+ * the node list, restart the nodes. A node started with a list which does not include it owns
+ * nothing, and hands all its files over.</p>
+ *
+ * <p>Proxied requests and moved files are counted by the "webdisk.cluster.proxied" and
+ * "webdisk.cluster.moved" counters.</p>
+ */
+@Service
+public class ClusterService {
+
+    /**
+     * Header marking a request forwarded by another node, holding the URL of that node.
+     */
+    public static final String FORWARDED_HEADER = "X-Webdisk-Forwarded";
+
+    private static final Logger logger = LoggerFactory.getLogger(ClusterService.class);
+
+    private static final int REBALANCE_PAGE = 1000;
+
+    /**
+     * Headers handled by the HTTP client or specific to a single connection, not copied.
+     */
+    private static final Set<String> SKIPPED_HEADERS = Set.of("connection", "content-length", "expect", "host",
+            "upgrade", "keep-alive", "transfer-encoding", "te", "trailer", "proxy-connection",
+            "proxy-authorization", "proxy-authenticate");
+
+    private final HashRing ring;
+    private final String self;
+    private final Duration timeout;
+    private final boolean rebalanceOnStart;
+    private final HttpClient client;
+    private final CacheService cache;
+    private final FilesService storage;
+    private final NameLocks locks;
+    private final Counter proxied;
+    private final Counter moved;
+    private String nodeToken = "";
+
+    /**
+     * Constructs a new ClusterService.
+     *
+     * @param properties the cluster settings
+     * @param cache      the registry of the files of this node
+     * @param storage    the storage of the files of this node
+     * @param locks      the locks of the file names, under which the files are moved
+     * @param registry   the meter registry receiving the cluster metrics
+     */
+    public ClusterService(ClusterProperties properties, CacheService cache, FilesService storage,
+            NameLocks locks, MeterRegistry registry) {
+        List<String> nodes = properties.getNodes().stream().map(ClusterService::normalize).toList();
+        this.ring = nodes.isEmpty() ? null : new HashRing(nodes, properties.getVirtualNodes());
+        this.self = normalize(properties.getSelf());
+        this.timeout = properties.getTimeout();
+        this.rebalanceOnStart = properties.isRebalance();
+        this.cache = cache;
+        this.storage = storage;
+        this.locks = locks;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(timeout)
+                .build();
+        this.proxied = Counter.builder("webdisk.cluster.proxied")
+                .description("Requests proxied to the node owning the file")
+                .register(registry);
+        this.moved = Counter.builder("webdisk.cluster.moved")
+                .description("Files moved to the node owning them")
+                .register(registry);
+        if (ring != null && !nodes.contains(self)) {
+            logger.warn("Node {} is not in the cluster nodes {}, its files will be moved", self, nodes);
+        }
+    }
+
+    /**
+     * Sets the bearer token presented by this node to the other nodes, for the requests it
+     * sends on its own: searches, counts and moves. Proxied requests carry the token of the
+     * client instead.
+     *
+     * @param nodeToken the token, typically provided via the 'webdisk.auth.node-token'
+     *                  property, or empty for none
+     */
+    @Value("${webdisk.auth.node-token:}")
+    public void setNodeToken(String nodeToken) {
+        this.nodeToken = nodeToken;
+    }
+
+    /**
+     * Tells if the cluster mode is enabled.
+     *
+     * @return {@code true} if nodes are configured
+     */
+    public boolean isEnabled() {
+        return ring != null;
+    }
+
+    /**
+     * Returns the URL of this node.
+     *
+     * @return the URL, empty if not configured
+     */
+    public String getSelf() {
+        return self;
+    }
+
+    /**
+     * Returns the node owning a file.
+     *
+     * @param fileName the name of the file
+     * @return the URL of the owner node, this node if the cluster mode is disabled
+     */
+    public String ownerOf(String fileName) {
+        return ring == null ? self : ring.ownerOf(fileName);
+    }
+
+    /**
+     * Tells if a file is owned by this node.
+     *
+     * @param fileName the name of the file
+     * @return {@code true} if this node owns the file, always when the cluster mode is disabled
+     */
+    public boolean isLocal(String fileName) {
+        return ring == null || self.equals(ring.ownerOf(fileName));
+    }
+
+    /**
+     * Returns the other nodes of the cluster.
+     *
+     * @return the URLs of the nodes, empty if the cluster mode is disabled
+     */
+    public List<String> getPeers() {
+        return ring == null ? List.of() : ring.nodes().stream().filter(node -> !node.equals(self)).toList();
+    }
+
+    /**
+     * Sends a GET request to another node, marked as forwarded so that the node answers from
+     * its own files only. The request fails with an {@link HttpTimeoutException} if the node
+     * does not answer within the cluster timeout.
+     *
+     * @param node         the URL of the node
+     * @param pathAndQuery the path of the request, with its query string
+     * @return the future response of the node
+     */
+    public CompletableFuture<HttpResponse<byte[]>> query(String node, String pathAndQuery) {
+        return client.sendAsync(authorized(HttpRequest.newBuilder(URI.create(node + pathAndQuery)))
+                .timeout(timeout)
+                .header(FORWARDED_HEADER, self)
+                .header("Accept", "application/json")
+                .GET()
+                .build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    /**
+     * Returns the time a node is given to answer a request.
+     *
+     * @return the cluster timeout
+     */
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Proxies a request to another node, streaming the request and response bodies. The
+     * response is 502 Bad Gateway if the node cannot be reached, or 504 Gateway Timeout if
+     * it does not answer in time.
+     *
+     * @param request  the request to forward
+     * @param response the response receiving the answer of the node
+     * @param node     the URL of the node
+     * @throws IOException if the response cannot be written
+     */
+    public void proxy(HttpServletRequest request, HttpServletResponse response, String node) throws IOException {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        String query = request.getQueryString();
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(node + path + (query == null ? "" : "?" + query)))
+                .timeout(timeout)
+                .header(FORWARDED_HEADER, self);
+        for (Enumeration<String> names = request.getHeaderNames(); names.hasMoreElements();) {
+            String name = names.nextElement();
+            if (!SKIPPED_HEADERS.contains(name.toLowerCase()) && !FORWARDED_HEADER.equalsIgnoreCase(name)) {
+                for (Enumeration<String> values = request.getHeaders(name); values.hasMoreElements();) {
+                    builder.header(name, values.nextElement());
+                }
+            }
+        }
+        HttpRequest.BodyPublisher body = request.getContentLengthLong() > 0 || request.getHeader("Transfer-Encoding") != null
+                ? HttpRequest.BodyPublishers.ofInputStream(() -> inputOf(request))
+                : HttpRequest.BodyPublishers.noBody();
+        builder.method(request.getMethod(), body);
+
+        HttpResponse<InputStream> answer;
+        try {
+            answer = client.send(builder.build(), HttpResponse.BodyHandlers.ofInputStream());
+        } catch (HttpTimeoutException e) {
+            logger.warn("Proxy to {} timed out. @Cause:{}", node, e.getMessage());
+            response.sendError(HttpStatus.GATEWAY_TIMEOUT.value());
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value());
+            return;
+        } catch (IOException e) {
+            logger.warn("Proxy to {} failed. @Cause:{}", node, e.getMessage());
+            response.sendError(HttpStatus.BAD_GATEWAY.value());
+            return;
+        }
+        proxied.increment();
+        response.setStatus(answer.statusCode());
+        answer.headers().map().forEach((name, values) -> {
+            if (!SKIPPED_HEADERS.contains(name.toLowerCase()) || "content-length".equalsIgnoreCase(name)) {
+                values.forEach(value -> response.addHeader(name, value));
+            }
+        });
+        try (InputStream in = answer.body()) {
+            in.transferTo(response.getOutputStream());
+        }
+    }
+
+    /**
+     * Starts moving the files not owned by this node to their owners, in the background,
+     * once the registry is loaded.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void startRebalance() {
+        if (ring == null || !rebalanceOnStart) {
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            long start = System.nanoTime();
+            int count = rebalance();
+            logger.info("Moved @Moved:{} files to their owner in {} ms", count,
+                    Duration.ofNanos(System.nanoTime() - start).toMillis());
+        }, "webdisk-rebalance");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Moves the files not owned by this node to their owners. A file the owner already holds
+     * is only deleted here, as the copy of the owner is the newer one; other files are
+     * uploaded to the owner, then deleted here. Each file is moved under the lock of its name,
+     * so that a local write racing with the move is not deleted along with the copy. Files
+     * failing to move are kept, and moved by the next rebalance.
+     *
+     * @return the number of files moved
+     */
+    public int rebalance() {
+        if (ring == null) {
+            return 0;
+        }
+        int count = 0;
+        String after = "";
+        String[] page;
+        do {
+            page = cache.listFiles(after, REBALANCE_PAGE);
+            for (String fileName : page) {
+                if (!isLocal(fileName) && moveTo(ring.ownerOf(fileName), fileName)) {
+                    count++;
+                }
+            }
+            after = page.length == 0 ? after : page[page.length - 1];
+        } while (page.length == REBALANCE_PAGE);
+        return count;
+    }
+
+    private boolean moveTo(String node, String fileName) {
+        URI uri = URI.create(node + "/files/" + fileName);
+        Lock lock = locks.lockFor(fileName);
+        lock.lock();
+        try {
+            if (!cache.containsFile(fileName)) {
+                // Deleted meanwhile
+                return false;
+            }
+            HttpResponse<Void> head = client.send(authorized(HttpRequest.newBuilder(uri))
+                    .timeout(timeout)
+                    .header(FORWARDED_HEADER, self)
+                    .method("HEAD", HttpRequest.BodyPublishers.noBody())
+                    .build(), HttpResponse.BodyHandlers.discarding());
+            if (head.statusCode() == HttpStatus.NOT_FOUND.value()) {
+                String boundary = UUID.randomUUID().toString();
+                byte[] opening = ("--" + boundary + "\r\nContent-Disposition: form-data; name=\"file\"; filename=\""
+                        + fileName + "\"\r\nContent-Type: application/octet-stream\r\n\r\n")
+                        .getBytes(StandardCharsets.UTF_8);
+                byte[] closing = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8);
+                HttpResponse<Void> put;
+                // Opened by this thread, holding the lock an archived file is restored under
+                try (InputStream content = storage.getFile(fileName)) {
+                    // Written through by the owner, the copy of this node being deleted next
+                    put = client.send(authorized(HttpRequest.newBuilder(URI.create(uri + "?durability=sync")))
+                            .timeout(timeout)
+                            .header(FORWARDED_HEADER, self)
+                            .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                            .PUT(HttpRequest.BodyPublishers.concat(
+                                    HttpRequest.BodyPublishers.ofByteArray(opening),
+                                    HttpRequest.BodyPublishers.ofInputStream(() -> content),
+                                    HttpRequest.BodyPublishers.ofByteArray(closing)))
+                            .build(), HttpResponse.BodyHandlers.discarding());
+                }
+                if (put.statusCode() / 100 != 2) {
+                    logger.warn("Unable to move {} to {}. @Status:{}", fileName, node, put.statusCode());
+                    return false;
+                }
+            } else if (head.statusCode() / 100 != 2) {
+                logger.warn("Unable to move {} to {}. @Status:{}", fileName, node, head.statusCode());
+                return false;
+            }
+            cache.deleteFile(fileName);
+            storage.deleteFile(fileName);
+            moved.increment();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (IOException | UncheckedIOException e) {
+            logger.warn("Unable to move {} to {}. @Cause:{}", fileName, node,
+                    e instanceof ConnectException ? "connection refused" : e.getMessage());
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static InputStream inputOf(HttpServletRequest request) {
+        try {
+            return request.getInputStream();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String normalize(String url) {
+        String trimmed = url.trim();
+        return trimmed.endsWith("/") ? trimmed.substring(0, trimmed.length() - 1) : trimmed;
+    }
+
+    /**
+     * Adds the token of this node to a request it sends on its own, if configured.
+     */
+    private HttpRequest.Builder authorized(HttpRequest.Builder builder) {
+        return nodeToken.isEmpty() ? builder : builder.header("Authorization", "Bearer " + nodeToken);
+    }
+}
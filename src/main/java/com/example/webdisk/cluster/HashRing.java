@@ -0,0 +1,92 @@
+package com.example.webdisk.cluster;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Consistent hash ring placing file names on the nodes of a cluster.
+ *
+ * <p>Each node is hashed to a number of points of a 64-bit ring, its virtual nodes, and a
+ * name belongs to the node of the first point following the hash of the name. Virtual nodes
+ * spread the names evenly, and when a node joins or leaves, only the names of the ring
+ * arcs it takes or gives up change owner: about one name in N.</p>
+ *
+ * <p>Rings are immutable and thread-safe.</p>
+ */
+public final class HashRing {
+
+    private final List<String> nodes;
+    private final long[] points;
+    private final int[] owners;
+
+    /**
+     * Builds the ring of the given nodes.
+     *
+     * @param nodes        the node URLs, at least one
+     * @param virtualNodes the number of points of each node
+     * @throws IllegalArgumentException if there is no node or no point
+     */
+    public HashRing(List<String> nodes, int virtualNodes) {
+        if (nodes.isEmpty() || virtualNodes < 1) {
+            throw new IllegalArgumentException("A ring needs at least one node and one virtual node");
+        }
+        this.nodes = List.copyOf(nodes);
+        long[] hashes = new long[nodes.size() * virtualNodes];
+        int[] nodeOf = new int[hashes.length];
+        for (int node = 0; node < nodes.size(); node++) {
+            for (int i = 0; i < virtualNodes; i++) {
+                hashes[node * virtualNodes + i] = hash(nodes.get(node) + "#" + i);
+            }
+        }
+        // Sorts the points, keeping their node
+        Integer[] order = new Integer[hashes.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(hashes[a], hashes[b]));
+        this.points = new long[hashes.length];
+        this.owners = new int[hashes.length];
+        for (int i = 0; i < order.length; i++) {
+            points[i] = hashes[order[i]];
+            owners[i] = order[i] / virtualNodes;
+        }
+    }
+
+    /**
+     * Returns the node owning a name.
+     *
+     * @param name the file name
+     * @return the URL of the owner node
+     */
+    public String ownerOf(String name) {
+        int pos = Arrays.binarySearch(points, hash(name));
+        int point = pos >= 0 ? pos : -(pos + 1);
+        return nodes.get(owners[point == points.length ? 0 : point]);
+    }
+
+    /**
+     * Returns the nodes of the ring.
+     *
+     * @return the node URLs
+     */
+    public List<String> nodes() {
+        return nodes;
+    }
+
+    /**
+     * Hashes a string to the ring: FNV-1a over the characters, then the MurmurHash3 64-bit
+     * finalizer, as FNV alone spreads similar names poorly.
+     */
+    static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+}
@@ -0,0 +1,266 @@
+package com.example.webdisk.cluster;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import com.example.webdisk.response.FilesSearchResponse;
+import com.example.webdisk.response.FilesSizeResponse;
+import com.example.webdisk.search.SearchMode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Service answering the searches and counts which span the whole namespace of a cluster, by
+ * querying every other node in parallel and merging their answers with the local one.
+ *
+ * <p>Peers are queried with the {@link ClusterService#FORWARDED_HEADER} header, so each
+ * answers from its own files. A peer failing or not answering within the cluster timeout is
+ * left out, and the response is flagged as partial rather than failed; partial responses are
+ * counted by the "webdisk.cluster.partial" counter.</p>
+ *
+ * <p>Answers are merged as they arrive. Unsorted regular expression results are appended
+ * until the limit is reached, and the peers still running are then cancelled. Sorted prefix
+ * and glob results are merged by a k-way merge of the sorted answers, each peer returning
+ * at most {@code limit} names, which stops once {@code limit} names are out.</p>
+ */
+@Service
+public class ScatterGatherService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ScatterGatherService.class);
+
+    private final ClusterService cluster;
+    private final ObjectMapper mapper;
+    private final Counter partials;
+
+    /**
+     * Constructs a new ScatterGatherService.
+     *
+     * @param cluster  the cluster, querying the peers
+     * @param mapper   the JSON mapper reading the answers of the peers
+     * @param registry the meter registry receiving the partial responses counter
+     */
+    public ScatterGatherService(ClusterService cluster, ObjectMapper mapper, MeterRegistry registry) {
+        this.cluster = cluster;
+        this.mapper = mapper;
+        this.partials = Counter.builder("webdisk.cluster.partial")
+                .description("Cluster wide responses missing the answer of a node")
+                .register(registry);
+    }
+
+    /**
+     * Searches the files of all the nodes.
+     *
+     * @param pattern the prefix, glob or regular expression
+     * @param mode    how the pattern is interpreted
+     * @param limit   the maximum number of names returned
+     * @param local   the matches of this node, sorted for the prefix and glob modes, at most
+     *                {@code limit}
+     * @return the merged matches, sorted for the prefix and glob modes
+     */
+    public FilesSearchResponse search(String pattern, SearchMode mode, int limit, String[] local) {
+        String path = "/files/search?pattern=" + URLEncoder.encode(pattern, StandardCharsets.UTF_8)
+                + "&mode=" + mode.name().toLowerCase(Locale.ROOT) + "&limit=" + limit;
+        Gather<FilesSearchResponse> gather = scatter(path, FilesSearchResponse.class);
+        boolean partial = false;
+        if (mode == SearchMode.REGEX) {
+            Set<String> results = new LinkedHashSet<>();
+            addUpTo(results, local, limit);
+            while (results.size() < limit && gather.hasNext()) {
+                FilesSearchResponse answer = gather.next();
+                if (answer == null || answer.partial()) {
+                    partial = true;
+                }
+                if (answer != null) {
+                    addUpTo(results, answer.results(), limit);
+                }
+            }
+            gather.cancel();
+            return complete(results.toArray(String[]::new), partial);
+        }
+        List<String[]> sorted = new ArrayList<>();
+        sorted.add(local);
+        while (gather.hasNext()) {
+            FilesSearchResponse answer = gather.next();
+            if (answer == null || answer.partial()) {
+                partial = true;
+            }
+            if (answer != null) {
+                sorted.add(answer.results());
+            }
+        }
+        return complete(merge(sorted, limit), partial);
+    }
+
+    /**
+     * Counts the files of all the nodes.
+     *
+     * @param size  the number of files of this node
+     * @param bytes the total size of the files of this node
+     * @return the totals of the cluster
+     */
+    public FilesSizeResponse size(long size, long bytes) {
+        Gather<FilesSizeResponse> gather = scatter("/files/size", FilesSizeResponse.class);
+        boolean partial = false;
+        while (gather.hasNext()) {
+            FilesSizeResponse answer = gather.next();
+            if (answer == null || answer.partial()) {
+                partial = true;
+            }
+            if (answer != null) {
+                size += answer.size();
+                bytes += answer.bytes();
+            }
+        }
+        if (partial) {
+            partials.increment();
+        }
+        return new FilesSizeResponse(size, bytes, partial);
+    }
+
+    /**
+     * Merges sorted arrays of names into a sorted array, without duplicates, of at most
+     * {@code limit} names.
+     *
+     * @param sorted the sorted arrays
+     * @param limit  the maximum number of names
+     * @return the merged names
+     */
+    static String[] merge(List<String[]> sorted, int limit) {
+        // Cursors on the arrays: index of the array, then position in it
+        PriorityQueue<int[]> heads = new PriorityQueue<>(Math.max(1, sorted.size()),
+                (a, b) -> sorted.get(a[0])[a[1]].compareTo(sorted.get(b[0])[b[1]]));
+        for (int i = 0; i < sorted.size(); i++) {
+            if (sorted.get(i).length > 0) {
+                heads.add(new int[] {i, 0});
+            }
+        }
+        List<String> merged = new ArrayList<>();
+        String last = null;
+        while (merged.size() < limit && !heads.isEmpty()) {
+            int[] head = heads.poll();
+            String[] names = sorted.get(head[0]);
+            String name = names[head[1]];
+            if (!name.equals(last)) {
+                merged.add(name);
+                last = name;
+            }
+            if (++head[1] < names.length) {
+                heads.add(head);
+            }
+        }
+        return merged.toArray(String[]::new);
+    }
+
+    private FilesSearchResponse complete(String[] results, boolean partial) {
+        if (partial) {
+            partials.increment();
+        }
+        return new FilesSearchResponse(results, partial);
+    }
+
+    private static void addUpTo(Set<String> results, String[] names, int limit) {
+        for (int i = 0; i < names.length && results.size() < limit; i++) {
+            results.add(names[i]);
+        }
+    }
+
+    /**
+     * Sends a request to every peer, collecting the answers in their order of arrival.
+     */
+    private <T> Gather<T> scatter(String path, Class<T> type) {
+        List<CompletableFuture<?>> requests = new ArrayList<>();
+        BlockingQueue<Answer<T>> answers = new LinkedBlockingQueue<>();
+        for (String node : cluster.getPeers()) {
+            CompletableFuture<HttpResponse<byte[]>> request = cluster.query(node, path);
+            request.orTimeout(cluster.getTimeout().toMillis(), TimeUnit.MILLISECONDS)
+                    .thenApply(read(node, type))
+                    .whenComplete((value, e) -> {
+                        if (e != null) {
+                            logger.warn("Node {} did not answer {}. @Cause:{}", node, path, e.toString());
+                        }
+                        answers.add(new Answer<>(value));
+                    });
+            requests.add(request);
+        }
+        return new Gather<>(requests, answers);
+    }
+
+    private <T> Function<HttpResponse<byte[]>, T> read(String node, Class<T> type) {
+        return response -> {
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("Status " + response.statusCode() + " from " + node);
+            }
+            try {
+                return mapper.readValue(response.body(), type);
+            } catch (IOException e) {
+                throw new IllegalStateException("Invalid answer from " + node, e);
+            }
+        };
+    }
+
+    /**
+     * Answer of a peer, {@code null} if it failed.
+     */
+    private record Answer<T>(T value) {
+    }
+
+    /**
+     * Pending answers of the peers. Every request completes, at the latest when it times
+     * out, so waiting for the next answer is bounded by the cluster timeout.
+     */
+    private static final class Gather<T> {
+
+        private final List<CompletableFuture<?>> requests;
+        private final BlockingQueue<Answer<T>> answers;
+        private int remaining;
+
+        Gather(List<CompletableFuture<?>> requests, BlockingQueue<Answer<T>> answers) {
+            this.requests = requests;
+            this.answers = answers;
+            this.remaining = requests.size();
+        }
+
+        boolean hasNext() {
+            return remaining > 0;
+        }
+
+        /**
+         * Returns the next answer, {@code null} if the peer failed or the wait was
+         * interrupted.
+         */
+        T next() {
+            remaining--;
+            try {
+                return answers.take().value();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancel();
+                remaining = 0;
+                return null;
+            }
+        }
+
+        void cancel() {
+            requests.forEach(request -> request.cancel(true));
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.example.webdisk.codec;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.http.MediaType;
+
+/**
+ * Compact binary format of the name lists returned by the search and listing endpoints, an
+ * alternative to JSON negotiated with the {@value #MEDIA_TYPE_VALUE} media type.
+ *
+ * <p>Names are front coded: each one is written as the length of the prefix it shares with
+ * the previous name, then the length and the bytes of the rest, so sorted results mostly cost
+ * their differing suffixes. Lengths are unsigned LEB128 varints, and names are ASCII, as the
+ * registry only holds such names.</p>
+ *
+ * <pre>
+ * magic     "WDN" 0x01
+ * flags     1 byte: 0x01 partial results, 0x02 next page token present
+ * next      varint length, then bytes, if flagged
+ * count     varint
+ * names     count times: varint shared prefix length, varint suffix length, suffix bytes
+ * </pre>
+ *
+ * <p>The encoder writes the characters of the names held by the registry straight to the
+ * output buffer, without intermediate strings or escaping. The decoder is the reference client
+ * implementation.</p>
+ */
+public final class NamesCodec {
+
+    /** Media type of the format. */
+    public static final String MEDIA_TYPE_VALUE = "application/vnd.webdisk.names";
+
+    /** Media type of the format. */
+    public static final MediaType MEDIA_TYPE = MediaType.parseMediaType(MEDIA_TYPE_VALUE);
+
+    private static final byte[] MAGIC = {'W', 'D', 'N', 1};
+    private static final int PARTIAL = 0x01;
+    private static final int NEXT = 0x02;
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    /**
+     * A decoded name list.
+     *
+     * @param names   the names
+     * @param partial whether some nodes of the cluster did not answer
+     * @param next    the token of the following page, or {@code null}
+     */
+    public record Names(List<String> names, boolean partial, String next) { }
+
+    private NamesCodec() {
+    }
+
+    /**
+     * Encodes a name list.
+     *
+     * @param output  the stream receiving the encoded list, not closed
+     * @param names   the names
+     * @param partial whether some nodes of the cluster did not answer
+     * @param next    the token of the following page, or {@code null}
+     * @throws IOException if the stream cannot be written
+     * @throws IllegalArgumentException if a name is not ASCII
+     */
+    public static void write(OutputStream output, String[] names, boolean partial, String next) throws IOException {
+        Encoder encoder = new Encoder(output);
+        for (byte b : MAGIC) {
+            encoder.write(b);
+        }
+        encoder.write((partial ? PARTIAL : 0) | (next != null ? NEXT : 0));
+        if (next != null) {
+            encoder.writeVarint(next.length());
+            encoder.writeAscii(next, 0);
+        }
+        encoder.writeVarint(names.length);
+        String previous = "";
+        for (String name : names) {
+            int shared = 0;
+            int max = Math.min(previous.length(), name.length());
+            while (shared < max && previous.charAt(shared) == name.charAt(shared)) {
+                shared++;
+            }
+            encoder.writeVarint(shared);
+            encoder.writeVarint(name.length() - shared);
+            encoder.writeAscii(name, shared);
+            previous = name;
+        }
+        encoder.flush();
+    }
+
+    /**
+     * Decodes a name list.
+     *
+     * @param input the stream of the encoded list, after any content encoding is removed
+     * @return the decoded list
+     * @throws IOException if the stream cannot be read or is not in this format
+     */
+    public static Names read(InputStream input) throws IOException {
+        for (byte b : MAGIC) {
+            if (readByte(input) != b) {
+                throw new IOException("Not a name list");
+            }
+        }
+        int flags = readByte(input);
+        String next = (flags & NEXT) != 0 ? new String(readBytes(input, readVarint(input)), StandardCharsets.US_ASCII)
+                : null;
+        int count = readVarint(input);
+        List<String> names = new ArrayList<>(count);
+        byte[] name = new byte[0];
+        for (int i = 0; i < count; i++) {
+            int shared = readVarint(input);
+            int suffix = readVarint(input);
+            if (shared > name.length) {
+                throw new IOException("Invalid shared prefix length");
+            }
+            byte[] current = new byte[shared + suffix];
+            System.arraycopy(name, 0, current, 0, shared);
+            System.arraycopy(readBytes(input, suffix), 0, current, shared, suffix);
+            names.add(new String(current, StandardCharsets.US_ASCII));
+            name = current;
+        }
+        return new Names(names, (flags & PARTIAL) != 0, next);
+    }
+
+    private static int readByte(InputStream input) throws IOException {
+        int b = input.read();
+        if (b < 0) {
+            throw new EOFException("Truncated name list");
+        }
+        return b;
+    }
+
+    private static byte[] readBytes(InputStream input, int length) throws IOException {
+        byte[] bytes = input.readNBytes(length);
+        if (bytes.length < length) {
+            throw new EOFException("Truncated name list");
+        }
+        return bytes;
+    }
+
+    private static int readVarint(InputStream input) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = readByte(input);
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Invalid length");
+    }
+
+    /**
+     * Buffered writer of bytes, varints and ASCII characters.
+     */
+    private static final class Encoder {
+
+        private final OutputStream output;
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private int position;
+
+        Encoder(OutputStream output) {
+            this.output = output;
+        }
+
+        void write(int b) throws IOException {
+            if (position == buffer.length) {
+                flush();
+            }
+            buffer[position++] = (byte) b;
+        }
+
+        void writeVarint(int value) throws IOException {
+            while ((value & ~0x7F) != 0) {
+                write((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            write(value);
+        }
+
+        void writeAscii(String text, int from) throws IOException {
+            for (int i = from; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c > 0x7F) {
+                    throw new IllegalArgumentException("Not an ASCII name");
+                }
+                write(c);
+            }
+        }
+
+        void flush() throws IOException {
+            output.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+}
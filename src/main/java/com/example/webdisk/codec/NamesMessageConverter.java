@@ -0,0 +1,57 @@
+package com.example.webdisk.codec;
+
+import java.io.IOException;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+
+import com.example.webdisk.response.FilesListResponse;
+import com.example.webdisk.response.FilesSearchResponse;
+
+/**
+ * Writes the search and listing responses in the {@link NamesCodec} format, for the requests
+ * accepting {@value NamesCodec#MEDIA_TYPE_VALUE}. The endpoints list the format after JSON in
+ * their produced media types, so that JSON stays the default.
+ */
+@Component
+public class NamesMessageConverter extends AbstractHttpMessageConverter<Object> {
+
+    /**
+     * Constructs the converter of the {@link NamesCodec} media type.
+     */
+    public NamesMessageConverter() {
+        super(NamesCodec.MEDIA_TYPE);
+    }
+
+    @Override
+    protected boolean supports(@NonNull Class<?> clazz) {
+        return FilesSearchResponse.class == clazz || FilesListResponse.class == clazz;
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    @NonNull
+    protected Object readInternal(@NonNull Class<?> clazz, @NonNull HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Name lists are not accepted as input", inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(@NonNull Object response, @NonNull HttpOutputMessage outputMessage)
+            throws IOException {
+        if (response instanceof FilesSearchResponse search) {
+            NamesCodec.write(outputMessage.getBody(), search.results(), search.partial(), null);
+        } else {
+            FilesListResponse list = (FilesListResponse) response;
+            NamesCodec.write(outputMessage.getBody(), list.names(), false, list.next());
+        }
+    }
+}
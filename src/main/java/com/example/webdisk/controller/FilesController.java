@@ -9,16 +9,32 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.springframework.core.io.InputStreamResource;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 
+import com.example.webdisk.analytics.HotKeysService;
+import com.example.webdisk.cluster.ClusterService;
+import com.example.webdisk.cluster.ScatterGatherService;
+import com.example.webdisk.codec.NamesCodec;
+import com.example.webdisk.replication.ReplicationService;
+import com.example.webdisk.response.FilesListResponse;
 import com.example.webdisk.response.FilesPostFileResponse;
 import com.example.webdisk.response.FilesSearchResponse;
 import com.example.webdisk.response.FilesSizeResponse;
+import com.example.webdisk.response.FilesStatsResponse;
+import com.example.webdisk.search.SearchMode;
+import com.example.webdisk.service.Durability;
 import com.example.webdisk.service.FilesService;
+import com.example.webdisk.service.NameLocks;
+import com.example.webdisk.service.WriteCoalescer;
 import com.example.webdisk.service.CacheService;
+import com.example.webdisk.service.FileMetadata;
+import com.example.webdisk.service.WatchService;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -29,8 +45,11 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.Base64;
+import java.util.concurrent.locks.Lock;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -52,7 +71,11 @@ import jakarta.servlet.http.HttpServletRequest;
  * <li>PUT /files/{fileName} - Updates an existing file.</li>
  * <li>DELETE /files/{fileName} - Deletes a file by its name.</li>
  * <li>GET /files/search - Searches for files matching a given pattern.</li>
+ * <li>GET /files/list - Lists the files in lexicographic order, by pages.</li>
+ * <li>GET /files/similar - Finds the files whose name is within an edit distance of a given name.</li>
+ * <li>GET /files/watch - Streams the files matching a given pattern, then their changes.</li>
  * <li>GET /files/size - Returns the total number of files stored by the application.</li>
+ * <li>GET /files/stats - Returns the storage statistics: total bytes, size and name length distributions.</li>
  * <li>GET /files/restricted - Demo endpoint for security implementation.</li>
  * </ul>
  * 
@@ -60,11 +83,19 @@ import jakarta.servlet.http.HttpServletRequest;
  * <ul>
  * <li>FilesCache - A cache for storing file metadata.</li>
  * <li>FilesAccess - A service for performing file operations.</li>
+ * <li>WatchService - A service streaming registry changes to standing queries.</li>
+ * <li>ClusterService - The placement of the files on the nodes of a cluster.</li>
+ * <li>NameLocks - The locks serializing the changes of a file with its registry entry.</li>
  * <li>Logger - For logging operations and errors.</li>
  * </ul>
  * 
  * <p>The controller initializes the cache with existing filenames from storage
  * when the application starts.</p>
+ * 
+ * <p>Writes and deletes of a file name update the storage and the cache under the lock of
+ * the name, and reads take the metadata and open the file under it, so that the headers
+ * always describe the content sent. Overwrites of a name waiting for its lock are
+ * coalesced: only the latest content is written.</p>
  */
 @RestController
 @RequestMapping("/files")
@@ -73,19 +104,53 @@ public class FilesController {
 
     private CacheService cache;
     private FilesService storage;
+    private WatchService watch;
+    private ClusterService cluster;
+    private ScatterGatherService gather;
+    private ReplicationService replication;
+    private NameLocks locks;
+    private HotKeysService hotKeys;
+    private WriteCoalescer<Upload, String> overwrites;
 
     private static final Logger logger = LoggerFactory.getLogger(FilesController.class);
     private static final String LOG_WEB_FORMAT = "@Requst:{} {}";
+    private static final int MAX_LIST_LIMIT = 10_000;
+
+    /**
+     * The body of an overwrite, with the durability it was requested with.
+     */
+    private record Upload(MultipartFile file, Durability durability) { }
 
     /**
      * Constructs a new FilesController with the specified cache and storage.
      *
-     * @param cache   the cache to be used by this controller
-     * @param storage the storage to be used by this controller
+     * @param cache       the cache to be used by this controller
+     * @param storage     the storage to be used by this controller
+     * @param watch       the standing queries service to be used by this controller
+     * @param cluster     the cluster placing the files, giving new files names owned by this node
+     * @param gather      the cluster wide searches and counts
+     * @param replication the change log of the writes, for the followers
+     * @param locks       the locks of the file names
+     * @param hotKeys     the tracker of the heaviest file names and principals
      */
-    public FilesController(CacheService cache, FilesService storage) {
+    public FilesController(CacheService cache, FilesService storage, WatchService watch, ClusterService cluster,
+            ScatterGatherService gather, ReplicationService replication, NameLocks locks, HotKeysService hotKeys) {
         this.cache = cache;
         this.storage = storage;
+        this.watch = watch;
+        this.cluster = cluster;
+        this.gather = gather;
+        this.replication = replication;
+        this.locks = locks;
+        this.hotKeys = hotKeys;
+        this.overwrites = new WriteCoalescer<>(locks, (fileName, upload) -> {
+            // FilesAccess.putFile() does replace existing content, if any, possibly written behind
+            FileMetadata metadata = storage.putFile(fileName, upload.file(), upload.durability());
+            // Adds a new file, or updates the metadata of an existing one
+            cache.putFile(fileName, metadata);
+            // Logged in the order the writes of the name are applied
+            return replication.record("PUT", fileName);
+        });
     }
 
     /**
@@ -110,12 +175,14 @@ public class FilesController {
     /**
      * Handles the HTTP GET request to obtain the size of storage in number of files.
      * 
-     * <p>Returns the number of files encapsulated in a {@link FilesSizeResponse} object.</p>
+     * <p>Returns the number of files and their total size in bytes, encapsulated in a
+     * {@link FilesSizeResponse} object. In cluster mode, the totals cover all the nodes,
+     * and are flagged as partial if a node did not answer.</p>
      * 
      * <pre>
      * curl -X GET http://localhost:8080/files/size -H "accept: application/json"
      * 
-     * {"size":7}
+     * {"size":7,"bytes":19,"partial":false}
      * </pre>
      * 
      * @param request the {@link HttpServletRequest} object that contains the
@@ -123,18 +190,49 @@ public class FilesController {
      * @return a {@link ResponseEntity} containing the {@link FilesSizeResponse}
      *         with the number of files
      */
-    @Operation(summary = "Storage size", description = "Returns the total number of files stored by the application")
+    @Operation(summary = "Storage size", description = "Returns the total number of files stored by the application and their size")
     @ApiResponse(responseCode = "200", content = {
             @Content(schema = @Schema(implementation = FilesSizeResponse.class), mediaType = "application/json")})
 
     @GetMapping("/size")
     public ResponseEntity<FilesSizeResponse> getFilesSize(HttpServletRequest request) {
         logger.info(LOG_WEB_FORMAT, request.getMethod(), request.getRequestURI());
-        return ResponseEntity.ok(new FilesSizeResponse(cache.getSize()));
+        if (isClusterWide(request)) {
+            return ResponseEntity.ok(gather.size(cache.getSize(), storage.getStats().getBytes()));
+        }
+        return ResponseEntity.ok(new FilesSizeResponse(cache.getSize(), storage.getStats().getBytes()));
     }
 
     /**
-     * Handles HTTP GET and HEAD requests to retrieve a file by its name. 
+     * Handles the HTTP GET request to obtain the storage statistics. Statistics are kept up
+     * to date by each write and delete, so this request never reads the storage.
+     * 
+     * <pre>
+     * curl -X GET http://localhost:8080/files/stats -H "accept: application/json"
+     * 
+     * {"files":7,"bytes":19,"sizes":[{"min":0,"max":0,"count":4},{"min":2,"max":3,"count":1},
+     *  {"min":8,"max":15,"count":2}],"nameLengths":{"3":2,"6":1,"13":1,"14":1,"18":1,"61":1}}
+     * </pre>
+     * 
+     * @param request the {@link HttpServletRequest} object that contains the
+     *                request the client has made to the servlet
+     * @return a {@link ResponseEntity} containing the {@link FilesStatsResponse}
+     */
+    @Operation(summary = "Storage statistics",
+            description = "Returns the total size of the stored files, their size histogram and name length distribution")
+    @ApiResponse(responseCode = "200", content = {
+            @Content(schema = @Schema(implementation = FilesStatsResponse.class), mediaType = "application/json")})
+
+    @GetMapping("/stats")
+    public ResponseEntity<FilesStatsResponse> getFilesStats(HttpServletRequest request) {
+        logger.info(LOG_WEB_FORMAT, request.getMethod(), request.getRequestURI());
+        return ResponseEntity.ok(storage.getStats().toResponse());
+    }
+
+    /**
+     * Handles HTTP GET and HEAD requests to retrieve a file by its name. The Content-Length,
+     * Last-Modified and, for files uploaded through the service, ETag headers are taken from
+     * the metadata held by the registry.
      * 
      * <pre>
      * curl -O -X GET http://localhost:8080/files/one
@@ -158,31 +256,77 @@ public class FilesController {
             HttpServletRequest request) {
         logger.info(LOG_WEB_FORMAT, request.getMethod(), request.getRequestURI());
 
-        if (!cache.containsFile(fileName)) {
+        boolean head = "HEAD".equals(request.getMethod());
+        FileMetadata metadata = null;
+        InputStream fileStream = null;
+        // Read under the shared lock of the name, unless the file must be promoted from the
+        // archive, which takes its exclusive lock
+        for (boolean promote : new boolean[] {false, true}) {
+            Lock lock = promote ? locks.lockFor(fileName) : locks.readLockFor(fileName);
+            lock.lock();
+            try {
+                metadata = cache.getMetadata(fileName);
+                if (metadata == null || head) {
+                    break;
+                }
+                // Opened along with the metadata, an overwrite does not change the content read
+                fileStream = storage.getFile(fileName, promote);
+                if (fileStream != null) {
+                    cache.recordAccess(fileName);
+                    break;
+                }
+            } catch (IOException e) {
+                logger.error(LOG_WEB_FORMAT + ": Unable to read file {}. @Cause:{}",
+                        request.getMethod(), request.getRequestURI(), fileName, e.getMessage());
+                return ResponseEntity.internalServerError().build();
+            } finally {
+                lock.unlock();
+            }
+        }
+        if (fileStream != null) {
+            hotKeys.recordRead(fileName, metadata.size(), request.getUserPrincipal());
+        } else {
+            hotKeys.recordRequest(request.getUserPrincipal());
+        }
+        if (metadata == null) {
             return ResponseEntity.notFound().build();
         }
 
-        if ("HEAD".equals(request.getMethod())) {
-            return ResponseEntity.ok().build();
+        // Headers are served from the registry, without reading the storage
+        HttpHeaders headers = metadataHeaders(metadata);
+        if (head) {
+            return ResponseEntity.ok().headers(headers).build();
         }
 
-        try {
-            InputStream fileStream = storage.getFile(fileName);
-            InputStreamResource resource = new InputStreamResource(fileStream);
-            HttpHeaders headers = new HttpHeaders();
-            headers.add(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + fileName);
-
-            return ResponseEntity.ok()
-                    .headers(headers)
-                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                    .body(resource);
-        } catch (IOException e) {
-            logger.error(LOG_WEB_FORMAT + ": Unable to read file {}. @Cause:{}",
-                    request.getMethod(), request.getRequestURI(), fileName, e.getMessage());
-            return ResponseEntity.internalServerError().build();
-        }
+        InputStreamResource resource = new InputStreamResource(fileStream);
+        headers.add(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + fileName);
+
+        return ResponseEntity.ok()
+                .headers(headers)
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .body(resource);
     }
     
+    /**
+     * Builds the response headers describing a file from its metadata. Nothing is sent for
+     * a file whose metadata is not known yet.
+     *
+     * @param metadata the metadata of the file
+     * @return the Content-Length, Last-Modified and ETag headers, when known
+     */
+    private static HttpHeaders metadataHeaders(FileMetadata metadata) {
+        HttpHeaders headers = new HttpHeaders();
+        if (metadata.lastModified() == 0) {
+            return headers;
+        }
+        headers.setContentLength(metadata.size());
+        headers.setLastModified(metadata.lastModified() * 1000);
+        if (metadata.checksum() != 0) {
+            headers.setETag(String.format("\"%08x\"", metadata.checksum()));
+        }
+        return headers;
+    }
+
     /**
      * Handles the HTTP POST request to upload a new file. 
      * 
@@ -193,6 +337,8 @@ public class FilesController {
      * </pre>
      * 
      * @param file the file content to be uploaded
+     * @param durability "buffered" for acknowledging a small file once held by the write-behind
+     *                   buffer, if enabled, or "sync" once written to its volume
      * @param request the HTTP servlet request
      * @return a ResponseEntity containing the response with the new file name
      */
@@ -203,20 +349,35 @@ public class FilesController {
     @PostMapping("/upload")
     public ResponseEntity<FilesPostFileResponse> postFile(
             @RequestParam MultipartFile file,
+            @RequestParam(defaultValue = "buffered") String durability,
             HttpServletRequest request) {
         logger.info(LOG_WEB_FORMAT, request.getMethod(), request.getRequestURI());
+        Durability level;
+        try {
+            level = Durability.of(durability);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
 
-        String newFileName = cache.newFile();
+        // In cluster mode, the name is chosen among the names owned by this node
+        String newFileName = cache.newFile(cluster::isLocal);
+        Lock lock = locks.lockFor(newFileName);
+        lock.lock();
+        String token;
         try {
-            storage.putFile(newFileName, file);
+            cache.putFile(newFileName, storage.putFile(newFileName, file, level));
+            token = replication.record("PUT", newFileName);
         } catch (IOException e) {
             // Revert incomplete create
             cache.deleteFile(newFileName);
             logger.error(LOG_WEB_FORMAT + ": Unable to post new file. @Cause:{}",
                     request.getMethod(), request.getRequestURI(), e.getMessage());
             return ResponseEntity.internalServerError().build();
+        } finally {
+            lock.unlock();
         }
-        return ResponseEntity.ok(new FilesPostFileResponse(newFileName));
+        hotKeys.recordWrite(newFileName, file.getSize(), request.getUserPrincipal());
+        return written(token).body(new FilesPostFileResponse(newFileName));
     }
 
     /**
@@ -228,21 +389,24 @@ public class FilesController {
      * 
      * @param fileName the name of the file to be uploaded or updated
      * @param file the content of the file to be uploaded
+     * @param durability "buffered" for acknowledging a small file once held by the write-behind
+     *                   buffer, if enabled, or "sync" once written to its volume
      * @param request the HTTP request object
      * @return a ResponseEntity with the appropriate HTTP status code and message
      *         - 200 OK if the file is successfully uploaded or updated
-     *         - 400 Bad Request if the filename is invalid
+     *         - 400 Bad Request if the filename or durability is invalid
      *         - 500 Internal Server Error if an error occurs during the file operation
      */
     @Operation(summary = "Upload or update", description = "Upload a file, replacing current content if it already exists")
     @ApiResponse(responseCode = "200", description = "OK if the file is successfully uploaded or updated",
             content={ @Content(schema = @Schema(implementation = Void.class)) })
-    @ApiResponse(responseCode = "400", description = "Bad Request if the filename is invalid")
+    @ApiResponse(responseCode = "400", description = "Bad Request if the filename or durability is invalid")
 
     @PutMapping("/{fileName}")
     public ResponseEntity<String> putFile(
             @PathVariable String fileName,
             @RequestParam MultipartFile file,
+            @RequestParam(defaultValue = "buffered") String durability,
             HttpServletRequest request) {
         logger.info(LOG_WEB_FORMAT, request.getMethod(), request.getRequestURI());
 
@@ -250,20 +414,28 @@ public class FilesController {
         if (!cache.isValid(fileName)) {
             return ResponseEntity.status(400).body("Invalid filename");
         }
+        Durability level;
+        try {
+            level = Durability.of(durability);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
 
+        String token;
         try {
-            // FilesAccess.putFile() does replace existing content, if any
-            storage.putFile(fileName, file);
-            // New file
-            if (!cache.containsFile(fileName)) {
-                cache.putFile(fileName);
+            // Written under the lock of the name, or superseded by a later overwrite waiting for it
+            token = overwrites.write(fileName, new Upload(file, level));
+            if (level == Durability.SYNC) {
+                // Superseded by a buffered overwrite, the content of the name is still on its volume once answered
+                storage.flushFile(fileName);
             }
         } catch (IOException e) {
             logger.error(LOG_WEB_FORMAT + ": Unable to put file. @Cause:{}", 
                     request.getMethod(), request.getRequestURI(), e.getMessage());
             return ResponseEntity.internalServerError().build();
         }
-        return ResponseEntity.ok("");
+        hotKeys.recordWrite(fileName, file.getSize(), request.getUserPrincipal());
+        return written(token).body("");
     }
 
     /**
@@ -287,56 +459,222 @@ public class FilesController {
     public ResponseEntity<String> deleteFile(@PathVariable String fileName, HttpServletRequest request) {
         logger.info(LOG_WEB_FORMAT, request.getMethod(), request.getRequestURI());
 
-        if (!cache.containsFile(fileName)) {
-            return ResponseEntity.notFound().build();
-        }
-
-        cache.deleteFile(fileName);
+        Lock lock = locks.lockFor(fileName);
+        lock.lock();
+        String token;
         try {
-            storage.deleteFile(fileName);
-        } catch (IOException e) {
-            // Revert incomplete delete
-            cache.putFile(fileName);
-            logger.error(LOG_WEB_FORMAT + ": Unable to delete file. @Cause:{}", 
-                    request.getMethod(), request.getRequestURI(), e.getMessage());
-            return ResponseEntity.internalServerError().build();
+            FileMetadata metadata = cache.getMetadata(fileName);
+            if (metadata == null) {
+                return ResponseEntity.notFound().build();
+            }
+            cache.deleteFile(fileName);
+            try {
+                storage.deleteFile(fileName);
+            } catch (IOException e) {
+                // Revert incomplete delete
+                cache.putFile(fileName, metadata);
+                logger.error(LOG_WEB_FORMAT + ": Unable to delete file. @Cause:{}", 
+                        request.getMethod(), request.getRequestURI(), e.getMessage());
+                return ResponseEntity.internalServerError().build();
+            }
+            token = replication.record("DELETE", fileName);
+        } finally {
+            lock.unlock();
         }
-        return ResponseEntity.ok("");
+        hotKeys.recordWrite(fileName, 0, request.getUserPrincipal());
+        return written(token).body("");
     }
 
     /**
      * Handles GET requests to search for files matching a given pattern. 
      * This operation is not run async, given the nature of the cache.
      * 
+     * <p>The pattern is a regular expression by default. With {@code mode=prefix} or
+     * {@code mode=glob}, it is a name prefix or a glob, and the results are sorted. With a
+     * {@code limit}, only the first matches are returned: the lowest ones when sorted.</p>
+     * 
+     * <p>Requests accepting {@value NamesCodec#MEDIA_TYPE_VALUE} receive the results in the
+     * compact {@link NamesCodec} binary format rather than JSON, as do the listing and the
+     * similar names.</p>
+     * 
+     * <p>In cluster mode, the search covers all the nodes, and the results are flagged as
+     * partial if a node did not answer.</p>
+     * 
      * <pre>
      * curl -X GET http://localhost:8080/files/search?pattern=one
      * 
-     * {"results":["one","andone"]}
+     * {"results":["one","andone"],"partial":false}
+     * 
+     * curl -X GET "http://localhost:8080/files/search?pattern=f_*&mode=glob&limit=100"
+     * 
+     * curl -X GET -H "Accept: application/vnd.webdisk.names" "http://localhost:8080/files/search?pattern=f_.*"
      * </pre>
      * 
      * @param pattern the search pattern to match files against
+     * @param mode    how the pattern is interpreted: prefix, glob or regex
+     * @param limit   the maximum number of results, none by default
      * @param request the HttpServletRequest object containing the request details
      * @return a ResponseEntity containing a FilesSearchResponse with the search results
      */
-    @Operation(summary = "Search files", description = "Use a Regexp pattern to search for files")
+    @Operation(summary = "Search files", description = "Use a Regexp pattern, a name prefix or a glob to search for files")
     @ApiResponse(responseCode = "200", content = {
-            @Content(schema = @Schema(implementation = FilesSearchResponse.class), mediaType = "application/json")})
+            @Content(schema = @Schema(implementation = FilesSearchResponse.class), mediaType = "application/json"),
+            @Content(mediaType = NamesCodec.MEDIA_TYPE_VALUE)})
+    @ApiResponse(responseCode = "400", description = "Invalid pattern, mode or limit")
 
-    @GetMapping("/search")
+    @GetMapping(path = "/search", produces = {MediaType.APPLICATION_JSON_VALUE, NamesCodec.MEDIA_TYPE_VALUE})
     public ResponseEntity<FilesSearchResponse> getFilesSearch(@RequestParam String pattern,
-            HttpServletRequest request) {
+            @RequestParam(defaultValue = "regex") String mode,
+            @RequestParam(defaultValue = "" + Integer.MAX_VALUE) int limit, HttpServletRequest request) {
         logger.info(LOG_WEB_FORMAT, request.getMethod(), 
                 request.getRequestURI() + "?" + request.getQueryString());
+        hotKeys.recordRequest(request.getUserPrincipal());
 
         // Pattern matching the entire cache could be intensive and should be part of telemetry
         Instant start = Instant.now();
-        String[] results = cache.findFilesForPattern(pattern);
+        if (limit < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Limit must be positive");
+        }
+        SearchMode searchMode;
+        String[] results;
+        try {
+            searchMode = SearchMode.of(mode);
+            results = cache.findFiles(pattern, searchMode, limit);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        FilesSearchResponse response = isClusterWide(request)
+                ? gather.search(pattern, searchMode, limit, results)
+                : new FilesSearchResponse(results);
         Instant end = Instant.now();
 
         logger.info("Search for {} took @Search:{} ms", pattern, Duration.between(start, end).toMillis());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Handles GET requests to find the files whose name is similar to a given, possibly
+     * mistyped, name: within the given number of inserted, deleted or substituted
+     * characters. Results are sorted by distance, then in lexicographic order.
+     * 
+     * <pre>
+     * curl -X GET "http://localhost:8080/files/similar?name=ome&amp;distance=1"
+     * 
+     * {"results":["one"],"partial":false}
+     * </pre>
+     * 
+     * @param name     the name to look for
+     * @param distance the maximum edit distance, from 0 to 2
+     * @param request  the HttpServletRequest object containing the request details
+     * @return a ResponseEntity containing a FilesSearchResponse with the similar names
+     */
+    @Operation(summary = "Similar files", description = "Finds the files whose name is within an edit distance of a given name")
+    @ApiResponse(responseCode = "200", content = {
+            @Content(schema = @Schema(implementation = FilesSearchResponse.class), mediaType = "application/json"),
+            @Content(mediaType = NamesCodec.MEDIA_TYPE_VALUE)})
+    @ApiResponse(responseCode = "400", description = "Invalid name or distance")
+
+    @GetMapping(path = "/similar", produces = {MediaType.APPLICATION_JSON_VALUE, NamesCodec.MEDIA_TYPE_VALUE})
+    public ResponseEntity<FilesSearchResponse> getFilesSimilar(@RequestParam String name,
+            @RequestParam(defaultValue = "1") int distance, HttpServletRequest request) {
+        logger.info(LOG_WEB_FORMAT, request.getMethod(),
+                request.getRequestURI() + "?" + request.getQueryString());
+        hotKeys.recordRequest(request.getUserPrincipal());
+        if (!cache.isValid(name)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid file name");
+        }
+        Instant start = Instant.now();
+        String[] results;
+        try {
+            results = cache.findSimilarFiles(name, distance);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        logger.info("Similar to {} took @Search:{} ms", name, Duration.between(start, Instant.now()).toMillis());
         return ResponseEntity.ok(new FilesSearchResponse(results));
     }
 
+    /**
+     * Handles GET requests to list the files in lexicographic order, by pages. Each page
+     * holds up to {@code limit} names and the token of the following page, passed as
+     * {@code after} to get it. Pages cost a lookup in the sorted registry and the copy of
+     * their names; listings stay correct under concurrent writes, without any state kept
+     * between pages.
+     * 
+     * <pre>
+     * curl -X GET "http://localhost:8080/files/list?limit=2"
+     * 
+     * {"names":["CoMwG-IlQAWnkKt_XnK9MpQg1w2SA4SXiFDSgBg4TX0Tj1C5rKDM7pHe2OFCm","ROiciMp1DqRLAe"],
+     *  "next":"Uk9pY2lNcDFEcVJMQWU"}
+     * 
+     * curl -X GET "http://localhost:8080/files/list?limit=2&amp;after=Uk9pY2lNcDFEcVJMQWU"
+     * </pre>
+     * 
+     * @param after   the token returned with the previous page, none for the first page
+     * @param limit   the maximum number of names of the page, from 1 to 10000
+     * @param request the HttpServletRequest object containing the request details
+     * @return a ResponseEntity containing a FilesListResponse with the page
+     */
+    @Operation(summary = "List files", description = "Lists the files in lexicographic order, by pages")
+    @ApiResponse(responseCode = "200", content = {
+            @Content(schema = @Schema(implementation = FilesListResponse.class), mediaType = "application/json"),
+            @Content(mediaType = NamesCodec.MEDIA_TYPE_VALUE)})
+    @ApiResponse(responseCode = "400", description = "Invalid token or limit")
+
+    @GetMapping(path = "/list", produces = {MediaType.APPLICATION_JSON_VALUE, NamesCodec.MEDIA_TYPE_VALUE})
+    public ResponseEntity<FilesListResponse> getFilesList(@RequestParam(defaultValue = "") String after,
+            @RequestParam(defaultValue = "1000") int limit, HttpServletRequest request) {
+        logger.info(LOG_WEB_FORMAT, request.getMethod(),
+                request.getRequestURI() + (request.getQueryString() == null ? "" : "?" + request.getQueryString()));
+        hotKeys.recordRequest(request.getUserPrincipal());
+        if (limit < 1 || limit > MAX_LIST_LIMIT) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Limit must be between 1 and " + MAX_LIST_LIMIT);
+        }
+        String last;
+        try {
+            last = new String(Base64.getUrlDecoder().decode(after), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid token");
+        }
+        String[] names = cache.listFiles(last, limit);
+        String next = names.length < limit ? null
+                : Base64.getUrlEncoder().withoutPadding()
+                        .encodeToString(names[names.length - 1].getBytes(StandardCharsets.UTF_8));
+        return ResponseEntity.ok(new FilesListResponse(names, next));
+    }
+
+    /**
+     * Handles GET requests to watch the files matching a given pattern, as a standing query.
+     * The response is a Server-Sent Events stream: a snapshot event with the current matches,
+     * then an added or removed event for each matching change. A client falling behind
+     * receives a resync event and the stream is closed; it should watch again.
+     * 
+     * <pre>
+     * curl -N -X GET http://localhost:8080/files/watch?pattern=one
+     * 
+     * event:snapshot
+     * data:{"results":["one","andone"],"partial":false}
+     * 
+     * event:added
+     * data:oneup
+     * </pre>
+     * 
+     * @param pattern the search pattern to match files against
+     * @param request the HttpServletRequest object containing the request details
+     * @return the event stream of the standing query
+     */
+    @Operation(summary = "Watch files", description = "Stream the files matching a Regexp pattern, then their changes")
+    @ApiResponse(responseCode = "200", description = "Server-Sent Events: snapshot, added, removed, resync",
+            content = { @Content(mediaType = MediaType.TEXT_EVENT_STREAM_VALUE) })
+    @ApiResponse(responseCode = "503", description = "Too many standing queries", content = @Content)
+
+    @GetMapping(path = "/watch", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter getFilesWatch(@RequestParam String pattern, HttpServletRequest request) {
+        logger.info(LOG_WEB_FORMAT, request.getMethod(),
+                request.getRequestURI() + "?" + request.getQueryString());
+        return watch.subscribe(pattern);
+    }
+
     /**
      * Handles GET requests to the /restricted endpoint.
      * Demo endpoint for basic implementation of security, with preauthentication. For granting access,
@@ -362,4 +700,21 @@ public class FilesController {
         return ResponseEntity.ok("Authorized");
     }
 
+    /**
+     * Tells if a request covers the files of all the nodes: in cluster mode, unless it was
+     * sent by another node, which covers the others itself.
+     */
+    private boolean isClusterWide(HttpServletRequest request) {
+        return cluster.isEnabled() && request.getHeader(ClusterService.FORWARDED_HEADER) == null;
+    }
+
+    /**
+     * Starts the response of a write, with the token of the write for reading it back from
+     * a follower. The write is recorded in the change log under the lock of its name, so
+     * that the writes of a name are logged in the order they were applied.
+     */
+    private ResponseEntity.BodyBuilder written(String token) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok();
+        return token == null ? builder : builder.header(ReplicationService.SEQUENCE_HEADER, token);
+    }
 }
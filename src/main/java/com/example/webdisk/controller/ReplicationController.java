@@ -0,0 +1,117 @@
+package com.example.webdisk.controller;
+
+import java.time.Duration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.example.webdisk.replication.ReplicationService;
+import com.example.webdisk.response.ReplicationLogResponse;
+import com.example.webdisk.response.ReplicationStatusResponse;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * REST controller of the replication between a primary node and its followers.
+ *
+ * <p>Endpoints:</p>
+ * <ul>
+ * <li>GET /replication/log - Returns the changes of the primary following a sequence number.</li>
+ * <li>GET /replication/status - Returns the role of the node and its replication lag.</li>
+ * </ul>
+ */
+@RestController
+@RequestMapping("/replication")
+@Tag(name = "Replication")
+public class ReplicationController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicationController.class);
+    private static final int MAX_LOG_LIMIT = 10_000;
+
+    private final ReplicationService replication;
+
+    /**
+     * Constructs a new ReplicationController.
+     *
+     * @param replication the replication service
+     */
+    public ReplicationController(ReplicationService replication) {
+        this.replication = replication;
+    }
+
+    /**
+     * Handles GET requests of a follower for the changes of this primary following the
+     * latest one it applied. The request waits up to {@code wait} milliseconds for a change
+     * when there is none yet. No changes are returned if they are not in the log any more:
+     * the follower then resynchronizes.
+     *
+     * <pre>
+     * curl -X GET "http://localhost:8080/replication/log?after=0&amp;limit=2&amp;wait=0"
+     *
+     * {"epoch":"m2x9k1qz","first":1,"last":3,"changes":[{"sequence":1,"operation":"PUT","name":"one",
+     *  "timestamp":1760868000000},{"sequence":2,"operation":"DELETE","name":"two","timestamp":1760868000100}]}
+     * </pre>
+     *
+     * @param after   the sequence number of the latest change applied
+     * @param limit   the maximum number of changes returned, from 1 to 10000
+     * @param wait    the maximum time to wait for a change, in milliseconds
+     * @param request the HttpServletRequest object containing the request details
+     * @return a ResponseEntity containing a ReplicationLogResponse with the changes, or a
+     *         404 Not Found status if this node has no change log
+     */
+    @Operation(summary = "Change log", description = "Returns the changes of the primary following a sequence number")
+    @ApiResponse(responseCode = "200", content = {
+            @Content(schema = @Schema(implementation = ReplicationLogResponse.class), mediaType = "application/json")})
+    @ApiResponse(responseCode = "400", description = "Invalid sequence number or limit")
+    @ApiResponse(responseCode = "404", description = "Not a primary, or change log disabled")
+
+    @GetMapping("/log")
+    public ResponseEntity<ReplicationLogResponse> getLog(@RequestParam long after,
+            @RequestParam(defaultValue = "500") int limit, @RequestParam(defaultValue = "0") long wait,
+            HttpServletRequest request) {
+        logger.debug("@Requst:{} {}?{}", request.getMethod(), request.getRequestURI(), request.getQueryString());
+        if (after < 0 || limit < 1 || limit > MAX_LOG_LIMIT || wait < 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid sequence number, limit or wait");
+        }
+        ReplicationLogResponse changes;
+        try {
+            changes = replication.readLog(after, limit, Duration.ofMillis(wait));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return changes == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(changes);
+    }
+
+    /**
+     * Handles GET requests for the replication state of this node.
+     *
+     * <pre>
+     * curl -X GET http://localhost:8082/replication/status
+     *
+     * {"role":"follower","epoch":"m2x9k1qz","sequence":3,"primary":3,"lag":0,"lagMillis":0}
+     * </pre>
+     *
+     * @return a ResponseEntity containing a ReplicationStatusResponse
+     */
+    @Operation(summary = "Replication status", description = "Returns the role of the node and its replication lag")
+    @ApiResponse(responseCode = "200", content = {
+            @Content(schema = @Schema(implementation = ReplicationStatusResponse.class), mediaType = "application/json")})
+
+    @GetMapping("/status")
+    public ResponseEntity<ReplicationStatusResponse> getStatus() {
+        return ResponseEntity.ok(replication.getStatus());
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.webdisk.controller;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.example.webdisk.response.VolumeResponse;
+import com.example.webdisk.response.VolumesMoveResponse;
+import com.example.webdisk.service.FilesService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+/**
+ * REST controller of the storage volumes of this node.
+ *
+ * <p>Endpoints:</p>
+ * <ul>
+ * <li>GET /storage/volumes - Returns the volumes, with their misplaced files and space.</li>
+ * <li>POST /storage/volumes/drain - Moves all the files of a volume to the others.</li>
+ * <li>POST /storage/volumes/rebalance - Moves the misplaced files to their placement.</li>
+ * </ul>
+ *
+ * <p>The moves run until they complete, and the POST requests require authentication.</p>
+ */
+@RestController
+@RequestMapping("/storage")
+@Tag(name = "Storage")
+public class StorageController {
+
+    private static final Logger logger = LoggerFactory.getLogger(StorageController.class);
+
+    private final FilesService storage;
+
+    /**
+     * Constructs a new StorageController.
+     *
+     * @param storage the storage service
+     */
+    public StorageController(FilesService storage) {
+        this.storage = storage;
+    }
+
+    /**
+     * Handles GET requests for the storage volumes.
+     *
+     * <pre>
+     * curl -X GET http://localhost:8080/storage/volumes
+     *
+     * [{"root":"/mnt/disk1","weight":1.0,"draining":false,"misplaced":0,"usableBytes":912345088000,
+     *   "totalBytes":1000204886016}]
+     * </pre>
+     *
+     * @return a ResponseEntity containing the volumes
+     */
+    @Operation(summary = "Storage volumes", description = "Returns the volumes, with their misplaced files and space")
+    @ApiResponse(responseCode = "200", content = {
+            @Content(array = @ArraySchema(schema = @Schema(implementation = VolumeResponse.class)),
+                    mediaType = "application/json")})
+
+    @GetMapping("/volumes")
+    public ResponseEntity<List<VolumeResponse>> getVolumes() {
+        return ResponseEntity.ok(storage.getVolumes());
+    }
+
+    /**
+     * Handles POST requests draining a volume: no file is placed on it any more, and its
+     * files are moved to the other volumes.
+     *
+     * <pre>
+     * curl -X POST -H "Authorization: Bearer token" "http://localhost:8080/storage/volumes/drain?root=/mnt/disk2"
+     *
+     * {"moved":1250,"volumes":[...]}
+     * </pre>
+     *
+     * @param root the directory of the volume, as configured
+     * @return a ResponseEntity containing the number of files moved and the volumes
+     */
+    @Operation(summary = "Drain a volume", description = "Moves all the files of a volume to the others")
+    @ApiResponse(responseCode = "200", content = {
+            @Content(schema = @Schema(implementation = VolumesMoveResponse.class), mediaType = "application/json")})
+    @ApiResponse(responseCode = "400", description = "Unknown volume, or last volume not drained")
+    @ApiResponse(responseCode = "500", description = "Files could not be moved")
+
+    @PostMapping("/volumes/drain")
+    public ResponseEntity<VolumesMoveResponse> drainVolume(@RequestParam String root) {
+        logger.info("@Requst:POST /storage/volumes/drain?root={}", root);
+        try {
+            int moved = storage.drainVolume(root);
+            logger.info("Drained volume {}: {} files moved", root, moved);
+            return ResponseEntity.ok(new VolumesMoveResponse(moved, storage.getVolumes()));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (IOException e) {
+            logger.error("Unable to drain volume {}. @Cause:{}", root, e.getMessage());
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, e.getMessage());
+        }
+    }
+
+    /**
+     * Handles POST requests moving the misplaced files, found on another volume than their
+     * placement after a change of the volumes, to their placement.
+     *
+     * <pre>
+     * curl -X POST -H "Authorization: Bearer token" http://localhost:8080/storage/volumes/rebalance
+     *
+     * {"moved":310,"volumes":[...]}
+     * </pre>
+     *
+     * @return a ResponseEntity containing the number of files moved and the volumes
+     */
+    @Operation(summary = "Rebalance the volumes", description = "Moves the misplaced files to their placement")
+    @ApiResponse(responseCode = "200", content = {
+            @Content(schema = @Schema(implementation = VolumesMoveResponse.class), mediaType = "application/json")})
+    @ApiResponse(responseCode = "500", description = "Files could not be moved")
+
+    @PostMapping("/volumes/rebalance")
+    public ResponseEntity<VolumesMoveResponse> rebalanceVolumes() {
+        logger.info("@Requst:POST /storage/volumes/rebalance");
+        try {
+            int moved = storage.rebalanceVolumes();
+            logger.info("Rebalanced volumes: {} files moved", moved);
+            return ResponseEntity.ok(new VolumesMoveResponse(moved, storage.getVolumes()));
+        } catch (IOException e) {
+            logger.error("Unable to rebalance volumes. @Cause:{}", e.getMessage());
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.example.webdisk.controller;
+
+import java.io.IOException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.example.webdisk.replication.ReplicationService;
+import com.example.webdisk.response.FilesPostFileResponse;
+import com.example.webdisk.response.UploadResponse;
+import com.example.webdisk.upload.UploadService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * REST controller of the chunked uploads, sending a large file as numbered parts.
+ *
+ * <p>Endpoints:</p>
+ * <ul>
+ * <li>POST /files/uploads?name={fileName} - Starts an upload session for a file.</li>
+ * <li>PUT /files/uploads/{uploadId}/parts/{number} - Sends a part, as the raw request body.</li>
+ * <li>GET /files/uploads/{uploadId} - Returns the parts received so far.</li>
+ * <li>POST /files/uploads/{uploadId}/commit - Assembles the parts into the file.</li>
+ * <li>DELETE /files/uploads/{uploadId} - Aborts the session.</li>
+ * </ul>
+ *
+ * <p>Parts may be sent in parallel and in any order, and sent again after a failure. In
+ * cluster mode, a session is started on the node owning the file.</p>
+ */
+@RestController
+@RequestMapping("/files/uploads")
+@Tag(name = "WebDisk")
+public class UploadController {
+
+    private static final Logger logger = LoggerFactory.getLogger(UploadController.class);
+    private static final String LOG_WEB_FORMAT = "@Requst:{} {}";
+
+    private final UploadService uploads;
+
+    /**
+     * Constructs a new UploadController.
+     *
+     * @param uploads the upload sessions, recording the commits in the change log
+     */
+    public UploadController(UploadService uploads) {
+        this.uploads = uploads;
+    }
+
+    /**
+     * Starts an upload session for a file, created or replaced by the commit of the session.
+     *
+     * <pre>
+     * curl -X POST "http://localhost:8080/files/uploads?name=backup"
+     *
+     * {"uploadId":"0b7e6c2a-5d1f-4e0b-9a43-54c1f1f0c2de","fileName":"backup","parts":[],"bytes":0}
+     * </pre>
+     *
+     * @param name    the name of the file
+     * @param request the HTTP request object
+     * @return a ResponseEntity containing the new session
+     */
+    @Operation(summary = "Start upload", description = "Starts a chunked upload session for a file")
+    @ApiResponse(responseCode = "200", content = {
+            @Content(schema = @Schema(implementation = UploadResponse.class), mediaType = "application/json")})
+    @ApiResponse(responseCode = "400", description = "Invalid filename")
+    @ApiResponse(responseCode = "409", description = "File owned by another node of the cluster")
+
+    @PostMapping
+    public ResponseEntity<UploadResponse> startUpload(@RequestParam String name, HttpServletRequest request) {
+        logger.info(LOG_WEB_FORMAT, request.getMethod(), request.getRequestURI());
+        try {
+            return ResponseEntity.ok(uploads.start(name));
+        } catch (IOException e) {
+            throw failed(request, "start upload", e);
+        }
+    }
+
+    /**
+     * Receives a part of an upload session, as the raw request body. A part sent again
+     * replaces the previous one.
+     *
+     * <pre>
+     * curl -X PUT --data-binary @backup.part1 http://localhost:8080/files/uploads/0b7e6c2a-.../parts/1
+     * </pre>
+     *
+     * @param uploadId the session identifier
+     * @param number   the part number, from 1
+     * @param request  the HTTP request object, whose body is the part
+     * @return a ResponseEntity containing the state of the session
+     */
+    @Operation(summary = "Upload part", description = "Sends a numbered part of a chunked upload, as the raw body")
+    @ApiResponse(responseCode = "200", content = {
+            @Content(schema = @Schema(implementation = UploadResponse.class), mediaType = "application/json")})
+    @ApiResponse(responseCode = "400", description = "Invalid part number")
+    @ApiResponse(responseCode = "404", description = "Unknown upload session")
+    @ApiResponse(responseCode = "413", description = "Part larger than the maximum part size")
+
+    @PutMapping("/{uploadId}/parts/{number}")
+    public ResponseEntity<UploadResponse> putPart(@PathVariable String uploadId, @PathVariable int number,
+            HttpServletRequest request) {
+        logger.info(LOG_WEB_FORMAT, request.getMethod(), request.getRequestURI());
+        try {
+            return ResponseEntity.ok(uploads.putPart(uploadId, number, request.getInputStream()));
+        } catch (IOException e) {
+            throw failed(request, "receive part", e);
+        }
+    }
+
+    /**
+     * Returns the parts of an upload session received so far, for resuming it.
+     *
+     * <pre>
+     * curl -X GET http://localhost:8080/files/uploads/0b7e6c2a-...
+     *
+     * {"uploadId":"0b7e6c2a-...","fileName":"backup","parts":[{"number":1,"size":8388608,"checksum":"1e4b2c9d"}],
+     *  "bytes":8388608}
+     * </pre>
+     *
+     * @param uploadId the session identifier
+     * @param request  the HTTP request object
+     * @return a ResponseEntity containing the state of the session
+     */
+    @Operation(summary = "Upload status", description = "Returns the parts of a chunked upload received so far")
+    @ApiResponse(responseCode = "200", content = {
+            @Content(schema = @Schema(implementation = UploadResponse.class), mediaType = "application/json")})
+    @ApiResponse(responseCode = "404", description = "Unknown upload session")
+
+    @GetMapping("/{uploadId}")
+    public ResponseEntity<UploadResponse> getUpload(@PathVariable String uploadId, HttpServletRequest request) {
+        logger.info(LOG_WEB_FORMAT, request.getMethod(), request.getRequestURI());
+        return ResponseEntity.ok(uploads.getStatus(uploadId));
+    }
+
+    /**
+     * Commits an upload session: its parts, from 1 without a gap, replace the content of the
+     * file. The ETag header is the checksum of the whole content.
+     *
+     * <pre>
+     * curl -X POST http://localhost:8080/files/uploads/0b7e6c2a-.../commit
+     *
+     * {"fileName":"backup"}
+     * </pre>
+     *
+     * @param uploadId the session identifier
+     * @param request  the HTTP request object
+     * @return a ResponseEntity containing the name of the file
+     */
+    @Operation(summary = "Commit upload", description = "Assembles the parts of a chunked upload into the file")
+    @ApiResponse(responseCode = "200", content = {
+            @Content(schema = @Schema(implementation = FilesPostFileResponse.class), mediaType = "application/json")})
+    @ApiResponse(responseCode = "400", description = "Missing parts")
+    @ApiResponse(responseCode = "404", description = "Unknown upload session")
+
+    @PostMapping("/{uploadId}/commit")
+    public ResponseEntity<FilesPostFileResponse> commitUpload(@PathVariable String uploadId,
+            HttpServletRequest request) {
+        logger.info(LOG_WEB_FORMAT, request.getMethod(), request.getRequestURI());
+        UploadService.Committed committed;
+        try {
+            committed = uploads.commit(uploadId);
+        } catch (IOException e) {
+            throw failed(request, "commit upload", e);
+        }
+        String token = committed.token();
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .eTag(String.format("\"%08x\"", committed.metadata().checksum()));
+        if (token != null) {
+            builder.header(ReplicationService.SEQUENCE_HEADER, token);
+        }
+        return builder.body(new FilesPostFileResponse(committed.fileName()));
+    }
+
+    /**
+     * Aborts an upload session, deleting its parts.
+     *
+     * <pre>
+     * curl -X DELETE http://localhost:8080/files/uploads/0b7e6c2a-...
+     * </pre>
+     *
+     * @param uploadId the session identifier
+     * @param request  the HTTP request object
+     * @return a ResponseEntity with status 200 (OK) once the session is deleted
+     */
+    @Operation(summary = "Abort upload", description = "Aborts a chunked upload, deleting its parts")
+    @ApiResponse(responseCode = "200", description = "Upload aborted")
+    @ApiResponse(responseCode = "404", description = "Unknown upload session")
+
+    @DeleteMapping("/{uploadId}")
+    public ResponseEntity<String> abortUpload(@PathVariable String uploadId, HttpServletRequest request) {
+        logger.info(LOG_WEB_FORMAT, request.getMethod(), request.getRequestURI());
+        try {
+            uploads.abort(uploadId);
+        } catch (IOException e) {
+            throw failed(request, "abort upload", e);
+        }
+        return ResponseEntity.ok("");
+    }
+
+    private static ResponseStatusException failed(HttpServletRequest request, String action, IOException e) {
+        logger.error(LOG_WEB_FORMAT + ": Unable to {}. @Cause:{}",
+                request.getMethod(), request.getRequestURI(), action, e.getMessage());
+        return new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, e.getMessage());
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.webdisk.reconciler;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Reconciler settings, bound from the "webdisk.reconciler" properties. The reconciler checks
+ * {@code chunk-size} names every {@code interval}, backing off up to {@code max-interval}
+ * while the storage operations of the requests are slower than {@code target-latency}. Its
+ * progress is saved to {@code state-file}, resolved against the storage directory, or its
+ * first volume, when relative, so that each instance resumes its own pass; an empty state
+ * file disables saving it.
+ *
+ * <pre>
+ * webdisk.reconciler.enabled=true
+ * webdisk.reconciler.chunk-size=200
+ * webdisk.reconciler.interval=1s
+ * webdisk.reconciler.max-interval=1m
+ * webdisk.reconciler.target-latency=20ms
+ * webdisk.reconciler.grace=2s
+ * webdisk.reconciler.pass-interval=1h
+ * webdisk.reconciler.state-file=.reconciler.state
+ * </pre>
+ */
+@ConfigurationProperties(prefix = "webdisk.reconciler")
+public class ReconcilerProperties {
+
+    private boolean enabled = false;
+    private int chunkSize = 200;
+    private Duration interval = Duration.ofSeconds(1);
+    private Duration maxInterval = Duration.ofMinutes(1);
+    private Duration targetLatency = Duration.ofMillis(20);
+    private Duration grace = Duration.ofSeconds(2);
+    private Duration passInterval = Duration.ofHours(1);
+    private String stateFile = ".reconciler.state";
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    public Duration getInterval() {
+        return interval;
+    }
+
+    public void setInterval(Duration interval) {
+        this.interval = interval;
+    }
+
+    public Duration getMaxInterval() {
+        return maxInterval;
+    }
+
+    public void setMaxInterval(Duration maxInterval) {
+        this.maxInterval = maxInterval;
+    }
+
+    public Duration getTargetLatency() {
+        return targetLatency;
+    }
+
+    public void setTargetLatency(Duration targetLatency) {
+        this.targetLatency = targetLatency;
+    }
+
+    public Duration getGrace() {
+        return grace;
+    }
+
+    public void setGrace(Duration grace) {
+        this.grace = grace;
+    }
+
+    public Duration getPassInterval() {
+        return passInterval;
+    }
+
+    public void setPassInterval(Duration passInterval) {
+        this.passInterval = passInterval;
+    }
+
+    public String getStateFile() {
+        return stateFile;
+    }
+
+    public void setStateFile(String stateFile) {
+        this.stateFile = stateFile;
+    }
+}
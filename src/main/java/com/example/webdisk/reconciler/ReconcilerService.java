@@ -0,0 +1,375 @@
+package com.example.webdisk.reconciler;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import com.example.webdisk.replication.ReplicationService;
+import com.example.webdisk.service.CacheService;
+import com.example.webdisk.service.FileMetadata;
+import com.example.webdisk.service.FilesService;
+import com.example.webdisk.service.NameLocks;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Service repairing, in the background, the drift between the registry and the storage left
+ * by crashes or by changes made to the storage directly.
+ *
+ * <p>Each pass runs in two phases, a chunk of names at a time. The storage phase walks the
+ * stored files in the directory order and registers the orphans, files missing from the
+ * registry. The registry phase walks the registry in name order and removes the ghosts,
+ * names whose file is missing. A name is only repaired if it is still inconsistent after a
+ * grace delay, checked under the {@link NameLocks lock} of the name, so that a write or a
+ * delete in progress is never taken for drift. Repairs are recorded in the
+ * replication log, like the writes they stand for.</p>
+ *
+ * <p>The progress of the pass - phase, position in the storage, last name of the registry -
+ * is saved to a state file after each chunk, and a restarted node resumes from there. As the
+ * storage is walked in the directory order, files added or removed since are either checked
+ * by this pass or by the next one.</p>
+ *
+ * <p>Chunks are spaced by the reconciler interval, doubled after each chunk while the mean
+ * duration of the storage operations of the requests since the previous chunk exceeds the
+ * target latency, up to the maximum interval, and halved back once it does not.</p>
+ */
+@Service
+public class ReconcilerService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReconcilerService.class);
+
+    private static final String METER_STORAGE_OPERATIONS = "webdisk.storage.operations";
+    private static final String PHASE_STORAGE = "storage";
+    private static final String PHASE_REGISTRY = "registry";
+
+    private final ReconcilerProperties properties;
+    private final CacheService cache;
+    private final FilesService storage;
+    private final ReplicationService replication;
+    private final NameLocks locks;
+    private final MeterRegistry registry;
+    private final Path stateFile;
+    private final Counter checked;
+    private final Counter orphans;
+    private final Counter ghosts;
+
+    // Progress of the current pass, saved after each chunk
+    private String phase = PHASE_STORAGE;
+    private long position;
+    private String cursor = "";
+    private long passes;
+
+    private Stream<String> walk;
+    private Iterator<String> walked;
+    private volatile long delayMillis;
+    private long lastCount;
+    private double lastTotalNanos;
+    private volatile Thread worker;
+
+    /**
+     * Constructs a new ReconcilerService, resuming the pass saved in the state file, if any.
+     *
+     * @param properties  the reconciler settings
+     * @param cache       the registry of the files
+     * @param storage     the storage of the files
+     * @param replication the replication service, recording the repairs
+     * @param locks       the locks of the file names
+     * @param registry    the meter registry holding the storage latencies, and receiving the
+     *                    reconciler metrics
+     */
+    public ReconcilerService(ReconcilerProperties properties, CacheService cache, FilesService storage,
+            ReplicationService replication, NameLocks locks, MeterRegistry registry) {
+        this.properties = properties;
+        this.cache = cache;
+        this.storage = storage;
+        this.replication = replication;
+        this.locks = locks;
+        this.registry = registry;
+        this.stateFile = properties.getStateFile().isEmpty() ? null : storage.resolveState(properties.getStateFile());
+        this.delayMillis = properties.getInterval().toMillis();
+        this.checked = Counter.builder("webdisk.reconciler.checked")
+                .description("Names checked by the reconciler")
+                .register(registry);
+        this.orphans = Counter.builder("webdisk.reconciler.repairs")
+                .description("Drift between the registry and the storage repaired by the reconciler")
+                .tag("type", "orphan")
+                .register(registry);
+        this.ghosts = Counter.builder("webdisk.reconciler.repairs")
+                .description("Drift between the registry and the storage repaired by the reconciler")
+                .tag("type", "ghost")
+                .register(registry);
+        TimeGauge.builder("webdisk.reconciler.interval", this, TimeUnit.MILLISECONDS, ReconcilerService::getDelayMillis)
+                .description("Current interval between the chunks of the reconciler")
+                .register(registry);
+        sampleStorageOperations();
+        loadState();
+    }
+
+    /**
+     * Starts reconciling in the background once the application is ready, the registry
+     * being loaded, if the reconciler is enabled.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            logger.info("Reconciling registry and storage, resuming {} phase", phase);
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    boolean completed = step();
+                    Thread.sleep(completed ? properties.getPassInterval().toMillis() : nextDelay());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (IOException | RuntimeException e) {
+                    logger.warn("Unable to reconcile registry and storage. @Cause:{}", e.toString());
+                    closeWalk();
+                    try {
+                        Thread.sleep(properties.getMaxInterval().toMillis());
+                    } catch (InterruptedException interrupted) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+            closeWalk();
+        }, "webdisk-reconciler");
+        thread.setDaemon(true);
+        worker = thread;
+        thread.start();
+    }
+
+    /**
+     * Stops reconciling.
+     */
+    @PreDestroy
+    public void stop() {
+        Thread thread = worker;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    /**
+     * Reconciles the next chunk of names, and saves the progress.
+     *
+     * @return {@code true} if the chunk completed a pass
+     * @throws IOException if an I/O error occurs when reading the storage or saving the progress
+     * @throws InterruptedException if interrupted during the grace delay
+     */
+    public boolean step() throws IOException, InterruptedException {
+        if (PHASE_STORAGE.equals(phase)) {
+            List<String> chunk = nextStorageChunk();
+            if (chunk.isEmpty()) {
+                closeWalk();
+                phase = PHASE_REGISTRY;
+                position = 0;
+            } else {
+                reconcileOrphans(chunk);
+                position += chunk.size();
+            }
+            saveState();
+            return false;
+        }
+        String[] chunk = cache.listFiles(cursor, properties.getChunkSize());
+        reconcileGhosts(chunk);
+        if (chunk.length < properties.getChunkSize()) {
+            phase = PHASE_STORAGE;
+            cursor = "";
+            passes++;
+            logger.info("Reconciliation pass {} completed", passes);
+        } else {
+            cursor = chunk[chunk.length - 1];
+        }
+        saveState();
+        return chunk.length < properties.getChunkSize();
+    }
+
+    /**
+     * Returns the number of passes completed, including before a restart.
+     *
+     * @return the number of passes
+     */
+    public long getPasses() {
+        return passes;
+    }
+
+    /**
+     * Returns the interval before the next chunk, as throttled by the storage latency.
+     *
+     * @return the interval, in milliseconds
+     */
+    public long getDelayMillis() {
+        return delayMillis;
+    }
+
+    /**
+     * Adjusts the interval before the next chunk to the mean duration of the storage
+     * operations since the previous chunk.
+     *
+     * @return the interval, in milliseconds
+     */
+    public long nextDelay() {
+        long count = lastCount;
+        double totalNanos = lastTotalNanos;
+        sampleStorageOperations();
+        long operations = lastCount - count;
+        double latencyNanos = operations > 0 ? (lastTotalNanos - totalNanos) / operations : 0;
+        long interval = properties.getInterval().toMillis();
+        if (latencyNanos > properties.getTargetLatency().toNanos()) {
+            delayMillis = Math.min(Math.max(delayMillis * 2, 1), properties.getMaxInterval().toMillis());
+        } else {
+            delayMillis = Math.max(delayMillis / 2, interval);
+        }
+        return delayMillis;
+    }
+
+    /**
+     * Reads the number and the total duration of the storage operations so far.
+     */
+    private void sampleStorageOperations() {
+        long count = 0;
+        double totalNanos = 0;
+        for (Timer timer : registry.find(METER_STORAGE_OPERATIONS).timers()) {
+            count += timer.count();
+            totalNanos += timer.totalTime(TimeUnit.NANOSECONDS);
+        }
+        lastCount = count;
+        lastTotalNanos = totalNanos;
+    }
+
+    private List<String> nextStorageChunk() throws IOException {
+        if (walked == null) {
+            walk = storage.walkFiles();
+            walked = walk.iterator();
+            // Resumes after the names checked before a restart
+            for (long skipped = 0; skipped < position && walked.hasNext(); skipped++) {
+                walked.next();
+            }
+        }
+        List<String> chunk = new ArrayList<>(properties.getChunkSize());
+        while (chunk.size() < properties.getChunkSize() && walked.hasNext()) {
+            chunk.add(walked.next());
+        }
+        return chunk;
+    }
+
+    private void reconcileOrphans(List<String> chunk) throws IOException, InterruptedException {
+        checked.increment(chunk.size());
+        List<String> suspects = chunk.stream().filter(fileName -> !cache.containsFile(fileName)).toList();
+        if (suspects.isEmpty()) {
+            return;
+        }
+        Thread.sleep(properties.getGrace().toMillis());
+        for (String fileName : suspects) {
+            Lock lock = locks.lockFor(fileName);
+            lock.lock();
+            try {
+                FileMetadata metadata = cache.containsFile(fileName) ? null : storage.readMetadata(fileName);
+                if (metadata != null && cache.putFile(fileName, metadata)) {
+                    storage.getStats().fileAdded(fileName, metadata.size());
+                    replication.record("PUT", fileName);
+                    orphans.increment();
+                    logger.info("Registered orphan file {}", fileName);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void reconcileGhosts(String[] chunk) throws IOException, InterruptedException {
+        checked.increment(chunk.length);
+        List<String> suspects = new ArrayList<>();
+        for (String fileName : chunk) {
+            if (storage.readMetadata(fileName) == null) {
+                suspects.add(fileName);
+            }
+        }
+        if (suspects.isEmpty()) {
+            return;
+        }
+        Thread.sleep(properties.getGrace().toMillis());
+        for (String fileName : suspects) {
+            Lock lock = locks.lockFor(fileName);
+            lock.lock();
+            try {
+                FileMetadata metadata = cache.getMetadata(fileName);
+                if (metadata != null && storage.readMetadata(fileName) == null) {
+                    cache.deleteFile(fileName);
+                    storage.getStats().fileRemoved(fileName, metadata.size());
+                    replication.record("DELETE", fileName);
+                    ghosts.increment();
+                    logger.info("Removed ghost file {}", fileName);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void closeWalk() {
+        if (walk != null) {
+            walk.close();
+            walk = null;
+            walked = null;
+        }
+    }
+
+    private void loadState() {
+        if (stateFile == null || !Files.isReadable(stateFile)) {
+            return;
+        }
+        Properties state = new Properties();
+        try (Reader reader = Files.newBufferedReader(stateFile)) {
+            state.load(reader);
+            String savedPhase = state.getProperty("phase", PHASE_STORAGE);
+            phase = PHASE_REGISTRY.equals(savedPhase) ? PHASE_REGISTRY : PHASE_STORAGE;
+            position = Long.parseLong(state.getProperty("position", "0"));
+            cursor = state.getProperty("cursor", "");
+            passes = Long.parseLong(state.getProperty("passes", "0"));
+        } catch (IOException | NumberFormatException e) {
+            logger.warn("Unable to read reconciler state {}, starting a new pass. @Cause:{}", stateFile, e.getMessage());
+            phase = PHASE_STORAGE;
+            position = 0;
+            cursor = "";
+        }
+    }
+
+    private void saveState() throws IOException {
+        if (stateFile == null) {
+            return;
+        }
+        Properties state = new Properties();
+        state.setProperty("phase", phase);
+        state.setProperty("position", Long.toString(position));
+        state.setProperty("cursor", cursor);
+        state.setProperty("passes", Long.toString(passes));
+        // Replaced at once, so that a crash leaves either the previous or the new progress
+        Path temporary = stateFile.resolveSibling(stateFile.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temporary)) {
+            state.store(writer, "webdisk reconciler progress");
+        }
+        Files.move(temporary, stateFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
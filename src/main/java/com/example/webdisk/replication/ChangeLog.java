@@ -0,0 +1,90 @@
+package com.example.webdisk.replication;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.example.webdisk.response.ReplicationLogResponse;
+import com.example.webdisk.response.ReplicationLogResponse.Change;
+
+/**
+ * Ordered log of the latest file changes of a primary node, read by its followers.
+ *
+ * <p>Changes are numbered from 1 and kept in a ring of fixed capacity, so the oldest ones
+ * are dropped: a follower asking for changes older than the log resynchronizes from the
+ * file listing instead. The log lives in memory only, and a new epoch identifies it on each
+ * start of the primary, so followers can tell its sequence numbers apart from those of a
+ * previous run.</p>
+ *
+ * <p>This class is thread-safe. Readers may wait for the next change, as a long poll.</p>
+ */
+final class ChangeLog {
+
+    private final String epoch;
+    private final Change[] ring;
+    private long last;
+
+    /**
+     * Creates an empty log.
+     *
+     * @param epoch    the identifier of the log
+     * @param capacity the number of changes kept
+     */
+    ChangeLog(String epoch, int capacity) {
+        this.epoch = epoch;
+        this.ring = new Change[capacity];
+    }
+
+    String epoch() {
+        return epoch;
+    }
+
+    /**
+     * Appends a change.
+     *
+     * @param operation the operation, PUT or DELETE
+     * @param name      the name of the file
+     * @return the sequence number of the change
+     */
+    synchronized long append(String operation, String name) {
+        last++;
+        ring[(int) (last % ring.length)] = new Change(last, operation, name, System.currentTimeMillis());
+        notifyAll();
+        return last;
+    }
+
+    /**
+     * Returns the sequence number of the latest change.
+     *
+     * @return the sequence number, 0 if there is none yet
+     */
+    synchronized long last() {
+        return last;
+    }
+
+    /**
+     * Reads the changes following a sequence number, waiting for one if there is none yet.
+     * No changes are returned if the ones following the sequence number were dropped.
+     *
+     * @param after      the sequence number of the latest change known by the reader
+     * @param limit      the maximum number of changes returned
+     * @param waitMillis the maximum time to wait for a change, in milliseconds
+     * @return the changes, with the range of the log
+     * @throws InterruptedException if interrupted while waiting
+     */
+    synchronized ReplicationLogResponse read(long after, int limit, long waitMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + waitMillis;
+        long remaining = waitMillis;
+        while (last <= after && remaining > 0) {
+            wait(remaining);
+            remaining = deadline - System.currentTimeMillis();
+        }
+        long first = Math.max(1, last - ring.length + 1);
+        List<Change> changes = new ArrayList<>();
+        if (after >= first - 1) {
+            for (long sequence = after + 1; sequence <= last && changes.size() < limit; sequence++) {
+                changes.add(ring[(int) (sequence % ring.length)]);
+            }
+        }
+        return new ReplicationLogResponse(epoch, first, last, changes);
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.webdisk.replication;
+
+import java.io.IOException;
+import java.util.Set;
+
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.example.webdisk.cluster.ClusterService;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Filter of the requests to the files endpoints of a follower. Writes - POST, PUT and
+ * DELETE - are proxied to the primary, the only node accepting them, as well as all the
+ * requests of the chunked uploads, whose sessions live on the primary. Reads carrying the
+ * {@link ReplicationService#SEQUENCE_HEADER} token of a write are served once the follower
+ * applied that write, or proxied to the primary if it does not within the read wait.
+ *
+ * <p>The filter runs after admission control and before the cluster routing.</p>
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 5)
+public class ReplicationFilter extends OncePerRequestFilter {
+
+    private static final String PREFIX = "/files/";
+    private static final String UPLOADS = "/files/uploads/";
+    private static final Set<String> WRITES = Set.of("POST", "PUT", "DELETE");
+
+    private final ReplicationService replication;
+    private final ClusterService cluster;
+
+    /**
+     * Constructs a new ReplicationFilter.
+     *
+     * @param replication the replication state of this node
+     * @param cluster     the cluster service, proxying requests
+     */
+    public ReplicationFilter(ReplicationService replication, ClusterService cluster) {
+        this.replication = replication;
+        this.cluster = cluster;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !replication.isFollower()
+                || !request.getRequestURI().substring(request.getContextPath().length()).startsWith(PREFIX);
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain) throws ServletException, IOException {
+        String token = request.getHeader(ReplicationService.SEQUENCE_HEADER);
+        if (WRITES.contains(request.getMethod())
+                || request.getRequestURI().substring(request.getContextPath().length()).startsWith(UPLOADS)
+                || token != null && !replication.awaitToken(token)) {
+            cluster.proxy(request, response, replication.getPrimary());
+        } else {
+            filterChain.doFilter(request, response);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.webdisk.replication;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Replication settings, bound from the "webdisk.replication" properties. A node given the
+ * URL of a primary is a follower of it; other nodes are primaries, keeping a change log of
+ * their writes for their followers.
+ *
+ * <pre>
+ * webdisk.replication.primary=http://localhost:8081
+ * webdisk.replication.log-capacity=100000
+ * webdisk.replication.batch-size=500
+ * webdisk.replication.poll-wait=5s
+ * webdisk.replication.read-wait=1s
+ * webdisk.replication.timeout=5s
+ * </pre>
+ */
+@ConfigurationProperties(prefix = "webdisk.replication")
+public class ReplicationProperties {
+
+    private String primary = "";
+    private int logCapacity = 100_000;
+    private int batchSize = 500;
+    private Duration pollWait = Duration.ofSeconds(5);
+    private Duration readWait = Duration.ofSeconds(1);
+    private Duration timeout = Duration.ofSeconds(5);
+
+    public String getPrimary() {
+        return primary;
+    }
+
+    public void setPrimary(String primary) {
+        this.primary = primary;
+    }
+
+    public int getLogCapacity() {
+        return logCapacity;
+    }
+
+    public void setLogCapacity(int logCapacity) {
+        this.logCapacity = logCapacity;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public Duration getPollWait() {
+        return pollWait;
+    }
+
+    public void setPollWait(Duration pollWait) {
+        this.pollWait = pollWait;
+    }
+
+    public Duration getReadWait() {
+        return readWait;
+    }
+
+    public void setReadWait(Duration readWait) {
+        this.readWait = readWait;
+    }
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(Duration timeout) {
+        this.timeout = timeout;
+    }
+}
@@ -0,0 +1,462 @@
+package com.example.webdisk.replication;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import com.example.webdisk.response.FilesListResponse;
+import com.example.webdisk.response.ReplicationLogResponse;
+import com.example.webdisk.response.ReplicationLogResponse.Change;
+import com.example.webdisk.response.ReplicationStatusResponse;
+import com.example.webdisk.service.CacheService;
+import com.example.webdisk.service.FileMetadata;
+import com.example.webdisk.service.FilesService;
+import com.example.webdisk.service.NameLocks;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Service replicating the files of a primary node to follower nodes, asynchronously, to
+ * spread the reads of a storage over several instances.
+ *
+ * <p>A primary numbers its writes in a {@link ChangeLog}: each PUT or DELETE of a file,
+ * uploads included, appends its name and operation. The sequence number is returned to the
+ * client in the {@link #SEQUENCE_HEADER} header, as a token of the write.</p>
+ *
+ * <p>A follower, configured with the URL of its primary, long polls the log of the primary
+ * and applies the changes in order on its own storage and registry: a PUT downloads the
+ * current content of the file from the primary, a DELETE deletes it, under the lock of the
+ * name like the writes of the clients. As the content is read when the change is applied,
+ * it may be newer than the change, and later changes converge to the state of the primary.
+ * A follower which starts, or which falls behind the capacity of the log, or whose primary
+ * restarted, resynchronizes from the sorted listing of the primary, downloading only the
+ * files whose checksum differ, then follows the log again.</p>
+ *
+ * <p>Followers serve reads from their own files, which may be stale by the replication lag,
+ * exposed by the "webdisk.replication.lag" and "webdisk.replication.lag.time" gauges. A read
+ * carrying the token of a write is served once the follower applied that write, or by the
+ * primary if it does not within the read wait: clients get read-your-writes consistency.
+ * Writes sent to a follower are proxied to the primary by the {@link ReplicationFilter}.</p>
+ */
+@Service
+public class ReplicationService {
+
+    /**
+     * Header holding the token of a write in responses, and the token of the latest write of
+     * the client in read requests.
+     */
+    public static final String SEQUENCE_HEADER = "X-Webdisk-Sequence";
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicationService.class);
+
+    private static final Duration RETRY_DELAY = Duration.ofSeconds(1);
+
+    private final String primary;
+    private final ChangeLog log;
+    private final int batchSize;
+    private final Duration pollWait;
+    private final Duration readWait;
+    private final Duration timeout;
+    private final CacheService cache;
+    private final FilesService storage;
+    private final NameLocks locks;
+    private final ObjectMapper mapper;
+    private final HttpClient client;
+    private String nodeToken = "";
+    private final Counter applied;
+
+    // State of a follower: the log of the primary followed, and the latest change applied
+    private volatile String epoch;
+    private long sequence;
+    private volatile long primarySequence;
+    private volatile long pendingSince;
+    private volatile Thread follower;
+
+    /**
+     * Constructs a new ReplicationService.
+     *
+     * @param properties the replication settings
+     * @param cache      the registry of the files of this node
+     * @param storage    the storage of the files of this node
+     * @param locks      the locks of the file names, under which the changes are applied
+     * @param mapper     the JSON mapper reading the answers of the primary
+     * @param registry   the meter registry receiving the replication metrics
+     */
+    public ReplicationService(ReplicationProperties properties, CacheService cache, FilesService storage,
+            NameLocks locks, ObjectMapper mapper, MeterRegistry registry) {
+        this.primary = properties.getPrimary().endsWith("/")
+                ? properties.getPrimary().substring(0, properties.getPrimary().length() - 1)
+                : properties.getPrimary();
+        this.log = primary.isEmpty() && properties.getLogCapacity() > 0
+                ? new ChangeLog(Long.toString(System.currentTimeMillis(), 36), properties.getLogCapacity())
+                : null;
+        this.batchSize = properties.getBatchSize();
+        this.pollWait = properties.getPollWait();
+        this.readWait = properties.getReadWait();
+        this.timeout = properties.getTimeout();
+        this.cache = cache;
+        this.storage = storage;
+        this.locks = locks;
+        this.mapper = mapper;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(timeout)
+                .build();
+        this.applied = Counter.builder("webdisk.replication.applied")
+                .description("Changes of the primary applied by this follower")
+                .register(registry);
+        Gauge.builder("webdisk.replication.lag", this, ReplicationService::getLag)
+                .description("Changes of the primary not applied yet by this follower")
+                .register(registry);
+        TimeGauge.builder("webdisk.replication.lag.time", this, TimeUnit.MILLISECONDS, ReplicationService::getLagMillis)
+                .description("Age of the oldest change of the primary not applied yet by this follower")
+                .register(registry);
+    }
+
+    /**
+     * Sets the bearer token presented by this follower to the primary.
+     *
+     * @param nodeToken the token, typically provided via the 'webdisk.auth.node-token'
+     *                  property, or empty for none
+     */
+    @Value("${webdisk.auth.node-token:}")
+    public void setNodeToken(String nodeToken) {
+        this.nodeToken = nodeToken;
+    }
+
+    /**
+     * Tells if this node is a follower.
+     *
+     * @return {@code true} if a primary is configured
+     */
+    public boolean isFollower() {
+        return !primary.isEmpty();
+    }
+
+    /**
+     * Returns the URL of the primary of this follower.
+     *
+     * @return the URL, empty on a primary
+     */
+    public String getPrimary() {
+        return primary;
+    }
+
+    /**
+     * Records a write of this primary in the change log.
+     *
+     * @param operation the operation, PUT or DELETE
+     * @param fileName  the name of the file
+     * @return the token of the write, or {@code null} on a follower or if the log is disabled
+     */
+    public String record(String operation, String fileName) {
+        return log == null ? null : log.epoch() + "." + log.append(operation, fileName);
+    }
+
+    /**
+     * Reads the change log of this primary, for a follower.
+     *
+     * @param after the sequence number of the latest change applied by the follower
+     * @param limit the maximum number of changes returned
+     * @param wait  the maximum time to wait for a change
+     * @return the changes following the sequence number, none if they are not in the log
+     *         any more, or {@code null} if this node has no change log
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public ReplicationLogResponse readLog(long after, int limit, Duration wait) throws InterruptedException {
+        return log == null ? null : log.read(after, limit, Math.min(wait.toMillis(), pollWait.toMillis()));
+    }
+
+    /**
+     * Waits until this follower applied the write of a token, for at most the read wait.
+     *
+     * @param token the token of a write, as returned by the primary
+     * @return {@code true} if the write was applied, or if this node is not a follower;
+     *         {@code false} if the token is invalid, or of another epoch of the primary
+     */
+    public boolean awaitToken(String token) {
+        if (!isFollower()) {
+            return true;
+        }
+        int dot = token.lastIndexOf('.');
+        long wanted;
+        try {
+            wanted = Long.parseLong(token.substring(dot + 1));
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        if (dot < 0 || !token.substring(0, dot).equals(epoch)) {
+            return false;
+        }
+        long deadline = System.nanoTime() + readWait.toNanos();
+        synchronized (this) {
+            long remaining;
+            while (sequence < wanted && (remaining = deadline - System.nanoTime()) > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            return sequence >= wanted;
+        }
+    }
+
+    /**
+     * Returns the replication state of this node.
+     *
+     * @return the state
+     */
+    public ReplicationStatusResponse getStatus() {
+        if (!isFollower()) {
+            long last = log == null ? 0 : log.last();
+            return new ReplicationStatusResponse("primary", log == null ? null : log.epoch(), last, last, 0, 0);
+        }
+        return new ReplicationStatusResponse("follower", epoch, getSequence(), primarySequence, getLag(),
+                getLagMillis());
+    }
+
+    /**
+     * Starts following the primary, in the background, once the registry is loaded.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void startFollowing() {
+        if (!isFollower()) {
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            logger.info("Following primary {}", primary);
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    poll();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (IOException | RuntimeException e) {
+                    logger.warn("Unable to replicate from {}. @Cause:{}", primary, e.toString());
+                    try {
+                        Thread.sleep(RETRY_DELAY.toMillis());
+                    } catch (InterruptedException interrupted) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        }, "webdisk-replication");
+        thread.setDaemon(true);
+        follower = thread;
+        thread.start();
+    }
+
+    /**
+     * Stops following the primary.
+     */
+    @PreDestroy
+    public void stopFollowing() {
+        Thread thread = follower;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    /**
+     * Reads the next changes of the primary and applies them, or resynchronizes if they are
+     * not in its log.
+     *
+     * @throws IOException          if the primary cannot be read, or a change not applied
+     * @throws InterruptedException if interrupted while waiting for the primary
+     */
+    void poll() throws IOException, InterruptedException {
+        long after = getSequence();
+        ReplicationLogResponse changes = get("/replication/log?after=" + after + "&limit=" + batchSize
+                + "&wait=" + pollWait.toMillis(), ReplicationLogResponse.class, pollWait.plus(timeout));
+        if (!changes.epoch().equals(epoch) || after < changes.first() - 1) {
+            resync(changes.epoch(), changes.last());
+            return;
+        }
+        primarySequence = Math.max(primarySequence, changes.last());
+        for (Change change : changes.changes()) {
+            pendingSince = change.timestamp();
+            if ("DELETE".equals(change.operation())) {
+                deleteLocal(change.name());
+            } else {
+                download(change.name());
+            }
+            applied.increment();
+            setSequence(change.sequence());
+        }
+        if (getSequence() >= primarySequence) {
+            pendingSince = 0;
+        }
+    }
+
+    /**
+     * Makes the files of this follower the same as the files of the primary, by walking
+     * both sorted listings, then follows the log from the given change on.
+     */
+    private void resync(String newEpoch, long last) throws IOException, InterruptedException {
+        logger.info("Resynchronizing from primary {} at {}.{}", primary, newEpoch, last);
+        long start = System.nanoTime();
+        int copied = 0;
+        String previous = "";
+        String token = "";
+        FilesListResponse page;
+        do {
+            page = get("/files/list?limit=" + batchSize + (token.isEmpty() ? "" : "&after=" + token),
+                    FilesListResponse.class, timeout);
+            for (String fileName : page.names()) {
+                if (!isSame(fileName)) {
+                    download(fileName);
+                    copied++;
+                }
+            }
+            String upTo = page.next() == null || page.names().length == 0 ? null : page.names()[page.names().length - 1];
+            deleteLocalMissing(previous, upTo, Set.of(page.names()));
+            previous = upTo;
+            token = page.next();
+        } while (token != null);
+        synchronized (this) {
+            epoch = newEpoch;
+            sequence = last;
+            notifyAll();
+        }
+        primarySequence = last;
+        pendingSince = 0;
+        logger.info("Resynchronized @Copied:{} files in {} ms", copied,
+                Duration.ofNanos(System.nanoTime() - start).toMillis());
+    }
+
+    /**
+     * Deletes the local files after a name, up to another one, which are not on the primary.
+     */
+    private void deleteLocalMissing(String after, String upTo, Set<String> present) throws IOException {
+        Set<String> missing = new HashSet<>();
+        String from = after;
+        String[] local;
+        do {
+            local = cache.listFiles(from, batchSize);
+            for (String fileName : local) {
+                if (upTo != null && fileName.compareTo(upTo) > 0) {
+                    break;
+                }
+                if (!present.contains(fileName)) {
+                    missing.add(fileName);
+                }
+            }
+            from = local.length == 0 ? from : local[local.length - 1];
+        } while (local.length == batchSize && (upTo == null || from.compareTo(upTo) < 0));
+        for (String fileName : missing) {
+            deleteLocal(fileName);
+        }
+    }
+
+    /**
+     * Tells if the local copy of a file has the checksum of the primary one.
+     */
+    private boolean isSame(String fileName) throws IOException, InterruptedException {
+        FileMetadata metadata = cache.getMetadata(fileName);
+        if (metadata == null || metadata.checksum() == 0) {
+            return false;
+        }
+        HttpResponse<Void> head = client.send(request("/files/" + fileName, timeout)
+                .method("HEAD", HttpRequest.BodyPublishers.noBody())
+                .build(), HttpResponse.BodyHandlers.discarding());
+        return head.statusCode() == HttpStatus.OK.value() && head.headers().firstValue("ETag")
+                .filter(etag -> etag.equals(String.format("\"%08x\"", metadata.checksum())))
+                .isPresent();
+    }
+
+    /**
+     * Copies the current content of a file from the primary, or deletes the local copy if
+     * the file is not on the primary any more. The copy is stored and registered under the
+     * lock of the name, like a write.
+     */
+    private void download(String fileName) throws IOException, InterruptedException {
+        HttpResponse<InputStream> response = client.send(request("/files/" + fileName, timeout).GET().build(),
+                HttpResponse.BodyHandlers.ofInputStream());
+        try (InputStream content = response.body()) {
+            if (response.statusCode() == HttpStatus.NOT_FOUND.value()) {
+                deleteLocal(fileName);
+                return;
+            }
+            if (response.statusCode() != HttpStatus.OK.value()) {
+                throw new IOException("Status " + response.statusCode() + " for " + fileName);
+            }
+            Lock lock = locks.lockFor(fileName);
+            lock.lock();
+            try {
+                cache.putFile(fileName, storage.putFile(fileName, content));
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void deleteLocal(String fileName) throws IOException {
+        Lock lock = locks.lockFor(fileName);
+        lock.lock();
+        try {
+            if (cache.containsFile(fileName)) {
+                cache.deleteFile(fileName);
+                storage.deleteFile(fileName);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private <T> T get(String pathAndQuery, Class<T> type, Duration requestTimeout)
+            throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = client.send(request(pathAndQuery, requestTimeout).GET().build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != HttpStatus.OK.value()) {
+            throw new IOException("Status " + response.statusCode() + " for " + pathAndQuery);
+        }
+        return mapper.readValue(response.body(), type);
+    }
+
+    private HttpRequest.Builder request(String pathAndQuery, Duration requestTimeout) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(primary + pathAndQuery))
+                .timeout(requestTimeout)
+                .header("Accept", "application/json");
+        return nodeToken.isEmpty() ? builder : builder.header("Authorization", "Bearer " + nodeToken);
+    }
+
+    private synchronized long getSequence() {
+        return sequence;
+    }
+
+    private synchronized void setSequence(long applied) {
+        sequence = applied;
+        notifyAll();
+    }
+
+    private long getLag() {
+        return isFollower() ? Math.max(0, primarySequence - getSequence()) : 0;
+    }
+
+    private long getLagMillis() {
+        long since = pendingSince;
+        return since == 0 || getLag() == 0 ? 0 : Math.max(0, System.currentTimeMillis() - since);
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.webdisk.response;
+
+/**
+ * A record that represents a page of the sorted file listing.
+ *
+ * @param names the file names of the page, in lexicographic order
+ * @param next  the token of the following page, or {@code null} on the last page
+ */
+public record FilesListResponse(String[] names, String next) { }
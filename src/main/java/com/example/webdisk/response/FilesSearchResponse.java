@@ -4,5 +4,17 @@ package com.example.webdisk.response;
  * A record that represents the response for a file search operation.
  *
  * @param results an array of strings containing the search results
+ * @param partial whether some nodes of the cluster did not answer in time, and their
+ *                matches are missing from the results
  */
-public record FilesSearchResponse(String[] results) { }
+public record FilesSearchResponse(String[] results, boolean partial) {
+
+    /**
+     * Creates the response of a complete search.
+     *
+     * @param results an array of strings containing the search results
+     */
+    public FilesSearchResponse(String[] results) {
+        this(results, false);
+    }
+}
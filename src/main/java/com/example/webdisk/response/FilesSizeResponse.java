@@ -3,6 +3,20 @@ package com.example.webdisk.response;
 /**
  * A record that represents the response containing the size of files.
  *
- * @param size the size of the files
+ * @param size    the size of the files
+ * @param bytes   the total size of the files content, in bytes
+ * @param partial whether some nodes of the cluster did not answer in time, and their files
+ *                are missing from the totals
  */
-public record FilesSizeResponse(int size) { }
+public record FilesSizeResponse(long size, long bytes, boolean partial) {
+
+    /**
+     * Creates the response of a complete count.
+     *
+     * @param size  the size of the files
+     * @param bytes the total size of the files content, in bytes
+     */
+    public FilesSizeResponse(long size, long bytes) {
+        this(size, bytes, false);
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.webdisk.response;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A record that represents the response containing the storage statistics.
+ *
+ * @param files       the number of files
+ * @param bytes       the total size of the files, in bytes
+ * @param sizes       the histogram of the file sizes, in powers of two, without empty buckets
+ * @param nameLengths the number of files for each file name length
+ */
+public record FilesStatsResponse(long files, long bytes, List<SizeBucket> sizes, Map<Integer, Long> nameLengths) {
+
+    /**
+     * A bucket of the file size histogram.
+     *
+     * @param min   the smallest size counted, in bytes
+     * @param max   the largest size counted, in bytes
+     * @param count the number of files with a size in the bucket
+     */
+    public record SizeBucket(long min, long max, long count) { }
+}
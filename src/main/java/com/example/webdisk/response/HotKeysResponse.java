@@ -0,0 +1,26 @@
+package com.example.webdisk.response;
+
+import java.util.List;
+
+/**
+ * A record that represents the heaviest keys of the requests over a time window.
+ *
+ * @param window     the time window covered, in ISO-8601 duration format
+ * @param dropped    the number of requests not counted since startup, the buffer being full
+ * @param reads      the file names read the most often
+ * @param writes     the file names written or deleted the most often
+ * @param bytes      the file names transferring the most bytes, read and written
+ * @param principals the bearer principals sending the most requests
+ */
+public record HotKeysResponse(String window, long dropped, List<Entry> reads, List<Entry> writes,
+        List<Entry> bytes, List<Entry> principals) {
+
+    /**
+     * A heavy key.
+     *
+     * @param key   the file name or principal
+     * @param count the estimated count, or bytes, an upper bound of the true one
+     * @param error the maximum overestimation of the count
+     */
+    public record Entry(String key, long count, long error) { }
+}
@@ -0,0 +1,24 @@
+package com.example.webdisk.response;
+
+import java.util.List;
+
+/**
+ * A record that represents a batch of the change log of a primary node.
+ *
+ * @param epoch   the identifier of the change log, changing when the primary restarts
+ * @param first   the sequence number of the oldest change still in the log
+ * @param last    the sequence number of the latest change, 0 if there is none yet
+ * @param changes the changes following the requested sequence number, in order
+ */
+public record ReplicationLogResponse(String epoch, long first, long last, List<Change> changes) {
+
+    /**
+     * A change of a file.
+     *
+     * @param sequence  the sequence number of the change
+     * @param operation the operation, PUT or DELETE
+     * @param name      the name of the file
+     * @param timestamp the time of the change, in milliseconds since the epoch
+     */
+    public record Change(long sequence, String operation, String name, long timestamp) { }
+}
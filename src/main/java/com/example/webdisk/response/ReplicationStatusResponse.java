@@ -0,0 +1,15 @@
+package com.example.webdisk.response;
+
+/**
+ * A record that represents the replication state of a node.
+ *
+ * @param role      the role of the node, primary or follower
+ * @param epoch     the identifier of the change log of the primary
+ * @param sequence  the sequence number of the latest change written, on a primary, or
+ *                  applied, on a follower
+ * @param primary   the sequence number of the latest change known of the primary
+ * @param lag       the number of changes of the primary not applied yet
+ * @param lagMillis the age of the oldest change not applied yet, in milliseconds
+ */
+public record ReplicationStatusResponse(String role, String epoch, long sequence, long primary, long lag,
+        long lagMillis) { }
@@ -0,0 +1,23 @@
+package com.example.webdisk.response;
+
+import java.util.List;
+
+/**
+ * A response record for the state of a chunked upload session.
+ *
+ * @param uploadId the identifier of the session
+ * @param fileName the name of the file uploaded
+ * @param parts    the parts received so far, by number
+ * @param bytes    the total size of the parts received
+ */
+public record UploadResponse(String uploadId, String fileName, List<Part> parts, long bytes) {
+
+    /**
+     * A part received.
+     *
+     * @param number   the part number, from 1
+     * @param size     the size of the part, in bytes
+     * @param checksum the CRC32C checksum of the part, in hexadecimal
+     */
+    public record Part(int number, long size, String checksum) { }
+}
@@ -0,0 +1,14 @@
+package com.example.webdisk.response;
+
+/**
+ * A record that represents the state of a storage volume.
+ *
+ * @param root        the storage directory of the volume
+ * @param weight      the relative share of the files placed on the volume
+ * @param draining    whether the files of the volume are being moved to the other volumes
+ * @param misplaced   the number of files of the volume which belong to another volume
+ * @param usableBytes the space available on the volume, in bytes
+ * @param totalBytes  the size of the volume, in bytes
+ */
+public record VolumeResponse(String root, double weight, boolean draining, long misplaced, long usableBytes,
+        long totalBytes) { }
@@ -0,0 +1,11 @@
+package com.example.webdisk.response;
+
+import java.util.List;
+
+/**
+ * A record that represents the result of moving files between storage volumes.
+ *
+ * @param moved   the number of files moved
+ * @param volumes the state of the volumes after the moves
+ */
+public record VolumesMoveResponse(int moved, List<VolumeResponse> volumes) { }
@@ -0,0 +1,31 @@
+package com.example.webdisk.search;
+
+import java.util.regex.Pattern;
+
+/**
+ * A pattern matched by {@link java.util.regex.Pattern}, for the constructs the DFA engine
+ * does not support. Matching time is not bounded.
+ */
+final class BacktrackingPattern implements NamePattern {
+
+    private final Pattern compiled;
+
+    BacktrackingPattern(Pattern compiled) {
+        this.compiled = compiled;
+    }
+
+    @Override
+    public boolean matches(String name) {
+        return compiled.matcher(name).find();
+    }
+
+    @Override
+    public String pattern() {
+        return compiled.pattern();
+    }
+
+    @Override
+    public boolean isLinear() {
+        return false;
+    }
+}
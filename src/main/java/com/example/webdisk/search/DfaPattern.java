@@ -0,0 +1,226 @@
+package com.example.webdisk.search;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * A pattern matched by a DFA built lazily from its {@link Nfa}, in the manner of RE2.
+ *
+ * <p>Each DFA state stands for the set of NFA states active after reading a prefix of the
+ * name, including the threads of a match starting at any position. States and transitions
+ * are built on first use and cached, so the matching loop usually costs one array lookup per
+ * character, and never more than a pass over the NFA: the time is linear in the name length
+ * for any pattern. The number of cached states is bounded; beyond the bound, transitions are
+ * computed on each use instead of cached.</p>
+ *
+ * <p>Transitions are published without locking: readers either see a complete state, whose
+ * fields are final, or no transition and build it under the lock.</p>
+ */
+final class DfaPattern implements NamePattern {
+
+    /**
+     * Upper bound on the number of cached DFA states.
+     */
+    static final int MAX_STATES = 1024;
+
+    private final String regex;
+    private final Nfa nfa;
+    private final Pattern backtracking;
+
+    private final Map<Key, State> states = new HashMap<>();
+    private final State initial;
+
+    /**
+     * NFA states of the threads starting after the first position.
+     */
+    private final int[] restart;
+
+    DfaPattern(String regex, Nfa nfa, Pattern backtracking) {
+        this.regex = regex;
+        this.nfa = nfa;
+        this.backtracking = backtracking;
+        this.restart = closure(new int[] { nfa.start() }, false);
+        this.initial = state(closure(new int[] { nfa.start() }, true), true);
+    }
+
+    @Override
+    public boolean matches(String name) {
+        State state = initial;
+        if (state.accepting) {
+            return true;
+        }
+        int length = name.length();
+        for (int i = 0; i < length; i++) {
+            int symbol = Nfa.symbolOf(name.charAt(i));
+            if (symbol < 0) {
+                return backtracking.matcher(name).find();
+            }
+            State next = state.next[symbol];
+            if (next == null) {
+                next = step(state, symbol);
+            }
+            state = next;
+            if (state.accepting) {
+                return true;
+            }
+            if (state.dead) {
+                return false;
+            }
+        }
+        return state.acceptingAtEnd;
+    }
+
+    @Override
+    public String pattern() {
+        return regex;
+    }
+
+    @Override
+    public boolean isLinear() {
+        return true;
+    }
+
+    @Override
+    public String prefix() {
+        return nfa.prefix();
+    }
+
+    /**
+     * Returns the number of DFA states built so far.
+     *
+     * @return the number of cached states
+     */
+    int getStates() {
+        synchronized (states) {
+            return states.size();
+        }
+    }
+
+    private State step(State from, int symbol) {
+        int[] moved = new int[from.nfaStates.length + restart.length];
+        int count = 0;
+        for (int nfaState : from.nfaStates) {
+            if (nfa.type(nfaState) == Nfa.SET && (nfa.mask(nfaState) & (1L << symbol)) != 0) {
+                moved[count++] = nfa.out(nfaState);
+            }
+        }
+        System.arraycopy(restart, 0, moved, count, restart.length);
+        int[] next = closure(Arrays.copyOf(moved, count + restart.length), false);
+        synchronized (states) {
+            State cached = states.get(new Key(next, false));
+            if (cached == null) {
+                if (states.size() >= MAX_STATES) {
+                    // Not cached: computed again on each use, still in linear time
+                    return new State(next, false, this);
+                }
+                cached = state(next, false);
+            }
+            from.next[symbol] = cached;
+            return cached;
+        }
+    }
+
+    private State state(int[] nfaStates, boolean first) {
+        synchronized (states) {
+            return states.computeIfAbsent(new Key(nfaStates, first), key -> new State(nfaStates, first, this));
+        }
+    }
+
+    /**
+     * Follows the epsilon transitions from the given states.
+     *
+     * @param seeds the states to start from
+     * @param first whether the position is the beginning of the name
+     * @return the sorted consuming, accepting and end anchor states reached
+     */
+    private int[] closure(int[] seeds, boolean first) {
+        return closure(seeds, first, false);
+    }
+
+    private int[] closure(int[] seeds, boolean first, boolean last) {
+        boolean[] visited = new boolean[nfa.size()];
+        int[] stack = new int[nfa.size()];
+        int top = 0;
+        int[] reached = new int[nfa.size()];
+        int count = 0;
+        for (int seed : seeds) {
+            if (!visited[seed]) {
+                visited[seed] = true;
+                stack[top++] = seed;
+            }
+        }
+        while (top > 0) {
+            int state = stack[--top];
+            int[] follow;
+            switch (nfa.type(state)) {
+                case Nfa.SPLIT -> follow = new int[] { nfa.out(state), nfa.alternative(state) };
+                case Nfa.EMPTY -> follow = new int[] { nfa.out(state) };
+                case Nfa.BOL -> follow = first ? new int[] { nfa.out(state) } : new int[0];
+                case Nfa.EOL -> {
+                    reached[count++] = state;
+                    follow = last ? new int[] { nfa.out(state) } : new int[0];
+                }
+                default -> {
+                    reached[count++] = state;
+                    follow = new int[0];
+                }
+            }
+            for (int out : follow) {
+                if (!visited[out]) {
+                    visited[out] = true;
+                    stack[top++] = out;
+                }
+            }
+        }
+        int[] result = Arrays.copyOf(reached, count);
+        Arrays.sort(result);
+        return result;
+    }
+
+    private boolean containsMatch(int[] nfaStates) {
+        for (int state : nfaStates) {
+            if (nfa.type(state) == Nfa.MATCH) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Identity of a DFA state: its NFA states, and whether it is the initial state, for
+     * which beginning anchors hold.
+     */
+    private record Key(int[] nfaStates, boolean first) {
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Key key && first == key.first && Arrays.equals(nfaStates, key.nfaStates);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(nfaStates) * 2 + (first ? 1 : 0);
+        }
+    }
+
+    /**
+     * A DFA state, with its lazily filled transitions.
+     */
+    private static final class State {
+
+        final int[] nfaStates;
+        final boolean accepting;
+        final boolean acceptingAtEnd;
+        final boolean dead;
+        final State[] next = new State[Nfa.SYMBOLS];
+
+        State(int[] nfaStates, boolean first, DfaPattern pattern) {
+            this.nfaStates = nfaStates;
+            this.accepting = pattern.containsMatch(nfaStates);
+            this.acceptingAtEnd = accepting || pattern.containsMatch(pattern.closure(nfaStates, first, true));
+            this.dead = nfaStates.length == 0;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.webdisk.search;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.ObjIntConsumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * Automaton accepting the names within a given edit distance of a word: insertions,
+ * deletions and substitutions of characters, as counted by the Levenshtein distance.
+ *
+ * <p>Each state is a row of the edit distance table between the characters read and the
+ * prefixes of the word, with distances capped at the maximum plus one, so the number of
+ * states is finite. States and transitions over the file name alphabet are built on first
+ * use, like a lazily built DFA. A state whose distances all exceed the maximum is dead: no
+ * name starting with the characters read is accepted.</p>
+ *
+ * <p>The automaton is intersected with a set of sorted names by
+ * {@link #intersect(UnaryOperator, ObjIntConsumer)}, which walks the names as a trie and
+ * skips the subtrees of dead states, so only a small part of the names is visited.</p>
+ *
+ * <p>Automata are built per query and are not thread-safe.</p>
+ */
+public final class LevenshteinAutomaton {
+
+    /**
+     * Largest edit distance supported.
+     */
+    public static final int MAX_DISTANCE = 2;
+
+    private final String word;
+    private final int distance;
+    private final Map<Key, State> states = new HashMap<>();
+    private final State initial;
+
+    /**
+     * Builds the automaton of the names within a given distance of a word.
+     *
+     * @param word     the word
+     * @param distance the maximum edit distance, from 0 to {@link #MAX_DISTANCE}
+     * @throws IllegalArgumentException if the distance is out of range
+     */
+    public LevenshteinAutomaton(String word, int distance) {
+        if (distance < 0 || distance > MAX_DISTANCE) {
+            throw new IllegalArgumentException("Distance must be between 0 and " + MAX_DISTANCE);
+        }
+        this.word = word;
+        this.distance = distance;
+        int[] row = new int[word.length() + 1];
+        for (int i = 0; i < row.length; i++) {
+            row[i] = Math.min(i, distance + 1);
+        }
+        this.initial = state(row);
+    }
+
+    /**
+     * Tells if a name is within the distance of the word.
+     *
+     * @param name the name
+     * @return {@code true} if the name is accepted
+     */
+    public boolean matches(String name) {
+        State state = initial;
+        for (int i = 0; i < name.length() && !state.dead; i++) {
+            state = step(state, name.charAt(i));
+        }
+        return state.accepting;
+    }
+
+    /**
+     * Passes the accepted names of a sorted set to the given consumer, in lexicographic
+     * order, with their distance to the word.
+     *
+     * <p>The names are walked as a trie: the children of a prefix are found by seeking the
+     * lowest name starting with the prefix followed by a character, and the children reached
+     * by a dead state are skipped without seeking. The cost depends on the number of
+     * prefixes within the distance of a prefix of the word, rather than on the number of
+     * names.</p>
+     *
+     * @param ceiling function returning the lowest name greater than or equal to a string,
+     *                or {@code null} if there is none
+     * @param matches the consumer of the accepted names and their distance
+     * @return the number of seeks performed
+     */
+    public int intersect(UnaryOperator<String> ceiling, ObjIntConsumer<String> matches) {
+        return visit("", initial, ceiling, matches);
+    }
+
+    private int visit(String prefix, State state, UnaryOperator<String> ceiling, ObjIntConsumer<String> matches) {
+        int seeks = 0;
+        int symbol = 0;
+        while (symbol < Nfa.SYMBOLS) {
+            char c = Nfa.ALPHABET.charAt(symbol);
+            State child = step(state, c);
+            if (child.dead) {
+                symbol++;
+                continue;
+            }
+            String childPrefix = prefix + c;
+            String next = ceiling.apply(childPrefix);
+            seeks++;
+            if (next == null || !next.startsWith(prefix)) {
+                // No name follows with this prefix
+                break;
+            }
+            char found = next.charAt(prefix.length());
+            if (found != c) {
+                // Jumps to the next child present
+                while (symbol < Nfa.SYMBOLS && Nfa.ALPHABET.charAt(symbol) < found) {
+                    symbol++;
+                }
+                continue;
+            }
+            if (child.accepting && next.length() == childPrefix.length()) {
+                matches.accept(next, child.row[word.length()]);
+            }
+            seeks += visit(childPrefix, child, ceiling, matches);
+            symbol++;
+        }
+        return seeks;
+    }
+
+    private State step(State from, char c) {
+        int symbol = Nfa.symbolOf(c);
+        if (symbol >= 0 && from.next[symbol] != null) {
+            return from.next[symbol];
+        }
+        int[] previous = from.row;
+        int[] row = new int[previous.length];
+        row[0] = Math.min(previous[0] + 1, distance + 1);
+        for (int i = 1; i < row.length; i++) {
+            int cost = word.charAt(i - 1) == c ? 0 : 1;
+            int best = Math.min(previous[i - 1] + cost, Math.min(previous[i], row[i - 1]) + 1);
+            row[i] = Math.min(best, distance + 1);
+        }
+        State state = state(row);
+        if (symbol >= 0) {
+            from.next[symbol] = state;
+        }
+        return state;
+    }
+
+    private State state(int[] row) {
+        return states.computeIfAbsent(new Key(row), key -> new State(row, distance));
+    }
+
+    /**
+     * Identity of a state: its row of distances.
+     */
+    private record Key(int[] row) {
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Key key && Arrays.equals(row, key.row);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(row);
+        }
+    }
+
+    /**
+     * A state, with its lazily filled transitions.
+     */
+    private static final class State {
+
+        final int[] row;
+        final boolean accepting;
+        final boolean dead;
+        final State[] next = new State[Nfa.SYMBOLS];
+
+        State(int[] row, int distance) {
+            this.row = row;
+            this.accepting = row[row.length - 1] <= distance;
+            this.dead = Arrays.stream(row).allMatch(value -> value > distance);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.webdisk.search;
+
+import java.util.regex.Pattern;
+
+/**
+ * A compiled search pattern, tested against file names.
+ *
+ * <p>Patterns are matched with find semantics, like {@link java.util.regex.Matcher#find()}:
+ * a name matches if the pattern matches any part of it. Patterns are compiled into a lazily
+ * built DFA over the file name alphabet, which matches in time linear in the length of the
+ * name whatever the pattern. Patterns using constructs a DFA cannot express, such as
+ * backreferences or lookarounds, fall back to {@link java.util.regex.Pattern}, as do names
+ * holding characters outside the alphabet.</p>
+ *
+ * <p>Compiled patterns are thread-safe.</p>
+ */
+public interface NamePattern {
+
+    /**
+     * Tests a file name against the pattern.
+     *
+     * @param name the file name
+     * @return {@code true} if the pattern is found in the name
+     */
+    boolean matches(String name);
+
+    /**
+     * Returns the regular expression this pattern was compiled from.
+     *
+     * @return the regular expression
+     */
+    String pattern();
+
+    /**
+     * Tells if the pattern is matched in linear time, rather than by backtracking.
+     *
+     * @return {@code true} if the pattern was compiled into a DFA
+     */
+    boolean isLinear();
+
+    /**
+     * Returns a prefix every matching name starts with, known when the pattern is anchored at
+     * the beginning and followed by literal characters, as in {@code ^invoice_2025}. Searches
+     * use it to scan only a range of the sorted names.
+     *
+     * @return the prefix, empty if unknown
+     */
+    default String prefix() {
+        return "";
+    }
+
+    /**
+     * Compiles a regular expression.
+     *
+     * @param regex the regular expression, in {@link java.util.regex.Pattern} syntax
+     * @return the compiled pattern
+     * @throws java.util.regex.PatternSyntaxException if the expression is not valid
+     */
+    static NamePattern compile(String regex) {
+        // Validates the syntax, and reports errors as usual
+        Pattern backtracking = Pattern.compile(regex);
+        try {
+            return new DfaPattern(regex, RegexParser.parse(regex), backtracking);
+        } catch (UnsupportedPatternException e) {
+            return new BacktrackingPattern(backtracking);
+        }
+    }
+
+    /**
+     * Compiles a glob, matched against whole names: {@code *} stands for any sequence of
+     * characters, {@code ?} for any character, and {@code [...]} for a character class, with
+     * ranges and negation by a leading {@code !} or {@code ^}. A backslash quotes the next
+     * character. Other characters stand for themselves.
+     *
+     * @param glob the glob
+     * @return the compiled pattern, whose prefix is the literal start of the glob
+     * @throws IllegalArgumentException if the glob is not valid
+     */
+    static NamePattern glob(String glob) {
+        StringBuilder regex = new StringBuilder("^");
+        int i = 0;
+        while (i < glob.length()) {
+            char c = glob.charAt(i++);
+            switch (c) {
+                case '*' -> regex.append(".*");
+                case '?' -> regex.append('.');
+                case '[' -> {
+                    int close = glob.indexOf(']', i + 1);
+                    if (close < 0) {
+                        throw new IllegalArgumentException("Unclosed class in glob " + glob);
+                    }
+                    regex.append('[');
+                    if (glob.charAt(i) == '!' || glob.charAt(i) == '^') {
+                        regex.append('^');
+                        i++;
+                    }
+                    for (; i < close; i++) {
+                        char member = glob.charAt(i);
+                        if (member == '\\' || member == '[' || member == ']' || member == '&' || member == '^') {
+                            regex.append('\\');
+                        }
+                        regex.append(member);
+                    }
+                    regex.append(']');
+                    i = close + 1;
+                }
+                case '\\' -> {
+                    if (i == glob.length()) {
+                        throw new IllegalArgumentException("Trailing backslash in glob " + glob);
+                    }
+                    appendLiteral(regex, glob.charAt(i++));
+                }
+                default -> appendLiteral(regex, c);
+            }
+        }
+        return compile(regex.append('$').toString());
+    }
+
+    private static void appendLiteral(StringBuilder regex, char c) {
+        if (!Character.isLetterOrDigit(c)) {
+            regex.append('\\');
+        }
+        regex.append(c);
+    }
+}
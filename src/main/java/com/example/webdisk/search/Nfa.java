@@ -0,0 +1,148 @@
+package com.example.webdisk.search;
+
+import java.util.Arrays;
+
+/**
+ * Nondeterministic automaton over the file name alphabet, built by {@link RegexParser}.
+ *
+ * <p>States are numbered and described by parallel arrays. A {@link #SET} state consumes one
+ * symbol of its 64-bit mask, {@link #SPLIT} and {@link #EMPTY} states are epsilon transitions,
+ * {@link #BOL} and {@link #EOL} are epsilon transitions allowed only at the beginning and at
+ * the end of the name, and {@link #MATCH} accepts.</p>
+ */
+final class Nfa {
+
+    static final byte SET = 0;
+    static final byte SPLIT = 1;
+    static final byte EMPTY = 2;
+    static final byte BOL = 3;
+    static final byte EOL = 4;
+    static final byte MATCH = 5;
+
+    /**
+     * The file name alphabet, in symbol order.
+     */
+    static final String ALPHABET = "-0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ_abcdefghijklmnopqrstuvwxyz";
+
+    /**
+     * Number of symbols of the alphabet.
+     */
+    static final int SYMBOLS = 64;
+
+    private static final byte[] SYMBOL_OF = new byte[128];
+
+    static {
+        Arrays.fill(SYMBOL_OF, (byte) -1);
+        for (int i = 0; i < ALPHABET.length(); i++) {
+            SYMBOL_OF[ALPHABET.charAt(i)] = (byte) i;
+        }
+    }
+
+    /**
+     * Upper bound on the number of states, beyond which a pattern is not supported.
+     */
+    static final int MAX_STATES = 20_000;
+
+    private byte[] types = new byte[64];
+    private long[] masks = new long[64];
+    private int[] outs = new int[64];
+    private int[] alternatives = new int[64];
+    private int count;
+    private int start = -1;
+    private String prefix = "";
+
+    /**
+     * Returns the symbol of a character.
+     *
+     * @param c the character
+     * @return the symbol, or {@code -1} if the character is not in the alphabet
+     */
+    static int symbolOf(char c) {
+        return c < 128 ? SYMBOL_OF[c] : -1;
+    }
+
+    /**
+     * Returns the symbol mask of a character: a single bit, or none for a character outside
+     * the alphabet, which no name holds.
+     */
+    static long maskOf(char c) {
+        int symbol = symbolOf(c);
+        return symbol < 0 ? 0 : 1L << symbol;
+    }
+
+    /**
+     * Returns the symbol mask of the characters from {@code from} to {@code to} inclusive.
+     */
+    static long maskOf(char from, char to) {
+        long mask = 0;
+        for (int i = 0; i < ALPHABET.length(); i++) {
+            char c = ALPHABET.charAt(i);
+            if (c >= from && c <= to) {
+                mask |= 1L << i;
+            }
+        }
+        return mask;
+    }
+
+    int add(byte type, long mask, int out, int alternative) {
+        if (count == MAX_STATES) {
+            throw new UnsupportedPatternException("Pattern too large");
+        }
+        if (count == types.length) {
+            int capacity = count * 2;
+            types = Arrays.copyOf(types, capacity);
+            masks = Arrays.copyOf(masks, capacity);
+            outs = Arrays.copyOf(outs, capacity);
+            alternatives = Arrays.copyOf(alternatives, capacity);
+        }
+        types[count] = type;
+        masks[count] = mask;
+        outs[count] = out;
+        alternatives[count] = alternative;
+        return count++;
+    }
+
+    void setOut(int state, int out) {
+        outs[state] = out;
+    }
+
+    void setStart(int state) {
+        start = state;
+    }
+
+    int start() {
+        return start;
+    }
+
+    /**
+     * Sets the literal prefix of every name matched, when the pattern is anchored at the
+     * beginning.
+     */
+    void setPrefix(String prefix) {
+        this.prefix = prefix;
+    }
+
+    String prefix() {
+        return prefix;
+    }
+
+    int size() {
+        return count;
+    }
+
+    byte type(int state) {
+        return types[state];
+    }
+
+    long mask(int state) {
+        return masks[state];
+    }
+
+    int out(int state) {
+        return outs[state];
+    }
+
+    int alternative(int state) {
+        return alternatives[state];
+    }
+}
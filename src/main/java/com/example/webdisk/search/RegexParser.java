@@ -0,0 +1,302 @@
+package com.example.webdisk.search;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parser of the regular expressions supported by the DFA engine, into an {@link Nfa}.
+ *
+ * <p>The supported subset of the {@link java.util.regex.Pattern} syntax covers literals,
+ * {@code .}, character classes with ranges and negation, the {@code \d \w \s} classes and
+ * their negations, escaped punctuation, groups, non-capturing groups, alternation, the
+ * {@code * + ? {n} {n,} {n,m}} quantifiers, greedy or reluctant, and the {@code ^ $} anchors.
+ * Other constructs - backreferences, lookarounds, possessive quantifiers, inline flags, word
+ * boundaries, class intersections, quoting and numeric escapes - raise an
+ * {@link UnsupportedPatternException}. Expressions are expected to be valid, as checked by
+ * {@link java.util.regex.Pattern#compile(String)} beforehand.</p>
+ */
+final class RegexParser {
+
+    private static final int UNBOUNDED = -1;
+
+    private static final long ALL = -1L;
+    private static final long DIGITS = Nfa.maskOf('0', '9');
+    private static final long WORD = Nfa.maskOf('a', 'z') | Nfa.maskOf('A', 'Z') | DIGITS | Nfa.maskOf('_');
+
+    private final String regex;
+    private int pos;
+
+    private RegexParser(String regex) {
+        this.regex = regex;
+    }
+
+    /**
+     * Parses a regular expression into an automaton.
+     *
+     * @param regex the regular expression
+     * @return the automaton
+     * @throws UnsupportedPatternException if the expression uses an unsupported construct
+     */
+    static Nfa parse(String regex) {
+        RegexParser parser = new RegexParser(regex);
+        Node root = parser.parseAlternation();
+        if (parser.pos != regex.length()) {
+            throw new UnsupportedPatternException("Unexpected '" + regex.charAt(parser.pos) + "'");
+        }
+        Nfa nfa = new Nfa();
+        int match = nfa.add(Nfa.MATCH, 0, -1, -1);
+        nfa.setStart(compile(nfa, root, match));
+        nfa.setPrefix(prefixOf(root));
+        return nfa;
+    }
+
+    /**
+     * Returns the literal characters following a leading {@code ^} anchor, which every
+     * matched name starts with.
+     */
+    private static String prefixOf(Node root) {
+        List<Node> nodes = root instanceof Sequence sequence ? sequence.nodes() : List.of(root);
+        if (nodes.isEmpty() || !(nodes.get(0) instanceof Anchor anchor) || anchor.type() != Nfa.BOL) {
+            return "";
+        }
+        StringBuilder prefix = new StringBuilder();
+        for (int i = 1; i < nodes.size(); i++) {
+            if (!(nodes.get(i) instanceof Chars chars) || Long.bitCount(chars.mask()) != 1) {
+                break;
+            }
+            prefix.append(Nfa.ALPHABET.charAt(Long.numberOfTrailingZeros(chars.mask())));
+        }
+        return prefix.toString();
+    }
+
+    /**
+     * Nodes of the parsed expression.
+     */
+    private sealed interface Node permits Chars, Sequence, Alternation, Repetition, Anchor {
+    }
+
+    private record Chars(long mask) implements Node {
+    }
+
+    private record Sequence(List<Node> nodes) implements Node {
+    }
+
+    private record Alternation(List<Node> nodes) implements Node {
+    }
+
+    private record Repetition(Node node, int min, int max) implements Node {
+    }
+
+    private record Anchor(byte type) implements Node {
+    }
+
+    private Node parseAlternation() {
+        List<Node> alternatives = new ArrayList<>();
+        alternatives.add(parseSequence());
+        while (pos < regex.length() && regex.charAt(pos) == '|') {
+            pos++;
+            alternatives.add(parseSequence());
+        }
+        return alternatives.size() == 1 ? alternatives.get(0) : new Alternation(alternatives);
+    }
+
+    private Node parseSequence() {
+        List<Node> nodes = new ArrayList<>();
+        while (pos < regex.length() && regex.charAt(pos) != '|' && regex.charAt(pos) != ')') {
+            nodes.add(parseQuantified(parseAtom()));
+        }
+        return nodes.size() == 1 ? nodes.get(0) : new Sequence(nodes);
+    }
+
+    private Node parseQuantified(Node atom) {
+        Node node = atom;
+        while (pos < regex.length()) {
+            char c = regex.charAt(pos);
+            int min;
+            int max;
+            if (c == '*') {
+                min = 0;
+                max = UNBOUNDED;
+                pos++;
+            } else if (c == '+') {
+                min = 1;
+                max = UNBOUNDED;
+                pos++;
+            } else if (c == '?') {
+                min = 0;
+                max = 1;
+                pos++;
+            } else if (c == '{') {
+                int close = regex.indexOf('}', pos);
+                String[] bounds = regex.substring(pos + 1, close).split(",", -1);
+                try {
+                    min = Integer.parseInt(bounds[0].trim());
+                    max = bounds.length == 1 ? min
+                            : bounds[1].isBlank() ? UNBOUNDED : Integer.parseInt(bounds[1].trim());
+                } catch (NumberFormatException e) {
+                    throw new UnsupportedPatternException("Invalid repetition");
+                }
+                pos = close + 1;
+            } else {
+                return node;
+            }
+            if (pos < regex.length() && regex.charAt(pos) == '+') {
+                throw new UnsupportedPatternException("Possessive quantifier");
+            }
+            // Reluctant quantifiers match the same names
+            if (pos < regex.length() && regex.charAt(pos) == '?') {
+                pos++;
+            }
+            node = new Repetition(node, min, max);
+        }
+        return node;
+    }
+
+    private Node parseAtom() {
+        char c = regex.charAt(pos++);
+        switch (c) {
+            case '(':
+                if (regex.startsWith("?:", pos)) {
+                    pos += 2;
+                } else if (pos < regex.length() && regex.charAt(pos) == '?') {
+                    throw new UnsupportedPatternException("Special group");
+                }
+                Node group = parseAlternation();
+                if (pos >= regex.length() || regex.charAt(pos) != ')') {
+                    throw new UnsupportedPatternException("Unclosed group");
+                }
+                pos++;
+                return group;
+            case '[':
+                return new Chars(parseClass());
+            case '.':
+                return new Chars(ALL);
+            case '^':
+                return new Anchor(Nfa.BOL);
+            case '$':
+                return new Anchor(Nfa.EOL);
+            case '\\':
+                return new Chars(parseEscape());
+            case '*', '+', '?', '{', ')', '|':
+                throw new UnsupportedPatternException("Unexpected '" + c + "'");
+            default:
+                return new Chars(Nfa.maskOf(c));
+        }
+    }
+
+    private long parseClass() {
+        boolean negated = pos < regex.length() && regex.charAt(pos) == '^';
+        if (negated) {
+            pos++;
+        }
+        if (pos < regex.length() && regex.charAt(pos) == ']') {
+            throw new UnsupportedPatternException("Class starting with ']'");
+        }
+        long mask = 0;
+        while (true) {
+            if (pos >= regex.length()) {
+                throw new UnsupportedPatternException("Unclosed class");
+            }
+            char c = regex.charAt(pos++);
+            if (c == ']') {
+                break;
+            }
+            if (c == '[' || (c == '&' && pos < regex.length() && regex.charAt(pos) == '&')) {
+                throw new UnsupportedPatternException("Nested class");
+            }
+            if (c == '\\') {
+                char escaped = regex.charAt(pos);
+                if (Character.isLetterOrDigit(escaped)) {
+                    mask |= parseEscape();
+                    continue;
+                }
+                pos++;
+                c = escaped;
+            }
+            // Range, unless the dash ends the class
+            if (pos + 1 < regex.length() && regex.charAt(pos) == '-' && regex.charAt(pos + 1) != ']') {
+                char to = regex.charAt(pos + 1);
+                if (to == '\\' || to == '[') {
+                    throw new UnsupportedPatternException("Escaped range bound");
+                }
+                pos += 2;
+                mask |= Nfa.maskOf(c, to);
+            } else {
+                mask |= Nfa.maskOf(c);
+            }
+        }
+        return negated ? ~mask : mask;
+    }
+
+    private long parseEscape() {
+        char c = regex.charAt(pos++);
+        switch (c) {
+            case 'd':
+                return DIGITS;
+            case 'D':
+                return ~DIGITS;
+            case 'w':
+                return WORD;
+            case 'W':
+                return ~WORD;
+            case 's':
+                // No name holds whitespace
+                return 0;
+            case 'S':
+                return ALL;
+            case 't', 'n', 'r', 'f', 'a', 'e':
+                return 0;
+            default:
+                if (Character.isLetterOrDigit(c)) {
+                    throw new UnsupportedPatternException("Escape \\" + c);
+                }
+                return Nfa.maskOf(c);
+        }
+    }
+
+    /**
+     * Compiles a node into states leading to {@code next}, from last to first.
+     *
+     * @return the entry state of the node
+     */
+    private static int compile(Nfa nfa, Node node, int next) {
+        if (node instanceof Chars chars) {
+            return nfa.add(Nfa.SET, chars.mask(), next, -1);
+        }
+        if (node instanceof Anchor anchor) {
+            return nfa.add(anchor.type(), 0, next, -1);
+        }
+        if (node instanceof Sequence sequence) {
+            int entry = next;
+            for (int i = sequence.nodes().size() - 1; i >= 0; i--) {
+                entry = compile(nfa, sequence.nodes().get(i), entry);
+            }
+            return entry;
+        }
+        if (node instanceof Alternation alternation) {
+            List<Node> nodes = alternation.nodes();
+            int entry = compile(nfa, nodes.get(nodes.size() - 1), next);
+            for (int i = nodes.size() - 2; i >= 0; i--) {
+                entry = nfa.add(Nfa.SPLIT, 0, compile(nfa, nodes.get(i), next), entry);
+            }
+            return entry;
+        }
+        Repetition repetition = (Repetition) node;
+        int entry;
+        if (repetition.max() == UNBOUNDED) {
+            // Loop: either one more occurrence, coming back here, or leave
+            int loop = nfa.add(Nfa.SPLIT, 0, -1, next);
+            nfa.setOut(loop, compile(nfa, repetition.node(), loop));
+            entry = loop;
+        } else {
+            entry = next;
+            for (int i = repetition.min(); i < repetition.max(); i++) {
+                entry = nfa.add(Nfa.SPLIT, 0, compile(nfa, repetition.node(), entry), next);
+            }
+        }
+        for (int i = 0; i < repetition.min(); i++) {
+            entry = compile(nfa, repetition.node(), entry);
+        }
+        return entry;
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.webdisk.search;
+
+import java.util.Locale;
+
+/**
+ * How a search query is interpreted.
+ */
+public enum SearchMode {
+
+    /**
+     * Names starting with the query, in lexicographic order.
+     */
+    PREFIX,
+
+    /**
+     * Names matching the query as a glob, in lexicographic order.
+     *
+     * @see NamePattern#glob(String)
+     */
+    GLOB,
+
+    /**
+     * Names in which the query, a regular expression, is found, in no particular order.
+     *
+     * @see NamePattern#compile(String)
+     */
+    REGEX;
+
+    /**
+     * Returns the mode of the given name, case insensitive.
+     *
+     * @param name the mode name, such as {@code prefix}
+     * @return the mode
+     * @throws IllegalArgumentException if no mode has this name
+     */
+    public static SearchMode of(String name) {
+        try {
+            return valueOf(name.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown search mode " + name);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.webdisk.search;
+
+/**
+ * Thrown when a regular expression uses a construct the DFA engine does not support.
+ */
+class UnsupportedPatternException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    UnsupportedPatternException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.webdisk.security;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Bearer token settings, bound from the "webdisk.auth" properties. With a {@code jwks-file},
+ * bearer tokens are JWTs signed by one of its keys, and the files endpoints require the
+ * {@code read-scope} for GET and HEAD, the {@code write-scope} for the other methods. Without
+ * it, any bearer token is accepted, as a demo pre-authentication.
+ *
+ * <p>Verified tokens are cached, up to {@code cache-size}, until they expire. The key set is
+ * reloaded when the file changes, checked every {@code reload-interval}. The
+ * {@code node-token} is presented by this node to the other nodes of the cluster and to the
+ * primary.</p>
+ *
+ * <pre>
+ * webdisk.auth.jwks-file=/etc/webdisk/jwks.json
+ * webdisk.auth.issuer=https://auth.example.com
+ * webdisk.auth.audience=webdisk
+ * webdisk.auth.clock-skew=30s
+ * webdisk.auth.cache-size=10000
+ * webdisk.auth.reload-interval=10s
+ * webdisk.auth.read-scope=files:read
+ * webdisk.auth.write-scope=files:write
+ * webdisk.auth.node-token=eyJhbGciOiJSUzI1NiIs...
+ * </pre>
+ */
+@ConfigurationProperties(prefix = "webdisk.auth")
+public class AuthProperties {
+
+    private String jwksFile = "";
+    private String issuer = "";
+    private String audience = "";
+    private Duration clockSkew = Duration.ofSeconds(30);
+    private int cacheSize = 10_000;
+    private Duration reloadInterval = Duration.ofSeconds(10);
+    private String readScope = "files:read";
+    private String writeScope = "files:write";
+    private String nodeToken = "";
+
+    /**
+     * Tells if bearer tokens are verified, against the key set file.
+     *
+     * @return {@code true} if a key set file is configured
+     */
+    public boolean isVerified() {
+        return !jwksFile.isEmpty();
+    }
+
+    public String getJwksFile() {
+        return jwksFile;
+    }
+
+    public void setJwksFile(String jwksFile) {
+        this.jwksFile = jwksFile;
+    }
+
+    public String getIssuer() {
+        return issuer;
+    }
+
+    public void setIssuer(String issuer) {
+        this.issuer = issuer;
+    }
+
+    public String getAudience() {
+        return audience;
+    }
+
+    public void setAudience(String audience) {
+        this.audience = audience;
+    }
+
+    public Duration getClockSkew() {
+        return clockSkew;
+    }
+
+    public void setClockSkew(Duration clockSkew) {
+        this.clockSkew = clockSkew;
+    }
+
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    public void setCacheSize(int cacheSize) {
+        this.cacheSize = cacheSize;
+    }
+
+    public Duration getReloadInterval() {
+        return reloadInterval;
+    }
+
+    public void setReloadInterval(Duration reloadInterval) {
+        this.reloadInterval = reloadInterval;
+    }
+
+    public String getReadScope() {
+        return readScope;
+    }
+
+    public void setReadScope(String readScope) {
+        this.readScope = readScope;
+    }
+
+    public String getWriteScope() {
+        return writeScope;
+    }
+
+    public void setWriteScope(String writeScope) {
+        this.writeScope = writeScope;
+    }
+
+    public String getNodeToken() {
+        return nodeToken;
+    }
+
+    public void setNodeToken(String nodeToken) {
+        this.nodeToken = nodeToken;
+    }
+}
@@ -1,9 +1,14 @@
 package com.example.webdisk.security;
 
 import java.io.IOException;
-import java.util.Collections;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.lang.NonNull;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.authentication.preauth.PreAuthenticatedAuthenticationToken;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -17,8 +22,10 @@ import jakarta.servlet.http.HttpServletResponse;
  * BearerAuthenticationFilter is a custom filter that processes HTTP requests
  * to authorize users based on a preauthentication Bearer token provided in the Authorization header.
  * 
- * <p>Note: In a real implementation, the token should be verified against an external 
- * authentication service to ensure its validity.</p>
+ * <p>The token is authenticated by the {@link BearerTokenService}: with a key set configured,
+ * as a JWT whose subject and scopes become the principal and authorities of the request, and a
+ * token which is not accepted is answered with 401 Unauthorized. Without one, any token is
+ * accepted.</p>
  *  
  * @see OncePerRequestFilter
  * @see PreAuthenticatedAuthenticationToken
@@ -26,6 +33,21 @@ import jakarta.servlet.http.HttpServletResponse;
  */
 public class BearerAuthenticationFilter extends OncePerRequestFilter {
 
+    private static final Logger logger = LoggerFactory.getLogger(BearerAuthenticationFilter.class);
+    private static final String REJECTED_BODY =
+            "{\"type\":\"about:blank\",\"title\":\"Unauthorized\",\"status\":401,\"detail\":\"%s\"}";
+
+    private final BearerTokenService tokens;
+
+    /**
+     * Constructs a new BearerAuthenticationFilter.
+     *
+     * @param tokens the service authenticating the tokens
+     */
+    public BearerAuthenticationFilter(BearerTokenService tokens) {
+        this.tokens = tokens;
+    }
+
     /**
      * Filters incoming HTTP requests to check for a Bearer token in the Authorization header.
      * If a valid Bearer token is found, it sets the authentication in the security context.
@@ -41,20 +63,23 @@ public class BearerAuthenticationFilter extends OncePerRequestFilter {
             @NonNull HttpServletRequest request,
             @NonNull HttpServletResponse response,
             @NonNull FilterChain filterChain) throws ServletException, IOException {
-        String header = request.getHeader("Authorization");
-
-        if (header != null && header.startsWith("Bearer ")) {
-            // In a real implementation, the token would be verified against
-            // the external authentication service
-            PreAuthenticatedAuthenticationToken authentication = new PreAuthenticatedAuthenticationToken(
-                header.substring(7), 
-                "Admin",
-                Collections.emptyList()
-            );
+        Authentication authentication;
+        try {
+            authentication = tokens.authenticate(request.getHeader(HttpHeaders.AUTHORIZATION));
+        } catch (InvalidTokenException e) {
+            logger.warn("Rejected. @Request:{} {} @Cause:{}", request.getMethod(), request.getRequestURI(),
+                    e.getMessage());
+            response.setStatus(HttpStatus.UNAUTHORIZED.value());
+            response.setHeader(HttpHeaders.WWW_AUTHENTICATE, "Bearer error=\"invalid_token\"");
+            response.setContentType(MediaType.APPLICATION_PROBLEM_JSON_VALUE);
+            response.getWriter().write(String.format(REJECTED_BODY, e.getMessage()));
+            return;
+        }
+        if (authentication != null) {
             SecurityContextHolder.getContext().setAuthentication(authentication);
         }
 
         filterChain.doFilter(request, response);
     }
 
-}
\ No newline at end of file
+}
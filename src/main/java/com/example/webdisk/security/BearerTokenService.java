@@ -0,0 +1,165 @@
+package com.example.webdisk.security;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.web.authentication.preauth.PreAuthenticatedAuthenticationToken;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Service authenticating the bearer tokens of the Authorization header.
+ *
+ * <p>With a key set file configured, tokens are JWTs verified by a {@link TokenVerifier}, and
+ * authenticated as their subject, with one "SCOPE_" authority per scope. Verified tokens are
+ * kept in a {@link TokenCache} until they expire, so that a token seen before costs a hash of
+ * the header and a lookup. The key set file is checked for changes by a reloader thread,
+ * and the cache is dropped when the keys change.</p>
+ *
+ * <p>Without a key set file, any token is accepted, as a demo pre-authentication.</p>
+ */
+@Service
+public class BearerTokenService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BearerTokenService.class);
+    private static final String BEARER = "Bearer ";
+    private static final String SCOPE_PREFIX = "SCOPE_";
+
+    private final JwksKeySet keys;
+    private final TokenVerifier verifier;
+    private final TokenCache cache;
+    private final ScheduledExecutorService reloader;
+    private final Counter cached;
+    private final Counter verified;
+    private final Counter rejected;
+
+    /**
+     * Constructs a new BearerTokenService, loading the key set file if configured.
+     *
+     * @param properties the bearer token settings
+     * @param mapper     the JSON mapper reading the key set and the tokens
+     * @param registry   the meter registry receiving the authentication metrics
+     * @throws IOException if the key set file cannot be read
+     */
+    public BearerTokenService(AuthProperties properties, ObjectMapper mapper, MeterRegistry registry)
+            throws IOException {
+        this.cached = tokenCounter(registry, "cached");
+        this.verified = tokenCounter(registry, "verified");
+        this.rejected = tokenCounter(registry, "rejected");
+        if (!properties.isVerified()) {
+            this.keys = null;
+            this.verifier = null;
+            this.cache = null;
+            this.reloader = null;
+            return;
+        }
+        this.keys = new JwksKeySet(Paths.get(properties.getJwksFile()), mapper);
+        this.verifier = new TokenVerifier(keys, mapper, properties.getIssuer(), properties.getAudience(),
+                properties.getClockSkew());
+        this.cache = new TokenCache(properties.getCacheSize());
+        Gauge.builder("webdisk.auth.keys", keys, JwksKeySet::size)
+                .description("Verification keys loaded from the key set file")
+                .register(registry);
+        this.reloader = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "webdisk-jwks-reloader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = properties.getReloadInterval().toMillis();
+        reloader.scheduleWithFixedDelay(this::reloadKeys, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the reloader.
+     */
+    @PreDestroy
+    public void close() {
+        if (reloader != null) {
+            reloader.shutdownNow();
+        }
+    }
+
+    /**
+     * Tells if tokens are verified, rather than accepted as they are.
+     *
+     * @return {@code true} if a key set file is configured
+     */
+    public boolean isVerified() {
+        return verifier != null;
+    }
+
+    /**
+     * Authenticates the bearer token of an Authorization header.
+     *
+     * @param header the Authorization header, or {@code null}
+     * @return the authentication of the token, or {@code null} if the header has no bearer token
+     * @throws InvalidTokenException if the token is not accepted
+     */
+    Authentication authenticate(String header) throws InvalidTokenException {
+        if (header == null || !header.startsWith(BEARER)) {
+            return null;
+        }
+        if (verifier == null) {
+            return new PreAuthenticatedAuthenticationToken(header.substring(BEARER.length()), "Admin",
+                    Collections.emptyList());
+        }
+        long now = System.currentTimeMillis();
+        long hash = TokenCache.hash(header, BEARER.length());
+        Authentication authentication = cache.get(header, BEARER.length(), hash, now);
+        if (authentication != null) {
+            cached.increment();
+            return authentication;
+        }
+        int generation = cache.generation();
+        String token = header.substring(BEARER.length());
+        TokenVerifier.Verified claims;
+        try {
+            claims = verifier.verify(token, now);
+        } catch (InvalidTokenException e) {
+            rejected.increment();
+            throw e;
+        }
+        List<SimpleGrantedAuthority> authorities = claims.scopes().stream()
+                .map(scope -> new SimpleGrantedAuthority(SCOPE_PREFIX + scope))
+                .toList();
+        authentication = new PreAuthenticatedAuthenticationToken(claims.subject(), "", authorities);
+        cache.put(hash, token, authentication, claims.expiresAt(), generation, now);
+        verified.increment();
+        return authentication;
+    }
+
+    /**
+     * Reloads the key set file if it changed, dropping the cached tokens.
+     */
+    void reloadKeys() {
+        try {
+            if (keys.reloadIfModified()) {
+                cache.invalidate();
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Unable to reload the key set, keeping the previous keys. @Cause:{}", e.getMessage());
+        }
+    }
+
+    private static Counter tokenCounter(MeterRegistry registry, String result) {
+        return Counter.builder("webdisk.auth.tokens")
+                .description("Bearer tokens authenticated, by result")
+                .tag("result", result)
+                .register(registry);
+    }
+}
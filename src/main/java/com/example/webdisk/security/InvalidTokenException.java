@@ -0,0 +1,14 @@
+package com.example.webdisk.security;
+
+/**
+ * Thrown when a bearer token is malformed, not signed by a known key, or its claims are not
+ * accepted.
+ */
+class InvalidTokenException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    InvalidTokenException(String message) {
+        super(message);
+    }
+}
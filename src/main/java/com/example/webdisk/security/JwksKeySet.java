@@ -0,0 +1,152 @@
+package com.example.webdisk.security;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.AlgorithmParameters;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.ECParameterSpec;
+import java.security.spec.ECPoint;
+import java.security.spec.ECPublicKeySpec;
+import java.security.spec.RSAPublicKeySpec;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * The verification keys of a JSON Web Key Set file, RSA and EC public keys identified by
+ * their "kid". The file is read again by {@link #reloadIfModified()} when its modification
+ * time changes; a file which cannot be read or parsed leaves the previous keys in place.
+ */
+final class JwksKeySet {
+
+    private static final Logger logger = LoggerFactory.getLogger(JwksKeySet.class);
+    private static final Map<String, String> CURVES = Map.of(
+            "P-256", "secp256r1",
+            "P-384", "secp384r1",
+            "P-521", "secp521r1");
+
+    /**
+     * A verification key.
+     *
+     * @param key       the public key
+     * @param algorithm the JWS algorithm the key is restricted to, or {@code null}
+     */
+    record Key(PublicKey key, String algorithm) { }
+
+    private final Path file;
+    private final ObjectMapper mapper;
+    private volatile Map<String, Key> keys = Map.of();
+    private volatile FileTime loaded;
+
+    /**
+     * Loads a key set file.
+     *
+     * @param file   the JWKS file
+     * @param mapper the JSON mapper
+     * @throws IOException if the file cannot be read or parsed
+     */
+    JwksKeySet(Path file, ObjectMapper mapper) throws IOException {
+        this.file = file;
+        this.mapper = mapper;
+        load();
+    }
+
+    /**
+     * Returns the key of a key identifier. Tokens without one are accepted when the set
+     * holds a single key.
+     *
+     * @param kid the key identifier of the token, or {@code null}
+     * @return the key, or {@code null} if unknown
+     */
+    Key get(String kid) {
+        Map<String, Key> current = keys;
+        if (kid == null) {
+            return current.size() == 1 ? current.values().iterator().next() : null;
+        }
+        return current.get(kid);
+    }
+
+    /**
+     * Returns the number of keys.
+     *
+     * @return the number of keys
+     */
+    int size() {
+        return keys.size();
+    }
+
+    /**
+     * Reads the file again if it was modified since it was last read.
+     *
+     * @return {@code true} if the keys were reloaded
+     * @throws IOException if the file cannot be read or parsed, the keys being unchanged
+     */
+    boolean reloadIfModified() throws IOException {
+        if (Files.getLastModifiedTime(file).equals(loaded)) {
+            return false;
+        }
+        load();
+        return true;
+    }
+
+    private void load() throws IOException {
+        FileTime modified = Files.getLastModifiedTime(file);
+        JsonNode root = mapper.readTree(file.toFile());
+        Map<String, Key> parsed = new HashMap<>();
+        int index = 0;
+        for (JsonNode jwk : root.path("keys")) {
+            String kid = jwk.path("kid").asText("#" + index++);
+            if (jwk.hasNonNull("use") && !"sig".equals(jwk.get("use").asText())) {
+                continue;
+            }
+            try {
+                parsed.put(kid, new Key(publicKey(jwk), jwk.hasNonNull("alg") ? jwk.get("alg").asText() : null));
+            } catch (GeneralSecurityException | IllegalArgumentException e) {
+                logger.warn("Ignoring key {} of {}. @Cause:{}", kid, file, e.getMessage());
+            }
+        }
+        keys = Map.copyOf(parsed);
+        loaded = modified;
+        logger.info("Loaded {} verification keys from {}", parsed.size(), file);
+    }
+
+    private static PublicKey publicKey(JsonNode jwk) throws GeneralSecurityException {
+        String type = jwk.path("kty").asText();
+        switch (type) {
+            case "RSA":
+                return KeyFactory.getInstance("RSA").generatePublic(new RSAPublicKeySpec(
+                        integer(jwk, "n"), integer(jwk, "e")));
+            case "EC":
+                String curve = CURVES.get(jwk.path("crv").asText());
+                if (curve == null) {
+                    throw new IllegalArgumentException("Unsupported curve " + jwk.path("crv").asText());
+                }
+                AlgorithmParameters parameters = AlgorithmParameters.getInstance("EC");
+                parameters.init(new ECGenParameterSpec(curve));
+                return KeyFactory.getInstance("EC").generatePublic(new ECPublicKeySpec(
+                        new ECPoint(integer(jwk, "x"), integer(jwk, "y")),
+                        parameters.getParameterSpec(ECParameterSpec.class)));
+            default:
+                throw new IllegalArgumentException("Unsupported key type " + type);
+        }
+    }
+
+    private static BigInteger integer(JsonNode jwk, String member) {
+        if (!jwk.hasNonNull(member)) {
+            throw new IllegalArgumentException("Missing member " + member);
+        }
+        return new BigInteger(1, Base64.getUrlDecoder().decode(jwk.get(member).asText()));
+    }
+}
@@ -2,6 +2,7 @@ package com.example.webdisk.security;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.web.SecurityFilterChain;
@@ -14,14 +15,17 @@ import org.springframework.security.web.authentication.preauth.AbstractPreAuthen
 @EnableWebSecurity
 public class SecurityConfig {
 
+    private static final String SCOPE_PREFIX = "SCOPE_";
+
     /**
      * Creates and configures a {@link BearerAuthenticationFilter} bean.
      * 
+     * @param tokens the service authenticating the bearer tokens
      * @return a new instance of {@link BearerAuthenticationFilter}
      */
     @Bean
-    public BearerAuthenticationFilter bearerAuthenticationFilter() {
-        return new BearerAuthenticationFilter();
+    public BearerAuthenticationFilter bearerAuthenticationFilter(BearerTokenService tokens) {
+        return new BearerAuthenticationFilter(tokens);
     }
 
     /**
@@ -29,21 +33,41 @@ public class SecurityConfig {
      * 
      * <p>This method sets up the security configuration using {@link HttpSecurity}.
      * It disables CSRF protection, requires authentication for requests to 
-     * "/files/restricted", and permits all other requests. Additionally, it adds 
+     * "/files/restricted", for the POST requests moving files between storage volumes and
+     * for the hot keys endpoint, which reports file names and principals, and permits all
+     * other requests. Additionally, it adds 
      * a custom bearer authentication filter before the 
      * {@link AbstractPreAuthenticatedProcessingFilter}.</p>
      * 
+     * <p>When bearer tokens are verified, the files endpoints also require the read scope
+     * for GET and HEAD requests, and the write scope for the others.</p>
+     * 
      * @param http the {@link HttpSecurity} to modify
+     * @param properties the bearer token settings
+     * @param tokens the service authenticating the bearer tokens
      * @return the configured {@link SecurityFilterChain}
      * @throws Exception if an error occurs while configuring the security filter chain
      */
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http, AuthProperties properties,
+            BearerTokenService tokens) throws Exception {
+        String read = SCOPE_PREFIX + properties.getReadScope();
+        String write = SCOPE_PREFIX + properties.getWriteScope();
         http.csrf(csrf -> csrf.disable())
-                .authorizeHttpRequests(authorize -> authorize
-                .requestMatchers("/files/restricted").authenticated()
-                .anyRequest().permitAll())
-                .addFilterBefore(bearerAuthenticationFilter(), AbstractPreAuthenticatedProcessingFilter.class);
+                .authorizeHttpRequests(authorize -> {
+                    authorize
+                            .requestMatchers("/files/restricted").authenticated()
+                            .requestMatchers(HttpMethod.POST, "/storage/**").authenticated()
+                            .requestMatchers("/actuator/hotkeys/**").authenticated();
+                    if (tokens.isVerified()) {
+                        authorize
+                                .requestMatchers(HttpMethod.GET, "/files/**").hasAnyAuthority(read, write)
+                                .requestMatchers(HttpMethod.HEAD, "/files/**").hasAnyAuthority(read, write)
+                                .requestMatchers("/files/**").hasAuthority(write);
+                    }
+                    authorize.anyRequest().permitAll();
+                })
+                .addFilterBefore(bearerAuthenticationFilter(tokens), AbstractPreAuthenticatedProcessingFilter.class);
         return http.build();
     }
 
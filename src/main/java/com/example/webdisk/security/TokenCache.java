@@ -0,0 +1,131 @@
+package com.example.webdisk.security;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.springframework.security.core.Authentication;
+
+/**
+ * Bounded cache of the verified tokens, until their expiry, so that a token is verified once
+ * rather than on each request.
+ *
+ * <p>Entries are held in a fixed array, indexed by a 64 bit hash of the token computed in
+ * place in the Authorization header: a lookup hashes the header and compares it to the token
+ * of the entry, without allocating. A token may sit in two slots; an insert takes an empty or
+ * expired one, else evicts the entry expiring first. Entries are stamped with the generation
+ * of the key set they were verified with, and {@link #invalidate()} drops them all when keys
+ * change.</p>
+ */
+final class TokenCache {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private record Entry(long hash, String token, Authentication authentication, long expiresAt, int generation) { }
+
+    private final AtomicReferenceArray<Entry> entries;
+    private final int mask;
+    private volatile int generation;
+
+    /**
+     * Constructs a cache.
+     *
+     * @param capacity the minimum number of entries
+     */
+    TokenCache(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+        this.entries = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * Hashes a token, from an offset of a header.
+     *
+     * @param header the header holding the token
+     * @param offset the start of the token
+     * @return the hash of the token
+     */
+    static long hash(String header, int offset) {
+        long hash = FNV_OFFSET;
+        for (int i = offset; i < header.length(); i++) {
+            hash = (hash ^ header.charAt(i)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * Returns the generation to give to {@link #put}, read before verifying a token.
+     *
+     * @return the current generation
+     */
+    int generation() {
+        return generation;
+    }
+
+    /**
+     * Returns the authentication of a cached token.
+     *
+     * @param header the header holding the token
+     * @param offset the start of the token
+     * @param hash   the hash of the token
+     * @param now    the current time, in milliseconds since the epoch
+     * @return the authentication, or {@code null} if the token is not cached or expired
+     */
+    Authentication get(String header, int offset, long hash, long now) {
+        int index = index(hash);
+        Authentication found = match(entries.get(index), header, offset, hash, now);
+        return found != null ? found : match(entries.get(index ^ 1), header, offset, hash, now);
+    }
+
+    /**
+     * Caches the authentication of a verified token.
+     *
+     * @param hash           the hash of the token
+     * @param token          the token
+     * @param authentication the authentication of the token
+     * @param expiresAt      the expiry of the token, in milliseconds since the epoch
+     * @param generation     the generation read before the token was verified
+     * @param now            the current time, in milliseconds since the epoch
+     */
+    void put(long hash, String token, Authentication authentication, long expiresAt, int generation, long now) {
+        int index = index(hash);
+        Entry first = entries.get(index);
+        Entry second = entries.get(index ^ 1);
+        int slot;
+        if (!isLive(first, now)) {
+            slot = index;
+        } else if (!isLive(second, now)) {
+            slot = index ^ 1;
+        } else {
+            slot = first.expiresAt() <= second.expiresAt() ? index : index ^ 1;
+        }
+        entries.set(slot, new Entry(hash, token, authentication, expiresAt, generation));
+    }
+
+    /**
+     * Drops all the entries, verified with keys which may be gone.
+     */
+    void invalidate() {
+        generation++;
+        for (int i = 0; i < entries.length(); i++) {
+            entries.set(i, null);
+        }
+    }
+
+    private int index(long hash) {
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private boolean isLive(Entry entry, long now) {
+        return entry != null && entry.expiresAt() > now && entry.generation() == generation;
+    }
+
+    private Authentication match(Entry entry, String header, int offset, long hash, long now) {
+        if (entry == null || entry.hash() != hash || !isLive(entry, now)) {
+            return null;
+        }
+        String token = entry.token();
+        return token.length() == header.length() - offset && header.regionMatches(offset, token, 0, token.length())
+                ? entry.authentication()
+                : null;
+    }
+}
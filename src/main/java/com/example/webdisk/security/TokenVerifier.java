@@ -0,0 +1,169 @@
+package com.example.webdisk.security;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.Signature;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Verifier of JWT bearer tokens in the JWS compact serialization: the signature, by a key of
+ * the key set with an RSA or ECDSA algorithm, then the expiry, not-before, issuer and
+ * audience claims. Tokens must expire, and name their subject.
+ */
+final class TokenVerifier {
+
+    private static final Map<String, String> ALGORITHMS = Map.of(
+            "RS256", "SHA256withRSA",
+            "RS384", "SHA384withRSA",
+            "RS512", "SHA512withRSA",
+            "ES256", "SHA256withECDSAinP1363Format",
+            "ES384", "SHA384withECDSAinP1363Format",
+            "ES512", "SHA512withECDSAinP1363Format");
+
+    /**
+     * A verified token.
+     *
+     * @param subject   the subject of the token
+     * @param scopes    the scopes granted by the token
+     * @param expiresAt the time after which the token is rejected, in milliseconds since the epoch
+     */
+    record Verified(String subject, Set<String> scopes, long expiresAt) { }
+
+    private final JwksKeySet keys;
+    private final ObjectMapper mapper;
+    private final String issuer;
+    private final String audience;
+    private final long clockSkew;
+
+    /**
+     * Constructs a new TokenVerifier.
+     *
+     * @param keys      the verification keys
+     * @param mapper    the JSON mapper
+     * @param issuer    the expected issuer, or empty for any
+     * @param audience  the expected audience, or empty for any
+     * @param clockSkew the tolerance of the expiry and not-before times
+     */
+    TokenVerifier(JwksKeySet keys, ObjectMapper mapper, String issuer, String audience, Duration clockSkew) {
+        this.keys = keys;
+        this.mapper = mapper;
+        this.issuer = issuer;
+        this.audience = audience;
+        this.clockSkew = clockSkew.toMillis();
+    }
+
+    /**
+     * Verifies a token.
+     *
+     * @param token the token
+     * @param now   the current time, in milliseconds since the epoch
+     * @return the subject, scopes and expiry of the token
+     * @throws InvalidTokenException if the token is not accepted
+     */
+    Verified verify(String token, long now) throws InvalidTokenException {
+        int first = token.indexOf('.');
+        int second = first < 0 ? -1 : token.indexOf('.', first + 1);
+        if (second < 0 || token.indexOf('.', second + 1) >= 0) {
+            throw new InvalidTokenException("Malformed token");
+        }
+        JsonNode header = decode(token.substring(0, first));
+        String algorithm = header.path("alg").asText();
+        String signatureAlgorithm = ALGORITHMS.get(algorithm);
+        if (signatureAlgorithm == null) {
+            throw new InvalidTokenException("Unsupported algorithm");
+        }
+        JwksKeySet.Key key = keys.get(header.hasNonNull("kid") ? header.get("kid").asText() : null);
+        if (key == null) {
+            throw new InvalidTokenException("Unknown key");
+        }
+        if (key.algorithm() != null && !key.algorithm().equals(algorithm)) {
+            throw new InvalidTokenException("Algorithm not allowed for the key");
+        }
+        try {
+            Signature signature = Signature.getInstance(signatureAlgorithm);
+            signature.initVerify(key.key());
+            signature.update(token.substring(0, second).getBytes(StandardCharsets.US_ASCII));
+            if (!signature.verify(Base64.getUrlDecoder().decode(token.substring(second + 1)))) {
+                throw new InvalidTokenException("Invalid signature");
+            }
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            throw new InvalidTokenException("Invalid signature");
+        }
+
+        JsonNode claims = decode(token.substring(first + 1, second));
+        if (!claims.path("exp").isNumber()) {
+            throw new InvalidTokenException("Missing expiry");
+        }
+        long expiresAt = claims.get("exp").asLong() * 1000 + clockSkew;
+        if (now >= expiresAt) {
+            throw new InvalidTokenException("Expired token");
+        }
+        if (claims.path("nbf").isNumber() && now + clockSkew < claims.get("nbf").asLong() * 1000) {
+            throw new InvalidTokenException("Token not valid yet");
+        }
+        if (!issuer.isEmpty() && !issuer.equals(claims.path("iss").asText())) {
+            throw new InvalidTokenException("Unexpected issuer");
+        }
+        if (!audience.isEmpty() && !hasAudience(claims.path("aud"))) {
+            throw new InvalidTokenException("Unexpected audience");
+        }
+        String subject = claims.path("sub").asText();
+        if (subject.isEmpty()) {
+            throw new InvalidTokenException("Missing subject");
+        }
+        return new Verified(subject, scopes(claims), expiresAt);
+    }
+
+    private JsonNode decode(String part) throws InvalidTokenException {
+        try {
+            JsonNode node = mapper.readTree(Base64.getUrlDecoder().decode(part));
+            if (node == null || !node.isObject()) {
+                throw new InvalidTokenException("Malformed token");
+            }
+            return node;
+        } catch (IOException | IllegalArgumentException e) {
+            throw new InvalidTokenException("Malformed token");
+        }
+    }
+
+    private boolean hasAudience(JsonNode claim) {
+        if (claim.isArray()) {
+            for (JsonNode value : claim) {
+                if (audience.equals(value.asText())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return audience.equals(claim.asText());
+    }
+
+    /**
+     * Returns the scopes of the "scope" claim, space separated, or of the "scp" claim, a list.
+     */
+    private static Set<String> scopes(JsonNode claims) {
+        Set<String> scopes = new LinkedHashSet<>();
+        if (claims.path("scope").isTextual()) {
+            for (String scope : claims.get("scope").asText().split(" ")) {
+                if (!scope.isEmpty()) {
+                    scopes.add(scope);
+                }
+            }
+        }
+        JsonNode scp = claims.path("scp");
+        if (scp.isArray()) {
+            scp.forEach(scope -> scopes.add(scope.asText()));
+        } else if (scp.isTextual()) {
+            scopes.add(scp.asText());
+        }
+        return scopes;
+    }
+}
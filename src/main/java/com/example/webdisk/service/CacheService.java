@@ -1,33 +1,70 @@
 package com.example.webdisk.service;
 
 import java.io.IOException;
-import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
-import java.util.Optional;
+import java.util.List;
 import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.stream.Stream;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import com.example.webdisk.search.LevenshteinAutomaton;
+import com.example.webdisk.search.NamePattern;
+import com.example.webdisk.search.SearchMode;
 import com.example.webdisk.util.FilesNameSupplier;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+
 /**
  * Service class for managing a cache of file names.
  * 
  * <p>This class provides methods to add, check, generate, find, and delete file names in the cache.
  * It ensures that each file name in the cache is unique.</p>
  * 
- * <p>The cache is implemented using a {@link HashSet} to store the file names.</p>
+ * <p>The cache is implemented using a {@link RegistryTable}, which stores the file names along
+ * with their size, last modification time and checksum, so that file headers are served from
+ * memory. Lookups, updates and searches may run in parallel. Effective changes are announced
+ * to the registered {@link RegistryListener}s.</p>
+ * 
+ * <p>Regular expression search results are served from a {@link SearchCache}, which is kept
+ * consistent with the registry by testing each changed name against the cached patterns.
+ * Prefix and glob searches, as well as regular expressions anchored at the beginning, only
+ * scan the range of the sorted names starting with their literal prefix.</p>
+ * 
+ * <p>Reads of the files are recorded by {@link #recordAccess(String)}: the registry keeps the
+ * last access time of each file, and estimates how often each file is read by a
+ * {@link FrequencySketch}, sized to the registry at startup. Both are held in memory only,
+ * and restart from the modification times.</p>
+ * 
+ * <p>Registry size, estimated memory footprint, search durations with candidate and match
+ * counts, name generation retries and rejections and the startup scan duration are published as
+ * Micrometer meters. Meters are registered once, at construction, so recording them on
+ * the hot paths costs no lookup.</p>
  * 
  * Methods provided:
  * <ul>
  *   <li>{@link #containsFile(String)} - Checks if a file name is present in the cache.</li>
  *   <li>{@link #putFile(String)} - Adds a file name to the cache.</li>
+ *   <li>{@link #putFile(String, FileMetadata)} - Adds a file name to the cache, or updates its metadata.</li>
+ *   <li>{@link #getMetadata(String)} - Returns the size, modification time and checksum of a file.</li>
+ *   <li>{@link #recordAccess(String)} - Records a read of a file, for its access time and frequency.</li>
  *   <li>{@link #newFile()} - Generates a new unique file name and adds it to the cache.</li>
  *   <li>{@link #findFilesForPattern(String)} - Finds file names that match a given pattern.</li>
+ *   <li>{@link #findFiles(String, SearchMode)} - Finds file names by prefix, glob or pattern.</li>
+ *   <li>{@link #listFiles(String, int)} - Lists file names in lexicographic order, by pages.</li>
+ *   <li>{@link #findSimilarFiles(String, int)} - Finds file names within an edit distance of a name.</li>
  *   <li>{@link #deleteFile(String)} - Deletes a file name from the cache.</li>
  *   <li>{@link #getSize()} - Returns the number of file names in the cache.</li>
  * </ul>
@@ -49,10 +86,21 @@ import com.example.webdisk.util.FilesNameSupplier;
 public class CacheService {
 
     /**
-     * A set that holds the names of the files in the cache.
-     * This set ensures that each file name is unique within the cache.
+     * A table that holds the names of the files in the cache and their metadata.
+     * This table ensures that each file name is unique within the cache.
+     */
+    private final RegistryTable files = new RegistryTable();
+
+    /**
+     * Estimated read frequencies of the files, replaced by one sized to the registry once
+     * it is loaded.
+     */
+    private volatile FrequencySketch accesses = new FrequencySketch(1 << 16);
+
+    /**
+     * Maximum number of generated names tried before giving up on a new file.
      */
-    private final Set<String> files = new HashSet<>();
+    private static final int MAX_NAME_ATTEMPTS = 100;
 
     /**
      * An instance of FilesAccess used to interact with the file storage system.
@@ -60,12 +108,96 @@ public class CacheService {
     private FilesService storage;
 
     /**
-     * Constructs a new FilesCache instance with the specified storage.
+     * Cache of the search patterns and their results, notified of the registry changes.
+     */
+    private final SearchCache searchCache;
+
+    /**
+     * Listeners notified of the effective registry changes.
+     */
+    private final List<RegistryListener> listeners = new CopyOnWriteArrayList<>();
+
+    private final Timer initTimer;
+    private final Timer searchTimer;
+    private final DistributionSummary searchCandidates;
+    private final DistributionSummary searchMatches;
+    private final Counter nameRetries;
+    private final Counter nameRejections;
+    private final Counter searchCacheHits;
+    private final Counter searchCacheMisses;
+
+    /**
+     * Constructs a new FilesCache instance with the specified storage, without
+     * publishing any metrics.
      *
      * @param storage the FilesAccess instance used for file storage operations
      */
     public CacheService(FilesService storage) {
+        this(storage, new CompositeMeterRegistry());
+    }
+
+    /**
+     * Constructs a new FilesCache instance with the specified storage, publishing
+     * its metrics to the given registry.
+     *
+     * @param storage  the FilesAccess instance used for file storage operations
+     * @param registry the meter registry receiving the cache metrics
+     */
+    public CacheService(FilesService storage, MeterRegistry registry) {
+        this(storage, registry, new SearchCache());
+    }
+
+    /**
+     * Constructs a new FilesCache instance with the specified storage and search cache,
+     * publishing its metrics to the given registry.
+     *
+     * @param storage     the FilesAccess instance used for file storage operations
+     * @param registry    the meter registry receiving the cache metrics
+     * @param searchCache the cache of search results, kept up to date by this registry
+     */
+    @Autowired
+    public CacheService(FilesService storage, MeterRegistry registry, SearchCache searchCache) {
         this.storage = storage;
+        this.searchCache = searchCache;
+        addListener(searchCache);
+        Gauge.builder("webdisk.registry.size", this, CacheService::getSize)
+                .description("Number of file names held by the registry")
+                .register(registry);
+        Gauge.builder("webdisk.registry.memory", this, CacheService::getEstimatedMemory)
+                .description("Estimated heap used by the registry")
+                .baseUnit("bytes")
+                .register(registry);
+        this.initTimer = Timer.builder("webdisk.registry.init")
+                .description("Startup scan of the storage location")
+                .register(registry);
+        this.searchTimer = Timer.builder("webdisk.search")
+                .description("Pattern search over the registry")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.searchCandidates = DistributionSummary.builder("webdisk.search.candidates")
+                .description("Names tested by a pattern search")
+                .register(registry);
+        this.searchMatches = DistributionSummary.builder("webdisk.search.matches")
+                .description("Names returned by a pattern search")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.nameRetries = Counter.builder("webdisk.names.retries")
+                .description("Generated names discarded for already being in use")
+                .register(registry);
+        this.nameRejections = Counter.builder("webdisk.names.rejected")
+                .description("Generated names discarded for not being accepted, such as names owned by another node")
+                .register(registry);
+        this.searchCacheHits = Counter.builder("webdisk.search.cache")
+                .description("Searches answered from the search cache")
+                .tag("result", "hit")
+                .register(registry);
+        this.searchCacheMisses = Counter.builder("webdisk.search.cache")
+                .description("Searches answered from the search cache")
+                .tag("result", "miss")
+                .register(registry);
+        Gauge.builder("webdisk.search.cache.size", searchCache, SearchCache::getSize)
+                .description("Number of patterns held by the search cache")
+                .register(registry);
     }
 
     /**
@@ -77,10 +209,12 @@ public class CacheService {
      */
     public long initCache() throws IOException {
         // Reading the entire cache is intensive and should be part of telemetry
-        Instant start = Instant.now();
-        storage.listFiles().forEach(this::putFile);
-        Instant end = Instant.now();
-        return Duration.between(start, end).toMillis();
+        long start = System.nanoTime();
+        storage.scanFiles(this::putFile);
+        accesses = new FrequencySketch(files.size());
+        long duration = System.nanoTime() - start;
+        initTimer.record(duration, TimeUnit.NANOSECONDS);
+        return TimeUnit.NANOSECONDS.toMillis(duration);
     }
 
     /**
@@ -95,14 +229,85 @@ public class CacheService {
 
 
     /**
-     * Adds the specified file name to the cache.
+     * Returns the metadata of a file in the cache.
+     *
+     * @param fileName the name of the file
+     * @return the metadata of the file, or {@code null} if it is not present in the cache
+     */
+    public FileMetadata getMetadata(String fileName) {
+        return files.get(fileName);
+    }
+
+    /**
+     * Records a read of a file: its last access time becomes the current time, and its
+     * estimated frequency is incremented.
+     *
+     * @param fileName the name of the file read
+     */
+    public void recordAccess(String fileName) {
+        files.touch(fileName, Instant.now().getEpochSecond());
+        accesses.increment(fileName);
+    }
+
+    /**
+     * Returns the last access time of a file: the time of its last read, or else of its
+     * last write or of the startup scan.
+     *
+     * @param fileName the name of the file
+     * @return the last access time in seconds, or {@code -1} if the file is not present
+     */
+    public long getLastAccess(String fileName) {
+        return files.getLastAccess(fileName);
+    }
+
+    /**
+     * Returns the estimated number of recent reads of a file.
+     *
+     * @param fileName the name of the file
+     * @return the estimated frequency, from 0 to 15
+     */
+    public int getAccessFrequency(String fileName) {
+        return accesses.frequency(fileName);
+    }
+
+    /**
+     * Halves the estimated access frequencies, so that they follow the recent reads even when
+     * too few reads are recorded for the sketch to age by itself.
+     */
+    public void ageAccessFrequencies() {
+        accesses.age();
+    }
+
+    /**
+     * Adds the specified file name to the cache, with unknown metadata.
      *
      * @param fileName the name of the file to be added to the cache
      * @return {@code true} if the file was successfully added to the cache,
      *         {@code false} otherwise
      */
     public boolean putFile(String fileName) {
-        return files.add(fileName);
+        boolean added = files.add(fileName, FileMetadata.UNKNOWN);
+        if (added) {
+            notifyAdded(fileName);
+        }
+        return added;
+    }
+
+    /**
+     * Adds the specified file name to the cache, or updates its metadata if it is
+     * already present.
+     *
+     * @param fileName the name of the file
+     * @param metadata the metadata of the file
+     * @return {@code true} if the file was added to the cache, {@code false} if its
+     *         metadata was updated
+     */
+    public boolean putFile(String fileName, FileMetadata metadata) {
+        boolean added = files.put(fileName, metadata);
+        if (added) {
+            notifyAdded(fileName);
+        }
+        return added;
     }
 
     /**
@@ -112,31 +317,282 @@ public class CacheService {
      * @return the newly generated unique file name
      */
     public String newFile() {
-        final int MAX_ATTEMPTS = 100;
+        return newFile(fileName -> true);
+    }
 
-        Optional<String> newFileName = Stream.generate(new FilesNameSupplier())
-                .limit(MAX_ATTEMPTS)
-                .filter(fileName -> !files.contains(fileName))
-                .limit(1)
-                .findFirst();
-        putFile(newFileName.orElseThrow(() -> new RuntimeException("Unable to generate a unique cache key")));
-        return newFileName.get();
+    /**
+     * Generates a new unique file name that does not already exist in the cache and is
+     * accepted by the given predicate, such as names placed on this node of a cluster,
+     * adds it to the cache, and returns the new file name. Names already in use are counted
+     * as retries, and names not accepted as rejections.
+     *
+     * @param accepted the predicate the new name must satisfy
+     * @return the newly generated unique file name
+     */
+    public String newFile(Predicate<String> accepted) {
+        FilesNameSupplier supplier = new FilesNameSupplier();
+        int collisions = 0;
+        int rejections = 0;
+        try {
+            for (int attempt = 0; attempt < MAX_NAME_ATTEMPTS; attempt++) {
+                String fileName = supplier.get();
+                if (!accepted.test(fileName)) {
+                    rejections++;
+                } else if (putFile(fileName)) {
+                    return fileName;
+                } else {
+                    collisions++;
+                }
+            }
+        } finally {
+            if (collisions > 0) {
+                nameRetries.increment(collisions);
+            }
+            if (rejections > 0) {
+                nameRejections.increment(rejections);
+            }
+        }
+        throw new RuntimeException("Unable to generate a unique cache key");
     }
 
     /**
      * Finds and returns an array of file names that match the given pattern.
      * 
+     * <p>Results of recent patterns are served from the search cache; the first search for
+     * a pattern scans the registry and populates it. Concurrent first searches for the same
+     * pattern wait for a single scan.</p>
+     * 
      * @param pattern the regular expression pattern to match file names against
      * @return an array of file names that match the given pattern
      */
     public String[] findFilesForPattern(String pattern) {
-        Pattern regexpPattern = Pattern.compile(pattern);
-        return files.stream()
-                .filter(file -> {
-                    Matcher matcher = regexpPattern.matcher(file);
-                    return matcher.find();
-                })
-                .toArray(String[]::new);
+        long start = System.nanoTime();
+        SearchCache.Entry entry = searchCache.entryFor(pattern);
+        int candidates = 0;
+        String[] results;
+        try {
+            while (true) {
+                SearchCache.State state = entry.await();
+                if (state == SearchCache.State.READY && (results = entry.results()) != null) {
+                    searchCacheHits.increment();
+                    break;
+                }
+                if (state == SearchCache.State.EMPTY && entry.startLoading()) {
+                    searchCacheMisses.increment();
+                    Set<String> scanned = new HashSet<>();
+                    try {
+                        candidates = scan(entry.getCompiled(), scanned::add);
+                    } catch (RuntimeException e) {
+                        entry.abort();
+                        throw e;
+                    }
+                    results = scanned.toArray(String[]::new);
+                    entry.complete(scanned);
+                    break;
+                }
+                if (state == SearchCache.State.OVERFLOW || state == SearchCache.State.EVICTED) {
+                    searchCacheMisses.increment();
+                    List<String> matches = new ArrayList<>();
+                    candidates = scan(entry.getCompiled(), matches::add);
+                    results = matches.toArray(String[]::new);
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a search", e);
+        }
+        searchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        searchCandidates.record(candidates);
+        searchMatches.record(results.length);
+        return results;
+    }
+
+    /**
+     * Finds and returns the file names matching a query, interpreted according to the
+     * given mode.
+     * 
+     * <p>Prefix and glob searches return the names in lexicographic order. They read the
+     * sorted names from the literal prefix of the query on, and stop at the end of the
+     * prefix range, so their cost depends on the number of names in the range rather than
+     * on the registry size. Their results are not cached. Regular expressions are searched
+     * by {@link #findFilesForPattern(String)}.</p>
+     * 
+     * @param query the prefix, glob or regular expression
+     * @param mode  how the query is interpreted
+     * @return an array of the matching file names
+     * @throws IllegalArgumentException if the glob or regular expression is not valid
+     */
+    public String[] findFiles(String query, SearchMode mode) {
+        return findFiles(query, mode, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Finds and returns up to the given number of file names matching a query.
+     * 
+     * <p>Prefix and glob searches stop reading the sorted names once the limit is reached,
+     * and return the lowest matching names. Regular expression results are cut to the limit,
+     * the full results being cached.</p>
+     * 
+     * @param query the prefix, glob or regular expression
+     * @param mode  how the query is interpreted
+     * @param limit the maximum number of names returned
+     * @return an array of the matching file names
+     * @throws IllegalArgumentException if the glob or regular expression is not valid
+     */
+    public String[] findFiles(String query, SearchMode mode, int limit) {
+        if (limit <= 0) {
+            return new String[0];
+        }
+        if (mode == SearchMode.REGEX) {
+            String[] results = findFilesForPattern(query);
+            return results.length > limit ? Arrays.copyOf(results, limit) : results;
+        }
+        long start = System.nanoTime();
+        List<String> matches = new ArrayList<>();
+        Predicate<String> collector = file -> {
+            matches.add(file);
+            return matches.size() < limit;
+        };
+        int candidates;
+        if (mode == SearchMode.PREFIX) {
+            candidates = scanRange(query, null, collector);
+        } else {
+            NamePattern glob = NamePattern.glob(query);
+            candidates = scanRange(glob.prefix(), glob, collector);
+        }
+        searchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        searchCandidates.record(candidates);
+        searchMatches.record(matches.size());
+        return matches.toArray(String[]::new);
+    }
+
+    /**
+     * Finds and returns the file names within the given edit distance of a name, closest
+     * first, then in lexicographic order.
+     * 
+     * <p>A Levenshtein automaton of the name is intersected with the sorted names, seeking
+     * only the prefixes which may still lead to a match, so the cost depends on the number
+     * of such prefixes rather than on the registry size.</p>
+     * 
+     * @param fileName the name, possibly mistyped
+     * @param distance the maximum number of inserted, deleted or substituted characters,
+     *                 up to {@link LevenshteinAutomaton#MAX_DISTANCE}
+     * @return an array of the similar file names
+     * @throws IllegalArgumentException if the distance is out of range
+     */
+    public String[] findSimilarFiles(String fileName, int distance) {
+        long start = System.nanoTime();
+        LevenshteinAutomaton automaton = new LevenshteinAutomaton(fileName, distance);
+        List<String> matches = new ArrayList<>();
+        List<Integer> distances = new ArrayList<>();
+        int seeks = automaton.intersect(files::ceiling, (file, fileDistance) -> {
+            matches.add(file);
+            distances.add(fileDistance);
+        });
+        String[] results = new String[matches.size()];
+        int next = 0;
+        for (int d = 0; d <= distance; d++) {
+            for (int i = 0; i < results.length; i++) {
+                if (distances.get(i) == d) {
+                    results[next++] = matches.get(i);
+                }
+            }
+        }
+        searchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        searchCandidates.record(seeks);
+        searchMatches.record(results.length);
+        return results;
+    }
+
+    /**
+     * Returns a page of the file names in lexicographic order: the names following the given
+     * one, up to the given number.
+     * 
+     * <p>The cost of a page is a lookup in the sorted names, then the copy of the page. No
+     * state is kept between pages: the next page starts after the last name returned, so
+     * listing goes on correctly whatever the names added or removed meanwhile. Names present
+     * during the whole listing are returned once; names added or removed during the listing
+     * may or may not be.</p>
+     * 
+     * @param after the name preceding the page, absent or not, or an empty string for the
+     *              first page
+     * @param limit the maximum number of names returned
+     * @return the names of the page, fewer than {@code limit} on the last page
+     */
+    public String[] listFiles(String after, int limit) {
+        List<String> page = new ArrayList<>(Math.min(limit, 1024));
+        files.forEachNameFrom(after, file -> {
+            if (!file.equals(after)) {
+                page.add(file);
+            }
+            return page.size() < limit;
+        });
+        return page.toArray(String[]::new);
+    }
+
+    /**
+     * Passes the names matching a pattern to the given consumer, scanning only the names
+     * starting with the pattern prefix when it has one.
+     *
+     * @return the number of names tested
+     */
+    private int scan(NamePattern pattern, Consumer<String> matches) {
+        if (!pattern.prefix().isEmpty()) {
+            return scanRange(pattern.prefix(), pattern, file -> {
+                matches.accept(file);
+                return true;
+            });
+        }
+        int candidates = files.size();
+        files.forEachName(file -> {
+            if (pattern.matches(file)) {
+                matches.accept(file);
+            }
+        });
+        return candidates;
+    }
+
+    /**
+     * Passes the names starting with the given prefix and matching a pattern, if any, to the
+     * given consumer, in lexicographic order, until it returns {@code false}.
+     *
+     * @return the number of names tested
+     */
+    private int scanRange(String prefix, NamePattern pattern, Predicate<String> matches) {
+        int[] candidates = new int[1];
+        files.forEachNameFrom(prefix, file -> {
+            if (!file.startsWith(prefix)) {
+                return false;
+            }
+            candidates[0]++;
+            return pattern != null && !pattern.matches(file) || matches.test(file);
+        });
+        return candidates[0];
+    }
+
+    private void notifyAdded(String fileName) {
+        for (RegistryListener listener : listeners) {
+            listener.fileAdded(fileName);
+        }
+    }
+
+    /**
+     * Registers a listener notified of the effective changes of the registry.
+     *
+     * @param listener the listener to add
+     */
+    public void addListener(RegistryListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Unregisters a listener added by {@link #addListener(RegistryListener)}.
+     *
+     * @param listener the listener to remove
+     */
+    public void removeListener(RegistryListener listener) {
+        listeners.remove(listener);
     }
 
     /**
@@ -145,8 +601,10 @@ public class CacheService {
      * @param fileName the name of the file to be deleted
      */
     public void deleteFile(String fileName) {
-        if (files.contains(fileName)) {
-            files.remove(fileName);
+        if (files.remove(fileName)) {
+            for (RegistryListener listener : listeners) {
+                listener.fileRemoved(fileName);
+            }
         }
     }
 
@@ -171,4 +629,14 @@ public class CacheService {
     public int getSize() {
         return files.size();
     }
+
+    /**
+     * Returns an estimation of the heap used by the registry, based on the capacity of
+     * its table and the total length of the names.
+     *
+     * @return the estimated registry footprint, in bytes
+     */
+    public long getEstimatedMemory() {
+        return files.getEstimatedMemory() + accesses.getEstimatedMemory();
+    }
 }
@@ -0,0 +1,36 @@
+package com.example.webdisk.service;
+
+import java.util.Locale;
+
+/**
+ * When a write is acknowledged, relative to the storage of its content.
+ */
+public enum Durability {
+
+    /**
+     * Acknowledged once held in the write-behind buffer, if enabled and the file small
+     * enough, the content being written to the volume in the background. A stop of the
+     * process other than a graceful shutdown loses the buffered content.
+     */
+    BUFFERED,
+
+    /**
+     * Acknowledged once written to the volume.
+     */
+    SYNC;
+
+    /**
+     * Returns the durability of the given name, case insensitive.
+     *
+     * @param name the durability name, such as {@code sync}
+     * @return the durability
+     * @throws IllegalArgumentException if no durability has this name
+     */
+    public static Durability of(String name) {
+        try {
+            return valueOf(name.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown durability " + name);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.webdisk.service;
+
+/**
+ * Metadata of a file, held by the registry.
+ *
+ * @param size         the size of the file content, in bytes
+ * @param lastModified the last modification time, in seconds since the epoch, or {@code 0} if unknown
+ * @param checksum     the CRC32C checksum of the content, or {@code 0} if unknown
+ */
+public record FileMetadata(long size, long lastModified, int checksum) {
+
+    /**
+     * Metadata of a file whose content is not known yet.
+     */
+    public static final FileMetadata UNKNOWN = new FileMetadata(0, 0, 0);
+}
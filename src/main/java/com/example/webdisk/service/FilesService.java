@@ -1,35 +1,135 @@
 package com.example.webdisk.service;
 
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileStore;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
 import java.util.stream.Stream;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
 
+import com.example.webdisk.response.VolumeResponse;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import jakarta.annotation.PreDestroy;
+
 /**
  * Service class for managing file access operations.
  * 
  * This class provides methods to list, retrieve, store, and delete files in a specified directory.
  * It also supports asynchronous operations for file retrieval and storage.
  * 
- * The base directory path is configured via the "webdisk.path" property.
+ * The base directory path is configured via the "webdisk.path" property. Files can instead be
+ * spread over several directories, typically one per disk, listed by the "webdisk.volumes"
+ * property: each file is placed on one volume by rendezvous hashing of its name, optionally
+ * weighted by the free space of the volumes ("webdisk.volumes-weighted"). Volumes are scanned
+ * in parallel at startup, each by its own I/O thread pool ("webdisk.volume-threads"), and
+ * bound their concurrent operations ("webdisk.volume-concurrency"), each read call of a stream
+ * counting as one, so a slow disk only delays its own files, whatever the speed of the clients.
+ * Files found on another volume than their placement, after a change of the volumes, are
+ * served where they are, and moved by {@link #rebalanceVolumes()}; {@link #drainVolume(String)}
+ * moves all the files of a volume to the others.
+ * 
+ * Optionally, an archive tier is configured by the "webdisk.tiering.archive" property, a
+ * directory on cheaper storage: {@link #archiveFile(String)} moves a cold file there,
+ * deflated behind a header holding its size, keeping its modification time. An archived
+ * file is listed and counted like the others; reading it promotes it back to its volume
+ * first, under the lock of its name, and writing or deleting it removes the archived copy.
+ * 
+ * Optionally, small files are written behind ("webdisk.write-behind.enabled"): a put with
+ * {@link Durability#BUFFERED} durability of a file up to "webdisk.write-behind.max-file-size"
+ * returns once its content is held in a memory buffer bounded by
+ * "webdisk.write-behind.capacity", and a flusher thread writes the buffered files to their
+ * volumes, batched by volume, every "webdisk.write-behind.flush-interval" or as soon as the
+ * buffer is half full. A put finding the buffer full is written through. Reads, metadata
+ * reads and deletes of a buffered file are served from the buffer, and a later write of the
+ * name replaces it; {@link #flushFile(String)} writes a buffered file through. The buffer is
+ * flushed completely on shutdown. Storage statistics count a buffered file as soon as it is
+ * acknowledged, like the registry.
+ * 
+ * Optionally, a registry
+ * snapshot written by {@link com.example.webdisk.util.DatasetGenerator} - one file name per line,
+ * optionally followed by the file size and modification time, tab separated - can be configured via the "webdisk.snapshot"
+ * property, and is then listed instead of the directory.
+ * 
+ * Storage statistics - number of files, total bytes, size histogram and name length
+ * distribution - are rebuilt when the files are listed at startup, then kept up to date by
+ * each put and delete, at the cost of a single file status read. They are exact, the writes
+ * and deletes of a file name being serialized by the {@link NameLocks} of the name.
+ * 
+ * Read, write and delete durations and the bytes transferred are published as the
+ * "webdisk.storage.operations" timer and the "webdisk.storage.bytes" summary, tagged by
+ * operation. Reads are measured from opening the file until its stream is closed.
  * 
  * Methods:
  * 
  * <ul>
  * <li>listFiles(): Lists all files in the directory that match a specific regex pattern.</li>
- * <li>getFile(String fileName): Retrieves an InputStream for the specified file.</li>
+ * <li>scanFiles(BiConsumer consumer): Lists all files with their size and modification time.</li>
+ * <li>walkFiles(), readMetadata(String fileName): List the files lazily and read their attributes one by one.</li>
+ * <li>getFile(String fileName), getFile(String fileName, boolean promote): Retrieves an InputStream for
+ * the specified file.</li>
  * <li>getFileAsync(String fileName): Asynchronously retrieves an InputStream for the specified file.</li>
- * <li>putFile(String fileName, MultipartFile file): Stores the provided file with the specified file name.</li>
+ * <li>putFile(String fileName, MultipartFile file): Stores the provided file with the specified file name,
+ * returning its size, modification time and checksum.</li>
+ * <li>putFile(String fileName, MultipartFile file, Durability durability): Stores a file, possibly
+ * written behind.</li>
  * <li>putFileAsync(String fileName, MultipartFile file): Asynchronously uploads a file to the server.</li>
+ * <li>flushFile(String fileName), flushFiles(): Write buffered files through to their volumes.</li>
+ * <li>stageFile(String fileName, List parts), commitFile(String fileName, Path staged, int checksum):
+ * Assemble parts into a file, then replace the stored file by it.</li>
  * <li>deleteFile(String fileName): Deletes the file with the specified name.</li>
+ * <li>archiveFile(String fileName): Moves a file to the archive tier, compressed.</li>
+ * <li>getVolumes(), drainVolume(String root), rebalanceVolumes(): Describe the volumes and move files between them.</li>
+ * <li>getStats(): Retrieves the storage statistics.</li>
  * <li>getPath(): Retrieves the base directory path.</li>
  * </ul>
  * 
@@ -54,7 +154,99 @@ import org.springframework.web.multipart.MultipartFile;
 @Service
 public class FilesService {
 
+    private static final Logger logger = LoggerFactory.getLogger(FilesService.class);
+
+    private static final String METER_OPERATIONS = "webdisk.storage.operations";
+    private static final String METER_BYTES = "webdisk.storage.bytes";
+    private static final String TAG_OPERATION = "operation";
+
+    private static final String FILE_NAME_REGEX = "^[a-zA-Z0-9-_]{1,64}$";
+    private static final String MOVING_SUFFIX = ".moving";
+    private static final String STAGING_SUFFIX = ".uploading";
+    private static final String ARCHIVING_SUFFIX = ".archiving";
+    private static final int ARCHIVE_MAGIC = 0x57444131;
+    private static final int ARCHIVE_BUFFER = 64 * 1024;
+
     private String path;
+    private String snapshot;
+    private List<String> volumeRoots = List.of();
+    private boolean volumesWeighted;
+    private int volumeThreads = 2;
+    private int volumeConcurrency = 64;
+    private volatile List<Volume> volumes;
+    private String archive;
+    private boolean writeBehind;
+    private long writeBehindMaxFileSize = 64 * 1024;
+    private long writeBehindCapacity = 64L * 1024 * 1024;
+    private Duration flushInterval = Duration.ofMillis(100);
+
+    // Files stored on another volume than their placement, the others being found by hashing
+    private final Map<String, Volume> misplaced = new ConcurrentHashMap<>();
+    // Serialize the writes and deletes of a file with its moves between volumes
+    private NameLocks locks = new NameLocks(1024);
+
+    private final StorageStats stats = new StorageStats();
+    private final AtomicLong archivedFiles = new AtomicLong();
+    private final AtomicLong archivedBytes = new AtomicLong();
+    private final AtomicLong promotions = new AtomicLong();
+
+    /**
+     * The content of a file held by the write-behind buffer, with the metadata it was
+     * acknowledged with.
+     */
+    private record BufferedFile(byte[] content, FileMetadata metadata) { }
+
+    // Written behind, replaced and removed under the lock of the name
+    private final Map<String, BufferedFile> buffered = new ConcurrentHashMap<>();
+    private final AtomicLong bufferedBytes = new AtomicLong();
+    private volatile Thread flusher;
+
+    private Timer readTimer;
+    private Timer writeTimer;
+    private Timer deleteTimer;
+    private DistributionSummary readBytes;
+    private DistributionSummary writeBytes;
+
+    /**
+     * Constructs a new FilesService, without publishing any metrics until a meter
+     * registry is set.
+     */
+    public FilesService() {
+        setMeterRegistry(new CompositeMeterRegistry());
+    }
+
+    /**
+     * Sets the locks of the file names, shared with the callers updating the registry along
+     * with the files.
+     *
+     * @param locks the locks of the file names
+     */
+    @Autowired(required = false)
+    public void setNameLocks(NameLocks locks) {
+        this.locks = locks;
+    }
+
+    /**
+     * Registers the storage meters with the given registry.
+     *
+     * @param registry the meter registry receiving the storage metrics
+     */
+    @Autowired(required = false)
+    public void setMeterRegistry(MeterRegistry registry) {
+        this.readTimer = operationTimer(registry, "read");
+        this.writeTimer = operationTimer(registry, "write");
+        this.deleteTimer = operationTimer(registry, "delete");
+        this.readBytes = bytesSummary(registry, "read");
+        this.writeBytes = bytesSummary(registry, "write");
+        Gauge.builder("webdisk.storage.size", stats, StorageStats::getBytes)
+                .description("Total size of the stored files")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("webdisk.storage.buffered", bufferedBytes, AtomicLong::get)
+                .description("Size of the files held by the write-behind buffer, not yet written to their volume")
+                .baseUnit("bytes")
+                .register(registry);
+    }
 
     /**
      * Sets the path for the webdisk. If the provided path does not end with a 
@@ -66,45 +258,607 @@ public class FilesService {
     @Value("${webdisk.path}")
     public void setPath(String path) {
         this.path = path.endsWith("/") ? path : path + "/";
+        resetVolumes();
     } 
 
     /**
-     * Lists all files in the directory specified by the path.
+     * Sets the storage volumes, replacing the path.
+     *
+     * @param roots the directories of the volumes, typically provided via the
+     *              'webdisk.volumes' property, or none for storing in the path
+     */
+    @Value("${webdisk.volumes:}")
+    public void setVolumes(List<String> roots) {
+        this.volumeRoots = roots.stream().map(String::trim).filter(root -> !root.isEmpty()).toList();
+        resetVolumes();
+    }
+
+    /**
+     * Sets whether the volumes receive files in proportion to their free space at startup,
+     * rather than evenly.
+     *
+     * @param weighted {@code true} for weighting the volumes by their free space, typically
+     *                 provided via the 'webdisk.volumes-weighted' property
+     */
+    @Value("${webdisk.volumes-weighted:false}")
+    public void setVolumesWeighted(boolean weighted) {
+        this.volumesWeighted = weighted;
+        resetVolumes();
+    }
+
+    /**
+     * Sets the size of the I/O thread pool of each volume, scanning it and moving its files.
+     *
+     * @param threads the number of threads, typically provided via the
+     *                'webdisk.volume-threads' property
+     */
+    @Value("${webdisk.volume-threads:2}")
+    public void setVolumeThreads(int threads) {
+        this.volumeThreads = threads;
+        resetVolumes();
+    }
+
+    /**
+     * Sets the maximum number of concurrent writes, deletes and opens of each volume.
+     *
+     * @param concurrency the number of operations, typically provided via the
+     *                    'webdisk.volume-concurrency' property
+     */
+    @Value("${webdisk.volume-concurrency:64}")
+    public void setVolumeConcurrency(int concurrency) {
+        this.volumeConcurrency = concurrency;
+        resetVolumes();
+    }
+
+    /**
+     * Sets the directory of the archive tier, receiving the cold files.
+     *
+     * @param archive the directory, typically provided via the 'webdisk.tiering.archive'
+     *                property, or empty for storing all the files on the volumes
+     */
+    @Value("${webdisk.tiering.archive:}")
+    public void setArchive(String archive) {
+        this.archive = archive.isEmpty() ? null : archive;
+    }
+
+    /**
+     * Sets whether small files can be written behind, acknowledged once buffered in memory.
+     *
+     * @param enabled {@code true} for buffering the puts asking for it, typically provided
+     *                via the 'webdisk.write-behind.enabled' property
+     */
+    @Value("${webdisk.write-behind.enabled:false}")
+    public void setWriteBehind(boolean enabled) {
+        this.writeBehind = enabled;
+    }
+
+    /**
+     * Sets the largest file written behind, larger files being written through.
+     *
+     * @param size the size, typically provided via the 'webdisk.write-behind.max-file-size'
+     *             property
+     */
+    @Value("${webdisk.write-behind.max-file-size:64KB}")
+    public void setWriteBehindMaxFileSize(DataSize size) {
+        this.writeBehindMaxFileSize = size.toBytes();
+    }
+
+    /**
+     * Sets the size of the write-behind buffer, the puts finding it full being written
+     * through.
+     *
+     * @param capacity the size, typically provided via the 'webdisk.write-behind.capacity'
+     *                 property
+     */
+    @Value("${webdisk.write-behind.capacity:64MB}")
+    public void setWriteBehindCapacity(DataSize capacity) {
+        this.writeBehindCapacity = capacity.toBytes();
+    }
+
+    /**
+     * Sets the delay between two flushes of the write-behind buffer.
+     *
+     * @param interval the delay, typically provided via the
+     *                 'webdisk.write-behind.flush-interval' property
+     */
+    @Value("${webdisk.write-behind.flush-interval:100ms}")
+    public void setFlushInterval(Duration interval) {
+        this.flushInterval = interval;
+    }
+
+    /**
+     * Sets the registry snapshot to list files from, instead of the directory.
+     *
+     * @param snapshot the path of the snapshot file, typically provided via the
+     *                 'webdisk.snapshot' property, or empty for listing the directory
+     */
+    @Value("${webdisk.snapshot:}")
+    public void setSnapshot(String snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * Lists all files in the directory specified by the path, or in the registry snapshot
+     * when one is configured and readable.
      * 
      * @return a list of file names that are not directories and match the regex pattern "^[a-zA-Z0-9-_]{1,64}$".
      * @throws IOException if an I/O error occurs when accessing the directory.
+     * @see #scanFiles(BiConsumer)
      */
     public List<String> listFiles() throws IOException {
-        try (Stream<Path> stream = Files.list(Paths.get(path))) {
-            return stream
-                    .filter(file -> !Files.isDirectory(file))
-                    .map(file -> file.getFileName().toString())
-                    .filter(fileName -> fileName.matches("^[a-zA-Z0-9-_]{1,64}$"))
-                    .toList();
+        List<String> fileNames = Collections.synchronizedList(new ArrayList<>());
+        scanFiles((fileName, metadata) -> fileNames.add(fileName));
+        return fileNames;
+    }
+
+    /**
+     * Scans all files in the directory specified by the path, or in the registry snapshot
+     * when one is configured and readable, passing each file name with its size and last
+     * modification time to the given consumer. The storage statistics are rebuilt from the
+     * scanned files. Attributes are read along with the file types, or from the snapshot
+     * when it records them; checksums are left unknown.
+     * 
+     * Several volumes are scanned in parallel, by their I/O pools, and the consumer must then
+     * be thread-safe. A file found on another volume than its placement is recorded as
+     * misplaced, unless its placement holds it too: that copy is the latest, as writes and
+     * moves complete on the placement before deleting the previous copy, and the other one
+     * is deleted. Archived files are listed after the volumes.
+     * 
+     * @param consumer the consumer receiving the names that are not directories and match the
+     *                 regex pattern "^[a-zA-Z0-9-_]{1,64}$", with their metadata
+     * @throws IOException if an I/O error occurs when accessing the directory.
+     */
+    public void scanFiles(BiConsumer<String, FileMetadata> consumer) throws IOException {
+        stats.clear();
+        misplaced.clear();
+        if (snapshot != null && !snapshot.isEmpty() && Files.isReadable(Paths.get(snapshot))) {
+            try (Stream<String> lines = Files.lines(Paths.get(snapshot))) {
+                lines.forEachOrdered(line -> scanSnapshotLine(line, consumer));
+            }
+            scanArchive(null);
+            return;
+        }
+        List<Volume> all = volumes();
+        if (all.size() == 1) {
+            scanVolume(all.get(0), consumer);
+        } else {
+            List<Future<?>> scans = new ArrayList<>();
+            for (Volume volume : all) {
+                scans.add(volume.io().submit(() -> {
+                    scanVolume(volume, consumer);
+                    return null;
+                }));
+            }
+            awaitAll(scans);
+        }
+        scanArchive(consumer);
+    }
+
+    /**
+     * Scans the files of a volume.
+     *
+     * @param volume   the volume
+     * @param consumer the consumer receiving the valid file names with their metadata
+     * @throws IOException if an I/O error occurs when accessing the volume
+     */
+    private void scanVolume(Volume volume, BiConsumer<String, FileMetadata> consumer) throws IOException {
+        boolean placed = volumes().size() == 1;
+        try (Stream<Path> stream = Files.list(volume.root())) {
+            for (Path file : (Iterable<Path>) stream::iterator) {
+                // A single status read tells directories apart and gives the metadata
+                BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                if (attributes.isDirectory()) {
+                    continue;
+                }
+                String fileName = file.getFileName().toString();
+                if (!fileName.matches(FILE_NAME_REGEX)) {
+                    if (fileName.endsWith(MOVING_SUFFIX) || fileName.endsWith(STAGING_SUFFIX)) {
+                        // Left over by a move or an upload interrupted by a stop
+                        Files.deleteIfExists(file);
+                    }
+                    continue;
+                }
+                if (!placed) {
+                    Volume placement = placementOf(fileName);
+                    if (placement != volume) {
+                        if (Files.exists(placement.resolve(fileName))) {
+                            // Left over by an interrupted move or write: the placement is listed on its own
+                            Files.delete(file);
+                            continue;
+                        }
+                        misplaced.put(fileName, volume);
+                    }
+                }
+                stats.fileAdded(fileName, attributes.size());
+                consumer.accept(fileName, new FileMetadata(attributes.size(),
+                        attributes.lastModifiedTime().to(TimeUnit.SECONDS), 0));
+            }
         }
     }
 
     /**
-     * Retrieves an InputStream for the specified file.
+     * Scans the archive tier, counting the archived files. An archived file also stored on
+     * a volume is left over by an interrupted archiving or promotion, and deleted, the copy
+     * on the volume being complete.
+     *
+     * @param consumer the consumer receiving the archived files with their metadata, or
+     *                 {@code null} if they are listed by the snapshot
+     * @throws IOException if an I/O error occurs when accessing the archive
+     */
+    private void scanArchive(BiConsumer<String, FileMetadata> consumer) throws IOException {
+        archivedFiles.set(0);
+        archivedBytes.set(0);
+        if (archive == null || !Files.isDirectory(archiveRoot())) {
+            return;
+        }
+        try (Stream<Path> stream = Files.list(archiveRoot())) {
+            for (Path file : (Iterable<Path>) stream::iterator) {
+                String fileName = file.getFileName().toString();
+                if (!fileName.matches(FILE_NAME_REGEX)) {
+                    if (fileName.endsWith(ARCHIVING_SUFFIX)) {
+                        Files.deleteIfExists(file);
+                    }
+                    continue;
+                }
+                if (Files.exists(locate(fileName).resolve(fileName))) {
+                    Files.delete(file);
+                    continue;
+                }
+                long size = readArchivedSize(file);
+                archivedFiles.incrementAndGet();
+                archivedBytes.addAndGet(size);
+                if (consumer != null) {
+                    stats.fileAdded(fileName, size);
+                    consumer.accept(fileName, new FileMetadata(size,
+                            Files.getLastModifiedTime(file).to(TimeUnit.SECONDS), 0));
+                }
+            }
+        }
+    }
+
+    /**
+     * Parses a snapshot line, "name", or "name\tsize\tlastModified" with the modification time
+     * in seconds, accounting for the listed file. Attributes missing from the snapshot are
+     * read from the storage.
+     *
+     * @param line     the snapshot line
+     * @param consumer the consumer receiving the file name, if valid, with its metadata
+     */
+    private void scanSnapshotLine(String line, BiConsumer<String, FileMetadata> consumer) {
+        String[] fields = line.split("\t", 3);
+        String fileName = fields[0];
+        if (!fileName.matches(FILE_NAME_REGEX)) {
+            return;
+        }
+        FileMetadata metadata;
+        try {
+            if (fields.length == 3) {
+                metadata = new FileMetadata(Long.parseLong(fields[1]), Long.parseLong(fields[2]), 0);
+            } else {
+                BasicFileAttributes attributes = Files.readAttributes(getPathForFileName(fileName),
+                        BasicFileAttributes.class);
+                metadata = new FileMetadata(attributes.size(), attributes.lastModifiedTime().to(TimeUnit.SECONDS), 0);
+            }
+        } catch (IOException | NumberFormatException e) {
+            metadata = FileMetadata.UNKNOWN;
+        }
+        stats.fileAdded(fileName, metadata.size());
+        consumer.accept(fileName, metadata);
+    }
+
+    /**
+     * Lists lazily the names of the stored files, volume after volume, then the archive
+     * tier, if any, without reading
+     * their attributes: the names are read in chunks as the stream is consumed, in the
+     * directory order, which is stable while the directories do not change.
+     *
+     * @return the stream of the names matching the regex pattern "^[a-zA-Z0-9-_]{1,64}$",
+     *         to be closed
+     * @throws IOException if an I/O error occurs when opening a volume
+     */
+    public Stream<String> walkFiles() throws IOException {
+        Stream<Path> files = Stream.empty();
+        try {
+            for (Volume volume : volumes()) {
+                // Concatenated streams are consumed lazily, and closed together
+                files = Stream.concat(files, Files.list(volume.root()));
+            }
+            if (archive != null && Files.isDirectory(archiveRoot())) {
+                files = Stream.concat(files, Files.list(archiveRoot()));
+            }
+        } catch (IOException e) {
+            files.close();
+            throw e;
+        }
+        return files.map(file -> file.getFileName().toString()).filter(fileName -> fileName.matches(FILE_NAME_REGEX));
+    }
+
+    /**
+     * Reads the size and last modification time of a stored file, archived or buffered
+     * or not.
+     *
+     * @param fileName the name of the file
+     * @return the metadata of the file, without checksum unless buffered, or {@code null}
+     *         if it is not stored
+     * @throws IOException if an I/O error occurs
+     */
+    public FileMetadata readMetadata(String fileName) throws IOException {
+        BufferedFile file = buffered.get(fileName);
+        if (file != null) {
+            return file.metadata();
+        }
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(getPathForFileName(fileName),
+                    BasicFileAttributes.class);
+            return attributes.isDirectory() ? null
+                    : new FileMetadata(attributes.size(), attributes.lastModifiedTime().to(TimeUnit.SECONDS), 0);
+        } catch (NoSuchFileException e) {
+            return archive != null ? readArchivedMetadata(fileName) : null;
+        }
+    }
+
+    /**
+     * Retrieves an InputStream for the specified file. A buffered file is read from the
+     * write-behind buffer, and an archived file is promoted back to its volume first.
      *
      * @param fileName the name of the file to retrieve
      * @return an InputStream for the specified file
      * @throws IOException if an I/O error occurs
      */
     public InputStream getFile(String fileName) throws IOException {
-        return Files.newInputStream(getPathForFileName(fileName)); 
+        return getFile(fileName, true);
     }
 
     /**
-     * Stores the provided file with the specified file name.
+     * Retrieves an InputStream for the specified file, optionally leaving an archived file
+     * in the archive: its promotion takes the write lock of its name, which a caller holding
+     * the read lock cannot take.
+     *
+     * @param fileName the name of the file to retrieve
+     * @param promote  {@code true} for promoting an archived file back to its volume
+     * @return an InputStream for the specified file, or {@code null} if it is archived and
+     *         not promoted
+     * @throws IOException if an I/O error occurs
+     */
+    public InputStream getFile(String fileName, boolean promote) throws IOException {
+        long start = System.nanoTime();
+        BufferedFile file = buffered.get(fileName);
+        if (file != null) {
+            return new MeteredInputStream(new ByteArrayInputStream(file.content()), start, null);
+        }
+        Volume volume = locate(fileName);
+        try {
+            return open(volume, fileName, start);
+        } catch (NoSuchFileException e) {
+            // Moved to its placement meanwhile, or archived
+            Volume moved = locate(fileName);
+            if (moved != volume) {
+                return open(moved, fileName, start);
+            }
+            if (archive == null) {
+                throw e;
+            }
+            if (!promote) {
+                if (Files.exists(archiveRoot().resolve(fileName))) {
+                    return null;
+                }
+                throw e;
+            }
+            return open(promote(fileName), fileName, start);
+        }
+    }
+
+    /**
+     * Opens a stored file under a permit of its volume. The stream takes a permit for each of
+     * its reads, so that the reads of a slow disk are bounded along with its other operations,
+     * without a slow client holding a permit between them.
+     */
+    private InputStream open(Volume volume, String fileName, long start) throws IOException {
+        volume.acquire();
+        try {
+            return new MeteredInputStream(Files.newInputStream(volume.resolve(fileName)), start, volume);
+        } finally {
+            volume.release();
+        }
+    }
+
+    /**
+     * Stores the provided file with the specified file name. The CRC32C checksum of the
+     * content is computed while it is copied.
      *
      * @param fileName the name to be assigned to the stored file
      * @param file the file to be stored
+     * @return the metadata of the stored file
+     * @throws IOException if an I/O error occurs during file storage
+     */
+    public FileMetadata putFile(String fileName, MultipartFile file) throws IOException {
+        try (InputStream content = file.getInputStream()) {
+            return write(fileName, content, file.getSize());
+        }
+    }
+
+    /**
+     * Stores the provided file with the specified file name, with the given durability: a
+     * small file may be held by the write-behind buffer and written to its volume later, if
+     * enabled and not full, the others being written through.
+     *
+     * @param fileName   the name to be assigned to the stored file
+     * @param file       the file to be stored
+     * @param durability when the file is stored
+     * @return the metadata of the stored file
      * @throws IOException if an I/O error occurs during file storage
      */
-    public void putFile(String fileName, MultipartFile file) throws IOException {
-        Files.copy(file.getInputStream(), getPathForFileName(fileName), 
-                StandardCopyOption.REPLACE_EXISTING);
+    public FileMetadata putFile(String fileName, MultipartFile file, Durability durability) throws IOException {
+        long size = file.getSize();
+        if (durability == Durability.SYNC || !writeBehind || size > writeBehindMaxFileSize || !reserve(size)) {
+            return putFile(fileName, file);
+        }
+        byte[] content;
+        try {
+            content = file.getBytes();
+        } catch (IOException | RuntimeException e) {
+            bufferedBytes.addAndGet(-size);
+            throw e;
+        }
+        return buffer(fileName, content, size);
+    }
+
+    /**
+     * Stores the content read from a stream with the specified file name, such as a file
+     * received from another node. The stream is read to its end but not closed.
+     *
+     * @param fileName the name to be assigned to the stored file
+     * @param content the content to be stored
+     * @return the metadata of the stored file
+     * @throws IOException if an I/O error occurs during file storage
+     */
+    public FileMetadata putFile(String fileName, InputStream content) throws IOException {
+        return write(fileName, content, -1);
+    }
+
+    /**
+     * Copies a content to a file, computing its checksum.
+     *
+     * @param size the size of the content, if known, or -1 to count the bytes copied
+     */
+    private FileMetadata write(String fileName, InputStream content, long size) throws IOException {
+        long start = System.nanoTime();
+        Lock lock = locks.lockFor(fileName);
+        lock.lock();
+        try {
+            Volume volume = placementOf(fileName);
+            Volume previous = misplaced.get(fileName);
+            volume.acquire();
+            try {
+                Path target = volume.resolve(fileName);
+                long previousSize = sizeOf(previous != null ? previous.resolve(fileName) : target);
+                CRC32C checksum = new CRC32C();
+                long copied = Files.copy(new CheckedInputStream(content, checksum), target,
+                        StandardCopyOption.REPLACE_EXISTING);
+                long written = size < 0 ? copied : size;
+                // Older than this content, the writes of the name being serialized
+                long bufferedSize = discardBuffered(fileName);
+                if (previousSize < 0 && archive != null) {
+                    previousSize = removeArchived(fileName);
+                }
+                if (bufferedSize >= 0) {
+                    // Counted with the buffered content, which this one replaces or flushes
+                    previousSize = bufferedSize;
+                }
+                if (previous != null && previous != volume) {
+                    misplaced.remove(fileName);
+                    Files.deleteIfExists(previous.resolve(fileName));
+                }
+                if (volume.isDraining()) {
+                    // The volume started draining meanwhile, and its drain must move the file
+                    misplaced.putIfAbsent(fileName, volume);
+                }
+                writeTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                writeBytes.record(written);
+                if (previousSize < 0) {
+                    stats.fileAdded(fileName, written);
+                } else {
+                    stats.fileReplaced(previousSize, written);
+                }
+                return new FileMetadata(written, Instant.now().getEpochSecond(), (int) checksum.getValue());
+            } finally {
+                volume.release();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Assembles parts, such as the parts of an upload session, into a staging file next to
+     * the place of the final file, to be committed by {@link #commitFile(String, Path, int)}.
+     * The parts are transferred by the file system, without copying their content through
+     * the heap, and without holding the lock of the name.
+     *
+     * @param fileName the name of the final file
+     * @param parts    the part files, in order
+     * @return the staging file
+     * @throws IOException if an I/O error occurs, the staging file being deleted
+     */
+    public Path stageFile(String fileName, List<Path> parts) throws IOException {
+        Volume volume = placementOf(fileName);
+        volume.acquire();
+        try {
+            Path staged = Files.createTempFile(volume.root(), fileName + ".", STAGING_SUFFIX);
+            try (FileChannel target = FileChannel.open(staged, StandardOpenOption.WRITE)) {
+                for (Path part : parts) {
+                    try (FileChannel source = FileChannel.open(part, StandardOpenOption.READ)) {
+                        long size = source.size();
+                        for (long position = 0; position < size; ) {
+                            position += source.transferTo(position, size - position, target);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                Files.deleteIfExists(staged);
+                throw e;
+            }
+            return staged;
+        } finally {
+            volume.release();
+        }
+    }
+
+    /**
+     * Replaces the file with the specified name by a staging file, at once: readers see
+     * either the previous content or the new one.
+     *
+     * @param fileName the name of the file
+     * @param staged   the staging file returned by {@link #stageFile(String, List)}
+     * @param checksum the CRC32C checksum of the content
+     * @return the metadata of the stored file
+     * @throws IOException if an I/O error occurs
+     */
+    public FileMetadata commitFile(String fileName, Path staged, int checksum) throws IOException {
+        long start = System.nanoTime();
+        Lock lock = locks.lockFor(fileName);
+        lock.lock();
+        try {
+            Volume volume = volumes().stream()
+                    .filter(candidate -> candidate.root().equals(staged.getParent()))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("Not a staging file: " + staged));
+            volume.acquire();
+            try {
+                Volume previous = locate(fileName);
+                long previousSize = sizeOf(previous.resolve(fileName));
+                long size = Files.size(staged);
+                Files.move(staged, volume.resolve(fileName), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+                if (previous != volume) {
+                    Files.deleteIfExists(previous.resolve(fileName));
+                }
+                long bufferedSize = discardBuffered(fileName);
+                if (previousSize < 0 && archive != null) {
+                    previousSize = removeArchived(fileName);
+                }
+                if (bufferedSize >= 0) {
+                    previousSize = bufferedSize;
+                }
+                misplaced.remove(fileName);
+                if (volume != placementOf(fileName)) {
+                    // Staged on a volume which started draining meanwhile
+                    misplaced.put(fileName, volume);
+                }
+                writeTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                writeBytes.record(size);
+                if (previousSize < 0) {
+                    stats.fileAdded(fileName, size);
+                } else {
+                    stats.fileReplaced(previousSize, size);
+                }
+                return new FileMetadata(size, Instant.now().getEpochSecond(), checksum);
+            } finally {
+                volume.release();
+            }
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
@@ -114,7 +868,295 @@ public class FilesService {
      * @throws IOException if an I/O error occurs or the file does not exist
      */
     public void deleteFile(String fileName) throws IOException {
-        Files.delete(getPathForFileName(fileName));
+        long start = System.nanoTime();
+        Lock lock = locks.lockFor(fileName);
+        lock.lock();
+        try {
+            long bufferedSize = discardBuffered(fileName);
+            if (bufferedSize >= 0 && !Files.exists(locate(fileName).resolve(fileName))
+                    && (archive == null || !Files.exists(archiveRoot().resolve(fileName)))) {
+                // Never written to its volume
+                deleteTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                stats.fileRemoved(fileName, bufferedSize);
+                return;
+            }
+            Volume volume = locate(fileName);
+            volume.acquire();
+            try {
+                Path target = volume.resolve(fileName);
+                long size;
+                if (archive != null && !Files.exists(target)) {
+                    size = removeArchived(fileName);
+                    if (size < 0) {
+                        throw new NoSuchFileException(target.toString());
+                    }
+                } else {
+                    size = Files.size(target);
+                    Files.delete(target);
+                }
+                misplaced.remove(fileName);
+                deleteTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                // Counted with the buffered content, if any, newer than the stored one
+                stats.fileRemoved(fileName, bufferedSize >= 0 ? bufferedSize : size);
+            } finally {
+                volume.release();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Moves a file to the archive tier: its content is deflated into the archive, renamed
+     * into place, and the file is then deleted from its volume. Streams already open on the
+     * file keep reading it.
+     *
+     * @param fileName the name of the file
+     * @return the size of the file archived, or {@code -1} if it is not stored on a volume
+     * @throws IllegalStateException if no archive tier is configured
+     * @throws IOException if an I/O error occurs, the file staying on its volume
+     */
+    public long archiveFile(String fileName) throws IOException {
+        if (archive == null) {
+            throw new IllegalStateException("No archive tier configured");
+        }
+        Lock lock = locks.lockFor(fileName);
+        lock.lock();
+        try {
+            Volume volume = locate(fileName);
+            Path source = volume.resolve(fileName);
+            BasicFileAttributes attributes;
+            try {
+                attributes = Files.readAttributes(source, BasicFileAttributes.class);
+            } catch (NoSuchFileException e) {
+                return -1;
+            }
+            Files.createDirectories(archiveRoot());
+            Path archiving = archiveRoot().resolve(fileName + ARCHIVING_SUFFIX);
+            volume.acquire();
+            Deflater deflater = new Deflater();
+            try {
+                try (InputStream content = Files.newInputStream(source);
+                        DataOutputStream out = new DataOutputStream(Files.newOutputStream(archiving))) {
+                    out.writeInt(ARCHIVE_MAGIC);
+                    out.writeLong(attributes.size());
+                    DeflaterOutputStream deflated = new DeflaterOutputStream(out, deflater, ARCHIVE_BUFFER);
+                    content.transferTo(deflated);
+                    deflated.finish();
+                }
+                Files.setLastModifiedTime(archiving, attributes.lastModifiedTime());
+                Files.move(archiving, archiveRoot().resolve(fileName), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                Files.deleteIfExists(archiving);
+                throw e;
+            } finally {
+                deflater.end();
+                volume.release();
+            }
+            Files.delete(source);
+            misplaced.remove(fileName);
+            archivedFiles.incrementAndGet();
+            archivedBytes.addAndGet(attributes.size());
+            return attributes.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of files in the archive tier.
+     *
+     * @return the number of archived files
+     */
+    public long getArchivedFiles() {
+        return archivedFiles.get();
+    }
+
+    /**
+     * Returns the total size of the files in the archive tier, before compression.
+     *
+     * @return the size of the archived files, in bytes
+     */
+    public long getArchivedBytes() {
+        return archivedBytes.get();
+    }
+
+    /**
+     * Returns the number of archived files promoted back to their volume by a read.
+     *
+     * @return the number of promotions
+     */
+    public long getPromotions() {
+        return promotions.get();
+    }
+
+    /**
+     * Checks if an archive tier is configured.
+     *
+     * @return {@code true} if cold files can be archived
+     */
+    public boolean isArchiveConfigured() {
+        return archive != null;
+    }
+
+    /**
+     * Describes the storage volumes.
+     *
+     * @return the volumes, with their weight, state, number of misplaced files and space
+     */
+    public List<VolumeResponse> getVolumes() {
+        Map<Volume, Long> counts = misplaced.values().stream()
+                .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
+        List<VolumeResponse> responses = new ArrayList<>();
+        for (Volume volume : volumes()) {
+            long usable = -1;
+            long total = -1;
+            try {
+                FileStore store = Files.getFileStore(volume.root());
+                usable = store.getUsableSpace();
+                total = store.getTotalSpace();
+            } catch (IOException e) {
+                // Unknown space, the volume being unavailable
+            }
+            responses.add(new VolumeResponse(volume.root().toString(), volume.weight(), volume.isDraining(),
+                    counts.getOrDefault(volume, 0L), usable, total));
+        }
+        return responses;
+    }
+
+    /**
+     * Drains a volume: no file is placed on it any more, and its files are moved to the
+     * volumes where they are placed now, in parallel by its I/O pool. The files stay readable
+     * while they are moved. The volume stays drained until it is removed from the volumes,
+     * or the service restarted.
+     *
+     * @param root the directory of the volume, as configured
+     * @return the number of files moved
+     * @throws IllegalArgumentException if the volume is unknown, or the last one not drained
+     * @throws IOException if an I/O error occurs, after the other files were moved
+     */
+    public int drainVolume(String root) throws IOException {
+        Volume volume = volumes().stream()
+                .filter(candidate -> candidate.root().equals(Paths.get(root)))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown volume: " + root));
+        if (volumes().stream().noneMatch(other -> other != volume && !other.isDraining())) {
+            throw new IllegalArgumentException("Cannot drain the last volume: " + root);
+        }
+        // Registered before and after the volume stops receiving files, so that a file written
+        // meanwhile is either registered or written elsewhere
+        registerFiles(volume);
+        volume.setDraining(true);
+        registerFiles(volume);
+        return moveMisplaced(List.of(volume));
+    }
+
+    /**
+     * Moves the misplaced files, found on another volume than their placement at startup, to
+     * their placement, in parallel by the I/O pools of their volumes.
+     *
+     * @return the number of files moved
+     * @throws IOException if an I/O error occurs, after the other files were moved
+     */
+    public int rebalanceVolumes() throws IOException {
+        return moveMisplaced(volumes());
+    }
+
+    /**
+     * Writes a buffered file through to its volume, if it is still buffered.
+     *
+     * @param fileName the name of the file
+     * @return {@code true} if the file was written, {@code false} if it was not buffered
+     * @throws IOException if an I/O error occurs, the file staying buffered
+     */
+    public boolean flushFile(String fileName) throws IOException {
+        Lock lock = locks.lockFor(fileName);
+        lock.lock();
+        try {
+            BufferedFile file = buffered.get(fileName);
+            if (file == null) {
+                return false;
+            }
+            // Removes the file from the buffer once written
+            write(fileName, new ByteArrayInputStream(file.content()), file.content().length);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes all the buffered files through to their volumes, in parallel by the I/O pools
+     * of the volumes when there are several.
+     *
+     * @return the number of files written
+     * @throws IOException if an I/O error occurs, after the other files were written, the
+     *                     failed ones staying buffered
+     */
+    public int flushFiles() throws IOException {
+        Map<Volume, List<String>> batches = new HashMap<>();
+        for (String fileName : buffered.keySet()) {
+            batches.computeIfAbsent(placementOf(fileName), volume -> new ArrayList<>()).add(fileName);
+        }
+        AtomicInteger flushed = new AtomicInteger();
+        if (batches.size() <= 1) {
+            for (List<String> batch : batches.values()) {
+                flushBatch(batch, flushed);
+            }
+            return flushed.get();
+        }
+        List<Future<?>> writers = new ArrayList<>();
+        batches.forEach((volume, batch) -> writers.add(volume.io().submit(() -> {
+            flushBatch(batch, flushed);
+            return null;
+        })));
+        awaitAll(writers);
+        return flushed.get();
+    }
+
+    /**
+     * Returns the number of files held by the write-behind buffer.
+     *
+     * @return the number of buffered files
+     */
+    public int getBufferedFiles() {
+        return buffered.size();
+    }
+
+    /**
+     * Stops the flusher, flushes the write-behind buffer, and shuts down the I/O pools of
+     * the volumes.
+     */
+    @PreDestroy
+    public void close() {
+        Thread thread = flusher;
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (!buffered.isEmpty()) {
+            try {
+                logger.info("Flushing {} buffered files", buffered.size());
+                flushFiles();
+            } catch (IOException e) {
+                logger.error("Unable to flush {} buffered files. @Cause:{}", buffered.size(), e.toString());
+            }
+        }
+        resetVolumes();
+    }
+
+    /**
+     * Returns the storage statistics, maintained by the listing, put and delete operations.
+     *
+     * @return the storage statistics
+     */
+    public StorageStats getStats() {
+        return stats;
     }
 
     /**
@@ -123,17 +1165,565 @@ public class FilesService {
      * @return the path of the file as a String
      */
     public String getPath() {
-        return path;
+        return volumeRoots.isEmpty() ? path : String.join(",", volumeRoots);
+    }
+
+    /**
+     * Resolves a path of the local state of this instance, such as its upload sessions,
+     * against the base directory, or the first volume, so that instances sharing a host keep
+     * their own state next to their files. The state is invisible to the listings, its names
+     * not being valid file names.
+     *
+     * @param other the path of the state, relative to the storage, or absolute
+     * @return the resolved path, or the given one if absolute
+     */
+    public Path resolveState(String other) {
+        return Paths.get(volumeRoots.isEmpty() ? path : volumeRoots.get(0)).resolve(other);
     }
 
     /**
-     * Constructs a Path object by appending the given file name to the base path.
+     * Constructs a Path object by appending the given file name to the directory of the
+     * volume storing the file.
      *
-     * @param fileName the name of the file to be appended to the base path
+     * @param fileName the name of the file to be appended to the volume directory
      * @return a Path object representing the full path to the file
      */
     private Path getPathForFileName(String fileName) {
-        return Paths.get(path + fileName);
+        return locate(fileName).resolve(fileName);
+    }
+
+    /**
+     * Returns the volumes, built from the configuration on first use.
+     *
+     * @return the volumes, the path being the only one if none is configured
+     */
+    private List<Volume> volumes() {
+        List<Volume> current = volumes;
+        if (current == null) {
+            synchronized (this) {
+                if (volumes == null) {
+                    List<String> roots = volumeRoots.isEmpty() ? List.of(path) : volumeRoots;
+                    volumes = roots.stream()
+                            .map(root -> new Volume(Paths.get(root), weightOf(Paths.get(root)), volumeThreads,
+                                    volumeConcurrency))
+                            .toList();
+                }
+                current = volumes;
+            }
+        }
+        return current;
+    }
+
+    private synchronized void resetVolumes() {
+        if (volumes != null) {
+            volumes.forEach(Volume::shutdown);
+            volumes = null;
+        }
+        misplaced.clear();
+    }
+
+    /**
+     * Returns the weight of a volume: its usable space in gigabytes if the volumes are
+     * weighted, and could be read, or 1.
+     */
+    private double weightOf(Path root) {
+        if (volumesWeighted) {
+            try {
+                return Math.max(Files.getFileStore(root).getUsableSpace() / (double) (1L << 30), 0.001);
+            } catch (IOException e) {
+                // Unweighted, the space being unknown
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * Returns the volume where a file is placed: the one with the highest score among the
+     * volumes not drained.
+     */
+    private Volume placementOf(String fileName) {
+        List<Volume> all = volumes();
+        if (all.size() == 1) {
+            return all.get(0);
+        }
+        Volume best = null;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        for (Volume volume : all) {
+            if (!volume.isDraining()) {
+                double score = volume.score(fileName);
+                if (score > bestScore) {
+                    best = volume;
+                    bestScore = score;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns the volume storing a file: where it is misplaced, if it is, or its placement.
+     */
+    private Volume locate(String fileName) {
+        Volume volume = misplaced.get(fileName);
+        return volume != null ? volume : placementOf(fileName);
+    }
+
+    /**
+     * Registers the files of a volume that are not placed on it as misplaced.
+     */
+    private void registerFiles(Volume volume) throws IOException {
+        try (Stream<Path> stream = Files.list(volume.root())) {
+            for (Path file : (Iterable<Path>) stream::iterator) {
+                String fileName = file.getFileName().toString();
+                if (fileName.matches(FILE_NAME_REGEX) && placementOf(fileName) != volume
+                        && !Files.isDirectory(file)) {
+                    misplaced.putIfAbsent(fileName, volume);
+                }
+            }
+        }
+    }
+
+    /**
+     * Moves the misplaced files of the given volumes, each volume running as many moves
+     * in parallel as its I/O pool has threads.
+     *
+     * @return the number of files moved
+     */
+    private int moveMisplaced(List<Volume> sources) throws IOException {
+        Map<Volume, Queue<String>> queues = new HashMap<>();
+        misplaced.forEach((fileName, volume) -> {
+            if (sources.contains(volume)) {
+                queues.computeIfAbsent(volume, v -> new ConcurrentLinkedQueue<>()).add(fileName);
+            }
+        });
+        AtomicInteger moved = new AtomicInteger();
+        List<Future<?>> workers = new ArrayList<>();
+        queues.forEach((volume, fileNames) -> {
+            for (int i = 0; i < volumeThreads; i++) {
+                workers.add(volume.io().submit(() -> {
+                    for (String fileName = fileNames.poll(); fileName != null; fileName = fileNames.poll()) {
+                        if (move(fileName, volume)) {
+                            moved.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+        });
+        awaitAll(workers);
+        return moved.get();
+    }
+
+    /**
+     * Moves a misplaced file to its placement: the file is copied next to its target, then
+     * renamed over it, so that it is always readable from one of the volumes.
+     *
+     * @param fileName the file name
+     * @param source   the volume where the file was misplaced
+     * @return {@code true} if the file was moved, {@code false} if it was written, deleted
+     *         or moved meanwhile
+     */
+    private boolean move(String fileName, Volume source) throws IOException {
+        Lock lock = locks.lockFor(fileName);
+        lock.lock();
+        try {
+            if (misplaced.get(fileName) != source) {
+                return false;
+            }
+            Volume volume = placementOf(fileName);
+            Path from = source.resolve(fileName);
+            if (volume == source || !Files.exists(from)) {
+                misplaced.remove(fileName);
+                return false;
+            }
+            Path moving = volume.resolve(fileName + MOVING_SUFFIX);
+            Files.copy(from, moving, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(moving, volume.resolve(fileName), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            misplaced.remove(fileName);
+            Files.delete(from);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reserves room in the write-behind buffer.
+     *
+     * @return {@code true} if reserved, {@code false} if the buffer is full
+     */
+    private boolean reserve(long size) {
+        long used;
+        do {
+            used = bufferedBytes.get();
+            if (used + size > writeBehindCapacity) {
+                return false;
+            }
+        } while (!bufferedBytes.compareAndSet(used, used + size));
+        return true;
+    }
+
+    /**
+     * Holds a file in the write-behind buffer, its room being reserved, replacing the file
+     * buffered with the same name, if any. The file is counted by the statistics at once, in
+     * place of the buffered or stored one.
+     */
+    private FileMetadata buffer(String fileName, byte[] content, long reserved) throws IOException {
+        CRC32C checksum = new CRC32C();
+        checksum.update(content);
+        FileMetadata metadata = new FileMetadata(content.length, Instant.now().getEpochSecond(),
+                (int) checksum.getValue());
+        Lock lock = locks.lockFor(fileName);
+        lock.lock();
+        try {
+            BufferedFile previous = buffered.get(fileName);
+            long previousSize;
+            try {
+                previousSize = previous != null ? previous.content().length : storedSize(fileName);
+            } catch (IOException e) {
+                bufferedBytes.addAndGet(-reserved);
+                throw e;
+            }
+            buffered.put(fileName, new BufferedFile(content, metadata));
+            bufferedBytes.addAndGet(content.length - reserved - (previous != null ? previous.content().length : 0));
+            if (previousSize < 0) {
+                stats.fileAdded(fileName, content.length);
+            } else {
+                stats.fileReplaced(previousSize, content.length);
+            }
+        } finally {
+            lock.unlock();
+        }
+        writeBytes.record(content.length);
+        Thread thread = startFlusher();
+        if (bufferedBytes.get() > writeBehindCapacity / 2) {
+            LockSupport.unpark(thread);
+        }
+        return metadata;
+    }
+
+    /**
+     * Removes a file from the write-behind buffer, under the lock of its name.
+     *
+     * @return the size of the buffered file, or -1 if the file was not buffered
+     */
+    private long discardBuffered(String fileName) {
+        BufferedFile file = buffered.remove(fileName);
+        if (file == null) {
+            return -1;
+        }
+        bufferedBytes.addAndGet(-file.content().length);
+        return file.content().length;
+    }
+
+    /**
+     * Returns the size of the stored file of a name, on its volume or archived.
+     *
+     * @return the size, or -1 if the file is not stored
+     */
+    private long storedSize(String fileName) throws IOException {
+        long size = sizeOf(locate(fileName).resolve(fileName));
+        if (size < 0 && archive != null) {
+            try {
+                size = readArchivedSize(archiveRoot().resolve(fileName));
+            } catch (NoSuchFileException e) {
+                return -1;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Flushes the buffered files of a volume, one after the other, logging the failures.
+     */
+    private void flushBatch(List<String> fileNames, AtomicInteger flushed) throws IOException {
+        IOException failure = null;
+        for (String fileName : fileNames) {
+            try {
+                if (flushFile(fileName)) {
+                    flushed.incrementAndGet();
+                }
+            } catch (IOException e) {
+                logger.warn("Unable to flush buffered file {}. @Cause:{}", fileName, e.toString());
+                failure = failure != null ? failure : e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Starts the flusher thread of the write-behind buffer, once.
+     *
+     * @return the flusher thread
+     */
+    private synchronized Thread startFlusher() {
+        if (flusher != null) {
+            return flusher;
+        }
+        Thread thread = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                // Woken up early by the puts filling half of the buffer
+                LockSupport.parkNanos(flushInterval.toNanos());
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+                try {
+                    flushFiles();
+                } catch (IOException | RuntimeException e) {
+                    // Retried by the next flush, the failed files staying buffered
+                    logger.warn("Unable to flush the write-behind buffer. @Cause:{}", e.toString());
+                }
+            }
+        }, "webdisk-write-behind");
+        thread.setDaemon(true);
+        flusher = thread;
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * Returns the directory of the archive tier.
+     */
+    private Path archiveRoot() {
+        return Paths.get(archive);
+    }
+
+    /**
+     * Restores an archived file to its placement: the content is inflated next to its target,
+     * then renamed over it, and the archived copy deleted.
+     *
+     * @param fileName the file name
+     * @return the volume storing the file, which may have been promoted meanwhile
+     * @throws NoSuchFileException if the file is neither on a volume nor archived
+     */
+    private Volume promote(String fileName) throws IOException {
+        Lock lock = locks.lockFor(fileName);
+        lock.lock();
+        try {
+            Volume located = locate(fileName);
+            if (Files.exists(located.resolve(fileName))) {
+                return located;
+            }
+            Path archived = archiveRoot().resolve(fileName);
+            Volume volume = placementOf(fileName);
+            Path promoting = volume.resolve(fileName + MOVING_SUFFIX);
+            long size;
+            volume.acquire();
+            Inflater inflater = new Inflater();
+            try (DataInputStream in = new DataInputStream(Files.newInputStream(archived))) {
+                size = readArchiveHeader(in, archived);
+                Files.copy(new InflaterInputStream(in, inflater, ARCHIVE_BUFFER), promoting,
+                        StandardCopyOption.REPLACE_EXISTING);
+                Files.setLastModifiedTime(promoting, Files.getLastModifiedTime(archived));
+                Files.move(promoting, volume.resolve(fileName), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                Files.deleteIfExists(promoting);
+                throw e;
+            } finally {
+                inflater.end();
+                volume.release();
+            }
+            Files.delete(archived);
+            misplaced.remove(fileName);
+            archivedFiles.decrementAndGet();
+            archivedBytes.addAndGet(-size);
+            promotions.incrementAndGet();
+            return volume;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Deletes the archived copy of a file, if any.
+     *
+     * @return the size of the archived file, or {@code -1} if it was not archived
+     */
+    private long removeArchived(String fileName) throws IOException {
+        Path archived = archiveRoot().resolve(fileName);
+        long size;
+        try {
+            size = readArchivedSize(archived);
+        } catch (NoSuchFileException e) {
+            return -1;
+        }
+        Files.delete(archived);
+        archivedFiles.decrementAndGet();
+        archivedBytes.addAndGet(-size);
+        return size;
+    }
+
+    private FileMetadata readArchivedMetadata(String fileName) throws IOException {
+        Path archived = archiveRoot().resolve(fileName);
+        try {
+            return new FileMetadata(readArchivedSize(archived),
+                    Files.getLastModifiedTime(archived).to(TimeUnit.SECONDS), 0);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    private static long readArchivedSize(Path archived) throws IOException {
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(archived))) {
+            return readArchiveHeader(in, archived);
+        }
+    }
+
+    /**
+     * Reads the header of an archived file.
+     *
+     * @return the size of the file before compression
+     */
+    private static long readArchiveHeader(DataInputStream in, Path archived) throws IOException {
+        if (in.readInt() != ARCHIVE_MAGIC) {
+            throw new IOException("Not an archived file: " + archived);
+        }
+        return in.readLong();
+    }
+
+    /**
+     * Waits for tasks run by the I/O pools, rethrowing the first failure once all ended.
+     */
+    private static void awaitAll(List<Future<?>> tasks) throws IOException {
+        IOException failure = null;
+        for (Future<?> task : tasks) {
+            try {
+                task.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                tasks.forEach(pending -> pending.cancel(true));
+                throw new InterruptedIOException("Interrupted while waiting for the volumes");
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause() instanceof IOException cause ? cause : new IOException(e.getCause());
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Reads the size of a stored file.
+     *
+     * @param file the path of the file
+     * @return the size of the file in bytes, or {@code -1} if it does not exist
+     * @throws IOException if an I/O error occurs
+     */
+    private static long sizeOf(Path file) throws IOException {
+        try {
+            return Files.size(file);
+        } catch (NoSuchFileException e) {
+            return -1;
+        }
+    }
+
+    private static Timer operationTimer(MeterRegistry registry, String operation) {
+        return Timer.builder(METER_OPERATIONS)
+                .description("Storage operations on the file system")
+                .tag(TAG_OPERATION, operation)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private static DistributionSummary bytesSummary(MeterRegistry registry, String operation) {
+        return DistributionSummary.builder(METER_BYTES)
+                .description("Bytes transferred by storage operations")
+                .baseUnit("bytes")
+                .tag(TAG_OPERATION, operation)
+                .register(registry);
+    }
+
+    /**
+     * Input stream counting the bytes read from a stored file, recording the read
+     * duration and size once the stream is closed. Each read of a stored file is done under
+     * a permit of its volume.
+     */
+    private class MeteredInputStream extends FilterInputStream {
+
+        private final long start;
+        private final Volume volume;
+        private long bytes;
+        private boolean closed;
+
+        MeteredInputStream(InputStream in, long start, Volume volume) {
+            super(in);
+            this.start = start;
+            this.volume = volume;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b;
+            acquire();
+            try {
+                b = super.read();
+            } finally {
+                release();
+            }
+            if (b >= 0) {
+                bytes++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n;
+            acquire();
+            try {
+                n = super.read(b, off, len);
+            } finally {
+                release();
+            }
+            if (n > 0) {
+                bytes += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped;
+            acquire();
+            try {
+                skipped = super.skip(n);
+            } finally {
+                release();
+            }
+            bytes += skipped;
+            return skipped;
+        }
+
+        private void acquire() throws IOException {
+            if (volume != null) {
+                volume.acquire();
+            }
+        }
+
+        private void release() {
+            if (volume != null) {
+                volume.release();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                if (!closed) {
+                    closed = true;
+                    readTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    readBytes.record(bytes);
+                }
+            }
+        }
     }
 
 }
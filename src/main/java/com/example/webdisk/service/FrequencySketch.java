@@ -0,0 +1,134 @@
+package com.example.webdisk.service;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Count-min sketch estimating how often each file name is accessed, in constant memory.
+ *
+ * <p>Counters are 4 bits wide, sixteen to a {@code long}. A name increments one counter in
+ * each of four rows, the rows sharing the same table, and its frequency is the lowest of its
+ * four counters, which overestimates it only when all four collide with more frequent names.
+ * Counters saturate at 15. Once the sketch has recorded ten increments per entry of its
+ * capacity, all counters are halved, so that the frequencies follow the recent accesses
+ * rather than the whole history. As few accesses spread over many names may take long to
+ * reach that sample, the owner of the sketch can also age it on a timer, by {@link #age()}.</p>
+ *
+ * <p>Counters are updated by compare-and-set, without locking. A halving concurrent with
+ * increments may lose some of them, which the estimation tolerates.</p>
+ */
+public final class FrequencySketch {
+
+    private static final long[] SEEDS = {
+        0x97CB3127E0E4B9DBL, 0xC3A5C85C97CB3127L, 0xB492B66FBE98F273L, 0x9AE16A3B2F90404FL};
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final int MAX_COUNT = 15;
+
+    private final AtomicLongArray table;
+    private final int mask;
+    private final int sampleSize;
+    private final AtomicInteger additions = new AtomicInteger();
+
+    /**
+     * Constructs a sketch sized for the given number of names, with one {@code long} of
+     * counters for two names.
+     *
+     * @param capacity the expected number of distinct names
+     */
+    public FrequencySketch(int capacity) {
+        int longs = Integer.highestOneBit(Math.max(64, Math.min(capacity, 1 << 30) / 2 - 1) << 1);
+        this.table = new AtomicLongArray(longs);
+        this.mask = longs - 1;
+        this.sampleSize = (int) Math.min(10L * Math.max(capacity, 32), Integer.MAX_VALUE);
+    }
+
+    /**
+     * Records an access to a name.
+     *
+     * @param name the file name
+     */
+    public void increment(String name) {
+        int hash = name.hashCode();
+        boolean added = false;
+        for (int row = 0; row < SEEDS.length; row++) {
+            added |= incrementAt(hash, row);
+        }
+        if (added && additions.incrementAndGet() == sampleSize) {
+            reset();
+        }
+    }
+
+    /**
+     * Returns the estimated number of recent accesses to a name.
+     *
+     * @param name the file name
+     * @return the estimated frequency, from 0 to 15
+     */
+    public int frequency(String name) {
+        int hash = name.hashCode();
+        int frequency = MAX_COUNT;
+        for (int row = 0; row < SEEDS.length; row++) {
+            long h = mix(hash, row);
+            int shift = counterShift(h);
+            frequency = Math.min(frequency, (int) ((table.get(index(h)) >>> shift) & 0xF));
+        }
+        return frequency;
+    }
+
+    /**
+     * Halves all the counters, as after a full sample of increments.
+     */
+    public void age() {
+        reset();
+    }
+
+    /**
+     * Returns the heap used by the counters.
+     *
+     * @return the size of the table, in bytes
+     */
+    public long getEstimatedMemory() {
+        return (long) table.length() * Long.BYTES;
+    }
+
+    private boolean incrementAt(int hash, int row) {
+        long h = mix(hash, row);
+        int i = index(h);
+        int shift = counterShift(h);
+        while (true) {
+            long value = table.get(i);
+            if (((value >>> shift) & 0xF) == MAX_COUNT) {
+                return false;
+            }
+            if (table.compareAndSet(i, value, value + (1L << shift))) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Halves all the counters, and the number of increments since the previous halving.
+     */
+    private void reset() {
+        for (int i = 0; i < table.length(); i++) {
+            long value;
+            do {
+                value = table.get(i);
+            } while (!table.compareAndSet(i, value, (value >>> 1) & RESET_MASK));
+        }
+        additions.updateAndGet(count -> count / 2);
+    }
+
+    private int index(long h) {
+        return (int) (h >>> 32) & mask;
+    }
+
+    private static int counterShift(long h) {
+        return (int) ((h >>> 20) & 0xF) << 2;
+    }
+
+    private static long mix(int hash, int row) {
+        long h = (hash + SEEDS[row]) * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 29);
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.webdisk.service;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Striped locks serializing the changes of a file name: the write or delete of the file
+ * together with the update of its registry entry, and the moves of the file between volumes.
+ * Reads of the file share the lock of its name, excluding the changes only.
+ *
+ * <p>Names are hashed over a fixed array of reentrant read-write locks, so the memory does
+ * not grow with the number of names, at the cost of unrelated names sharing a lock now and
+ * then. The number of stripes is rounded up to a power of two, and configured by the
+ * "webdisk.lock-stripes" property. A thread holding the read lock of a name cannot take its
+ * write lock.</p>
+ */
+@Component
+public class NameLocks {
+
+    private final ReentrantReadWriteLock[] stripes;
+
+    /**
+     * Constructs the locks.
+     *
+     * @param stripes the minimum number of locks
+     */
+    public NameLocks(@Value("${webdisk.lock-stripes:1024}") int stripes) {
+        int size = Integer.highestOneBit(Math.max(stripes - 1, 1)) << 1;
+        this.stripes = new ReentrantReadWriteLock[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new ReentrantReadWriteLock();
+        }
+    }
+
+    /**
+     * Returns the exclusive lock of a file name, for changing the file.
+     *
+     * @param fileName the file name
+     * @return the write lock shared by the names of the same stripe
+     */
+    public Lock lockFor(String fileName) {
+        return stripeOf(fileName).writeLock();
+    }
+
+    /**
+     * Returns the shared lock of a file name, for reading the file.
+     *
+     * @param fileName the file name
+     * @return the read lock shared by the names of the same stripe
+     */
+    public Lock readLockFor(String fileName) {
+        return stripeOf(fileName).readLock();
+    }
+
+    /**
+     * Returns an estimate of the number of threads waiting for the lock of a file name, for
+     * monitoring.
+     *
+     * @param fileName the file name
+     * @return the number of threads waiting for the lock of its stripe
+     */
+    public int getQueueLength(String fileName) {
+        return stripeOf(fileName).getQueueLength();
+    }
+
+    private ReentrantReadWriteLock stripeOf(String fileName) {
+        int hash = fileName.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)];
+    }
+}
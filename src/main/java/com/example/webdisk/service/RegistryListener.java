@@ -0,0 +1,26 @@
+package com.example.webdisk.service;
+
+/**
+ * Callback notified by {@link CacheService} after each effective change of the registry.
+ *
+ * <p>Notifications are delivered synchronously on the thread performing the change, once
+ * the name has been added to or removed from the registry. Adding a name that is already
+ * present, or removing one that is absent, does not notify. Implementations must be
+ * thread-safe and fast: they run on the request path of every write.</p>
+ */
+public interface RegistryListener {
+
+    /**
+     * Called after a name was added to the registry.
+     *
+     * @param fileName the added file name
+     */
+    void fileAdded(String fileName);
+
+    /**
+     * Called after a name was removed from the registry.
+     *
+     * @param fileName the removed file name
+     */
+    void fileRemoved(String fileName);
+}
@@ -0,0 +1,478 @@
+package com.example.webdisk.service;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Compact table of the registry entries: the file names and their metadata.
+ *
+ * <p>Each entry has an integer ID, which indexes a struct of arrays: the name, the size in
+ * bytes as a {@code long}, the last modification time in seconds as an unsigned {@code int},
+ * the CRC32C checksum of the content as an {@code int}, zero when unknown, and the last
+ * access time in seconds as an unsigned {@code int}. Names are found by an open addressing
+ * hash index over the IDs, so an entry costs an index slot and a name reference besides its
+ * 20 bytes of metadata, with no per-entry node objects. At 10^8 names this is about 35 bytes
+ * per entry, the name itself excluded, less than a concurrent hash set holding the names
+ * alone. A {@link SortedNameIndex} keeps the names in
+ * lexicographic order as well, for prefix and range scans.</p>
+ *
+ * <p>Lookups are lock free in the absence of concurrent writes: they run as optimistic reads
+ * and only retry under the read lock when a write intervened. Writes are serialized by the
+ * write lock. IDs of removed entries are reused. Accesses are recorded under the read lock,
+ * shared with the other readers, so that they never land on an entry reused by another name.</p>
+ */
+public final class RegistryTable {
+
+    private static final int MIN_CAPACITY = 16;
+    private static final int EMPTY = 0;
+    private static final int DELETED = -1;
+
+    /**
+     * Approximate heap cost of a name, excluding its characters: String object and its
+     * backing array header.
+     */
+    private static final long NAME_OVERHEAD_BYTES = 40;
+
+    /**
+     * Number of names read under the lock at once by the ordered iteration.
+     */
+    private static final int SCAN_BATCH = 256;
+
+    private final StampedLock lock = new StampedLock();
+
+    /**
+     * Hash index, holding {@code id + 1} of the entries, {@link #EMPTY} or {@link #DELETED}.
+     * Its length is a power of two, and at most three quarters of the slots are in use.
+     */
+    private int[] index;
+    private int indexUsed;
+
+    private String[] names;
+    private long[] sizes;
+    private int[] modified;
+    private int[] checksums;
+    private int[] accessed;
+
+    private final SortedNameIndex sorted = new SortedNameIndex();
+
+    /**
+     * IDs below this bound have been allocated once.
+     */
+    private int highestId;
+    private int[] freeIds = new int[MIN_CAPACITY];
+    private int freeCount;
+
+    private volatile int size;
+    private long nameChars;
+
+    /**
+     * Constructs an empty table.
+     */
+    public RegistryTable() {
+        this.index = new int[MIN_CAPACITY * 2];
+        this.names = new String[MIN_CAPACITY];
+        this.sizes = new long[MIN_CAPACITY];
+        this.modified = new int[MIN_CAPACITY];
+        this.checksums = new int[MIN_CAPACITY];
+        this.accessed = new int[MIN_CAPACITY];
+    }
+
+    /**
+     * Returns the number of entries.
+     *
+     * @return the number of entries
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks if the table holds an entry for the given name.
+     *
+     * @param name the file name
+     * @return {@code true} if the name is present
+     */
+    public boolean contains(String name) {
+        long stamp = lock.tryOptimisticRead();
+        boolean found = stamp != 0 && find(name) >= 0;
+        if (lock.validate(stamp)) {
+            return found;
+        }
+        stamp = lock.readLock();
+        try {
+            return find(name) >= 0;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Returns the metadata of the given name.
+     *
+     * @param name the file name
+     * @return the metadata, or {@code null} if the name is absent
+     */
+    public FileMetadata get(String name) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            FileMetadata metadata = read(name);
+            if (lock.validate(stamp)) {
+                return metadata;
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return read(name);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Returns the last access time of the given name: the last time it was read, as
+     * recorded by {@link #touch(String, long)}, or else written.
+     *
+     * @param name the file name
+     * @return the last access time in seconds, or {@code -1} if the name is absent
+     */
+    public long getLastAccess(String name) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            long seconds = readAccess(name);
+            if (lock.validate(stamp)) {
+                return seconds;
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return readAccess(name);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Records an access to the given name, if present. The access time is written in place
+     * under the read lock, without excluding the other readers: the writers being excluded,
+     * the entry found cannot be removed and its identifier reused by another name meanwhile.
+     * Concurrent accesses to the same name keep either time.
+     *
+     * @param name    the file name
+     * @param seconds the access time, in seconds
+     */
+    public void touch(String name, long seconds) {
+        long stamp = lock.readLock();
+        try {
+            int id = find(name);
+            if (id >= 0) {
+                accessed[id] = (int) seconds;
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Adds an entry, if the name is absent.
+     *
+     * @param name     the file name
+     * @param metadata the metadata of the file
+     * @return {@code true} if the entry was added, {@code false} if the name was present
+     */
+    public boolean add(String name, FileMetadata metadata) {
+        long stamp = lock.writeLock();
+        try {
+            if (find(name) >= 0) {
+                return false;
+            }
+            insert(name, metadata);
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Adds an entry, or replaces the metadata of the entry when the name is present.
+     *
+     * @param name     the file name
+     * @param metadata the metadata of the file
+     * @return {@code true} if the entry was added, {@code false} if it was updated
+     */
+    public boolean put(String name, FileMetadata metadata) {
+        long stamp = lock.writeLock();
+        try {
+            int id = find(name);
+            if (id >= 0) {
+                write(id, metadata);
+                return false;
+            }
+            insert(name, metadata);
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Removes the entry of the given name.
+     *
+     * @param name the file name
+     * @return {@code true} if the entry was removed, {@code false} if the name was absent
+     */
+    public boolean remove(String name) {
+        long stamp = lock.writeLock();
+        try {
+            int slot = slotOf(name);
+            if (slot < 0) {
+                return false;
+            }
+            int id = index[slot] - 1;
+            index[slot] = DELETED;
+            names[id] = null;
+            sorted.remove(name);
+            write(id, FileMetadata.UNKNOWN);
+            if (freeCount == freeIds.length) {
+                freeIds = Arrays.copyOf(freeIds, freeCount * 2);
+            }
+            freeIds[freeCount++] = id;
+            nameChars -= name.length();
+            size--;
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Passes each name to the given action, without blocking writers.
+     *
+     * <p>The names present when the iteration starts and not removed meanwhile are all
+     * visited. Names added or removed during the iteration may or may not be visited.</p>
+     *
+     * @param action the action receiving the names
+     */
+    public void forEachName(Consumer<String> action) {
+        String[] current;
+        int bound;
+        // Taking the read lock once makes every completed write visible to the iteration
+        long stamp = lock.readLock();
+        try {
+            current = names;
+            bound = highestId;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        for (int id = 0; id < bound; id++) {
+            String name = current[id];
+            if (name != null) {
+                action.accept(name);
+            }
+        }
+    }
+
+    /**
+     * Returns the lowest name greater than or equal to the given one, in lexicographic order.
+     *
+     * @param from the name to start from, present or not
+     * @return the name, or {@code null} if there is none
+     */
+    public String ceiling(String from) {
+        long stamp = lock.readLock();
+        try {
+            return sorted.ceiling(from);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Passes the names starting from the given one to the given action, in lexicographic
+     * order, until the action returns {@code false}.
+     *
+     * <p>Names are read from the sorted index in batches, each under the read lock, so
+     * writers are only blocked for the copy of a batch. As the iteration resumes after the
+     * last name read, the names present when the iteration starts and not removed meanwhile
+     * are all visited once, in order. Names added or removed during the iteration may or may
+     * not be visited.</p>
+     *
+     * @param from   the lowest name visited, present or not
+     * @param action the action receiving the names, returning {@code false} to stop
+     */
+    public void forEachNameFrom(String from, Predicate<String> action) {
+        String[] batch = new String[SCAN_BATCH];
+        String next = from;
+        boolean inclusive = true;
+        while (true) {
+            int count;
+            long stamp = lock.readLock();
+            try {
+                count = sorted.copyFrom(next, inclusive, batch);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+            for (int i = 0; i < count; i++) {
+                if (!action.test(batch[i])) {
+                    return;
+                }
+            }
+            if (count < SCAN_BATCH) {
+                return;
+            }
+            next = batch[count - 1];
+            inclusive = false;
+        }
+    }
+
+    /**
+     * Returns an estimation of the heap used by the table, its indexes, metadata arrays and
+     * names included.
+     *
+     * @return the estimated footprint, in bytes
+     */
+    public long getEstimatedMemory() {
+        long stamp = lock.readLock();
+        try {
+            long arrays = Integer.BYTES * (long) index.length
+                    + (long) names.length * (Integer.BYTES + Long.BYTES + Integer.BYTES + Integer.BYTES + Integer.BYTES);
+            return arrays + sorted.getEstimatedMemory() + NAME_OVERHEAD_BYTES * size + nameChars;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private FileMetadata read(String name) {
+        int id = find(name);
+        if (id < 0) {
+            return null;
+        }
+        long[] currentSizes = sizes;
+        int[] currentModified = modified;
+        int[] currentChecksums = checksums;
+        // Arrays replaced by a concurrent growth may be shorter, the read is then invalidated
+        if (id >= currentSizes.length || id >= currentModified.length || id >= currentChecksums.length) {
+            return null;
+        }
+        return new FileMetadata(currentSizes[id], Integer.toUnsignedLong(currentModified[id]),
+                currentChecksums[id]);
+    }
+
+    private long readAccess(String name) {
+        int id = find(name);
+        int[] current = accessed;
+        // Arrays replaced by a concurrent growth may be shorter, the read is then invalidated
+        return id < 0 || id >= current.length ? -1 : Integer.toUnsignedLong(current[id]);
+    }
+
+    private int find(String name) {
+        return probe(name, false);
+    }
+
+    private int slotOf(String name) {
+        return probe(name, true);
+    }
+
+    /**
+     * Probes the index for a name. Safe to run concurrently with writes: the probe is bounded
+     * and tolerates inconsistent reads, whose result is then discarded by the caller.
+     *
+     * @return the ID, or the index slot, of the name, or {@code -1} if absent
+     */
+    private int probe(String name, boolean slotWanted) {
+        int[] currentIndex = index;
+        String[] currentNames = names;
+        int mask = currentIndex.length - 1;
+        int slot = spread(name.hashCode()) & mask;
+        for (int probes = 0; probes < currentIndex.length; probes++) {
+            int value = currentIndex[slot];
+            if (value == EMPTY) {
+                return -1;
+            }
+            if (value > 0 && value <= currentNames.length && name.equals(currentNames[value - 1])) {
+                return slotWanted ? slot : value - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void insert(String name, FileMetadata metadata) {
+        if ((indexUsed + 1) * 4L > index.length * 3L) {
+            rebuildIndex(size + 1);
+        }
+        int id;
+        if (freeCount > 0) {
+            id = freeIds[--freeCount];
+        } else {
+            if (highestId == names.length) {
+                growEntries();
+            }
+            id = highestId++;
+        }
+        names[id] = name;
+        write(id, metadata);
+        int mask = index.length - 1;
+        int slot = spread(name.hashCode()) & mask;
+        while (index[slot] > 0) {
+            slot = (slot + 1) & mask;
+        }
+        if (index[slot] == EMPTY) {
+            indexUsed++;
+        }
+        index[slot] = id + 1;
+        sorted.add(name);
+        nameChars += name.length();
+        size++;
+    }
+
+    private void write(int id, FileMetadata metadata) {
+        sizes[id] = metadata.size();
+        modified[id] = (int) metadata.lastModified();
+        checksums[id] = metadata.checksum();
+        accessed[id] = (int) metadata.lastModified();
+    }
+
+    private void growEntries() {
+        int capacity = names.length + (names.length >> 1);
+        sizes = Arrays.copyOf(sizes, capacity);
+        modified = Arrays.copyOf(modified, capacity);
+        checksums = Arrays.copyOf(checksums, capacity);
+        accessed = Arrays.copyOf(accessed, capacity);
+        names = Arrays.copyOf(names, capacity);
+    }
+
+    /**
+     * Rebuilds the index for the given number of entries, dropping the deleted slots. The
+     * rebuilt index is at most half full.
+     */
+    private void rebuildIndex(int entries) {
+        int capacity = Integer.highestOneBit(Math.max(MIN_CAPACITY, entries) * 2 - 1) << 1;
+        int[] rebuilt = new int[capacity];
+        int mask = capacity - 1;
+        for (int id = 0; id < highestId; id++) {
+            String name = names[id];
+            if (name != null) {
+                int slot = spread(name.hashCode()) & mask;
+                while (rebuilt[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                rebuilt[slot] = id + 1;
+            }
+        }
+        index = rebuilt;
+        indexUsed = size;
+    }
+
+    /**
+     * Mixes the bits of a hash code, as linear probing is sensitive to clustered hashes.
+     */
+    private static int spread(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        hash ^= hash >>> 13;
+        hash *= 0xC2B2AE35;
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,326 @@
+package com.example.webdisk.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.webdisk.search.NamePattern;
+
+/**
+ * Bounded cache of compiled search patterns and their result sets.
+ *
+ * <p>Entries are kept in least-recently-used order and the eldest is evicted once
+ * {@code maxEntries} patterns are cached. Instead of being cleared on writes, cached
+ * result sets are maintained incrementally: registered as a {@link RegistryListener}, the
+ * cache tests each added or removed name against the cached patterns only, so a repeated
+ * search costs the size of its result rather than a scan of the registry.</p>
+ *
+ * <p>A result set is populated by one scan of the registry. Changes notified while that
+ * scan runs are recorded and replayed when it completes, which keeps the result exactly
+ * consistent with the registry whether or not the scan observed them. Results larger than
+ * {@code maxResults} are not retained: the entry then keeps only its compiled pattern and
+ * searches for it fall back to a scan.</p>
+ *
+ * <p>Bounds are configured by {@code webdisk.search.cache.max-entries} and
+ * {@code webdisk.search.cache.max-results}.</p>
+ */
+@Component
+public class SearchCache implements RegistryListener {
+
+    /**
+     * Default number of patterns kept by the cache.
+     */
+    public static final int DEFAULT_MAX_ENTRIES = 64;
+
+    /**
+     * Default maximum size of a cached result set.
+     */
+    public static final int DEFAULT_MAX_RESULTS = 100_000;
+
+    private final int maxEntries;
+    private final int maxResults;
+
+    /**
+     * Entries in access order, guarded by its own monitor.
+     */
+    private final Map<String, Entry> entries;
+
+    /**
+     * Copy of the cached entries, replaced on insertion and eviction, walked without
+     * locking by the change notifications.
+     */
+    private volatile Entry[] view = new Entry[0];
+
+    /**
+     * Constructs a cache with the default bounds.
+     */
+    public SearchCache() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_RESULTS);
+    }
+
+    /**
+     * Constructs a cache with the given bounds.
+     *
+     * @param maxEntries the maximum number of cached patterns
+     * @param maxResults the maximum size of a cached result set
+     */
+    @Autowired
+    public SearchCache(@Value("${webdisk.search.cache.max-entries:" + DEFAULT_MAX_ENTRIES + "}") int maxEntries,
+            @Value("${webdisk.search.cache.max-results:" + DEFAULT_MAX_RESULTS + "}") int maxResults) {
+        if (maxEntries < 1 || maxResults < 0) {
+            throw new IllegalArgumentException("Invalid search cache bounds: " + maxEntries + ", " + maxResults);
+        }
+        this.maxEntries = maxEntries;
+        this.maxResults = maxResults;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Returns the entry for the given pattern, compiling and caching it when absent.
+     *
+     * @param pattern the regular expression searched for
+     * @return the cache entry of the pattern
+     * @throws java.util.regex.PatternSyntaxException if the pattern is not a valid regular expression
+     */
+    public Entry entryFor(String pattern) {
+        synchronized (entries) {
+            Entry entry = entries.get(pattern);
+            if (entry != null) {
+                return entry;
+            }
+        }
+        // Compiled outside the lock; an invalid pattern is never cached
+        Entry created = new Entry(pattern, NamePattern.compile(pattern));
+        synchronized (entries) {
+            Entry entry = entries.putIfAbsent(pattern, created);
+            if (entry != null) {
+                return entry;
+            }
+            while (entries.size() > maxEntries) {
+                var eldest = entries.values().iterator();
+                eldest.next().evict();
+                eldest.remove();
+            }
+            view = entries.values().toArray(Entry[]::new);
+            return created;
+        }
+    }
+
+    /**
+     * Returns the number of cached patterns.
+     *
+     * @return the number of entries
+     */
+    public int getSize() {
+        return view.length;
+    }
+
+    /**
+     * Drops every cached pattern.
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.values().forEach(Entry::evict);
+            entries.clear();
+            view = new Entry[0];
+        }
+    }
+
+    @Override
+    public void fileAdded(String fileName) {
+        for (Entry entry : view) {
+            entry.apply(fileName, true);
+        }
+    }
+
+    @Override
+    public void fileRemoved(String fileName) {
+        for (Entry entry : view) {
+            entry.apply(fileName, false);
+        }
+    }
+
+    /**
+     * States of a cache entry.
+     */
+    public enum State {
+        /** Compiled, result never populated. */
+        EMPTY,
+        /** Result being populated by a scan. */
+        LOADING,
+        /** Result cached and maintained. */
+        READY,
+        /** Result too large to be cached, searches scan. */
+        OVERFLOW,
+        /** Removed from the cache and no longer maintained, searches scan. */
+        EVICTED
+    }
+
+    /**
+     * A cached pattern with its result set.
+     */
+    public final class Entry {
+
+        private final String pattern;
+        private final NamePattern compiled;
+        private State state = State.EMPTY;
+        private Set<String> results;
+        private List<Change> pending;
+        private boolean evicted;
+
+        private Entry(String pattern, NamePattern compiled) {
+            this.pattern = pattern;
+            this.compiled = compiled;
+        }
+
+        /**
+         * Returns the regular expression of this entry.
+         *
+         * @return the pattern
+         */
+        public String getPattern() {
+            return pattern;
+        }
+
+        /**
+         * Returns the compiled pattern of this entry.
+         *
+         * @return the compiled pattern
+         */
+        public NamePattern getCompiled() {
+            return compiled;
+        }
+
+        /**
+         * Tests a file name against the pattern of this entry.
+         *
+         * @param fileName the name to test
+         * @return {@code true} if the pattern is found in the name
+         */
+        public boolean matches(String fileName) {
+            return compiled.matches(fileName);
+        }
+
+        /**
+         * Returns the state of the entry, waiting for a population in progress to complete.
+         *
+         * @return any state but {@link State#LOADING}
+         * @throws InterruptedException if interrupted while waiting
+         */
+        public synchronized State await() throws InterruptedException {
+            while (state == State.LOADING) {
+                wait();
+            }
+            return state;
+        }
+
+        /**
+         * Returns a copy of the cached result set.
+         *
+         * @return the matching names, or {@code null} if the result is not cached
+         */
+        public synchronized String[] results() {
+            return state == State.READY ? results.toArray(String[]::new) : null;
+        }
+
+        /**
+         * Claims the population of an empty entry. The caller must then scan the registry
+         * and call {@link #complete(Set)}, or {@link #abort()} on failure.
+         *
+         * @return {@code true} if the caller is now responsible for populating the entry
+         */
+        public synchronized boolean startLoading() {
+            if (state != State.EMPTY) {
+                return false;
+            }
+            state = State.LOADING;
+            pending = new ArrayList<>();
+            return true;
+        }
+
+        /**
+         * Completes the population with the names matched by the scan, replaying the
+         * changes notified since {@link #startLoading()}.
+         *
+         * @param scanned the names matched by the scan, taken over by the entry
+         */
+        public synchronized void complete(Set<String> scanned) {
+            for (Change change : pending) {
+                if (change.added()) {
+                    scanned.add(change.fileName());
+                } else {
+                    scanned.remove(change.fileName());
+                }
+            }
+            pending = null;
+            if (evicted) {
+                state = State.EVICTED;
+            } else if (scanned.size() > maxResults) {
+                state = State.OVERFLOW;
+            } else {
+                state = State.READY;
+                results = scanned;
+            }
+            notifyAll();
+        }
+
+        /**
+         * Abandons a population claimed by {@link #startLoading()}.
+         */
+        public synchronized void abort() {
+            pending = null;
+            state = evicted ? State.EVICTED : State.EMPTY;
+            notifyAll();
+        }
+
+        /**
+         * Stops maintaining the entry once removed from the cache, so that holders of a
+         * reference never read a stale result. A population in progress completes first.
+         */
+        private synchronized void evict() {
+            evicted = true;
+            if (state != State.LOADING) {
+                state = State.EVICTED;
+                results = null;
+            }
+        }
+
+        private void apply(String fileName, boolean added) {
+            // The match is tested outside the monitor; names not matching leave the result unchanged
+            if (!matches(fileName)) {
+                return;
+            }
+            synchronized (this) {
+                switch (state) {
+                    case LOADING -> pending.add(new Change(fileName, added));
+                    case READY -> {
+                        if (added) {
+                            results.add(fileName);
+                            if (results.size() > maxResults) {
+                                state = State.OVERFLOW;
+                                results = null;
+                            }
+                        } else {
+                            results.remove(fileName);
+                        }
+                    }
+                    default -> {
+                        // Nothing cached: a later scan observes the registry after this change
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * A registry change recorded while an entry is being populated.
+     */
+    private record Change(String fileName, boolean added) {
+    }
+}
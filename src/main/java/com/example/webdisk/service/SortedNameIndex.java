@@ -0,0 +1,202 @@
+package com.example.webdisk.service;
+
+import java.util.Arrays;
+
+/**
+ * Names of the registry in lexicographic order, for range scans.
+ *
+ * <p>Names are kept in sorted blocks of up to {@link #BLOCK_SIZE} references, themselves
+ * ordered by their first name, like the leaf level of a B+ tree. A lookup is a binary search
+ * over the first names of the blocks, then within a block; an insertion or a removal shifts
+ * the references of one block only. Full blocks are split in halves, and sparse neighbours
+ * merged. The blocks hold references to the names of the {@link RegistryTable}, not copies:
+ * front coding would save nothing, the characters being already on the heap, and the index
+ * costs about 6 bytes per name.</p>
+ *
+ * <p>This class is not thread-safe: the {@link RegistryTable} updates and reads it under its
+ * own lock.</p>
+ */
+final class SortedNameIndex {
+
+    /**
+     * Maximum number of names of a block.
+     */
+    static final int BLOCK_SIZE = 512;
+
+    private static final int MIN_BLOCKS = 4;
+
+    private String[][] blocks = new String[MIN_BLOCKS][];
+    private int[] counts = new int[MIN_BLOCKS];
+    private int blockCount;
+
+    /**
+     * Adds a name, if absent.
+     *
+     * @param name the name to add
+     */
+    void add(String name) {
+        if (blockCount == 0) {
+            insertBlock(0, new String[BLOCK_SIZE]);
+        }
+        int block = blockOf(name);
+        int pos = Arrays.binarySearch(blocks[block], 0, counts[block], name);
+        if (pos >= 0) {
+            return;
+        }
+        pos = -(pos + 1);
+        if (counts[block] == BLOCK_SIZE) {
+            int half = BLOCK_SIZE / 2;
+            String[] upper = new String[BLOCK_SIZE];
+            System.arraycopy(blocks[block], half, upper, 0, BLOCK_SIZE - half);
+            Arrays.fill(blocks[block], half, BLOCK_SIZE, null);
+            counts[block] = half;
+            insertBlock(block + 1, upper);
+            counts[block + 1] = BLOCK_SIZE - half;
+            if (pos > half) {
+                block++;
+                pos -= half;
+            }
+        }
+        String[] names = blocks[block];
+        System.arraycopy(names, pos, names, pos + 1, counts[block] - pos);
+        names[pos] = name;
+        counts[block]++;
+    }
+
+    /**
+     * Removes a name, if present.
+     *
+     * @param name the name to remove
+     */
+    void remove(String name) {
+        if (blockCount == 0) {
+            return;
+        }
+        int block = blockOf(name);
+        int pos = Arrays.binarySearch(blocks[block], 0, counts[block], name);
+        if (pos < 0) {
+            return;
+        }
+        String[] names = blocks[block];
+        int count = --counts[block];
+        System.arraycopy(names, pos + 1, names, pos, count - pos);
+        names[count] = null;
+        if (count == 0) {
+            removeBlock(block);
+            return;
+        }
+        if (block + 1 < blockCount) {
+            mergeIfSparse(block);
+        }
+        if (block > 0) {
+            mergeIfSparse(block - 1);
+        }
+    }
+
+    /**
+     * Returns the lowest name greater than or equal to the given one.
+     *
+     * @param from the name to start from, present or not
+     * @return the name, or {@code null} if there is none
+     */
+    String ceiling(String from) {
+        if (blockCount == 0) {
+            return null;
+        }
+        int block = blockOf(from);
+        int pos = Arrays.binarySearch(blocks[block], 0, counts[block], from);
+        pos = pos >= 0 ? pos : -(pos + 1);
+        if (pos < counts[block]) {
+            return blocks[block][pos];
+        }
+        return block + 1 < blockCount ? blocks[block + 1][0] : null;
+    }
+
+    /**
+     * Copies the names following the given one, in order, up to the length of the output.
+     *
+     * @param from      the name to start from, present or not
+     * @param inclusive whether {@code from} itself is copied, if present
+     * @param out       the array receiving the names
+     * @return the number of names copied, less than the output length at the end
+     */
+    int copyFrom(String from, boolean inclusive, String[] out) {
+        if (blockCount == 0) {
+            return 0;
+        }
+        int block = blockOf(from);
+        int pos = Arrays.binarySearch(blocks[block], 0, counts[block], from);
+        pos = pos >= 0 ? (inclusive ? pos : pos + 1) : -(pos + 1);
+        int copied = 0;
+        while (copied < out.length && block < blockCount) {
+            int length = Math.min(counts[block] - pos, out.length - copied);
+            System.arraycopy(blocks[block], pos, out, copied, length);
+            copied += length;
+            block++;
+            pos = 0;
+        }
+        return copied;
+    }
+
+    /**
+     * Returns the heap used by the blocks, the names excluded.
+     *
+     * @return the footprint, in bytes
+     */
+    long getEstimatedMemory() {
+        // Block arrays with their headers, and the two arrays describing them
+        return (long) blockCount * (16 + (long) Integer.BYTES * BLOCK_SIZE)
+                + (long) blocks.length * (Integer.BYTES + Integer.BYTES);
+    }
+
+    /**
+     * Returns the block that holds, or would hold, the given name: the last one starting
+     * with a lower or equal name, or the first one.
+     */
+    private int blockOf(String name) {
+        int low = 1;
+        int high = blockCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (blocks[mid][0].compareTo(name) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low - 1;
+    }
+
+    /**
+     * Merges the block following the given one into it, if both fit in half a block.
+     */
+    private void mergeIfSparse(int block) {
+        int merged = counts[block] + counts[block + 1];
+        if (merged > BLOCK_SIZE / 2) {
+            return;
+        }
+        System.arraycopy(blocks[block + 1], 0, blocks[block], counts[block], counts[block + 1]);
+        counts[block] = merged;
+        removeBlock(block + 1);
+    }
+
+    private void insertBlock(int at, String[] names) {
+        if (blockCount == blocks.length) {
+            int capacity = blocks.length + (blocks.length >> 1);
+            blocks = Arrays.copyOf(blocks, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+        }
+        System.arraycopy(blocks, at, blocks, at + 1, blockCount - at);
+        System.arraycopy(counts, at, counts, at + 1, blockCount - at);
+        blocks[at] = names;
+        counts[at] = 0;
+        blockCount++;
+    }
+
+    private void removeBlock(int at) {
+        blockCount--;
+        System.arraycopy(blocks, at + 1, blocks, at, blockCount - at);
+        System.arraycopy(counts, at + 1, counts, at, blockCount - at);
+        blocks[blockCount] = null;
+    }
+}
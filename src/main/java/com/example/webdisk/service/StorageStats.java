@@ -0,0 +1,132 @@
+package com.example.webdisk.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.example.webdisk.response.FilesStatsResponse;
+
+/**
+ * Storage statistics maintained incrementally: number of files, total bytes, a histogram of
+ * the file sizes in powers of two and the distribution of the name lengths.
+ *
+ * <p>Every update is a constant number of atomic additions, so the statistics cost nothing to
+ * query and never require walking the storage. Size bucket {@code 0} counts empty files and
+ * bucket {@code i > 0} counts sizes from {@code 2^(i-1)} to {@code 2^i - 1} bytes.</p>
+ */
+public class StorageStats {
+
+    private static final int SIZE_BUCKETS = Long.SIZE + 1;
+    private static final int MAX_NAME_LENGTH = 64;
+
+    private final LongAdder files = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final AtomicLongArray sizes = new AtomicLongArray(SIZE_BUCKETS);
+    private final AtomicLongArray nameLengths = new AtomicLongArray(MAX_NAME_LENGTH + 1);
+
+    /**
+     * Accounts for a new file.
+     *
+     * @param fileName the name of the file
+     * @param size     the size of the file, in bytes
+     */
+    public void fileAdded(String fileName, long size) {
+        files.increment();
+        bytes.add(size);
+        sizes.incrementAndGet(bucketOf(size));
+        nameLengths.incrementAndGet(lengthOf(fileName));
+    }
+
+    /**
+     * Accounts for a removed file.
+     *
+     * @param fileName the name of the file
+     * @param size     the size the file had, in bytes
+     */
+    public void fileRemoved(String fileName, long size) {
+        files.decrement();
+        bytes.add(-size);
+        sizes.decrementAndGet(bucketOf(size));
+        nameLengths.decrementAndGet(lengthOf(fileName));
+    }
+
+    /**
+     * Accounts for the content of a file being replaced.
+     *
+     * @param oldSize the previous size of the file, in bytes
+     * @param newSize the new size of the file, in bytes
+     */
+    public void fileReplaced(long oldSize, long newSize) {
+        bytes.add(newSize - oldSize);
+        sizes.decrementAndGet(bucketOf(oldSize));
+        sizes.incrementAndGet(bucketOf(newSize));
+    }
+
+    /**
+     * Resets all statistics, before they are rebuilt by a scan of the storage.
+     */
+    public void clear() {
+        files.reset();
+        bytes.reset();
+        for (int i = 0; i < SIZE_BUCKETS; i++) {
+            sizes.set(i, 0);
+        }
+        for (int i = 0; i <= MAX_NAME_LENGTH; i++) {
+            nameLengths.set(i, 0);
+        }
+    }
+
+    /**
+     * Returns the number of files accounted for.
+     *
+     * @return the number of files
+     */
+    public long getFiles() {
+        return files.sum();
+    }
+
+    /**
+     * Returns the total size of the files accounted for.
+     *
+     * @return the total size, in bytes
+     */
+    public long getBytes() {
+        return bytes.sum();
+    }
+
+    /**
+     * Returns a copy of the statistics, with the empty buckets left out.
+     *
+     * @return the statistics as a response
+     */
+    public FilesStatsResponse toResponse() {
+        List<FilesStatsResponse.SizeBucket> sizeBuckets = new ArrayList<>();
+        for (int i = 0; i < SIZE_BUCKETS; i++) {
+            long count = sizes.get(i);
+            if (count != 0) {
+                long min = i == 0 ? 0 : 1L << (i - 1);
+                long max = i == 0 ? 0 : i == Long.SIZE ? Long.MAX_VALUE : (1L << i) - 1;
+                sizeBuckets.add(new FilesStatsResponse.SizeBucket(min, max, count));
+            }
+        }
+        Map<Integer, Long> lengths = new TreeMap<>();
+        for (int i = 0; i <= MAX_NAME_LENGTH; i++) {
+            long count = nameLengths.get(i);
+            if (count != 0) {
+                lengths.put(i, count);
+            }
+        }
+        return new FilesStatsResponse(getFiles(), getBytes(), sizeBuckets, lengths);
+    }
+
+    private static int bucketOf(long size) {
+        return Long.SIZE - Long.numberOfLeadingZeros(Math.max(size, 0));
+    }
+
+    private static int lengthOf(String fileName) {
+        return Math.min(fileName.length(), MAX_NAME_LENGTH);
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.webdisk.service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A storage root, typically the mount point of one disk, holding a share of the files.
+ *
+ * <p>Each volume has its own I/O thread pool, running its startup scan and the moves of
+ * its files, and its own bound on the concurrent request operations - writes, deletes, opens
+ * and each read call of an open stream - so that a slow disk queues its own operations only.
+ * An operation waiting longer than {@link #WAIT} for the volume fails instead of holding a
+ * request thread.</p>
+ */
+final class Volume {
+
+    /**
+     * Maximum time an operation waits for the volume.
+     */
+    static final Duration WAIT = Duration.ofSeconds(5);
+
+    private final Path root;
+    private final double weight;
+    private final long seed;
+    private final int threads;
+    private final Semaphore permits;
+    private volatile boolean draining;
+    private ExecutorService io;
+
+    /**
+     * Creates a volume.
+     *
+     * @param root        the storage directory
+     * @param weight      the relative share of the files placed on the volume
+     * @param threads     the number of threads of the I/O pool
+     * @param concurrency the maximum number of concurrent request operations
+     */
+    Volume(Path root, double weight, int threads, int concurrency) {
+        this.root = root;
+        this.weight = weight;
+        this.seed = root.toString().hashCode();
+        this.threads = threads;
+        this.permits = new Semaphore(concurrency);
+    }
+
+    Path root() {
+        return root;
+    }
+
+    double weight() {
+        return weight;
+    }
+
+    Path resolve(String fileName) {
+        return root.resolve(fileName);
+    }
+
+    boolean isDraining() {
+        return draining;
+    }
+
+    void setDraining(boolean draining) {
+        this.draining = draining;
+    }
+
+    /**
+     * Returns the score of a file on this volume, for rendezvous hashing: the file is placed
+     * on the volume with the highest score. The score only depends on the file name and on
+     * the volume root and weight, so files stay in place when volumes are reordered, and a
+     * volume added or removed only moves its own share of the files.
+     *
+     * @param fileName the file name
+     * @return the score, greater for heavier volumes
+     */
+    double score(String fileName) {
+        long hash = seed * 0x9e3779b97f4a7c15L + fileName.hashCode();
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        // Uniform in (0, 1), then weighted: -w / ln(u) picks each volume with a probability
+        // proportional to its weight
+        double unit = ((hash >>> 11) + 0.5) * 0x1.0p-53;
+        return -weight / Math.log(unit);
+    }
+
+    /**
+     * Waits for the volume to accept an operation.
+     *
+     * @throws IOException if the volume is busy for longer than {@link #WAIT}
+     */
+    void acquire() throws IOException {
+        try {
+            if (!permits.tryAcquire(WAIT.toMillis(), TimeUnit.MILLISECONDS)) {
+                throw new IOException("Volume " + root + " is busy");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for volume " + root, e);
+        }
+    }
+
+    void release() {
+        permits.release();
+    }
+
+    /**
+     * Returns the I/O thread pool of the volume, started on first use.
+     *
+     * @return the pool
+     */
+    synchronized ExecutorService io() {
+        if (io == null) {
+            AtomicInteger count = new AtomicInteger();
+            io = Executors.newFixedThreadPool(threads, task -> {
+                Thread thread = new Thread(task, "webdisk-volume-" + root.getFileName() + "-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return io;
+    }
+
+    synchronized void shutdown() {
+        if (io != null) {
+            io.shutdownNow();
+            io = null;
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package com.example.webdisk.service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.example.webdisk.response.FilesSearchResponse;
+import com.example.webdisk.search.NamePattern;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Service class for standing queries: clients watching the set of file names matching a
+ * pattern, over a Server-Sent Events stream.
+ *
+ * <p>A subscription first receives a {@code snapshot} event with the current matches, then an
+ * {@code added} or {@code removed} event, carrying the file name, for each registry change
+ * matching its pattern. Registered as a {@link RegistryListener}, the service tests each
+ * changed name against the subscribed patterns on the writing thread, and queues the events
+ * of each subscriber. Events are applied as set operations: a change notified while the
+ * snapshot is taken may also be reflected by it, replaying it leaves the set unchanged.</p>
+ *
+ * <p>Events are sent by a dispatcher thread per subscriber with pending events, so a slow
+ * consumer never delays writes or other subscribers. Each subscriber buffers at most
+ * {@code webdisk.watch.buffer-size} events: a consumer falling further behind is sent a
+ * {@code resync} event and its stream is closed, the client is expected to subscribe again
+ * for a new snapshot.</p>
+ */
+@Service
+public class WatchService implements RegistryListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(WatchService.class);
+
+    private final CacheService cache;
+    private final int bufferSize;
+    private final int maxSubscribers;
+    private final long timeoutMillis;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ExecutorService dispatcher;
+
+    private final Counter eventsSent;
+    private final Counter resyncs;
+
+    /**
+     * Constructs a new WatchService notified of the changes of the given registry.
+     *
+     * @param cache          the registry whose changes are watched
+     * @param registry       the meter registry receiving the watch metrics
+     * @param bufferSize     the maximum number of events queued for a subscriber
+     * @param maxSubscribers the maximum number of concurrent subscriptions
+     * @param timeout        the duration after which a stream is closed, zero for none
+     */
+    public WatchService(CacheService cache, MeterRegistry registry,
+            @Value("${webdisk.watch.buffer-size:1024}") int bufferSize,
+            @Value("${webdisk.watch.max-subscribers:256}") int maxSubscribers,
+            @Value("${webdisk.watch.timeout:30m}") Duration timeout) {
+        this.cache = cache;
+        this.bufferSize = bufferSize;
+        this.maxSubscribers = maxSubscribers;
+        this.timeoutMillis = timeout.toMillis();
+        AtomicInteger threads = new AtomicInteger();
+        this.dispatcher = Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, "webdisk-watch-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        Gauge.builder("webdisk.watch.subscribers", subscribers, Set::size)
+                .description("Open standing query streams")
+                .register(registry);
+        this.eventsSent = Counter.builder("webdisk.watch.events")
+                .description("Change events sent to standing query subscribers")
+                .register(registry);
+        this.resyncs = Counter.builder("webdisk.watch.resyncs")
+                .description("Subscribers dropped for falling behind their change stream")
+                .register(registry);
+        cache.addListener(this);
+    }
+
+    /**
+     * Opens a standing query for the given pattern.
+     *
+     * @param pattern the regular expression matched against the file names
+     * @return the event stream of the subscription
+     * @throws java.util.regex.PatternSyntaxException if the pattern is not a valid regular expression
+     * @throws ResponseStatusException with 503 status when the maximum number of subscribers is reached
+     */
+    public SseEmitter subscribe(String pattern) {
+        NamePattern compiled = NamePattern.compile(pattern);
+        if (subscribers.size() >= maxSubscribers) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many standing queries");
+        }
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(pattern, compiled, emitter);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        // Registered before the snapshot is taken, so that no change falls in between
+        subscribers.add(subscriber);
+        try {
+            subscriber.snapshot = cache.findFilesForPattern(pattern);
+        } catch (RuntimeException e) {
+            subscribers.remove(subscriber);
+            throw e;
+        }
+        subscriber.started = true;
+        subscriber.schedule();
+        return emitter;
+    }
+
+    /**
+     * Returns the number of open subscriptions.
+     *
+     * @return the number of subscribers
+     */
+    public int getSubscribers() {
+        return subscribers.size();
+    }
+
+    @Override
+    public void fileAdded(String fileName) {
+        publish(fileName, true);
+    }
+
+    @Override
+    public void fileRemoved(String fileName) {
+        publish(fileName, false);
+    }
+
+    private void publish(String fileName, boolean added) {
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.compiled.matches(fileName)) {
+                subscriber.offer(new Change(fileName, added));
+            }
+        }
+    }
+
+    /**
+     * Closes the open streams and stops the dispatcher.
+     */
+    @PreDestroy
+    public void shutdown() {
+        cache.removeListener(this);
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        subscribers.clear();
+        dispatcher.shutdownNow();
+    }
+
+    /**
+     * A registry change queued for a subscriber.
+     */
+    private record Change(String fileName, boolean added) {
+    }
+
+    /**
+     * An open standing query and its pending events.
+     */
+    private final class Subscriber {
+
+        private final String pattern;
+        private final NamePattern compiled;
+        private final SseEmitter emitter;
+        private final BlockingQueue<Change> queue;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile String[] snapshot;
+        private volatile boolean started;
+        private volatile boolean overflowed;
+        private volatile boolean closed;
+
+        private Subscriber(String pattern, NamePattern compiled, SseEmitter emitter) {
+            this.pattern = pattern;
+            this.compiled = compiled;
+            this.emitter = emitter;
+            this.queue = new ArrayBlockingQueue<>(bufferSize);
+        }
+
+        private void offer(Change change) {
+            if (!overflowed && !queue.offer(change)) {
+                overflowed = true;
+            }
+            schedule();
+        }
+
+        private void schedule() {
+            // Nothing is sent before the snapshot is taken
+            if (started && !closed && scheduled.compareAndSet(false, true)) {
+                try {
+                    dispatcher.execute(this::drain);
+                } catch (RuntimeException e) {
+                    // Dispatcher shut down
+                    scheduled.set(false);
+                }
+            }
+        }
+
+        private void drain() {
+            try {
+                String[] initial = snapshot;
+                if (initial != null) {
+                    snapshot = null;
+                    emitter.send(SseEmitter.event().name("snapshot")
+                            .data(new FilesSearchResponse(initial), MediaType.APPLICATION_JSON));
+                }
+                Change change;
+                while (!overflowed && (change = queue.poll()) != null) {
+                    emitter.send(SseEmitter.event().name(change.added() ? "added" : "removed")
+                            .data(change.fileName(), MediaType.TEXT_PLAIN));
+                    eventsSent.increment();
+                }
+                if (overflowed) {
+                    logger.warn("Standing query for {} fell behind, dropped. @Watch:resync", pattern);
+                    resyncs.increment();
+                    close();
+                    emitter.send(SseEmitter.event().name("resync").data(pattern, MediaType.TEXT_PLAIN));
+                    emitter.complete();
+                }
+            } catch (IOException | IllegalStateException e) {
+                // Client gone or stream already completed
+                close();
+                logger.debug("Standing query for {} closed. @Cause:{}", pattern, e.getMessage());
+            } finally {
+                scheduled.set(false);
+            }
+            if (!closed && (!queue.isEmpty() || overflowed)) {
+                schedule();
+            }
+        }
+
+        private void close() {
+            closed = true;
+            subscribers.remove(this);
+            queue.clear();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.webdisk.service;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Serializes the overwrites of a file name under its {@link NameLocks lock}, coalescing the
+ * overwrites waiting for the lock: only the latest body is written, and the overwrites it
+ * supersedes complete with its result, as if they had been written just before it.
+ *
+ * <p>Each overwrite registers its body as the pending one of the name, replacing the body of
+ * an earlier overwrite still waiting, then takes the lock and writes whatever body is pending
+ * then, if any. A request only returns once its body, or a later one, has been written, so a
+ * read following the response never sees a content older than the request.</p>
+ *
+ * @param <B> the type of the bodies
+ * @param <R> the type of the result of a write
+ */
+public class WriteCoalescer<B, R> {
+
+    /**
+     * Writes a body, under the lock of its name.
+     *
+     * @param <B> the type of the bodies
+     * @param <R> the type of the result of a write
+     */
+    @FunctionalInterface
+    public interface Writer<B, R> {
+
+        /**
+         * Writes a body.
+         *
+         * @param fileName the file name
+         * @param body     the body
+         * @return the result of the write
+         * @throws IOException if an I/O error occurs
+         */
+        R write(String fileName, B body) throws IOException;
+    }
+
+    private final NameLocks locks;
+    private final Writer<B, R> writer;
+    private final Map<String, Pending<B, R>> pending = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a new WriteCoalescer.
+     *
+     * @param locks  the locks of the names
+     * @param writer the writer of the bodies
+     */
+    public WriteCoalescer(NameLocks locks, Writer<B, R> writer) {
+        this.locks = locks;
+        this.writer = writer;
+    }
+
+    /**
+     * Writes a body, or a later body of the same name, if one supersedes it while it waits
+     * for the lock.
+     *
+     * @param fileName the file name
+     * @param body     the body
+     * @return the result of the write of the body, or of the body which superseded it
+     * @throws IOException if an I/O error occurs during the write
+     */
+    public R write(String fileName, B body) throws IOException {
+        Pending<B, R> mine = new Pending<>(body);
+        Pending<B, R> superseded = pending.put(fileName, mine);
+        if (superseded != null) {
+            // Never written itself, it completes along with this one
+            mine.result.whenComplete((result, failure) -> {
+                if (failure != null) {
+                    superseded.result.completeExceptionally(failure);
+                } else {
+                    superseded.result.complete(result);
+                }
+            });
+        }
+        Lock lock = locks.lockFor(fileName);
+        lock.lock();
+        try {
+            // This body, a later one, or none if a writer holding the lock before took it
+            Pending<B, R> latest = pending.remove(fileName);
+            if (latest != null) {
+                try {
+                    latest.result.complete(writer.write(fileName, latest.body));
+                } catch (IOException | RuntimeException e) {
+                    latest.result.completeExceptionally(e);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        try {
+            return mine.result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException cause) {
+                throw cause;
+            }
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    /**
+     * Returns the number of names with a body waiting to be written.
+     *
+     * @return the number of names
+     */
+    public int getPending() {
+        return pending.size();
+    }
+
+    private static final class Pending<B, R> {
+
+        final B body;
+        final CompletableFuture<R> result = new CompletableFuture<>();
+
+        Pending(B body) {
+            this.body = body;
+        }
+    }
+}
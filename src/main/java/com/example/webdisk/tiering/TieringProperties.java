@@ -0,0 +1,91 @@
+package com.example.webdisk.tiering;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Tiering settings, bound from the "webdisk.tiering" properties. When enabled, the tiering
+ * job moves to the {@code archive} directory the files neither written nor read for
+ * {@code cold-after}, unless their estimated read frequency exceeds {@code max-frequency}.
+ * It checks {@code chunk-size} names every {@code interval}, and starts a new pass every
+ * {@code pass-interval}. Archived files are read from the archive, and promoted back, as
+ * long as it is configured, even with the job disabled.
+ *
+ * <pre>
+ * webdisk.tiering.enabled=true
+ * webdisk.tiering.archive=/mnt/archive/webdisk
+ * webdisk.tiering.cold-after=30d
+ * webdisk.tiering.max-frequency=1
+ * webdisk.tiering.chunk-size=200
+ * webdisk.tiering.interval=1s
+ * webdisk.tiering.pass-interval=1h
+ * </pre>
+ */
+@ConfigurationProperties(prefix = "webdisk.tiering")
+public class TieringProperties {
+
+    private boolean enabled = false;
+    private String archive = "";
+    private Duration coldAfter = Duration.ofDays(30);
+    private int maxFrequency = 1;
+    private int chunkSize = 200;
+    private Duration interval = Duration.ofSeconds(1);
+    private Duration passInterval = Duration.ofHours(1);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getArchive() {
+        return archive;
+    }
+
+    public void setArchive(String archive) {
+        this.archive = archive;
+    }
+
+    public Duration getColdAfter() {
+        return coldAfter;
+    }
+
+    public void setColdAfter(Duration coldAfter) {
+        this.coldAfter = coldAfter;
+    }
+
+    public int getMaxFrequency() {
+        return maxFrequency;
+    }
+
+    public void setMaxFrequency(int maxFrequency) {
+        this.maxFrequency = maxFrequency;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    public Duration getInterval() {
+        return interval;
+    }
+
+    public void setInterval(Duration interval) {
+        this.interval = interval;
+    }
+
+    public Duration getPassInterval() {
+        return passInterval;
+    }
+
+    public void setPassInterval(Duration passInterval) {
+        this.passInterval = passInterval;
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.webdisk.tiering;
+
+import java.io.IOException;
+import java.time.Instant;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import com.example.webdisk.service.CacheService;
+import com.example.webdisk.service.FileMetadata;
+import com.example.webdisk.service.FilesService;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Service moving, in the background, the cold files from the volumes to the archive tier.
+ *
+ * <p>Each pass walks the registry in name order, a chunk of names at a time. A file is cold
+ * when it was neither written nor read for the configured delay, and it was not read
+ * frequently, as estimated by the access sketch of the registry: files read in bursts are
+ * kept on the volumes, even after a quiet period. The estimates are halved after each pass,
+ * so that a burst is forgotten after a few passes, however few reads the registry records.
+ * As the access times are held in memory only, the startup of the node counts as an access
+ * of every file, so that files read shortly before a restart are not taken for cold.</p>
+ *
+ * <p>Archived files stay registered with their metadata, and are promoted back to their
+ * volume by the {@link FilesService} when read. The bytes stored on each tier are published
+ * as the "webdisk.tiering.bytes" gauge, tagged by tier, and the files archived and promoted
+ * as the "webdisk.tiering.moves" counter, tagged by direction.</p>
+ */
+@Service
+public class TieringService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TieringService.class);
+
+    private static final String METER_BYTES = "webdisk.tiering.bytes";
+    private static final String METER_FILES = "webdisk.tiering.files";
+    private static final String METER_MOVES = "webdisk.tiering.moves";
+
+    private final TieringProperties properties;
+    private final CacheService cache;
+    private final FilesService storage;
+    private final long startedSeconds = Instant.now().getEpochSecond();
+    private final Counter archived;
+    private volatile Thread worker;
+
+    /**
+     * Constructs a new TieringService.
+     *
+     * @param properties the tiering settings
+     * @param cache      the registry of the files, recording their accesses
+     * @param storage    the storage of the files, holding the archive tier
+     * @param registry   the meter registry receiving the tiering metrics
+     */
+    public TieringService(TieringProperties properties, CacheService cache, FilesService storage,
+            MeterRegistry registry) {
+        this.properties = properties;
+        this.cache = cache;
+        this.storage = storage;
+        Gauge.builder(METER_BYTES, storage, s -> s.getStats().getBytes() - s.getArchivedBytes())
+                .description("Size of the stored files, by storage tier")
+                .baseUnit("bytes")
+                .tag("tier", "hot")
+                .register(registry);
+        Gauge.builder(METER_BYTES, storage, FilesService::getArchivedBytes)
+                .description("Size of the stored files, by storage tier")
+                .baseUnit("bytes")
+                .tag("tier", "cold")
+                .register(registry);
+        Gauge.builder(METER_FILES, storage, s -> s.getStats().getFiles() - s.getArchivedFiles())
+                .description("Number of stored files, by storage tier")
+                .tag("tier", "hot")
+                .register(registry);
+        Gauge.builder(METER_FILES, storage, FilesService::getArchivedFiles)
+                .description("Number of stored files, by storage tier")
+                .tag("tier", "cold")
+                .register(registry);
+        this.archived = Counter.builder(METER_MOVES)
+                .description("Files moved between the storage tiers")
+                .tag("direction", "archive")
+                .register(registry);
+        FunctionCounter.builder(METER_MOVES, storage, FilesService::getPromotions)
+                .description("Files moved between the storage tiers")
+                .tag("direction", "promote")
+                .register(registry);
+    }
+
+    /**
+     * Starts archiving the cold files in the background once the application is ready, the
+     * registry being loaded, if tiering is enabled and an archive is configured.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        if (!storage.isArchiveConfigured()) {
+            logger.warn("Tiering enabled without an archive directory, cold files are kept on the volumes");
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            logger.info("Archiving files not accessed for {}", properties.getColdAfter());
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    int count = archiveColdFiles();
+                    logger.info("Tiering pass completed, {} files archived", count);
+                    Thread.sleep(properties.getPassInterval().toMillis());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (IOException | RuntimeException e) {
+                    logger.warn("Unable to archive cold files. @Cause:{}", e.toString());
+                    try {
+                        Thread.sleep(properties.getPassInterval().toMillis());
+                    } catch (InterruptedException interrupted) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        }, "webdisk-tiering");
+        thread.setDaemon(true);
+        worker = thread;
+        thread.start();
+    }
+
+    /**
+     * Stops archiving.
+     */
+    @PreDestroy
+    public void stop() {
+        Thread thread = worker;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    /**
+     * Runs a pass over the registry, archiving the cold files, the chunks of names being
+     * spaced by the tiering interval.
+     *
+     * @return the number of files archived
+     * @throws IOException if an I/O error occurs when archiving a file, the files already
+     *                     archived staying so
+     * @throws InterruptedException if interrupted between two chunks
+     */
+    public int archiveColdFiles() throws IOException, InterruptedException {
+        int count = 0;
+        String cursor = "";
+        try {
+            while (true) {
+                String[] chunk = cache.listFiles(cursor, properties.getChunkSize());
+                long now = Instant.now().getEpochSecond();
+                for (String fileName : chunk) {
+                    if (isCold(fileName, now) && storage.archiveFile(fileName) >= 0) {
+                        archived.increment();
+                        count++;
+                    }
+                }
+                if (chunk.length < properties.getChunkSize()) {
+                    return count;
+                }
+                cursor = chunk[chunk.length - 1];
+                Thread.sleep(properties.getInterval().toMillis());
+            }
+        } finally {
+            cache.ageAccessFrequencies();
+        }
+    }
+
+    /**
+     * Checks if a file is cold: known, idle for the configured delay, and not read frequently.
+     *
+     * @param fileName the name of the file
+     * @param now      the current time, in seconds
+     * @return {@code true} if the file should be archived
+     */
+    public boolean isCold(String fileName, long now) {
+        FileMetadata metadata = cache.getMetadata(fileName);
+        long lastAccess = cache.getLastAccess(fileName);
+        if (metadata == null || metadata.lastModified() == 0 || lastAccess < 0) {
+            return false;
+        }
+        long idle = now - Math.max(lastAccess, startedSeconds);
+        return idle >= properties.getColdAfter().toSeconds()
+                && cache.getAccessFrequency(fileName) <= properties.getMaxFrequency();
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.webdisk.upload;
+
+/**
+ * Combination of CRC32C checksums: the checksum of a concatenation is computed from the
+ * checksums and lengths of its pieces, without reading them again.
+ *
+ * <p>Appending {@code len2} bytes to a content multiplies its register by x^(8 * len2)
+ * modulo the polynomial, a linear operator over GF(2) applied by repeated squaring of the
+ * operator of a single zero bit, as done by zlib for CRC32.</p>
+ */
+final class Crc32c {
+
+    /** The reversed Castagnoli polynomial. */
+    private static final int POLYNOMIAL = 0x82F63B78;
+
+    private Crc32c() {
+    }
+
+    /**
+     * Returns the checksum of the concatenation of two contents.
+     *
+     * @param crc1 the checksum of the first content
+     * @param crc2 the checksum of the second content
+     * @param len2 the length of the second content, in bytes
+     * @return the checksum of the first content followed by the second
+     */
+    static int combine(int crc1, int crc2, long len2) {
+        if (len2 <= 0) {
+            return crc1;
+        }
+        int[] even = new int[32];
+        int[] odd = new int[32];
+        // Operator of one zero bit
+        odd[0] = POLYNOMIAL;
+        int row = 1;
+        for (int n = 1; n < 32; n++) {
+            odd[n] = row;
+            row <<= 1;
+        }
+        // Operators of two, then four zero bits
+        square(even, odd);
+        square(odd, even);
+        // Each round squares the operator to the next power of two zero bytes
+        do {
+            square(even, odd);
+            if ((len2 & 1) != 0) {
+                crc1 = times(even, crc1);
+            }
+            len2 >>>= 1;
+            if (len2 == 0) {
+                break;
+            }
+            square(odd, even);
+            if ((len2 & 1) != 0) {
+                crc1 = times(odd, crc1);
+            }
+            len2 >>>= 1;
+        } while (len2 != 0);
+        return crc1 ^ crc2;
+    }
+
+    private static int times(int[] matrix, int vector) {
+        int sum = 0;
+        for (int i = 0; vector != 0; i++, vector >>>= 1) {
+            if ((vector & 1) != 0) {
+                sum ^= matrix[i];
+            }
+        }
+        return sum;
+    }
+
+    private static void square(int[] square, int[] matrix) {
+        for (int n = 0; n < 32; n++) {
+            square[n] = times(matrix, matrix[n]);
+        }
+    }
+}
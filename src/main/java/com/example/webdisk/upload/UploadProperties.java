@@ -0,0 +1,71 @@
+package com.example.webdisk.upload;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Chunked upload settings, bound from the "webdisk.upload" properties. The parts of the
+ * sessions are kept in {@code directory} until the session is committed, aborted, or left
+ * without a part for {@code session-timeout}, checked every {@code cleanup-interval}. A
+ * relative directory is resolved against the storage directory, or its first volume, so
+ * each instance has its own sessions by default.
+ *
+ * <pre>
+ * webdisk.upload.directory=/var/tmp/webdisk-uploads
+ * webdisk.upload.max-part-size=1GB
+ * webdisk.upload.max-parts=10000
+ * webdisk.upload.session-timeout=24h
+ * webdisk.upload.cleanup-interval=10m
+ * </pre>
+ */
+@ConfigurationProperties(prefix = "webdisk.upload")
+public class UploadProperties {
+
+    private String directory = ".uploads";
+    private DataSize maxPartSize = DataSize.ofGigabytes(1);
+    private int maxParts = 10_000;
+    private Duration sessionTimeout = Duration.ofHours(24);
+    private Duration cleanupInterval = Duration.ofMinutes(10);
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    public DataSize getMaxPartSize() {
+        return maxPartSize;
+    }
+
+    public void setMaxPartSize(DataSize maxPartSize) {
+        this.maxPartSize = maxPartSize;
+    }
+
+    public int getMaxParts() {
+        return maxParts;
+    }
+
+    public void setMaxParts(int maxParts) {
+        this.maxParts = maxParts;
+    }
+
+    public Duration getSessionTimeout() {
+        return sessionTimeout;
+    }
+
+    public void setSessionTimeout(Duration sessionTimeout) {
+        this.sessionTimeout = sessionTimeout;
+    }
+
+    public Duration getCleanupInterval() {
+        return cleanupInterval;
+    }
+
+    public void setCleanupInterval(Duration cleanupInterval) {
+        this.cleanupInterval = cleanupInterval;
+    }
+}
@@ -0,0 +1,478 @@
+package com.example.webdisk.upload;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.example.webdisk.cluster.ClusterService;
+import com.example.webdisk.replication.ReplicationService;
+import com.example.webdisk.response.UploadResponse;
+import com.example.webdisk.service.CacheService;
+import com.example.webdisk.service.FileMetadata;
+import com.example.webdisk.service.FilesService;
+import com.example.webdisk.service.NameLocks;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Service of the chunked uploads: a file too large for a single request is sent as numbered
+ * parts, in parallel and in any order, and a part which failed is sent again, until the
+ * session is committed.
+ *
+ * <p>Each session has its own directory under the upload directory, holding the name of the
+ * file and one file per part, named after the part number and its CRC32C checksum. Sessions
+ * are thus reloaded as they were when the node restarts, and a client resumes a session by
+ * asking for the parts received.</p>
+ *
+ * <p>The commit checks that the parts run from 1 without a gap, and has the storage assemble
+ * them next to the place of the file, the parts being transferred by the file system rather
+ * than copied through the heap. The assembled file then replaces the stored one and its entry
+ * is registered at once, under the {@link NameLocks lock} of the name, and its checksum is
+ * combined from the checksums of the parts.</p>
+ *
+ * <p>Sessions left without a part for the session timeout are deleted by a cleaner thread.</p>
+ */
+@Service
+public class UploadService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UploadService.class);
+    private static final String SESSION_FILE = "session.properties";
+    private static final String RECEIVING_SUFFIX = ".receiving";
+    private static final Pattern PART_NAME = Pattern.compile("^(\\d+)\\.([0-9a-f]{8})$");
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * A committed session.
+     *
+     * @param fileName the name of the file
+     * @param metadata the metadata of the stored file
+     * @param token    the token of the write in the change log, or {@code null}
+     */
+    public record Committed(String fileName, FileMetadata metadata, String token) { }
+
+    private final UploadProperties properties;
+    private final CacheService cache;
+    private final FilesService storage;
+    private final ClusterService cluster;
+    private final ReplicationService replication;
+    private final NameLocks locks;
+    private final Path directory;
+    private final Map<String, UploadSession> sessions = new ConcurrentHashMap<>();
+    private final Counter expired;
+    private ScheduledExecutorService cleaner;
+
+    /**
+     * Constructs a new UploadService.
+     *
+     * @param properties the upload settings
+     * @param cache      the registry of the files
+     * @param storage    the storage of the files
+     * @param cluster    the cluster placing the files, if any
+     * @param replication the change log recording the commits
+     * @param locks      the locks of the file names
+     * @param registry   the meter registry receiving the upload metrics
+     */
+    public UploadService(UploadProperties properties, CacheService cache, FilesService storage,
+            ClusterService cluster, ReplicationService replication, NameLocks locks, MeterRegistry registry) {
+        this.properties = properties;
+        this.cache = cache;
+        this.storage = storage;
+        this.cluster = cluster;
+        this.replication = replication;
+        this.locks = locks;
+        this.directory = storage.resolveState(properties.getDirectory());
+        Gauge.builder("webdisk.uploads.sessions", sessions, Map::size)
+                .description("Open chunked upload sessions")
+                .register(registry);
+        this.expired = Counter.builder("webdisk.uploads.expired")
+                .description("Chunked upload sessions deleted after the session timeout")
+                .register(registry);
+    }
+
+    /**
+     * Reloads the sessions left by a previous run, and starts the cleaner.
+     *
+     * @throws IOException if the upload directory cannot be read
+     */
+    @PostConstruct
+    public void initialize() throws IOException {
+        Files.createDirectories(directory);
+        try (DirectoryStream<Path> directories = Files.newDirectoryStream(directory, Files::isDirectory)) {
+            for (Path sessionDirectory : directories) {
+                load(sessionDirectory);
+            }
+        }
+        if (!sessions.isEmpty()) {
+            logger.info("Reloaded {} upload sessions from {}", sessions.size(), directory);
+        }
+        cleaner = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "webdisk-uploads-cleaner");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = properties.getCleanupInterval().toMillis();
+        cleaner.scheduleWithFixedDelay(() -> {
+            try {
+                cleanup();
+            } catch (RuntimeException e) {
+                logger.warn("Unable to clean upload sessions. @Cause:{}", e.toString());
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the cleaner.
+     */
+    @PreDestroy
+    public void close() {
+        if (cleaner != null) {
+            cleaner.shutdownNow();
+        }
+    }
+
+    /**
+     * Starts an upload session for a file, which is created or replaced by the commit.
+     *
+     * @param fileName the name of the file
+     * @return the new session
+     * @throws IOException if the session directory cannot be created
+     * @throws ResponseStatusException with 400 status for an invalid name, or 409 status when
+     *         the file is owned by another node of the cluster
+     */
+    public UploadResponse start(String fileName) throws IOException {
+        if (!cache.isValid(fileName)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid filename");
+        }
+        if (cluster.isEnabled() && !cluster.isLocal(fileName)) {
+            // Parts stay on the node holding the session, so it must be the owner
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "File owned by node " + cluster.ownerOf(fileName));
+        }
+        String id = UUID.randomUUID().toString();
+        Path sessionDirectory = Files.createDirectory(directory.resolve(id));
+        Properties state = new Properties();
+        state.setProperty("fileName", fileName);
+        Path temporary = sessionDirectory.resolve(SESSION_FILE + RECEIVING_SUFFIX);
+        try (Writer writer = Files.newBufferedWriter(temporary)) {
+            state.store(writer, "Webdisk upload session");
+        }
+        Files.move(temporary, sessionDirectory.resolve(SESSION_FILE), StandardCopyOption.ATOMIC_MOVE);
+        UploadSession session = new UploadSession(id, fileName, sessionDirectory, System.currentTimeMillis());
+        sessions.put(id, session);
+        return status(session);
+    }
+
+    /**
+     * Receives a part of a session, replacing an earlier upload of the same part number.
+     *
+     * @param id      the session identifier
+     * @param number  the part number, from 1
+     * @param content the content of the part
+     * @return the state of the session, including the part
+     * @throws IOException if the part cannot be read or stored
+     * @throws ResponseStatusException with 404 status for an unknown session, 400 status for
+     *         an invalid part number, or 413 status for a part larger than the maximum
+     */
+    public UploadResponse putPart(String id, int number, InputStream content) throws IOException {
+        if (number < 1 || number > properties.getMaxParts()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Part number must be between 1 and " + properties.getMaxParts());
+        }
+        UploadSession session = session(id);
+        Lock lock = session.getLock().readLock();
+        lock.lock();
+        try {
+            checkOpen(session);
+            session.touch();
+            Path receiving = Files.createTempFile(session.getDirectory(), number + ".", RECEIVING_SUFFIX);
+            try {
+                CRC32C checksum = new CRC32C();
+                long size = receive(new CheckedInputStream(content, checksum), receiving);
+                UploadSession.Part part = new UploadSession.Part(number,
+                        session.getDirectory().resolve(String.format("%d.%08x", number, (int) checksum.getValue())),
+                        size, (int) checksum.getValue());
+                // Concurrent uploads of a part number: the last one recorded is kept
+                synchronized (session) {
+                    Files.move(receiving, part.path(), StandardCopyOption.REPLACE_EXISTING,
+                            StandardCopyOption.ATOMIC_MOVE);
+                    UploadSession.Part replaced = session.putPart(part);
+                    if (replaced != null && !replaced.path().equals(part.path())) {
+                        Files.deleteIfExists(replaced.path());
+                    }
+                }
+            } finally {
+                Files.deleteIfExists(receiving);
+            }
+            session.touch();
+            return status(session);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the state of a session: the parts received so far.
+     *
+     * @param id the session identifier
+     * @return the state of the session
+     * @throws ResponseStatusException with 404 status for an unknown session
+     */
+    public UploadResponse getStatus(String id) {
+        UploadSession session = session(id);
+        session.touch();
+        return status(session);
+    }
+
+    /**
+     * Commits a session: its parts are assembled, then replace the file, and the session is
+     * deleted. A session whose commit failed is left open, to be committed again.
+     *
+     * @param id the session identifier
+     * @return the name and metadata of the stored file
+     * @throws IOException if the file cannot be assembled or stored
+     * @throws ResponseStatusException with 404 status for an unknown session, or 400 status
+     *         when parts are missing
+     */
+    public Committed commit(String id) throws IOException {
+        UploadSession session = session(id);
+        Lock sessionLock = session.getLock().writeLock();
+        sessionLock.lock();
+        try {
+            checkOpen(session);
+            List<UploadSession.Part> parts = session.getParts();
+            if (parts.isEmpty()) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No part received");
+            }
+            List<Path> paths = new ArrayList<>(parts.size());
+            int checksum = 0;
+            for (UploadSession.Part part : parts) {
+                if (part.number() != paths.size() + 1) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Missing part " + (paths.size() + 1));
+                }
+                checksum = paths.isEmpty() ? part.checksum() : Crc32c.combine(checksum, part.checksum(), part.size());
+                paths.add(part.path());
+            }
+            String fileName = session.getFileName();
+            // Assembled without the lock of the name, which is only held for the switch
+            Path staged = storage.stageFile(fileName, paths);
+            FileMetadata metadata;
+            String token;
+            Lock lock = locks.lockFor(fileName);
+            lock.lock();
+            try {
+                metadata = storage.commitFile(fileName, staged, checksum);
+                cache.putFile(fileName, metadata);
+                // Logged in the order the writes of the name are applied
+                token = replication.record("PUT", fileName);
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(staged);
+                throw e;
+            } finally {
+                lock.unlock();
+            }
+            remove(session);
+            return new Committed(fileName, metadata, token);
+        } finally {
+            sessionLock.unlock();
+        }
+    }
+
+    /**
+     * Aborts a session, deleting its parts.
+     *
+     * @param id the session identifier
+     * @throws IOException if the parts cannot be deleted
+     * @throws ResponseStatusException with 404 status for an unknown session
+     */
+    public void abort(String id) throws IOException {
+        UploadSession session = session(id);
+        Lock lock = session.getLock().writeLock();
+        lock.lock();
+        try {
+            checkOpen(session);
+            remove(session);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Deletes the sessions left without a part or a status request for the session timeout.
+     * Sessions busy receiving a part or committing are left to the next cleanup.
+     *
+     * @return the number of sessions deleted
+     */
+    public int cleanup() {
+        long oldest = System.currentTimeMillis() - properties.getSessionTimeout().toMillis();
+        int deleted = 0;
+        for (UploadSession session : sessions.values()) {
+            if (session.getLastAccess() > oldest) {
+                continue;
+            }
+            Lock lock = session.getLock().writeLock();
+            if (!lock.tryLock()) {
+                continue;
+            }
+            try {
+                if (!session.isClosed() && session.getLastAccess() <= oldest) {
+                    remove(session);
+                    expired.increment();
+                    deleted++;
+                }
+            } catch (IOException e) {
+                logger.warn("Unable to delete upload session {}. @Cause:{}", session.getId(), e.getMessage());
+            } finally {
+                lock.unlock();
+            }
+        }
+        if (deleted > 0) {
+            logger.info("Deleted {} expired upload sessions", deleted);
+        }
+        return deleted;
+    }
+
+    /**
+     * Returns the number of open sessions.
+     *
+     * @return the number of sessions
+     */
+    public int getSessions() {
+        return sessions.size();
+    }
+
+    private UploadSession session(String id) {
+        UploadSession session = sessions.get(id);
+        if (session == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown upload session");
+        }
+        return session;
+    }
+
+    private static void checkOpen(UploadSession session) {
+        if (session.isClosed()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown upload session");
+        }
+    }
+
+    /**
+     * Copies a part to its file, up to the maximum part size.
+     */
+    private long receive(InputStream content, Path target) throws IOException {
+        long maxSize = properties.getMaxPartSize().toBytes();
+        long size = 0;
+        try (OutputStream output = Files.newOutputStream(target)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = content.read(buffer)) >= 0) {
+                size += read;
+                if (size > maxSize) {
+                    throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                            "Part larger than " + properties.getMaxPartSize());
+                }
+                output.write(buffer, 0, read);
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Closes and deletes a session, under its write lock.
+     */
+    private void remove(UploadSession session) throws IOException {
+        session.close();
+        sessions.remove(session.getId());
+        try (Stream<Path> files = Files.list(session.getDirectory())) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.deleteIfExists(file);
+            }
+        }
+        Files.deleteIfExists(session.getDirectory());
+    }
+
+    private static UploadResponse status(UploadSession session) {
+        List<UploadResponse.Part> parts = new ArrayList<>();
+        long bytes = 0;
+        for (UploadSession.Part part : session.getParts()) {
+            parts.add(new UploadResponse.Part(part.number(), part.size(), String.format("%08x", part.checksum())));
+            bytes += part.size();
+        }
+        return new UploadResponse(session.getId(), session.getFileName(), parts, bytes);
+    }
+
+    /**
+     * Reloads a session directory: its name, and the parts it holds. Parts being received
+     * when the node stopped are deleted, as well as sessions whose start did not complete.
+     */
+    private void load(Path sessionDirectory) throws IOException {
+        String id = sessionDirectory.getFileName().toString();
+        Path sessionFile = sessionDirectory.resolve(SESSION_FILE);
+        if (!Files.isRegularFile(sessionFile)) {
+            logger.warn("Deleting incomplete upload session {}", id);
+            remove(new UploadSession(id, null, sessionDirectory, 0));
+            return;
+        }
+        Properties state = new Properties();
+        try (Reader reader = Files.newBufferedReader(sessionFile)) {
+            state.load(reader);
+        }
+        UploadSession session = new UploadSession(id, state.getProperty("fileName"), sessionDirectory,
+                Files.getLastModifiedTime(sessionDirectory).toMillis());
+        Map<Integer, Path> latest = new HashMap<>();
+        try (Stream<Path> files = Files.list(sessionDirectory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                Matcher matcher = PART_NAME.matcher(name);
+                if (name.endsWith(RECEIVING_SUFFIX)) {
+                    Files.deleteIfExists(file);
+                } else if (matcher.matches()) {
+                    int number = Integer.parseInt(matcher.group(1));
+                    // Stopped while replacing a part: the newest one is kept
+                    Path other = latest.get(number);
+                    if (other == null || Files.getLastModifiedTime(file).compareTo(Files.getLastModifiedTime(other)) > 0) {
+                        latest.put(number, file);
+                        if (other != null) {
+                            Files.deleteIfExists(other);
+                        }
+                        session.putPart(new UploadSession.Part(number, file, Files.size(file),
+                                Integer.parseUnsignedInt(matcher.group(2), 16)));
+                    } else {
+                        Files.deleteIfExists(file);
+                    }
+                }
+            }
+        }
+        sessions.put(id, session);
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.webdisk.upload;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An upload session: the parts received so far for a file, each one stored in its own file
+ * of the session directory, named after its number and checksum.
+ *
+ * <p>Parts are received under the read lock of the session, so that parts run in parallel,
+ * while the commit, the abort and the cleanup take the write lock, waiting for the parts in
+ * progress and closing the session to the later ones.</p>
+ */
+final class UploadSession {
+
+    /**
+     * A part received.
+     *
+     * @param number   the part number, from 1
+     * @param path     the file of the part
+     * @param size     the size of the part, in bytes
+     * @param checksum the CRC32C checksum of the part
+     */
+    record Part(int number, Path path, long size, int checksum) { }
+
+    private final String id;
+    private final String fileName;
+    private final Path directory;
+    private final NavigableMap<Integer, Part> parts = new ConcurrentSkipListMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile long lastAccess;
+    private volatile boolean closed;
+
+    UploadSession(String id, String fileName, Path directory, long lastAccess) {
+        this.id = id;
+        this.fileName = fileName;
+        this.directory = directory;
+        this.lastAccess = lastAccess;
+    }
+
+    String getId() {
+        return id;
+    }
+
+    String getFileName() {
+        return fileName;
+    }
+
+    Path getDirectory() {
+        return directory;
+    }
+
+    ReentrantReadWriteLock getLock() {
+        return lock;
+    }
+
+    long getLastAccess() {
+        return lastAccess;
+    }
+
+    void touch() {
+        lastAccess = System.currentTimeMillis();
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Closes the session, under its write lock.
+     */
+    void close() {
+        closed = true;
+    }
+
+    /**
+     * Records a part, replacing an earlier upload of the same number.
+     *
+     * @param part the part
+     * @return the part replaced, or {@code null}
+     */
+    Part putPart(Part part) {
+        return parts.put(part.number(), part);
+    }
+
+    /**
+     * Returns the parts received, in order.
+     *
+     * @return the parts
+     */
+    List<Part> getParts() {
+        return List.copyOf(parts.values());
+    }
+}
@@ -0,0 +1,407 @@
+package com.example.webdisk.util;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates storage data sets for performance evaluation, replacing the former generate.sh script.
+ *
+ * <p>Names from {@link FilesNameSupplier} and sizes from a {@link SizeDistribution} are drawn by a
+ * single producer, from the data set seed, and handed in batches to a number of threads creating the
+ * files. The same seed therefore produces the same data set regardless of the number of threads.
+ * Names up to {@value #TRACKED_NAME_LENGTH} characters are de-duplicated by the producer, as such
+ * short names are bound to repeat in large data sets; longer ones are not tracked, for keeping the
+ * memory bounded, and in the unlikely event of one repeating, the file creating thread draws a
+ * replacement name of its own.</p>
+ *
+ * <p>Files are either all placed in the storage directory, the flat layout served by the
+ * application, or spread by name hash over numbered shard directories. Optionally, the list of
+ * generated names is written to a registry snapshot file, one name, size and modification time in
+ * seconds per line, tab separated, which the application can load at startup instead of scanning
+ * the storage.</p>
+ *
+ * <p>Like the former script, the data set also includes the files {@code one}, {@code andone} and
+ * {@code two}, used in the documentation examples.</p>
+ *
+ * <pre>
+ * java -cp target/webdisk-lib.jar com.example.webdisk.util.DatasetGenerator sample-large 10000000 \
+ *         --threads=16 --seed=42 --sizes=lognormal:8:2 --snapshot=sample-large.snapshot
+ * </pre>
+ */
+public class DatasetGenerator {
+
+    /**
+     * Placement of the generated files.
+     */
+    public enum Layout {
+        /** All files in the storage directory. */
+        FLAT,
+        /** Files spread by name hash over numbered shard directories. */
+        SHARDED
+    }
+
+    /**
+     * Largest size of a generated file, which bounds the shared buffer contents are taken from.
+     */
+    private static final long MAX_FILE_SIZE = 64L * 1024 * 1024;
+    private static final int BATCH_SIZE = 4096;
+    private static final int TRACKED_NAME_LENGTH = 7;
+    private static final String[][] FIXTURES = { { "one", "one\n" }, { "andone", "andone\n" }, { "two", "" } };
+
+    private final Path directory;
+    private final long count;
+    private final int threads;
+    private final long seed;
+    private final SizeDistribution sizes;
+    private final Layout layout;
+    private final int shards;
+    private final Path snapshot;
+
+    private final AtomicLong created = new AtomicLong();
+
+    /**
+     * Constructs a new DatasetGenerator.
+     *
+     * @param directory the storage directory, created if missing
+     * @param count     the number of random files to generate
+     * @param threads   the number of threads creating files
+     * @param seed      the seed names and sizes are derived from
+     * @param sizes     the distribution of file sizes
+     * @param layout    the placement of the files
+     * @param shards    the number of shard directories, for the sharded layout
+     * @param snapshot  the registry snapshot file to write, or {@code null} for none
+     */
+    public DatasetGenerator(Path directory, long count, int threads, long seed, SizeDistribution sizes,
+            Layout layout, int shards, Path snapshot) {
+        if (layout == Layout.SHARDED && shards < 1) {
+            throw new IllegalArgumentException("The sharded layout requires at least one shard");
+        }
+        this.directory = directory;
+        this.count = count;
+        this.threads = Math.max(1, threads);
+        this.seed = seed;
+        this.sizes = sizes;
+        this.layout = layout;
+        this.shards = shards;
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * Returns the directory holding the given file name, for the sharded layout.
+     *
+     * @param root     the storage directory
+     * @param fileName the file name
+     * @param shards   the number of shards
+     * @return the shard directory of the file
+     */
+    public static Path shardOf(Path root, String fileName, int shards) {
+        return root.resolve(Integer.toString(Math.floorMod(fileName.hashCode(), shards)));
+    }
+
+    /**
+     * Generates the data set.
+     *
+     * @return the number of files created, the fixtures included
+     * @throws IOException if a file cannot be written
+     */
+    public long generate() throws IOException {
+        Files.createDirectories(directory);
+        if (layout == Layout.SHARDED) {
+            for (int shard = 0; shard < shards; shard++) {
+                Files.createDirectories(directory.resolve(Integer.toString(shard)));
+            }
+        }
+        byte[] content = new byte[(int) Math.max(1, Math.min(sizes.max(), MAX_FILE_SIZE))];
+        new SplittableRandom(seed).nextBytes(content);
+        ByteBuffer contentBuffer = ByteBuffer.wrap(content).asReadOnlyBuffer();
+
+        List<BufferedWriter> snapshotParts = new ArrayList<>();
+        List<Path> snapshotPartFiles = new ArrayList<>();
+        if (snapshot != null) {
+            for (int i = 0; i < threads; i++) {
+                Path part = snapshot.resolveSibling(snapshot.getFileName() + ".part" + i);
+                snapshotPartFiles.add(part);
+                snapshotParts.add(Files.newBufferedWriter(part));
+            }
+        }
+
+        BlockingQueue<Batch> batches = new ArrayBlockingQueue<>(threads * 4);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                BufferedWriter snapshotPart = snapshot != null ? snapshotParts.get(i) : null;
+                long replacementSeed = seed ^ (i + 1);
+                workers.add(executor.submit(() -> {
+                    createFiles(batches, contentBuffer, snapshotPart, replacementSeed);
+                    return null;
+                }));
+            }
+            produce(batches, content.length, workers);
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while generating files", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            throw new IOException("Unable to generate files", e.getCause());
+        } finally {
+            executor.shutdownNow();
+            for (BufferedWriter part : snapshotParts) {
+                part.close();
+            }
+        }
+
+        for (String[] fixture : FIXTURES) {
+            Path file = placement(fixture[0]);
+            if (!Files.exists(file)) {
+                Files.writeString(file, fixture[1]);
+                created.incrementAndGet();
+                if (!snapshotParts.isEmpty()) {
+                    try (BufferedWriter part = Files.newBufferedWriter(snapshotPartFiles.get(0),
+                            StandardOpenOption.APPEND)) {
+                        part.write(fixture[0]);
+                        part.write('\t');
+                        part.write(Integer.toString(fixture[1].length()));
+                        part.write('\t');
+                        part.write(Long.toString(System.currentTimeMillis() / 1000));
+                        part.newLine();
+                    }
+                }
+            }
+        }
+        if (snapshot != null) {
+            mergeSnapshot(snapshotPartFiles);
+        }
+        return created.get();
+    }
+
+    /**
+     * Returns the number of files created so far, for progress reports.
+     *
+     * @return the number of created files
+     */
+    public long getCreated() {
+        return created.get();
+    }
+
+    /**
+     * Files to create, with their sizes and the offsets of their contents in the shared buffer.
+     */
+    private record Batch(String[] names, int[] sizes, int[] offsets, int length) {
+
+        static final Batch END = new Batch(new String[0], new int[0], new int[0], 0);
+    }
+
+    /**
+     * Draws all names and sizes, in sequence, and hands them to the file creating threads.
+     * Rethrows the failure of a worker, which would otherwise leave the queue full.
+     */
+    private void produce(BlockingQueue<Batch> batches, int contentLength, List<Future<?>> workers)
+            throws InterruptedException, ExecutionException {
+        FilesNameSupplier names = new FilesNameSupplier(seed);
+        SplittableRandom random = new SplittableRandom(seed);
+        Set<String> tracked = new HashSet<>();
+        for (String[] fixture : FIXTURES) {
+            tracked.add(fixture[0]);
+        }
+        long produced = 0;
+        while (produced < count) {
+            int length = (int) Math.min(BATCH_SIZE, count - produced);
+            Batch batch = new Batch(new String[length], new int[length], new int[length], length);
+            for (int i = 0; i < length; i++) {
+                String fileName;
+                do {
+                    fileName = names.get();
+                } while (fileName.length() <= TRACKED_NAME_LENGTH && !tracked.add(fileName));
+                batch.names[i] = fileName;
+                batch.sizes[i] = (int) Math.min(sizes.next(random), contentLength);
+                batch.offsets[i] = random.nextInt(contentLength - batch.sizes[i] + 1);
+            }
+            while (!batches.offer(batch, 100, TimeUnit.MILLISECONDS)) {
+                for (Future<?> worker : workers) {
+                    if (worker.isDone()) {
+                        worker.get();
+                    }
+                }
+            }
+            produced += length;
+        }
+        for (int i = 0; i < threads; i++) {
+            batches.put(Batch.END);
+        }
+    }
+
+    private void createFiles(BlockingQueue<Batch> batches, ByteBuffer content, BufferedWriter snapshotPart,
+            long replacementSeed) throws InterruptedException {
+        FilesNameSupplier replacements = null;
+        try {
+            for (Batch batch = batches.take(); batch != Batch.END; batch = batches.take()) {
+                for (int i = 0; i < batch.length; i++) {
+                    String fileName = batch.names[i];
+                    ByteBuffer fileContent = content.slice(batch.offsets[i], batch.sizes[i]);
+                    while (!create(placement(fileName), fileContent)) {
+                        if (replacements == null) {
+                            replacements = new FilesNameSupplier(replacementSeed);
+                        }
+                        fileName = replacements.get();
+                    }
+                    if (snapshotPart != null) {
+                        snapshotPart.write(fileName);
+                        snapshotPart.write('\t');
+                        snapshotPart.write(Integer.toString(batch.sizes[i]));
+                        snapshotPart.write('\t');
+                        snapshotPart.write(Long.toString(System.currentTimeMillis() / 1000));
+                        snapshotPart.newLine();
+                    }
+                    created.incrementAndGet();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Creates a file with the given content.
+     *
+     * @return {@code false} if the file already exists
+     */
+    private static boolean create(Path file, ByteBuffer content) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            while (content.hasRemaining()) {
+                channel.write(content);
+            }
+            return true;
+        } catch (FileAlreadyExistsException e) {
+            return false;
+        }
+    }
+
+    private Path placement(String fileName) {
+        return layout == Layout.SHARDED
+                ? shardOf(directory, fileName, shards).resolve(fileName)
+                : directory.resolve(fileName);
+    }
+
+    private void mergeSnapshot(List<Path> parts) throws IOException {
+        try (FileChannel out = FileChannel.open(snapshot, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            for (Path part : parts) {
+                try (FileChannel in = FileChannel.open(part, StandardOpenOption.READ)) {
+                    long position = 0;
+                    long size = in.size();
+                    while (position < size) {
+                        position += in.transferTo(position, size - position, out);
+                    }
+                }
+                Files.delete(part);
+            }
+        }
+    }
+
+    /**
+     * Generates a data set from the command line.
+     *
+     * <pre>
+     * DatasetGenerator &lt;directory&gt; &lt;number_of_files&gt; [--threads=N] [--seed=N] [--sizes=SPEC]
+     *         [--layout=flat|sharded] [--shards=N] [--snapshot=FILE]
+     * </pre>
+     *
+     * @param args the command line arguments
+     * @throws IOException if a file cannot be written
+     * @throws InterruptedException if interrupted while reporting progress
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        List<String> positional = new ArrayList<>();
+        int threads = Runtime.getRuntime().availableProcessors() * 2;
+        long seed = 42;
+        String sizes = "fixed:0";
+        Layout layout = Layout.FLAT;
+        int shards = 16;
+        Path snapshot = null;
+        for (String arg : args) {
+            String value = arg.substring(arg.indexOf('=') + 1);
+            if (arg.startsWith("--threads=")) {
+                threads = Integer.parseInt(value);
+            } else if (arg.startsWith("--seed=")) {
+                seed = Long.parseLong(value);
+            } else if (arg.startsWith("--sizes=")) {
+                sizes = value;
+            } else if (arg.startsWith("--layout=")) {
+                layout = Layout.valueOf(value.toUpperCase());
+            } else if (arg.startsWith("--shards=")) {
+                shards = Integer.parseInt(value);
+            } else if (arg.startsWith("--snapshot=")) {
+                snapshot = Path.of(value);
+            } else {
+                positional.add(arg);
+            }
+        }
+        if (positional.size() != 2) {
+            System.err.println("Usage: DatasetGenerator <directory> <number_of_files> [--threads=N] [--seed=N]"
+                    + " [--sizes=fixed:N|uniform:MIN:MAX|lognormal:MU:SIGMA] [--layout=flat|sharded] [--shards=N]"
+                    + " [--snapshot=FILE]");
+            System.exit(1);
+        }
+
+        long count = Long.parseLong(positional.get(1));
+        DatasetGenerator generator = new DatasetGenerator(Path.of(positional.get(0)), count, threads, seed,
+                SizeDistribution.parse(sizes, MAX_FILE_SIZE), layout, shards, snapshot);
+        long start = System.nanoTime();
+        Thread progress = new Thread(() -> reportProgress(generator, count, start), "generator-progress");
+        progress.setDaemon(true);
+        progress.start();
+        long files = generator.generate();
+        progress.interrupt();
+        progress.join();
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Generated %d files in %s in %.1fs, %.0f files/s.%n",
+                files, positional.get(0), seconds, files / seconds);
+    }
+
+    /**
+     * Reports progress every 10% of the data set, like the former script.
+     */
+    private static void reportProgress(DatasetGenerator generator, long count, long start) {
+        long nextReport = count / 10;
+        try {
+            while (nextReport > 0 && nextReport < count) {
+                TimeUnit.MILLISECONDS.sleep(200);
+                long done = generator.getCreated();
+                if (done >= nextReport) {
+                    System.out.printf("Progress: %d%% completed. Total elapsed time: %ds.%n",
+                            done * 100 / count, TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start));
+                    nextReport = (done / (count / 10) + 1) * (count / 10);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.example.webdisk.util;
 
 import java.util.function.Supplier;
 import java.util.random.RandomGenerator;
+import java.util.random.RandomGeneratorFactory;
 
 import org.springframework.stereotype.Component;
 
@@ -12,12 +13,16 @@ import org.springframework.stereotype.Component;
  * consisting of alphanumeric characters and certain special characters ('-', '_').
  * The length of the generated file names is between {@value #MIN_FILENAME_LENGTH} and
  * {@value #MAX_FILENAME_LENGTH} characters.</p>
+ * 
+ * <p>Instances are not thread safe. A supplier created with a seed always produces the same
+ * sequence of names, which is used for generating reproducible data sets.</p>
  */
 @Component
 public class FilesNameSupplier implements Supplier<String> {
     private final RandomGenerator generator;
-    private static final int LIMIT_ASCII_LOW = 45;
-    private static final int LIMIT_ASCII_HIGH = 122;
+    private static final String ALGORITHM = "L128X256MixRandom";
+    private static final char[] ALPHABET =
+            "-0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ_abcdefghijklmnopqrstuvwxyz".toCharArray();
     private static final int MIN_FILENAME_LENGTH = 1;
     private static final int MAX_FILENAME_LENGTH = 64;
 
@@ -26,13 +31,23 @@ public class FilesNameSupplier implements Supplier<String> {
      * Initializes the random generator with the "L128X256MixRandom" algorithm.
      */
     public FilesNameSupplier() {
-        this.generator = RandomGenerator.of("L128X256MixRandom");
+        this.generator = RandomGenerator.of(ALGORITHM);
+    }
+
+    /**
+     * Constructs a new FilesNameSupplier instance producing a reproducible sequence of names.
+     * Initializes the random generator with the "L128X256MixRandom" algorithm and the given seed.
+     *
+     * @param seed the seed of the random generator
+     */
+    public FilesNameSupplier(long seed) {
+        this.generator = RandomGeneratorFactory.<RandomGenerator>of(ALGORITHM).create(seed);
     }
 
     /**
      * Generates a random file name consisting of alphanumeric characters and specific symbols ('-' and '_').
      * The length of the file name is determined randomly within the range defined by MIN_FILENAME_LENGTH and MAX_FILENAME_LENGTH.
-     * The characters used in the file name are limited to:
+     * The characters used in the file name are uniformly drawn from:
      * - Digits: 0-9
      * - Uppercase letters: A-Z
      * - Lowercase letters: a-z
@@ -41,17 +56,12 @@ public class FilesNameSupplier implements Supplier<String> {
      * @return A randomly generated file name as a String.
      */
     public String get() {
-        // 0-9: 48-57
-        // a-z: 97-122
-        // A-Z: 65-90
-        // -_: 45,95
         int randomFileNameLength = generator.nextInt(MIN_FILENAME_LENGTH, MAX_FILENAME_LENGTH + 1);
-        return generator.ints(LIMIT_ASCII_LOW, LIMIT_ASCII_HIGH + 1)
-                .filter(n -> n == 45 || (n >= 48 && n <= 57) || (n >= 65 && n <= 90) || n == 95
-                        || (n >= 97 && n <= 122))
-                .limit(randomFileNameLength)
-                .collect(StringBuilder::new, StringBuilder::appendCodePoint, StringBuilder::append)
-                .toString();
+        char[] fileName = new char[randomFileNameLength];
+        for (int i = 0; i < randomFileNameLength; i++) {
+            fileName[i] = ALPHABET[generator.nextInt(ALPHABET.length)];
+        }
+        return new String(fileName);
     }
 
 }
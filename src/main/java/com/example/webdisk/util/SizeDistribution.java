@@ -0,0 +1,95 @@
+package com.example.webdisk.util;
+
+import java.util.SplittableRandom;
+
+/**
+ * A distribution of file sizes, in bytes.
+ * 
+ * <p>Distributions are described by short specifications:</p>
+ * <ul>
+ * <li>{@code fixed:N} - every file has N bytes.</li>
+ * <li>{@code uniform:MIN:MAX} - sizes uniformly distributed between MIN and MAX bytes, inclusive.</li>
+ * <li>{@code lognormal:MU:SIGMA} - log-normally distributed sizes, the usual shape of real file
+ * systems, e.g. {@code lognormal:8:2} has a median of about 3KB and a long tail.</li>
+ * </ul>
+ * <p>Every distribution is capped at a maximum size, e.g. for staying within the upload limits.</p>
+ */
+public interface SizeDistribution {
+
+    /**
+     * Returns the next size.
+     *
+     * @param random the source of randomness
+     * @return a size, in bytes, between 0 and {@link #max()}
+     */
+    long next(SplittableRandom random);
+
+    /**
+     * Returns the largest size the distribution can produce.
+     *
+     * @return the maximum size, in bytes
+     */
+    long max();
+
+    /**
+     * Parses a distribution specification.
+     *
+     * @param spec the specification, e.g. {@code uniform:0:4096}
+     * @param cap  the maximum size allowed, in bytes
+     * @return the described distribution
+     * @throws IllegalArgumentException if the specification is not valid
+     */
+    static SizeDistribution parse(String spec, long cap) {
+        String[] parts = spec.trim().split(":");
+        try {
+            switch (parts[0]) {
+                case "fixed":
+                    long size = Math.min(Long.parseLong(parts[1]), cap);
+                    return new SizeDistribution() {
+                        public long next(SplittableRandom random) {
+                            return size;
+                        }
+
+                        public long max() {
+                            return size;
+                        }
+                    };
+                case "uniform":
+                    long min = Long.parseLong(parts[1]);
+                    long max = Math.min(Long.parseLong(parts[2]), cap);
+                    return new SizeDistribution() {
+                        public long next(SplittableRandom random) {
+                            return random.nextLong(min, max + 1);
+                        }
+
+                        public long max() {
+                            return max;
+                        }
+                    };
+                case "lognormal":
+                    double mu = Double.parseDouble(parts[1]);
+                    double sigma = Double.parseDouble(parts[2]);
+                    return new SizeDistribution() {
+                        public long next(SplittableRandom random) {
+                            return Math.min((long) Math.exp(mu + sigma * gaussian(random)), cap);
+                        }
+
+                        public long max() {
+                            return cap;
+                        }
+                    };
+                default:
+                    throw new IllegalArgumentException("Unknown size distribution: " + spec);
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid size distribution: " + spec, e);
+        }
+    }
+
+    /**
+     * Returns a standard normal variate, with the Box-Muller transform.
+     */
+    private static double gaussian(SplittableRandom random) {
+        return Math.sqrt(-2 * Math.log(1 - random.nextDouble())) * Math.cos(2 * Math.PI * random.nextDouble());
+    }
+}
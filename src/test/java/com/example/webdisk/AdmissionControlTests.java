@@ -0,0 +1,168 @@
+package com.example.webdisk;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.example.webdisk.admission.AdmissionProperties;
+import com.example.webdisk.admission.ClientRateLimiter;
+import com.example.webdisk.admission.ConcurrencyLimiter;
+import com.example.webdisk.admission.RequestClass;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@AutoConfigureMockMvc
+@SpringBootTest(properties = {
+        "webdisk.admission.rate-limit.requests-per-second=0.01",
+        "webdisk.admission.rate-limit.burst=2" })
+class AdmissionControlTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void shouldRejectWhenQueueIsFull() throws InterruptedException {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(limits(1, 0, false), 10);
+        assertThat(limiter.acquire()).isTrue();
+        assertThat(limiter.acquire()).isFalse();
+        limiter.release(TimeUnit.MILLISECONDS.toNanos(1));
+        assertThat(limiter.acquire()).isTrue();
+        assertThat(limiter.retryAfterSeconds()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldRejectWhenQueueTimesOut() throws InterruptedException {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(limits(1, 1, false), 10);
+        assertThat(limiter.acquire()).isTrue();
+        long start = System.nanoTime();
+        assertThat(limiter.acquire()).isFalse();
+        assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(10));
+        assertThat(limiter.getWaiting()).isZero();
+    }
+
+    @Test
+    void shouldAdmitQueuedRequestWhenSlotIsReleased() throws InterruptedException {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(limits(1, 1, false), 5000);
+        assertThat(limiter.acquire()).isTrue();
+        Thread releaser = new Thread(() -> limiter.release(1));
+        releaser.start();
+        assertThat(limiter.acquire()).isTrue();
+        releaser.join();
+        assertThat(limiter.getInFlight()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldAdaptLimitToLatency() throws InterruptedException {
+        AdmissionProperties.Limits limits = limits(10, 0, true);
+        limits.setTargetLatency(Duration.ofNanos(1));
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(limits, 10);
+        assertThat(limiter.getLimit()).isEqualTo(10);
+        assertThat(limiter.acquire()).isTrue();
+        limiter.release(TimeUnit.SECONDS.toNanos(1));
+        assertThat(limiter.getLimit()).isEqualTo(9);
+    }
+
+    @Test
+    void shouldKeepBodyBoundClassesAtTheirLimit() throws InterruptedException {
+        AdmissionProperties properties = new AdmissionProperties();
+        assertThat(properties.getUpload().isAdaptive()).isFalse();
+        assertThat(properties.getDownload().isAdaptive()).isFalse();
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(properties.getDownload(), 10);
+        assertThat(limiter.acquire()).isTrue();
+        limiter.release(TimeUnit.SECONDS.toNanos(10));
+        assertThat(limiter.getLimit()).isEqualTo(properties.getDownload().getMaxConcurrency());
+    }
+
+    @Test
+    void shouldClassifyRegistryReadsAsMetadata() {
+        for (String path : new String[] {"/files/size", "/files/list", "/files/stats", "/files/watch"}) {
+            assertThat(RequestClass.of(new MockHttpServletRequest("GET", path))).isEqualTo(RequestClass.METADATA);
+        }
+        assertThat(RequestClass.of(new MockHttpServletRequest("GET", "/files/name"))).isEqualTo(RequestClass.DOWNLOAD);
+    }
+
+    @Test
+    void shouldLimitRatePerClient() {
+        AdmissionProperties.RateLimit rateLimit = new AdmissionProperties.RateLimit();
+        rateLimit.setRequestsPerSecond(1);
+        rateLimit.setBurst(2);
+        ClientRateLimiter limiter = new ClientRateLimiter(rateLimit);
+        assertThat(limiter.tryAcquire("one")).isZero();
+        assertThat(limiter.tryAcquire("one")).isZero();
+        assertThat(limiter.tryAcquire("one")).isEqualTo(1);
+        assertThat(limiter.tryAcquire("two")).isZero();
+        limiter.close();
+    }
+
+    @Test
+    void shouldEvictIdleClientsOffTheRequestPath() {
+        AdmissionProperties.RateLimit rateLimit = new AdmissionProperties.RateLimit();
+        rateLimit.setRequestsPerSecond(1);
+        rateLimit.setBurst(1);
+        rateLimit.setMaxClients(1);
+        ClientRateLimiter limiter = new ClientRateLimiter(rateLimit);
+        try {
+            for (int i = 0; i < 10; i++) {
+                assertThat(limiter.tryAcquire("client" + i)).isZero();
+            }
+            // Over the bound, left to the background eviction
+            assertThat(limiter.getClients()).isEqualTo(10);
+            // Not idle yet, their buckets being empty
+            assertThat(limiter.evictIdle()).isZero();
+        } finally {
+            limiter.close();
+        }
+    }
+
+    @Test
+    void shouldEvictRefilledClients() throws InterruptedException {
+        AdmissionProperties.RateLimit rateLimit = new AdmissionProperties.RateLimit();
+        rateLimit.setRequestsPerSecond(1_000_000);
+        rateLimit.setBurst(1);
+        ClientRateLimiter limiter = new ClientRateLimiter(rateLimit);
+        try {
+            limiter.tryAcquire("one");
+            limiter.tryAcquire("two");
+            // Refilled after a microsecond
+            Thread.sleep(1);
+            assertThat(limiter.evictIdle()).isEqualTo(2);
+            assertThat(limiter.getClients()).isZero();
+        } finally {
+            limiter.close();
+        }
+    }
+
+    @Test
+    void shouldRespondTooManyRequestsWithRetryAfterForBearerPrincipal() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(get("/files/size").header("Authorization", "Bearer limited_token"))
+                    .andExpect(status().isOk());
+        }
+        mockMvc.perform(get("/files/size").header("Authorization", "Bearer limited_token"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().exists("Retry-After"));
+        mockMvc.perform(get("/files/size").header("Authorization", "Bearer other_token"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/files/size"))
+                .andExpect(status().isOk());
+    }
+
+    private static AdmissionProperties.Limits limits(int maxConcurrency, int queueSize, boolean adaptive) {
+        AdmissionProperties.Limits limits = new AdmissionProperties.Limits();
+        limits.setMaxConcurrency(maxConcurrency);
+        limits.setQueueSize(queueSize);
+        limits.setAdaptive(adaptive);
+        limits.setTargetLatency(Duration.ofSeconds(1));
+        return limits;
+    }
+
+}
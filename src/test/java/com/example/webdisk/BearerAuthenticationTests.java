@@ -0,0 +1,200 @@
+package com.example.webdisk;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@AutoConfigureMockMvc
+@SpringBootTest(properties = {
+        "webdisk.auth.issuer=https://auth.example.com",
+        "webdisk.auth.audience=webdisk",
+        "webdisk.auth.reload-interval=50ms"})
+class BearerAuthenticationTests {
+
+    private static KeyPair rsa;
+    private static KeyPair rotated;
+    private static KeyPair ec;
+    private static Path jwks;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @DynamicPropertySource
+    static void keys(DynamicPropertyRegistry registry) throws Exception {
+        KeyPairGenerator rsaGenerator = KeyPairGenerator.getInstance("RSA");
+        rsaGenerator.initialize(2048);
+        rsa = rsaGenerator.generateKeyPair();
+        rotated = rsaGenerator.generateKeyPair();
+        KeyPairGenerator ecGenerator = KeyPairGenerator.getInstance("EC");
+        ecGenerator.initialize(new ECGenParameterSpec("secp256r1"));
+        ec = ecGenerator.generateKeyPair();
+        jwks = Files.createTempFile("webdisk-jwks", ".json");
+        Files.writeString(jwks, keySet(rsaKey("rsa", rsa), rsaKey("rotated", rotated), ecKey("ec", ec)));
+        Path storage = Files.createTempDirectory("webdisk-auth");
+        registry.add("webdisk.path", storage::toString);
+        registry.add("webdisk.auth.jwks-file", jwks::toString);
+    }
+
+    @Test
+    void shouldAuthorizeFilesOperationsByScope() throws Exception {
+        String reader = token("RS256", "rsa", rsa.getPrivate(), "reader", "files:read", 3600);
+        String writer = token("ES256", "ec", ec.getPrivate(), "writer", "files:read files:write", 3600);
+        MockMultipartFile file = new MockMultipartFile("file", "scoped", "text/plain", "scoped".getBytes());
+
+        mockMvc.perform(get("/files/size"))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get("/files/size").header("Authorization", "Bearer " + reader))
+                .andExpect(status().isOk());
+        mockMvc.perform(multipart("/files/scoped").file(file).with(put()).header("Authorization", "Bearer " + reader))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(multipart("/files/scoped").file(file).with(put()).header("Authorization", "Bearer " + writer))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/files/scoped").header("Authorization", "Bearer " + writer))
+                .andExpect(status().isOk());
+        mockMvc.perform(delete("/files/scoped").header("Authorization", "Bearer " + writer))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void shouldRejectInvalidTokens() throws Exception {
+        String expired = token("RS256", "rsa", rsa.getPrivate(), "reader", "files:read", -3600);
+        String unknownKey = token("RS256", "other", rsa.getPrivate(), "reader", "files:read", 3600);
+        String valid = token("RS256", "rsa", rsa.getPrivate(), "reader", "files:read", 3600);
+        String tampered = valid.substring(0, valid.lastIndexOf('.') - 2) + "xx" + valid.substring(valid.lastIndexOf('.'));
+        String wrongAudience = sign("RS256", "rsa", rsa.getPrivate(), String.format(
+                "{\"sub\":\"reader\",\"iss\":\"https://auth.example.com\",\"aud\":\"other\",\"exp\":%d}",
+                Instant.now().getEpochSecond() + 3600));
+        String unsigned = base64("{\"alg\":\"none\"}") + "." + base64("{\"sub\":\"reader\"}") + ".";
+
+        for (String token : new String[] {expired, unknownKey, tampered, wrongAudience, unsigned, "not-a-jwt"}) {
+            mockMvc.perform(get("/files/size").header("Authorization", "Bearer " + token))
+                    .andExpect(status().isUnauthorized())
+                    .andExpect(header().string("WWW-Authenticate", "Bearer error=\"invalid_token\""));
+        }
+    }
+
+    @Test
+    void shouldVerifyEachTokenOnce() throws Exception {
+        String reader = token("RS256", "rsa", rsa.getPrivate(), "cached", "files:read", 3600);
+        double verified = tokens("verified");
+        double cached = tokens("cached");
+
+        for (int i = 0; i < 5; i++) {
+            mockMvc.perform(get("/files/size").header("Authorization", "Bearer " + reader))
+                    .andExpect(status().isOk());
+        }
+
+        assertThat(tokens("verified") - verified).isEqualTo(1);
+        assertThat(tokens("cached") - cached).isEqualTo(4);
+    }
+
+    @Test
+    void shouldReloadKeySetWhenChanged() throws Exception {
+        String token = token("RS256", "rotated", rotated.getPrivate(), "rotated", "files:read", 3600);
+        mockMvc.perform(get("/files/size").header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk());
+
+        Files.writeString(jwks, keySet(rsaKey("rsa", rsa), ecKey("ec", ec)));
+        Files.setLastModifiedTime(jwks, FileTime.from(Instant.now().plusSeconds(60)));
+
+        int status = 200;
+        for (int i = 0; i < 100 && status == 200; i++) {
+            Thread.sleep(50);
+            status = mockMvc.perform(get("/files/size").header("Authorization", "Bearer " + token))
+                    .andReturn().getResponse().getStatus();
+        }
+        assertThat(status).isEqualTo(401);
+    }
+
+    private double tokens(String result) {
+        return registry.get("webdisk.auth.tokens").tag("result", result).counter().count();
+    }
+
+    private static RequestPostProcessor put() {
+        return request -> {
+            request.setMethod("PUT");
+            return request;
+        };
+    }
+
+    private static String token(String algorithm, String kid, PrivateKey key, String subject, String scope,
+            long expiresIn) throws GeneralSecurityException {
+        return sign(algorithm, kid, key, String.format(
+                "{\"sub\":\"%s\",\"iss\":\"https://auth.example.com\",\"aud\":[\"webdisk\"],\"scope\":\"%s\",\"exp\":%d}",
+                subject, scope, Instant.now().getEpochSecond() + expiresIn));
+    }
+
+    private static String sign(String algorithm, String kid, PrivateKey key, String claims)
+            throws GeneralSecurityException {
+        String signingInput = base64(String.format("{\"alg\":\"%s\",\"kid\":\"%s\"}", algorithm, kid))
+                + "." + base64(claims);
+        Signature signature = Signature.getInstance(
+                algorithm.startsWith("RS") ? "SHA256withRSA" : "SHA256withECDSAinP1363Format");
+        signature.initSign(key);
+        signature.update(signingInput.getBytes(StandardCharsets.US_ASCII));
+        return signingInput + "." + Base64.getUrlEncoder().withoutPadding().encodeToString(signature.sign());
+    }
+
+    private static String base64(String json) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String keySet(String... keys) {
+        return "{\"keys\":[" + String.join(",", keys) + "]}";
+    }
+
+    private static String rsaKey(String kid, KeyPair pair) {
+        RSAPublicKey key = (RSAPublicKey) pair.getPublic();
+        return String.format("{\"kty\":\"RSA\",\"kid\":\"%s\",\"use\":\"sig\",\"n\":\"%s\",\"e\":\"%s\"}",
+                kid, unsigned(key.getModulus()), unsigned(key.getPublicExponent()));
+    }
+
+    private static String ecKey(String kid, KeyPair pair) {
+        ECPublicKey key = (ECPublicKey) pair.getPublic();
+        return String.format("{\"kty\":\"EC\",\"kid\":\"%s\",\"crv\":\"P-256\",\"x\":\"%s\",\"y\":\"%s\"}",
+                kid, unsigned(key.getW().getAffineX()), unsigned(key.getW().getAffineY()));
+    }
+
+    private static String unsigned(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        if (bytes[0] == 0 && bytes.length > 1) {
+            bytes = Arrays.copyOfRange(bytes, 1, bytes.length);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+}
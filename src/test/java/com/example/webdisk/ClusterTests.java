@@ -0,0 +1,232 @@
+package com.example.webdisk;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.example.webdisk.cluster.ClusterService;
+import com.example.webdisk.cluster.HashRing;
+import com.example.webdisk.response.FilesPostFileResponse;
+import com.example.webdisk.service.CacheService;
+import com.example.webdisk.service.FilesService;
+import com.example.webdisk.util.FilesNameSupplier;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.head;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@AutoConfigureMockMvc
+@SpringBootTest(properties = "webdisk.cluster.rebalance=false")
+class ClusterTests {
+
+    private static final String SELF = "http://localhost:1";
+
+    private static HttpServer peer;
+    private static String peerUrl;
+    private static final List<String> received = new CopyOnWriteArrayList<>();
+    private static final Set<String> peerFiles = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ClusterService cluster;
+
+    @Autowired
+    private CacheService cache;
+
+    @Autowired
+    private FilesService storage;
+
+    @DynamicPropertySource
+    static void cluster(DynamicPropertyRegistry registry) throws IOException {
+        peer = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        peer.createContext("/files/", exchange -> {
+            String name = exchange.getRequestURI().getPath().substring("/files/".length());
+            String method = exchange.getRequestMethod();
+            if ("size".equals(name)) {
+                byte[] answer = "{\"size\":2,\"bytes\":10,\"partial\":false}".getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, answer.length);
+                exchange.getResponseBody().write(answer);
+                exchange.close();
+                return;
+            }
+            received.add(method + " " + name + " " + exchange.getRequestHeaders().getFirst(ClusterService.FORWARDED_HEADER));
+            try (InputStream body = exchange.getRequestBody()) {
+                body.readAllBytes();
+            }
+            if ("HEAD".equals(method)) {
+                exchange.sendResponseHeaders(peerFiles.contains(name) ? 200 : 404, -1);
+            } else {
+                if ("PUT".equals(method)) {
+                    peerFiles.add(name);
+                }
+                byte[] answer = ("GET".equals(method) ? "remote" : "").getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("ETag", "\"peer\"");
+                exchange.sendResponseHeaders(200, answer.length == 0 ? -1 : answer.length);
+                exchange.getResponseBody().write(answer);
+            }
+            exchange.close();
+        });
+        peer.start();
+        peerUrl = "http://localhost:" + peer.getAddress().getPort();
+        Path storage = Files.createTempDirectory("webdisk-cluster");
+        registry.add("webdisk.path", storage::toString);
+        registry.add("webdisk.cluster.nodes", () -> SELF + "," + peerUrl);
+        registry.add("webdisk.cluster.self", () -> SELF);
+    }
+
+    @AfterAll
+    static void stopPeer() {
+        peer.stop(0);
+    }
+
+    @BeforeEach
+    void clearPeer() {
+        received.clear();
+        peerFiles.clear();
+    }
+
+    @Test
+    void shouldSpreadNamesEvenlyOnTheRing() {
+        List<String> nodes = List.of("http://a", "http://b", "http://c");
+        HashRing ring = new HashRing(nodes, 128);
+        Map<String, Integer> counts = new HashMap<>();
+        FilesNameSupplier supplier = new FilesNameSupplier(5);
+        for (int i = 0; i < 30_000; i++) {
+            counts.merge(ring.ownerOf(supplier.get()), 1, Integer::sum);
+        }
+        assertThat(counts.keySet()).containsExactlyInAnyOrderElementsOf(nodes);
+        assertThat(counts.values()).allSatisfy(count -> assertThat(count).isBetween(8_000, 12_000));
+    }
+
+    @Test
+    void shouldOnlyMoveNamesToAJoiningNode() {
+        HashRing before = new HashRing(List.of("http://a", "http://b", "http://c"), 128);
+        HashRing after = new HashRing(List.of("http://a", "http://b", "http://c", "http://d"), 128);
+        FilesNameSupplier supplier = new FilesNameSupplier(6);
+        int moved = 0;
+        for (int i = 0; i < 20_000; i++) {
+            String name = supplier.get();
+            if (!before.ownerOf(name).equals(after.ownerOf(name))) {
+                assertThat(after.ownerOf(name)).isEqualTo("http://d");
+                moved++;
+            }
+        }
+        assertThat(moved).isBetween(3_500, 6_500);
+    }
+
+    @Test
+    void shouldProxyRequestsForFilesOwnedByAnotherNode() throws Exception {
+        String name = nameOwnedBy(peerUrl);
+        mockMvc.perform(get("/files/" + name))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"peer\""))
+                .andExpect(content().string("remote"));
+        mockMvc.perform(head("/files/" + name))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(delete("/files/" + name))
+                .andExpect(status().isOk());
+        assertThat(received).containsExactly("GET " + name + " " + SELF, "HEAD " + name + " " + SELF,
+                "DELETE " + name + " " + SELF);
+    }
+
+    @Test
+    void shouldServeLocallyOwnedAndForwardedRequests() throws Exception {
+        mockMvc.perform(get("/files/" + nameOwnedBy(SELF)))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/files/" + nameOwnedBy(peerUrl)).header(ClusterService.FORWARDED_HEADER, peerUrl))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/files/size").header(ClusterService.FORWARDED_HEADER, peerUrl))
+                .andExpect(status().isOk());
+        assertThat(received).isEmpty();
+    }
+
+    @Test
+    void shouldCountTheFilesOfAllNodes() throws Exception {
+        String local = nameOwnedBy(SELF);
+        cache.putFile(local, storage.putFile(local, new MockMultipartFile("file", local, null, "data".getBytes())));
+        mockMvc.perform(get("/files/size"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"size\":3,\"bytes\":14,\"partial\":false}"));
+        storage.deleteFile(local);
+        cache.deleteFile(local);
+    }
+
+    @Test
+    void shouldGiveNewFilesNamesOwnedByThisNode() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            String body = mockMvc.perform(multipart("/files/upload")
+                    .file(new MockMultipartFile("file", "new.txt", "text/plain", "new".getBytes())))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+            String name = new ObjectMapper().readValue(body, FilesPostFileResponse.class).fileName();
+            assertThat(cluster.ownerOf(name)).isEqualTo(SELF);
+            mockMvc.perform(delete("/files/" + name)).andExpect(status().isOk());
+        }
+        assertThat(received).isEmpty();
+    }
+
+    @Test
+    void shouldMoveFilesToTheirOwner() throws Exception {
+        String missing = nameOwnedBy(peerUrl);
+        String present = nameOwnedBy(peerUrl, missing);
+        String local = nameOwnedBy(SELF);
+        peerFiles.add(present);
+        for (String name : List.of(missing, present, local)) {
+            cache.putFile(name, storage.putFile(name, new MockMultipartFile("file", name, null, "data".getBytes())));
+        }
+
+        assertThat(cluster.rebalance()).isEqualTo(2);
+
+        assertThat(received).containsExactlyInAnyOrder("HEAD " + missing + " " + SELF, "PUT " + missing + " " + SELF,
+                "HEAD " + present + " " + SELF);
+        assertThat(peerFiles).contains(missing);
+        assertThat(cache.containsFile(missing)).isFalse();
+        assertThat(cache.containsFile(present)).isFalse();
+        assertThat(cache.containsFile(local)).isTrue();
+        storage.deleteFile(local);
+        cache.deleteFile(local);
+    }
+
+    private static String nameOwnedBy(String node, String... excluded) {
+        HashRing ring = new HashRing(List.of(SELF, peerUrl), 128);
+        FilesNameSupplier supplier = new FilesNameSupplier();
+        List<String> skipped = new ArrayList<>(List.of(excluded));
+        while (true) {
+            String name = supplier.get();
+            if (ring.ownerOf(name).equals(node) && !skipped.contains(name)) {
+                return name;
+            }
+        }
+    }
+}
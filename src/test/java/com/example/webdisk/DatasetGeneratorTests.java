@@ -0,0 +1,90 @@
+package com.example.webdisk;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.example.webdisk.util.DatasetGenerator;
+import com.example.webdisk.util.DatasetGenerator.Layout;
+import com.example.webdisk.util.SizeDistribution;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DatasetGeneratorTests {
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    void shouldGenerateValidFilesWithSizesFromDistribution() throws IOException {
+        Path storage = tempDir.resolve("storage");
+        long created = new DatasetGenerator(storage, 1000, 4, 42, SizeDistribution.parse("uniform:10:20", 1024),
+                Layout.FLAT, 0, null).generate();
+
+        assertThat(created).isEqualTo(1003);
+        try (Stream<Path> files = Files.list(storage)) {
+            List<Path> generated = files.toList();
+            assertThat(generated).hasSize(1003);
+            for (Path file : generated) {
+                String fileName = file.getFileName().toString();
+                assertThat(fileName).containsPattern("^[a-zA-Z0-9-_]{1,64}$");
+                if (!List.of("one", "andone", "two").contains(fileName)) {
+                    assertThat(Files.size(file)).isBetween(10L, 20L);
+                }
+            }
+        }
+    }
+
+    @Test
+    void shouldGenerateSameDatasetForSameSeedRegardlessOfThreads() throws IOException {
+        SizeDistribution sizes = SizeDistribution.parse("fixed:0", 0);
+        new DatasetGenerator(tempDir.resolve("a"), 50000, 1, 7, sizes, Layout.FLAT, 0, null).generate();
+        new DatasetGenerator(tempDir.resolve("b"), 50000, 8, 7, sizes, Layout.FLAT, 0, null).generate();
+        new DatasetGenerator(tempDir.resolve("c"), 50000, 8, 8, sizes, Layout.FLAT, 0, null).generate();
+
+        assertThat(names(tempDir.resolve("a"))).isEqualTo(names(tempDir.resolve("b")));
+        assertThat(names(tempDir.resolve("a"))).isNotEqualTo(names(tempDir.resolve("c")));
+    }
+
+    @Test
+    void shouldSpreadFilesOverShardsAndWriteSnapshot() throws IOException {
+        Path storage = tempDir.resolve("sharded");
+        Path snapshot = tempDir.resolve("registry.snapshot");
+        new DatasetGenerator(storage, 500, 2, 42, SizeDistribution.parse("fixed:1", 1),
+                Layout.SHARDED, 4, snapshot).generate();
+
+        List<String> snapshotLines = Files.readAllLines(snapshot);
+        List<String> snapshotNames = snapshotLines.stream().map(line -> line.split("\t")[0]).toList();
+        assertThat(snapshotNames).hasSize(503).doesNotHaveDuplicates();
+        assertThat(snapshotLines).anyMatch(line -> line.startsWith("one\t4\t"))
+                .anyMatch(line -> line.startsWith("two\t0\t"));
+        for (String fileName : snapshotNames) {
+            assertThat(DatasetGenerator.shardOf(storage, fileName, 4).resolve(fileName)).isRegularFile();
+        }
+        try (Stream<Path> shards = Files.list(storage)) {
+            assertThat(shards.map(shard -> shard.getFileName().toString()))
+                    .containsExactlyInAnyOrder("0", "1", "2", "3");
+        }
+    }
+
+    @Test
+    void shouldRejectInvalidSizeDistributions() {
+        assertThatThrownBy(() -> SizeDistribution.parse("normal:1:2", 10))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> SizeDistribution.parse("uniform:1", 10))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static List<String> names(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString()).sorted().toList();
+        }
+    }
+
+}
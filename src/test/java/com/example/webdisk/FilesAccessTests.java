@@ -12,8 +12,11 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
 
 import static org.mockito.Mockito.*;
 import org.mockito.InjectMocks;
@@ -24,6 +27,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
@@ -57,15 +61,33 @@ class FilesAccessTests {
             when(one.getFileName()).thenReturn(Path.of("one"));
             when(andone.getFileName()).thenReturn(Path.of("andone"));
             when(not1.getFileName()).thenReturn(Path.of("not1.tmp"));
-            when(Files.isDirectory(one)).thenReturn(false);
-            when(Files.isDirectory(andone)).thenReturn(false);
-            when(Files.isDirectory(not1)).thenReturn(false);
-            when(Files.isDirectory(twodots)).thenReturn(true);
+            BasicFileAttributes file = mock(BasicFileAttributes.class);
+            BasicFileAttributes directory = mock(BasicFileAttributes.class);
+            when(file.isDirectory()).thenReturn(false);
+            when(file.size()).thenReturn(10L);
+            when(file.lastModifiedTime()).thenReturn(FileTime.fromMillis(1_700_000_000_000L));
+            when(directory.isDirectory()).thenReturn(true);
+            filesStaticMock.when(() -> Files.readAttributes(one, BasicFileAttributes.class)).thenReturn(file);
+            filesStaticMock.when(() -> Files.readAttributes(andone, BasicFileAttributes.class)).thenReturn(file);
+            filesStaticMock.when(() -> Files.readAttributes(not1, BasicFileAttributes.class)).thenReturn(file);
+            filesStaticMock.when(() -> Files.readAttributes(twodots, BasicFileAttributes.class)).thenReturn(directory);
 
             assertThat(filesAccess.listFiles()).isEqualTo(Arrays.asList("one", "andone"));
+            assertThat(filesAccess.getStats().getFiles()).isEqualTo(2);
+            assertThat(filesAccess.getStats().getBytes()).isEqualTo(20);
         }
     }
 
+    @Test
+    void shouldListRegistrySnapshotWhenConfigured(@TempDir Path tempDir) throws IOException {
+        Path snapshot = tempDir.resolve("registry.snapshot");
+        Files.write(snapshot, Arrays.asList("one\t10\t1700000000", "not1.tmp", "andone\t1000\t1700000000"));
+        filesAccess.setSnapshot(snapshot.toString());
+
+        assertThat(filesAccess.listFiles()).isEqualTo(Arrays.asList("one", "andone"));
+        assertThat(filesAccess.getStats().getBytes()).isEqualTo(1010);
+    }
+
     @Test
     void shouldGetFileContentsInAStream() throws IOException {
         try (MockedStatic<Files> filesStaticMock = Mockito.mockStatic(Files.class)) {
@@ -73,7 +95,9 @@ class FilesAccessTests {
 
             filesStaticMock.when(() -> Files.newInputStream(any(Path.class))).thenReturn(inputStreamMock);
 
-            assertThat(filesAccess.getFile("any")).isEqualTo(inputStreamMock);
+            try (InputStream fileStream = filesAccess.getFile("any")) {
+                assertThat(fileStream).hasContent("oneContent");
+            }
         }
     }
 
@@ -91,24 +115,41 @@ class FilesAccessTests {
                         fileCopied.set(true);
                         return null;
                     });
+            filesStaticMock.when(() -> Files.size(any(Path.class))).thenThrow(new NoSuchFileException("one"));
+            when(multipartFileMock.getSize()).thenReturn(10L);
             filesAccess.putFile("one", multipartFileMock);
 
             assertThat(fileCopied).isTrue();
+            assertThat(filesAccess.getStats().getFiles()).isEqualTo(1);
+            assertThat(filesAccess.getStats().getBytes()).isEqualTo(10);
         }
     }
 
     @Test
     void shouldDeleteFile() throws IOException {
         try (MockedStatic<Files> filesStaticMock = Mockito.mockStatic(Files.class)) {
+            MultipartFile multipartFileMock = mock(MultipartFile.class);
+            when(multipartFileMock.getInputStream()).thenReturn(new ByteArrayInputStream("oneContent".getBytes()));
+            when(multipartFileMock.getSize()).thenReturn(10L);
             AtomicBoolean fileDeleted = new AtomicBoolean(false);
             filesStaticMock.when(() -> Files.delete(any(Path.class)))
                     .thenAnswer(i -> {
                         fileDeleted.set(true);
                         return null;
                     });
+            // Absent when stored, then stored
+            filesStaticMock.when(() -> Files.size(any(Path.class)))
+                    .thenThrow(new NoSuchFileException("any"))
+                    .thenReturn(10L);
+            filesAccess.putFile("any", multipartFileMock);
+            assertThat(filesAccess.getStats().getFiles()).isEqualTo(1);
+            assertThat(filesAccess.getStats().getBytes()).isEqualTo(10);
+
             filesAccess.deleteFile("any");
 
             assertThat(fileDeleted).isTrue();
+            assertThat(filesAccess.getStats().getFiles()).isZero();
+            assertThat(filesAccess.getStats().getBytes()).isZero();
         }
     }
     
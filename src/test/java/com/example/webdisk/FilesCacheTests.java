@@ -7,9 +7,19 @@ import org.springframework.boot.test.context.SpringBootTest;
 
 import com.example.webdisk.service.FilesService;
 import com.example.webdisk.service.CacheService;
+import com.example.webdisk.service.FileMetadata;
+import com.example.webdisk.service.SearchCache;
+import com.example.webdisk.search.LevenshteinAutomaton;
+import com.example.webdisk.search.SearchMode;
+import com.example.webdisk.util.FilesNameSupplier;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -68,6 +78,137 @@ class FilesCacheTests {
         assertThat(cache.findFilesForPattern("[0-9]+")).isEmpty();    
     }
 
+    @Test
+    void shouldKeepCachedSearchResultsConsistentWithUpdates() {
+        cache.putFile("one");
+        cache.putFile("two");
+        assertThat(cache.findFilesForPattern("one")).containsExactly("one");
+        cache.putFile("andone");
+        cache.putFile("three");
+        assertThat(cache.findFilesForPattern("one"))
+            .containsExactlyInAnyOrder("andone", "one");
+        cache.deleteFile("one");
+        assertThat(cache.findFilesForPattern("one")).containsExactly("andone");
+    }
+
+    @Test
+    void shouldSearchWithoutCachingLargeOrEvictedResults() {
+        cache = new CacheService(mockStorage, new SimpleMeterRegistry(),
+                new SearchCache(1, 1));
+        cache.putFile("one");
+        cache.putFile("andone");
+        assertThat(cache.findFilesForPattern("one")).hasSize(2);
+        assertThat(cache.findFilesForPattern("^a")).containsExactly("andone");
+        cache.putFile("anyone");
+        assertThat(cache.findFilesForPattern("one")).hasSize(3);
+        cache.deleteFile("andone");
+        assertThat(cache.findFilesForPattern("^a")).containsExactly("anyone");
+    }
+
+    @Test
+    void shouldKeepMetadataOfFiles() {
+        assertThat(cache.putFile("one", new FileMetadata(3, 1_700_000_000L, 42))).isTrue();
+        assertThat(cache.getMetadata("one")).isEqualTo(new FileMetadata(3, 1_700_000_000L, 42));
+        assertThat(cache.putFile("one", new FileMetadata(5, 1_700_000_001L, 0))).isFalse();
+        assertThat(cache.getMetadata("one")).isEqualTo(new FileMetadata(5, 1_700_000_001L, 0));
+        assertThat(cache.getSize()).isEqualTo(1);
+        cache.deleteFile("one");
+        assertThat(cache.getMetadata("one")).isNull();
+    }
+
+    @Test
+    void shouldKeepEntriesAcrossGrowthAndReuse() {
+        for (int i = 0; i < 10_000; i++) {
+            cache.putFile("f" + i, new FileMetadata(i, i + 1, 0));
+        }
+        for (int i = 0; i < 10_000; i += 2) {
+            cache.deleteFile("f" + i);
+        }
+        for (int i = 0; i < 5_000; i++) {
+            cache.putFile("g" + i);
+        }
+        assertThat(cache.getSize()).isEqualTo(10_000);
+        assertThat(cache.containsFile("f2")).isFalse();
+        assertThat(cache.getMetadata("f9999")).isEqualTo(new FileMetadata(9999, 10_000, 0));
+        assertThat(cache.getMetadata("g4999")).isEqualTo(FileMetadata.UNKNOWN);
+        assertThat(cache.findFilesForPattern("^f")).hasSize(5_000);
+    }
+
+    @Test
+    void shouldFindFilesByPrefixAndGlobInOrder() {
+        Stream.of("one", "two", "andone", "one_1", "one-2", "onex", "on").forEach(cache::putFile);
+        assertThat(cache.findFiles("one", SearchMode.PREFIX))
+            .containsExactly("one", "one-2", "one_1", "onex");
+        assertThat(cache.findFiles("", SearchMode.PREFIX)).hasSize(7).isSorted();
+        assertThat(cache.findFiles("zz", SearchMode.PREFIX)).isEmpty();
+        assertThat(cache.findFiles("one?*", SearchMode.GLOB)).containsExactly("one-2", "one_1", "onex");
+        assertThat(cache.findFiles("*one", SearchMode.GLOB)).containsExactly("andone", "one");
+        assertThat(cache.findFiles("[!o]*", SearchMode.GLOB)).containsExactly("andone", "two");
+        assertThat(cache.findFiles("^one_", SearchMode.REGEX)).containsExactly("one_1");
+    }
+
+    @Test
+    void shouldKeepTheSortedNamesConsistentWithUpdates() {
+        FilesNameSupplier supplier = new FilesNameSupplier(7);
+        TreeSet<String> expected = new TreeSet<>();
+        for (int i = 0; i < 20_000; i++) {
+            String name = supplier.get();
+            name = name.substring(0, Math.min(name.length(), 1 + i % 6));
+            if (i % 3 == 0) {
+                cache.deleteFile(name);
+                expected.remove(name);
+            } else {
+                cache.putFile(name);
+                expected.add(name);
+            }
+        }
+        assertThat(cache.findFiles("", SearchMode.PREFIX)).containsExactlyElementsOf(expected);
+        assertThat(cache.findFiles("a", SearchMode.PREFIX))
+            .containsExactlyElementsOf(expected.subSet("a", "b"));
+        assertThat(cache.findFilesForPattern("^a")).containsExactlyInAnyOrderElementsOf(expected.subSet("a", "b"));
+    }
+
+    @Test
+    void shouldListFilesByPagesUnderUpdates() {
+        Stream.of("a", "b", "c", "d", "e").forEach(cache::putFile);
+        assertThat(cache.listFiles("", 2)).containsExactly("a", "b");
+        cache.deleteFile("b");
+        cache.putFile("a1");
+        cache.deleteFile("c");
+        assertThat(cache.listFiles("b", 2)).containsExactly("d", "e");
+        assertThat(cache.listFiles("e", 2)).isEmpty();
+        assertThat(cache.listFiles("", 10)).containsExactly("a", "a1", "d", "e");
+    }
+
+    @Test
+    void shouldFindSimilarFilesClosestFirst() {
+        Stream.of("one", "two", "andone", "on", "ones", "bone", "oen", "xyz").forEach(cache::putFile);
+        assertThat(cache.findSimilarFiles("one", 0)).containsExactly("one");
+        assertThat(cache.findSimilarFiles("one", 1)).containsExactly("one", "bone", "on", "ones");
+        assertThat(cache.findSimilarFiles("one", 2)).containsExactly("one", "bone", "on", "ones", "oen");
+        assertThat(cache.findSimilarFiles("qqq", 2)).isEmpty();
+    }
+
+    @Test
+    void shouldFindTheSameSimilarFilesAsAFullScan() {
+        FilesNameSupplier supplier = new FilesNameSupplier(11);
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            String name = supplier.get();
+            name = name.substring(0, Math.min(name.length(), 2 + i % 5));
+            names.add(name);
+            cache.putFile(name);
+        }
+        for (String query : new String[] { names.get(0), names.get(1), "abc", "-", "zzzzzz" }) {
+            for (int distance = 0; distance <= 2; distance++) {
+                LevenshteinAutomaton automaton = new LevenshteinAutomaton(query, distance);
+                assertThat(cache.findSimilarFiles(query, distance)).as("%s within %d", query, distance)
+                    .containsExactlyInAnyOrderElementsOf(
+                        names.stream().filter(automaton::matches).collect(Collectors.toSet()));
+            }
+        }
+    }
+
     @Test
     void shouldGenerateNewValidFileNames() {
         assertThat(cache.getSize()).isZero();
@@ -77,6 +218,17 @@ class FilesCacheTests {
         assertThat(cache.getSize()).isEqualTo(2);    
     }
 
+    @Test
+    void shouldCountRejectedNamesApartFromCollisions() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        cache = new CacheService(mockStorage, registry);
+        int[] calls = {0};
+        // Two names owned elsewhere before one is accepted
+        cache.newFile(fileName -> ++calls[0] > 2);
+        assertThat(registry.get("webdisk.names.rejected").counter().count()).isEqualTo(2);
+        assertThat(registry.get("webdisk.names.retries").counter().count()).isZero();
+    }
+
     @Test
     void shouldDeleteGivenFileNames() {
         assertThat(cache.getSize()).isZero();
@@ -9,6 +9,8 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 
+import java.util.zip.CRC32C;
+
 import com.example.webdisk.response.FilesPostFileResponse;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
@@ -33,7 +35,19 @@ class FilesControllerTests {
         mockMvc.perform(get("/files/size"))
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
-                .andExpect(jsonPath("$.size").exists());
+                .andExpect(jsonPath("$.size").exists())
+                .andExpect(jsonPath("$.bytes").exists());
+    }
+
+    @Test
+    void getFilesStatsTests() throws Exception {
+        mockMvc.perform(get("/files/stats"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.files").value(7))
+                .andExpect(jsonPath("$.bytes").value(19))
+                .andExpect(jsonPath("$.sizes[0].count").value(4))
+                .andExpect(jsonPath("$.nameLengths.3").value(2));
     }
 
     @Test
@@ -86,12 +100,30 @@ class FilesControllerTests {
                 .andExpect(content().string("two"));
         mockMvc.perform(head("/files/oneone"))
                 .andExpect(status().isOk())
+                .andExpect(header().longValue("Content-Length", 3))
+                .andExpect(header().exists("Last-Modified"))
+                .andExpect(header().string("ETag", String.format("\"%08x\"", crc32c("two"))))
                 .andExpect(content().string(""));
         // Clean
         mockMvc.perform(delete("/files/oneone"))
                 .andExpect(status().isOk());
     }
 
+    @Test
+    void headShouldServeMetadataOfScannedFiles() throws Exception {
+        mockMvc.perform(head("/files/one"))
+                .andExpect(status().isOk())
+                .andExpect(header().longValue("Content-Length", 3))
+                .andExpect(header().exists("Last-Modified"))
+                .andExpect(header().doesNotExist("ETag"));
+    }
+
+    private static long crc32c(String content) {
+        CRC32C checksum = new CRC32C();
+        checksum.update(content.getBytes());
+        return checksum.getValue();
+    }
+
     @Test
     void putFileShouldValidateFileNames() throws Exception {
         MockMultipartFile file = new MockMultipartFile("file", "one.one",
@@ -119,6 +151,49 @@ class FilesControllerTests {
         mockMvc.perform(get("/files/search?pattern=n.one"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.results").exists());
+        mockMvc.perform(get("/files/search?pattern=one&mode=prefix"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.results[0]").value("one"));
+        mockMvc.perform(get("/files/search?pattern=*one&mode=GLOB"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.results[0]").value("andone"))
+                .andExpect(jsonPath("$.results[1]").value("one"));
+        mockMvc.perform(get("/files/search?pattern=one&mode=fuzzy"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/files/search?pattern=[a&mode=glob"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void similarFilesTests() throws Exception {
+        mockMvc.perform(get("/files/similar?name=ome"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.results[0]").value("one"));
+        mockMvc.perform(get("/files/similar?name=ome&distance=3"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/files/similar?name=o.e"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void listFilesByPagesTests() throws Exception {
+        mockMvc.perform(get("/files/list?limit=2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.names.length()").value(2))
+                .andExpect(jsonPath("$.names[1]").value("ROiciMp1DqRLAe"))
+                .andExpect(jsonPath("$.next").value("Uk9pY2lNcDFEcVJMQWU"));
+        mockMvc.perform(get("/files/list?limit=3&after=Uk9pY2lNcDFEcVJMQWU"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.names[0]").value("andone"))
+                .andExpect(jsonPath("$.names[2]").value("one"));
+        mockMvc.perform(get("/files/list"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.names.length()").value(7))
+                .andExpect(jsonPath("$.next").doesNotExist());
+        mockMvc.perform(get("/files/list?limit=0"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/files/list?after=*"))
+                .andExpect(status().isBadRequest());
     }
 
     @Test
@@ -0,0 +1,74 @@
+package com.example.webdisk;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.example.webdisk.service.CacheService;
+import com.example.webdisk.service.FilesService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+@SpringBootTest
+class FilesMetricsTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    private SimpleMeterRegistry registry;
+    private CacheService cache;
+
+    @BeforeEach
+    public void setupEachTest() {
+        registry = new SimpleMeterRegistry();
+        cache = new CacheService(new FilesService(), registry);
+    }
+
+    @Test
+    void shouldPublishRegistrySizeAndMemory() {
+        cache.putFile("one");
+        cache.putFile("andone");
+        assertThat(registry.get("webdisk.registry.size").gauge().value()).isEqualTo(2);
+        assertThat(registry.get("webdisk.registry.memory").gauge().value()).isGreaterThan(9);
+        cache.deleteFile("andone");
+        assertThat(registry.get("webdisk.registry.size").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldRecordSearchCandidatesAndMatches() {
+        cache.putFile("one");
+        cache.putFile("andone");
+        cache.putFile("two");
+        cache.findFilesForPattern("one");
+        assertThat(registry.get("webdisk.search").timer().count()).isEqualTo(1);
+        assertThat(registry.get("webdisk.search.candidates").summary().totalAmount()).isEqualTo(3);
+        assertThat(registry.get("webdisk.search.matches").summary().totalAmount()).isEqualTo(2);
+        cache.findFilesForPattern("one");
+        assertThat(registry.get("webdisk.search.candidates").summary().totalAmount()).isEqualTo(3);
+        assertThat(registry.get("webdisk.search.cache").tag("result", "hit").counter().count()).isEqualTo(1);
+        assertThat(registry.get("webdisk.search.cache").tag("result", "miss").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldExposePrometheusEndpoint() throws Exception {
+        mockMvc.perform(get("/files/size"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("webdisk_registry_size")))
+                .andExpect(content().string(containsString("http_server_requests_seconds_bucket")));
+    }
+
+}
@@ -19,4 +19,15 @@ class FilesNameSupplierTests {
         assertThat(supplier.get()).containsPattern("^[a-zA-Z0-9-_]{1,64}$");
     }
 
+    @Test
+    void shouldSupplySameNamesForSameSeed() {
+        FilesNameSupplier first = new FilesNameSupplier(42);
+        FilesNameSupplier second = new FilesNameSupplier(42);
+        for (int i = 0; i < 1000; i++) {
+            String fileName = first.get();
+            assertThat(fileName).containsPattern("^[a-zA-Z0-9-_]{1,64}$");
+            assertThat(second.get()).isEqualTo(fileName);
+        }
+    }
+
 }
@@ -0,0 +1,176 @@
+package com.example.webdisk;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.example.webdisk.response.VolumeResponse;
+import com.example.webdisk.service.FilesService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FilesVolumesTests {
+
+    @TempDir
+    private Path disk1;
+
+    @TempDir
+    private Path disk2;
+
+    @TempDir
+    private Path disk3;
+
+    private FilesService storage;
+
+    @BeforeEach
+    void setup() {
+        storage = new FilesService();
+        storage.setPath(disk1.toString());
+        storage.setVolumes(List.of(disk1.toString(), disk2.toString(), disk3.toString()));
+    }
+
+    @AfterEach
+    void close() {
+        storage.close();
+    }
+
+    @Test
+    void shouldSpreadFilesEvenlyAndFindThem() throws IOException {
+        for (int i = 0; i < 300; i++) {
+            put("file-" + i, "content-" + i);
+        }
+        for (Path disk : List.of(disk1, disk2, disk3)) {
+            assertThat(count(disk)).isBetween(70L, 130L);
+        }
+        assertThat(read("file-42")).isEqualTo("content-42");
+        assertThat(storage.getStats().getFiles()).isEqualTo(300);
+
+        storage.deleteFile("file-42");
+        assertThat(Stream.of(disk1, disk2, disk3).map(disk -> disk.resolve("file-42"))).noneMatch(Files::exists);
+        assertThat(storage.getStats().getFiles()).isEqualTo(299);
+    }
+
+    @Test
+    void shouldScanVolumesAndRebalanceMisplacedFiles() throws IOException {
+        for (int i = 0; i < 30; i++) {
+            put("file-" + i, "content-" + i);
+        }
+        // A volume added to the storage receives its share of the existing files
+        storage.setVolumes(List.of(disk1.toString(), disk2.toString()));
+        for (int i = 30; i < 60; i++) {
+            put("file-" + i, "content-" + i);
+        }
+        storage.setVolumes(List.of(disk1.toString(), disk2.toString(), disk3.toString()));
+
+        List<String> names = storage.listFiles();
+        assertThat(names).hasSize(60);
+        long misplaced = storage.getVolumes().stream().mapToLong(VolumeResponse::misplaced).sum();
+        assertThat(misplaced).isPositive();
+        assertThat(read("file-7")).isEqualTo("content-7");
+
+        assertThat(storage.rebalanceVolumes()).isEqualTo((int) misplaced);
+        assertThat(storage.getVolumes()).allSatisfy(volume -> assertThat(volume.misplaced()).isZero());
+        assertThat(count(disk3)).isPositive();
+        for (int i = 0; i < 60; i++) {
+            assertThat(read("file-" + i)).isEqualTo("content-" + i);
+        }
+        assertThat(count(disk1) + count(disk2) + count(disk3)).isEqualTo(60);
+    }
+
+    @Test
+    void shouldDeleteStaleCopiesWhenScanning() throws IOException {
+        put("file", "latest");
+        Path placement = Stream.of(disk1, disk2, disk3).filter(disk -> Files.exists(disk.resolve("file")))
+                .findFirst().orElseThrow();
+        Path other = Stream.of(disk1, disk2, disk3).filter(disk -> disk != placement).findFirst().orElseThrow();
+        Files.writeString(other.resolve("file"), "stale");
+
+        assertThat(storage.listFiles()).containsExactly("file");
+        assertThat(Files.exists(other.resolve("file"))).isFalse();
+        assertThat(read("file")).isEqualTo("latest");
+    }
+
+    @Test
+    void shouldKeepLocalStateOnFirstVolume() throws IOException {
+        put("file", "content");
+        Path uploads = storage.resolveState(".uploads");
+        assertThat(uploads).isEqualTo(disk1.resolve(".uploads"));
+        assertThat(storage.resolveState(disk3.toString())).isEqualTo(disk3);
+        Files.createDirectories(uploads);
+        Files.writeString(disk1.resolve(".reconciler.state"), "state");
+        // Unlisted, its names not being valid file names
+        assertThat(storage.listFiles()).containsExactly("file");
+    }
+
+    @Test
+    void shouldDrainVolume() throws IOException {
+        for (int i = 0; i < 60; i++) {
+            put("file-" + i, "content-" + i);
+        }
+        long drained = count(disk2);
+
+        assertThat(storage.drainVolume(disk2.toString())).isEqualTo((int) drained);
+        assertThat(count(disk2)).isZero();
+        assertThat(count(disk1) + count(disk3)).isEqualTo(60);
+        for (int i = 0; i < 60; i++) {
+            assertThat(read("file-" + i)).isEqualTo("content-" + i);
+        }
+        put("after", "drain");
+        assertThat(Files.exists(disk2.resolve("after"))).isFalse();
+        assertThat(storage.getVolumes()).filteredOn(VolumeResponse::draining)
+                .extracting(VolumeResponse::root).containsExactly(disk2.toString());
+    }
+
+    @Test
+    void shouldRefuseToDrainLastOrUnknownVolume() throws IOException {
+        storage.drainVolume(disk1.toString());
+        storage.drainVolume(disk2.toString());
+        assertThatThrownBy(() -> storage.drainVolume(disk3.toString())).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> storage.drainVolume("/unknown")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void shouldReleaseVolumeBetweenReadsOfStream() throws IOException {
+        storage.setVolumes(List.of(disk1.toString()));
+        storage.setVolumeConcurrency(1);
+        put("streamed", "content");
+        try (InputStream open = storage.getFile("streamed")) {
+            assertThat(open.read()).isEqualTo('c');
+            // A slow reader does not hold the only permit of the volume
+            put("other", "content");
+            assertThat(new String(open.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo("ontent");
+        }
+        assertThat(read("other")).isEqualTo("content");
+    }
+
+    private void put(String name, String content) throws IOException {
+        storage.putFile(name, new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private String read(String name) throws IOException {
+        try (InputStream content = storage.getFile(name)) {
+            return new String(content.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static long count(Path disk) throws IOException {
+        List<String> names = new ArrayList<>();
+        try (Stream<Path> files = Files.list(disk)) {
+            files.forEach(file -> names.add(file.getFileName().toString()));
+        }
+        assertThat(names).noneMatch(name -> name.endsWith(".moving"));
+        return names.size();
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.webdisk;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.example.webdisk.service.CacheService;
+import com.example.webdisk.service.WatchService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+@AutoConfigureMockMvc
+@SpringBootTest
+class FilesWatchTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CacheService cache;
+
+    @Autowired
+    private WatchService watch;
+
+    @Test
+    void shouldStreamSnapshotThenMatchingChanges() throws Exception {
+        MvcResult result = mockMvc.perform(get("/files/watch").param("pattern", "^watch"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MockHttpServletResponse response = result.getResponse();
+        awaitContent(response, "event:snapshot");
+
+        cache.putFile("watched");
+        cache.putFile("unrelated");
+        cache.deleteFile("watched");
+
+        String content = awaitContent(response, "event:removed");
+        assertThat(content).contains("data:{\"results\":[],\"partial\":false}");
+        assertThat(content).containsSubsequence("event:snapshot", "event:added", "data:watched",
+                "event:removed", "data:watched");
+        assertThat(content).doesNotContain("unrelated");
+        result.getRequest().getAsyncContext().complete();
+    }
+
+    @Test
+    void shouldCountSubscribers() throws Exception {
+        int before = watch.getSubscribers();
+        mockMvc.perform(get("/files/watch").param("pattern", "one"))
+                .andExpect(request().asyncStarted());
+        assertThat(watch.getSubscribers()).isEqualTo(before + 1);
+    }
+
+    private static String awaitContent(MockHttpServletResponse response, String expected) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        String content = response.getContentAsString();
+        while (!content.contains(expected) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            content = response.getContentAsString();
+        }
+        assertThat(content).contains(expected);
+        return content;
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.webdisk;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.example.webdisk.analytics.HotKeysProperties;
+import com.example.webdisk.analytics.HotKeysService;
+import com.example.webdisk.analytics.SpaceSaving;
+import com.example.webdisk.response.HotKeysResponse;
+import com.example.webdisk.security.AuthProperties;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.hamcrest.Matchers.startsWith;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@AutoConfigureMockMvc
+@SpringBootTest(properties = "webdisk.hotkeys.drain-interval=1h")
+class HotKeysTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @DynamicPropertySource
+    static void directories(DynamicPropertyRegistry registry) throws IOException {
+        Path storage = Files.createTempDirectory("webdisk-hotkeys");
+        registry.add("webdisk.path", storage::toString);
+    }
+
+    @Test
+    void shouldReportHeaviestNamesAndPrincipals() throws Exception {
+        put("hotkey", "0123456789");
+        put("warmkey", "0123456789".repeat(100));
+        for (int i = 0; i < 10; i++) {
+            mockMvc.perform(get("/files/hotkey").header("Authorization", "Bearer reporting"))
+                    .andExpect(status().isOk());
+        }
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(get("/files/warmkey")).andExpect(status().isOk());
+        }
+
+        // File names and principals are only reported to authenticated callers
+        mockMvc.perform(get("/actuator/hotkeys")).andExpect(status().isForbidden());
+        mockMvc.perform(get("/actuator/hotkeys").param("window", "5m").param("limit", "2")
+                        .header("Authorization", "Bearer reporting"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.window").value("PT5M"))
+                .andExpect(jsonPath("$.reads.length()").value(2))
+                .andExpect(jsonPath("$.reads[0].key").value("hotkey"))
+                .andExpect(jsonPath("$.reads[0].count").value(10))
+                .andExpect(jsonPath("$.reads[0].error").value(0))
+                .andExpect(jsonPath("$.reads[1].key").value("warmkey"))
+                .andExpect(jsonPath("$.bytes[0].key").value("warmkey"))
+                .andExpect(jsonPath("$.bytes[0].count").value(4000))
+                .andExpect(jsonPath("$.writes[?(@.key == 'hotkey')].count").value(1))
+                // Unverified bearer tokens are secrets, only their fingerprint is reported
+                .andExpect(jsonPath("$.principals[0].key").value(startsWith("token-")))
+                .andExpect(jsonPath("$.principals[0].count").value(10));
+
+        mockMvc.perform(delete("/files/hotkey")).andExpect(status().isOk());
+        mockMvc.perform(delete("/files/warmkey")).andExpect(status().isOk());
+        mockMvc.perform(get("/actuator/hotkeys").param("window", "1d").header("Authorization", "Bearer reporting"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldKeepCountingAfterBufferOverflow() {
+        HotKeysProperties properties = new HotKeysProperties();
+        properties.setBufferSize(2);
+        HotKeysService service = new HotKeysService(properties, new AuthProperties(), new SimpleMeterRegistry());
+        Duration window = service.getDefaultWindow();
+        for (int i = 0; i < 3; i++) {
+            service.recordRead("overflowed", 1, null);
+        }
+        HotKeysResponse overflowed = service.getHotKeys(window, 10);
+        assertThat(overflowed.dropped()).isEqualTo(1);
+        assertThat(overflowed.reads()).extracting(HotKeysResponse.Entry::count).containsExactly(2L);
+
+        // The dropped request leaves no hole for the next ones to fall into
+        service.recordRead("following", 1, null);
+        HotKeysResponse following = service.getHotKeys(window, 10);
+        assertThat(following.dropped()).isEqualTo(1);
+        assertThat(following.reads()).extracting(HotKeysResponse.Entry::key, HotKeysResponse.Entry::count)
+                .contains(tuple("following", 1L));
+    }
+
+    @Test
+    void shouldNotCountDeletesAsBytes() {
+        HotKeysProperties properties = new HotKeysProperties();
+        properties.setCapacity(1);
+        HotKeysService service = new HotKeysService(properties, new AuthProperties(), new SimpleMeterRegistry());
+        service.recordWrite("written", 10, null);
+        service.recordWrite("deleted", 0, null);
+
+        HotKeysResponse response = service.getHotKeys(service.getDefaultWindow(), 10);
+        assertThat(response.bytes()).containsExactly(new HotKeysResponse.Entry("written", 10, 0));
+    }
+
+    @Test
+    void shouldKeepHeavyHittersOfSkewedStream() {
+        SpaceSaving summary = new SpaceSaving(32);
+        Random random = new Random(42);
+        long[] counts = new long[1000];
+        for (int i = 0; i < 100_000; i++) {
+            // Zipf-like: a few keys take most of the stream
+            int key = (int) Math.min(counts.length - 1, Math.floor(Math.pow(random.nextDouble(), 4) * counts.length));
+            counts[key]++;
+            summary.add("key-" + key, 1);
+        }
+
+        List<SpaceSaving.Counter> top = summary.top(3);
+        assertThat(top).extracting(SpaceSaving.Counter::key).containsExactly("key-0", "key-1", "key-2");
+        for (SpaceSaving.Counter counter : summary.getCounters()) {
+            long actual = counts[Integer.parseInt(counter.key().substring(4))];
+            assertThat(counter.count()).isGreaterThanOrEqualTo(actual);
+            assertThat(counter.count() - counter.error()).isLessThanOrEqualTo(actual);
+        }
+        assertThat(summary.size()).isEqualTo(32);
+        assertThat(summary.getMinCount()).isLessThanOrEqualTo(100_000 / 32);
+    }
+
+    private void put(String fileName, String content) throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", fileName, "text/plain", content.getBytes());
+        mockMvc.perform(multipart("/files/" + fileName).file(file).with(request -> {
+            request.setMethod("PUT");
+            return request;
+        })).andExpect(status().isOk());
+    }
+}
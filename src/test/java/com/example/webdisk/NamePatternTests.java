@@ -0,0 +1,144 @@
+package com.example.webdisk;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.webdisk.search.LevenshteinAutomaton;
+import com.example.webdisk.search.NamePattern;
+import com.example.webdisk.util.FilesNameSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class NamePatternTests {
+
+    private static final String[] SUPPORTED = {
+        "", "one", "^one$", "^[a-z]{3}$", "f_A0", "^f_1", "[0-9]{3}", ".*_z$", "(Ab|Ba)c", "a|b|", "^$",
+        "[^a-z]+", "\\d\\w\\W", "[a-cX-Z_-]{2,}", "(?:ab)*c?", "x+?y", "a{2,3}b{0,1}", "\\-\\_", "^(a|^b)c",
+        "(a$|b)", "[\\d-]x", "..?.{1}$", "(a*)*b", "\\s|Q", "\\S{5}", "[.]"
+    };
+
+    @Test
+    void shouldMatchLikeJavaRegex() {
+        List<String> names = names();
+        for (String regex : SUPPORTED) {
+            NamePattern pattern = NamePattern.compile(regex);
+            Pattern expected = Pattern.compile(regex);
+            assertThat(pattern.isLinear()).as(regex).isTrue();
+            for (String name : names) {
+                assertThat(pattern.matches(name)).as("%s on %s", regex, name)
+                        .isEqualTo(expected.matcher(name).find());
+            }
+        }
+    }
+
+    @Test
+    void shouldFallBackOnUnsupportedConstructs() {
+        for (String regex : new String[] { "(a)\\1", "a(?=b)", "a*+b", "(?i)one", "\\bone", "[a-z&&[^b]]" }) {
+            NamePattern pattern = NamePattern.compile(regex);
+            assertThat(pattern.isLinear()).as(regex).isFalse();
+            assertThat(pattern.matches("aab")).isEqualTo(Pattern.compile(regex).matcher("aab").find());
+        }
+    }
+
+    @Test
+    void shouldMatchNamesOutsideTheAlphabet() {
+        assertThat(NamePattern.compile("e\\.t").matches("one.txt")).isTrue();
+        assertThat(NamePattern.compile("^[a-z]+$").matches("one.txt")).isFalse();
+    }
+
+    @Test
+    void shouldRejectInvalidPatterns() {
+        assertThatThrownBy(() -> NamePattern.compile("(a"))
+            .isInstanceOf(PatternSyntaxException.class);
+        assertThatThrownBy(() -> NamePattern.glob("a[b"))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void shouldMatchGlobsAgainstWholeNames() {
+        NamePattern glob = NamePattern.glob("invoice_2025*-??");
+        assertThat(glob.matches("invoice_2025_03-01")).isTrue();
+        assertThat(glob.matches("invoice_2025-1")).isFalse();
+        assertThat(glob.matches("xinvoice_2025-01")).isFalse();
+        assertThat(glob.prefix()).isEqualTo("invoice_2025");
+        assertThat(NamePattern.glob("[a-c]x").matches("bx")).isTrue();
+        assertThat(NamePattern.glob("[!a-c]x").matches("bx")).isFalse();
+        assertThat(NamePattern.glob("[]-]").matches("-")).isTrue();
+        assertThat(NamePattern.glob("a.b\\*").matches("a.b*")).isTrue();
+        assertThat(NamePattern.glob("a.b").matches("axb")).isFalse();
+    }
+
+    @Test
+    void shouldExtractTheLiteralPrefixOfAnchoredPatterns() {
+        assertThat(NamePattern.compile("^invoice_2025").prefix()).isEqualTo("invoice_2025");
+        assertThat(NamePattern.compile("^ab*c").prefix()).isEqualTo("a");
+        assertThat(NamePattern.compile("^a[0-9]").prefix()).isEqualTo("a");
+        assertThat(NamePattern.compile("^a|^b").prefix()).isEmpty();
+        assertThat(NamePattern.compile("ab").prefix()).isEmpty();
+        assertThat(NamePattern.compile("^(a)\\1").prefix()).isEmpty();
+    }
+
+    @Test
+    void shouldAcceptNamesWithinAnEditDistance() {
+        String[] words = { "one", "f_A0", "", "abcabc" };
+        for (String word : words) {
+            for (int distance = 0; distance <= LevenshteinAutomaton.MAX_DISTANCE; distance++) {
+                LevenshteinAutomaton automaton = new LevenshteinAutomaton(word, distance);
+                for (String name : names()) {
+                    assertThat(automaton.matches(name)).as("%s to %s", name, word)
+                        .isEqualTo(levenshtein(name, word) <= distance);
+                }
+            }
+        }
+        assertThatThrownBy(() -> new LevenshteinAutomaton("one", 3))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static int levenshtein(String a, String b) {
+        int[][] table = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++) {
+            for (int j = 0; j <= b.length(); j++) {
+                table[i][j] = i == 0 ? j : j == 0 ? i
+                        : Math.min(table[i - 1][j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1),
+                                Math.min(table[i - 1][j], table[i][j - 1]) + 1);
+            }
+        }
+        return table[a.length()][b.length()];
+    }
+
+    @Test
+    void shouldMatchPathologicalPatternsInLinearTime() {
+        String name = "a".repeat(63) + "-";
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            assertThat(NamePattern.compile("(a+)+$").matches(name)).isFalse();
+            assertThat(NamePattern.compile("(a+)+-$").matches(name)).isTrue();
+            assertThat(NamePattern.compile("^(a|aa)+$").matches(name)).isFalse();
+            assertThat(NamePattern.compile("^(a*)*b").matches(name)).isFalse();
+        });
+    }
+
+    private static List<String> names() {
+        List<String> names = new ArrayList<>(List.of("one", "andone", "two", "a", "b", "ab", "aab", "abc", "Abc",
+                "Bac", "xy", "xxy", "f_A0", "f_1", "123", "_z", "a_z", "Q", "---", "x_"));
+        FilesNameSupplier supplier = new FilesNameSupplier(42);
+        SplittableRandom random = new SplittableRandom(42);
+        String small = "abcxyzABQ019_-";
+        for (int i = 0; i < 500; i++) {
+            names.add(supplier.get());
+            char[] chars = new char[1 + random.nextInt(8)];
+            for (int j = 0; j < chars.length; j++) {
+                chars[j] = small.charAt(random.nextInt(small.length()));
+            }
+            names.add(new String(chars));
+        }
+        return names;
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.webdisk;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.example.webdisk.codec.NamesCodec;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@AutoConfigureMockMvc
+@SpringBootTest
+class NamesCodecTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void shouldRoundTripFrontCodedNames() throws IOException {
+        String[] names = IntStream.range(0, 5000).mapToObj(i -> String.format("file_%06d", i)).toArray(String[]::new);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        NamesCodec.write(output, names, true, "ZmlsZV8wMDQ5OTk");
+        NamesCodec.Names decoded = NamesCodec.read(new ByteArrayInputStream(output.toByteArray()));
+
+        assertThat(decoded.names()).containsExactly(names);
+        assertThat(decoded.partial()).isTrue();
+        assertThat(decoded.next()).isEqualTo("ZmlsZV8wMDQ5OTk");
+        // Shared prefixes leave about 4 bytes per name, a fifth of the JSON size
+        int json = Arrays.stream(names).mapToInt(name -> name.length() + 3).sum();
+        assertThat(output.size()).isLessThan(json / 4);
+    }
+
+    @Test
+    void shouldRejectTruncatedOrForeignContent() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        NamesCodec.write(output, new String[] {"one", "oneup"}, false, null);
+        byte[] encoded = output.toByteArray();
+
+        assertThatThrownBy(() -> NamesCodec.read(new ByteArrayInputStream(encoded, 0, encoded.length - 1)))
+                .isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> NamesCodec.read(new ByteArrayInputStream("{\"results\":[]}".getBytes(StandardCharsets.UTF_8))))
+                .isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> NamesCodec.write(new ByteArrayOutputStream(), new String[] {"café"}, false, null))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void shouldNegotiateBinarySearchResults() throws Exception {
+        MvcResult result = mockMvc.perform(get("/files/search?pattern=one").accept(NamesCodec.MEDIA_TYPE))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(NamesCodec.MEDIA_TYPE))
+                .andReturn();
+
+        NamesCodec.Names decoded = NamesCodec.read(new ByteArrayInputStream(result.getResponse().getContentAsByteArray()));
+        assertThat(decoded.names()).containsExactlyInAnyOrder("one", "andone");
+        assertThat(decoded.partial()).isFalse();
+
+        mockMvc.perform(get("/files/search?pattern=one"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON));
+        mockMvc.perform(get("/files/search?pattern=one").accept(MediaType.ALL))
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON));
+    }
+
+    @Test
+    void shouldNegotiateBinaryListingPages() throws Exception {
+        MvcResult result = mockMvc.perform(get("/files/list?limit=3").accept(NamesCodec.MEDIA_TYPE))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        NamesCodec.Names page = NamesCodec.read(new ByteArrayInputStream(result.getResponse().getContentAsByteArray()));
+        assertThat(page.names()).hasSize(3).isSorted();
+        assertThat(page.next()).isNotNull();
+
+        result = mockMvc.perform(get("/files/list?limit=10&after=" + page.next()).accept(NamesCodec.MEDIA_TYPE))
+                .andExpect(status().isOk())
+                .andReturn();
+        page = NamesCodec.read(new ByteArrayInputStream(result.getResponse().getContentAsByteArray()));
+        assertThat(page.names()).hasSize(4);
+        assertThat(page.next()).isNull();
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.webdisk;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.example.webdisk.reconciler.ReconcilerProperties;
+import com.example.webdisk.reconciler.ReconcilerService;
+import com.example.webdisk.replication.ReplicationProperties;
+import com.example.webdisk.replication.ReplicationService;
+import com.example.webdisk.service.CacheService;
+import com.example.webdisk.service.FilesService;
+import com.example.webdisk.service.NameLocks;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReconcilerTests {
+
+    @TempDir
+    private Path storagePath;
+
+    @TempDir
+    private Path statePath;
+
+    private SimpleMeterRegistry registry;
+    private FilesService storage;
+    private CacheService cache;
+    private ReplicationService replication;
+    private ReconcilerProperties properties;
+    private NameLocks locks;
+
+    @BeforeEach
+    void setup() throws IOException {
+        registry = new SimpleMeterRegistry();
+        storage = new FilesService();
+        storage.setMeterRegistry(registry);
+        storage.setPath(storagePath.toString());
+        locks = new NameLocks(64);
+        storage.setNameLocks(locks);
+        for (int i = 0; i < 10; i++) {
+            storage.putFile("file-" + i, new ByteArrayInputStream("content".getBytes(StandardCharsets.UTF_8)));
+        }
+        cache = new CacheService(storage, registry);
+        cache.initCache();
+        replication = new ReplicationService(new ReplicationProperties(), cache, storage, locks, new ObjectMapper(), registry);
+        properties = new ReconcilerProperties();
+        properties.setChunkSize(3);
+        properties.setGrace(Duration.ZERO);
+        properties.setInterval(Duration.ofMillis(10));
+        properties.setMaxInterval(Duration.ofMillis(80));
+        properties.setStateFile(statePath.resolve("reconciler.state").toString());
+    }
+
+    @Test
+    void shouldRepairOrphansAndGhosts() throws Exception {
+        Files.writeString(storagePath.resolve("orphan"), "copied directly");
+        Files.delete(storagePath.resolve("file-4"));
+        Files.delete(storagePath.resolve("file-7"));
+        ReconcilerService reconciler = new ReconcilerService(properties, cache, storage, replication, locks, registry);
+
+        runPass(reconciler);
+
+        assertThat(cache.containsFile("orphan")).isTrue();
+        assertThat(cache.getMetadata("orphan").size()).isEqualTo(15);
+        assertThat(cache.containsFile("file-4")).isFalse();
+        assertThat(cache.containsFile("file-7")).isFalse();
+        assertThat(cache.getSize()).isEqualTo(9);
+        assertThat(storage.getStats().getFiles()).isEqualTo(9);
+        assertThat(registry.get("webdisk.reconciler.repairs").tag("type", "orphan").counter().count()).isEqualTo(1);
+        assertThat(registry.get("webdisk.reconciler.repairs").tag("type", "ghost").counter().count()).isEqualTo(2);
+        assertThat(replication.getStatus().sequence()).isEqualTo(3);
+    }
+
+    @Test
+    void shouldResumeFromSavedProgress() throws Exception {
+        ReconcilerService reconciler = new ReconcilerService(properties, cache, storage, replication, locks, registry);
+        // Storage phase, 4 chunks of 3 names then the end, then the registry phase
+        for (int i = 0; i < 6; i++) {
+            assertThat(reconciler.step()).isFalse();
+        }
+        assertThat(Files.readString(statePath.resolve("reconciler.state"))).contains("phase=registry", "cursor=file-2");
+        // A name removed behind the cursor is left to the next pass
+        cache.putFile("file-0-ghost");
+
+        ReconcilerService restarted = new ReconcilerService(properties, cache, storage, replication, locks, registry);
+        int steps = runPass(restarted);
+
+        assertThat(steps).isEqualTo(3);
+        assertThat(restarted.getPasses()).isEqualTo(1);
+        assertThat(cache.containsFile("file-0-ghost")).isTrue();
+        runPass(restarted);
+        assertThat(cache.containsFile("file-0-ghost")).isFalse();
+    }
+
+    @Test
+    void shouldSaveProgressNextToTheFilesByDefault() throws Exception {
+        properties.setStateFile(new ReconcilerProperties().getStateFile());
+        ReconcilerService reconciler = new ReconcilerService(properties, cache, storage, replication, locks, registry);
+        assertThat(reconciler.step()).isFalse();
+        assertThat(storagePath.resolve(".reconciler.state")).exists();
+
+        runPass(reconciler);
+        // Not taken for an orphan file
+        assertThat(cache.getSize()).isEqualTo(10);
+    }
+
+    @Test
+    void shouldBackOffWhileStorageIsSlow() {
+        ReconcilerService reconciler = new ReconcilerService(properties, cache, storage, replication, locks, registry);
+        assertThat(reconciler.getDelayMillis()).isEqualTo(10);
+
+        registry.timer("webdisk.storage.operations", "operation", "read").record(100, TimeUnit.MILLISECONDS);
+        reconciler.nextDelay();
+        assertThat(reconciler.getDelayMillis()).isEqualTo(20);
+        for (int i = 0; i < 5; i++) {
+            registry.timer("webdisk.storage.operations", "operation", "read").record(100, TimeUnit.MILLISECONDS);
+            reconciler.nextDelay();
+        }
+        assertThat(reconciler.getDelayMillis()).isEqualTo(80);
+
+        registry.timer("webdisk.storage.operations", "operation", "read").record(1, TimeUnit.MILLISECONDS);
+        reconciler.nextDelay();
+        assertThat(reconciler.getDelayMillis()).isEqualTo(40);
+        reconciler.nextDelay();
+        reconciler.nextDelay();
+        reconciler.nextDelay();
+        assertThat(reconciler.getDelayMillis()).isEqualTo(10);
+    }
+
+    private static int runPass(ReconcilerService reconciler) throws IOException, InterruptedException {
+        int steps = 1;
+        while (!reconciler.step()) {
+            steps++;
+        }
+        return steps;
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.webdisk;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.example.webdisk.replication.ReplicationService;
+import com.example.webdisk.response.ReplicationLogResponse;
+import com.example.webdisk.response.ReplicationStatusResponse;
+import com.example.webdisk.service.CacheService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Runs a primary instance on a random port, and this test context as its follower.
+ */
+@AutoConfigureMockMvc
+@SpringBootTest(properties = {"webdisk.replication.poll-wait=200ms", "webdisk.replication.read-wait=2s"})
+class ReplicationTests {
+
+    private static final HttpClient client = HttpClient.newHttpClient();
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private static ConfigurableApplicationContext primary;
+    private static String primaryUrl;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ReplicationService replication;
+
+    @Autowired
+    private CacheService cache;
+
+    @DynamicPropertySource
+    static void follow(DynamicPropertyRegistry registry) throws IOException {
+        Path primaryStorage = Files.createTempDirectory("webdisk-primary");
+        Files.writeString(primaryStorage.resolve("before"), "existing");
+        Files.writeString(primaryStorage.resolve("changed"), "primary");
+        Path followerStorage = Files.createTempDirectory("webdisk-follower");
+        Files.writeString(followerStorage.resolve("changed"), "stale");
+        Files.writeString(followerStorage.resolve("stray"), "deleted on resync");
+        primary = new SpringApplicationBuilder(WebdiskApplication.class)
+                .run("--server.port=0", "--webdisk.path=" + primaryStorage, "--spring.devtools.restart.enabled=false");
+        primaryUrl = "http://localhost:" + primary.getEnvironment().getProperty("local.server.port");
+        registry.add("webdisk.path", followerStorage::toString);
+        registry.add("webdisk.replication.primary", () -> primaryUrl);
+    }
+
+    @AfterAll
+    static void stopPrimary() {
+        primary.close();
+    }
+
+    @Test
+    void shouldResynchronizeOnStart() throws Exception {
+        await(() -> replication.getStatus().epoch() != null && cache.containsFile("before")
+                && !cache.containsFile("stray"));
+        mockMvc.perform(get("/files/before")).andExpect(content().string("existing"));
+        mockMvc.perform(get("/files/changed")).andExpect(content().string("primary"));
+        mockMvc.perform(get("/files/stray")).andExpect(status().isNotFound());
+    }
+
+    @Test
+    void shouldReadYourWritesWithTheSequenceToken() throws Exception {
+        String name = "repl-" + UUID.randomUUID();
+        HttpResponse<String> put = putOnPrimary(name, "written");
+        assertThat(put.statusCode()).isEqualTo(200);
+        String token = put.headers().firstValue(ReplicationService.SEQUENCE_HEADER).orElseThrow();
+
+        mockMvc.perform(get("/files/" + name).header(ReplicationService.SEQUENCE_HEADER, token))
+                .andExpect(status().isOk())
+                .andExpect(content().string("written"));
+
+        HttpResponse<String> delete = client.send(HttpRequest.newBuilder(URI.create(primaryUrl + "/files/" + name))
+                .DELETE().build(), HttpResponse.BodyHandlers.ofString());
+        token = delete.headers().firstValue(ReplicationService.SEQUENCE_HEADER).orElseThrow();
+        mockMvc.perform(get("/files/" + name).header(ReplicationService.SEQUENCE_HEADER, token))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void shouldProxyWritesToThePrimary() throws Exception {
+        String name = "proxied-" + UUID.randomUUID();
+        String boundary = UUID.randomUUID().toString();
+        mockMvc.perform(put("/files/" + name)
+                .contentType("multipart/form-data; boundary=" + boundary)
+                .content(multipartBody(boundary, name, "through follower")))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(ReplicationService.SEQUENCE_HEADER));
+
+        HttpResponse<String> get = client.send(HttpRequest.newBuilder(URI.create(primaryUrl + "/files/" + name))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        assertThat(get.body()).isEqualTo("through follower");
+        await(() -> cache.containsFile(name));
+    }
+
+    @Test
+    void shouldExposeTheLogAndTheLag() throws Exception {
+        String name = "logged-" + UUID.randomUUID();
+        putOnPrimary(name, "logged");
+        HttpResponse<String> log = client.send(HttpRequest.newBuilder(URI.create(primaryUrl
+                + "/replication/log?after=0&limit=10000")).build(), HttpResponse.BodyHandlers.ofString());
+        ReplicationLogResponse changes = mapper.readValue(log.body(), ReplicationLogResponse.class);
+        assertThat(changes.first()).isEqualTo(1);
+        assertThat(changes.changes()).last()
+                .satisfies(change -> assertThat(change.name()).isEqualTo(name))
+                .satisfies(change -> assertThat(change.operation()).isEqualTo("PUT"))
+                .satisfies(change -> assertThat(change.sequence()).isEqualTo(changes.last()));
+
+        await(() -> replication.getStatus().sequence() >= changes.last());
+        ReplicationStatusResponse status = replication.getStatus();
+        assertThat(status.role()).isEqualTo("follower");
+        assertThat(status.epoch()).isEqualTo(changes.epoch());
+        assertThat(status.lag()).isZero();
+        mockMvc.perform(get("/replication/status"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"role\":\"follower\",\"lag\":0}"));
+    }
+
+    @Test
+    void shouldServeUnknownTokensFromThePrimary() throws Exception {
+        // A token of an unknown epoch cannot be checked by the follower: the primary answers
+        mockMvc.perform(get("/files/before").header(ReplicationService.SEQUENCE_HEADER, "unknown.1"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("existing"));
+    }
+
+    private static HttpResponse<String> putOnPrimary(String name, String content) throws Exception {
+        String boundary = UUID.randomUUID().toString();
+        return client.send(HttpRequest.newBuilder(URI.create(primaryUrl + "/files/" + name))
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .PUT(HttpRequest.BodyPublishers.ofString(multipartBody(boundary, name, content)))
+                .build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static String multipartBody(String boundary, String name, String content) {
+        return "--" + boundary + "\r\nContent-Disposition: form-data; name=\"file\"; filename=\"" + name
+                + "\"\r\nContent-Type: text/plain\r\n\r\n" + content + "\r\n--" + boundary + "--\r\n";
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        for (int i = 0; i < 500 && !condition.getAsBoolean(); i++) {
+            Thread.sleep(10);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+}
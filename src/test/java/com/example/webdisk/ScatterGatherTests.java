@@ -0,0 +1,224 @@
+package com.example.webdisk;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.example.webdisk.cluster.ClusterService;
+import com.example.webdisk.response.FilesSearchResponse;
+import com.example.webdisk.service.CacheService;
+import com.example.webdisk.service.FilesService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@AutoConfigureMockMvc
+@SpringBootTest(properties = {"webdisk.cluster.rebalance=false", "webdisk.cluster.timeout=500ms"})
+class ScatterGatherTests {
+
+    private static final String SELF = "http://localhost:1";
+    private static final List<String> LOCAL = List.of("gather-b", "gather-e", "gather-x1");
+
+    private static HttpServer fast;
+    private static HttpServer slow;
+    private static volatile boolean slowDown;
+    private static final List<String> received = new CopyOnWriteArrayList<>();
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CacheService cache;
+
+    @Autowired
+    private FilesService storage;
+
+    @DynamicPropertySource
+    static void cluster(DynamicPropertyRegistry registry) throws IOException {
+        fast = peer(List.of("gather-a", "gather-d", "gather-f", "gather-x2"), false);
+        slow = peer(List.of("gather-c", "gather-e", "gather-g"), true);
+        Path storage = Files.createTempDirectory("webdisk-gather");
+        registry.add("webdisk.path", storage::toString);
+        registry.add("webdisk.cluster.self", () -> SELF);
+        registry.add("webdisk.cluster.nodes", () -> String.join(",", SELF, urlOf(fast), urlOf(slow)));
+    }
+
+    @AfterAll
+    static void stopPeers() {
+        fast.stop(0);
+        slow.stop(0);
+    }
+
+    @BeforeEach
+    void addLocalFiles() throws IOException {
+        received.clear();
+        slowDown = false;
+        for (String name : LOCAL) {
+            cache.putFile(name, storage.putFile(name, new MockMultipartFile("file", name, null, "data".getBytes())));
+        }
+    }
+
+    @AfterEach
+    void deleteLocalFiles() throws IOException {
+        for (String name : LOCAL) {
+            storage.deleteFile(name);
+            cache.deleteFile(name);
+        }
+    }
+
+    @Test
+    void shouldMergeSortedResultsOfAllNodes() throws Exception {
+        mockMvc.perform(get("/files/search").param("pattern", "gather-").param("mode", "prefix"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"results\":[\"gather-a\",\"gather-b\",\"gather-c\",\"gather-d\","
+                        + "\"gather-e\",\"gather-f\",\"gather-g\",\"gather-x1\",\"gather-x2\"],\"partial\":false}", true));
+        assertThat(received).hasSize(2).allSatisfy(request -> assertThat(request).endsWith(SELF));
+    }
+
+    @Test
+    void shouldLimitMergedResults() throws Exception {
+        mockMvc.perform(get("/files/search").param("pattern", "gather-*").param("mode", "glob").param("limit", "4"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"results\":[\"gather-a\",\"gather-b\",\"gather-c\",\"gather-d\"],"
+                        + "\"partial\":false}", true));
+        assertThat(received).allSatisfy(request -> assertThat(request).contains("limit=4"));
+    }
+
+    @Test
+    void shouldStopUnsortedSearchesAtTheLimit() throws Exception {
+        slowDown = true;
+        String body = mockMvc.perform(get("/files/search").param("pattern", "^gather-").param("limit", "5"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        FilesSearchResponse response = new ObjectMapper().readValue(body, FilesSearchResponse.class);
+        // The local and fast nodes match 7 names: the slow node is not waited for
+        assertThat(response.results()).hasSize(5).doesNotHaveDuplicates();
+        // Waiting for the slow node would have run into the cluster timeout, flagging the
+        // results as partial: the search stopped at the limit and cancelled it instead
+        assertThat(response.partial()).isFalse();
+    }
+
+    @Test
+    void shouldFlagResultsMissingASlowNode() throws Exception {
+        slowDown = true;
+        mockMvc.perform(get("/files/search").param("pattern", "gather-").param("mode", "prefix"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"results\":[\"gather-a\",\"gather-b\",\"gather-d\","
+                        + "\"gather-e\",\"gather-f\",\"gather-x1\",\"gather-x2\"],\"partial\":true}", true));
+        mockMvc.perform(get("/files/size"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"size\":7,\"bytes\":16,\"partial\":true}"));
+    }
+
+    @Test
+    void shouldCountTheFilesOfAllNodes() throws Exception {
+        mockMvc.perform(get("/files/size"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"size\":10,\"bytes\":19,\"partial\":false}"));
+    }
+
+    @Test
+    void shouldAnswerForwardedRequestsLocally() throws Exception {
+        mockMvc.perform(get("/files/search").param("pattern", "gather-").param("mode", "prefix")
+                .header(ClusterService.FORWARDED_HEADER, urlOf(fast)))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"results\":[\"gather-b\",\"gather-e\",\"gather-x1\"],\"partial\":false}", true));
+        assertThat(received).isEmpty();
+    }
+
+    @Test
+    void shouldRejectAnInvalidLimit() throws Exception {
+        mockMvc.perform(get("/files/search").param("pattern", "gather-").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private static String urlOf(HttpServer server) {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    /**
+     * Starts a fake node holding the given sorted names, each of 1 byte. A slow node does not
+     * answer within the cluster timeout while slowing down.
+     */
+    private static HttpServer peer(List<String> names, boolean isSlow) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/files/", exchange -> {
+            received.add(exchange.getRequestURI() + " " + exchange.getRequestHeaders().getFirst(ClusterService.FORWARDED_HEADER));
+            if (isSlow && slowDown) {
+                sleep(1500);
+            }
+            Map<String, Object> answer = new HashMap<>();
+            if (exchange.getRequestURI().getPath().equals("/files/size")) {
+                answer.put("size", names.size());
+                answer.put("bytes", names.size());
+            } else {
+                answer.put("results", search(names, query(exchange)));
+            }
+            answer.put("partial", false);
+            byte[] body = new ObjectMapper().writeValueAsBytes(answer);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        return server;
+    }
+
+    private static List<String> search(List<String> names, Map<String, String> query) {
+        String pattern = query.get("pattern");
+        int limit = Integer.parseInt(query.get("limit"));
+        return names.stream()
+                .filter(switch (query.get("mode")) {
+                    case "prefix" -> name -> name.startsWith(pattern);
+                    case "glob" -> name -> name.startsWith(pattern.substring(0, pattern.length() - 1));
+                    default -> name -> Pattern.compile(pattern).matcher(name).find();
+                })
+                .limit(limit)
+                .toList();
+    }
+
+    private static Map<String, String> query(HttpExchange exchange) {
+        Map<String, String> query = new HashMap<>();
+        for (String param : exchange.getRequestURI().getRawQuery().split("&")) {
+            String[] pair = param.split("=", 2);
+            query.put(pair[0], URLDecoder.decode(pair[1], StandardCharsets.UTF_8));
+        }
+        return query;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.webdisk;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.example.webdisk.service.FileMetadata;
+import com.example.webdisk.service.FilesService;
+import com.example.webdisk.service.FrequencySketch;
+import com.example.webdisk.tiering.TieringService;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@AutoConfigureMockMvc
+@SpringBootTest(properties = {
+        "webdisk.tiering.cold-after=0s",
+        "webdisk.tiering.max-frequency=2",
+        "webdisk.tiering.chunk-size=2",
+        "webdisk.tiering.interval=0s"})
+class TieringTests {
+
+    private static Path storage;
+    private static Path archive;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TieringService tiering;
+
+    @Autowired
+    private FilesService files;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @DynamicPropertySource
+    static void directories(DynamicPropertyRegistry registry) throws IOException {
+        storage = Files.createTempDirectory("webdisk-tiering-storage");
+        archive = Files.createTempDirectory("webdisk-tiering-archive");
+        registry.add("webdisk.path", storage::toString);
+        registry.add("webdisk.tiering.archive", archive::toString);
+    }
+
+    @Test
+    void shouldArchiveColdFilesAndPromoteThemOnRead() throws Exception {
+        String text = "cold content, ".repeat(200);
+        put("cold", text);
+        put("hot", "hot content");
+        String etag = mockMvc.perform(get("/files/cold")).andReturn().getResponse().getHeader("ETag");
+        for (int i = 0; i < 10; i++) {
+            mockMvc.perform(get("/files/hot")).andExpect(status().isOk());
+        }
+        long lastModified = Files.getLastModifiedTime(storage.resolve("cold")).toMillis();
+
+        assertThat(tiering.archiveColdFiles()).isEqualTo(1);
+        assertThat(Files.exists(storage.resolve("cold"))).isFalse();
+        assertThat(Files.exists(storage.resolve("hot"))).isTrue();
+        assertThat(Files.size(archive.resolve("cold"))).isLessThan(text.length());
+        assertThat(tierBytes("cold")).isEqualTo(text.length());
+        assertThat(files.readMetadata("cold").size()).isEqualTo(text.length());
+        // Already archived
+        assertThat(tiering.archiveColdFiles()).isZero();
+
+        mockMvc.perform(get("/files/cold"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", etag))
+                .andExpect(content().string(text));
+        assertThat(Files.exists(storage.resolve("cold"))).isTrue();
+        assertThat(Files.exists(archive.resolve("cold"))).isFalse();
+        assertThat(Files.getLastModifiedTime(storage.resolve("cold")).toMillis()).isEqualTo(lastModified);
+        assertThat(tierBytes("cold")).isZero();
+        assertThat(registry.get("webdisk.tiering.moves").tag("direction", "promote").functionCounter().count())
+                .isGreaterThanOrEqualTo(1);
+
+        // Each pass halved the read frequencies: the reads of hot are forgotten after two passes
+        assertThat(tiering.archiveColdFiles()).isEqualTo(2);
+
+        mockMvc.perform(delete("/files/cold")).andExpect(status().isOk());
+        mockMvc.perform(delete("/files/hot")).andExpect(status().isOk());
+    }
+
+    @Test
+    void shouldReplaceAndDeleteArchivedFiles() throws Exception {
+        put("replaced", "archived content");
+        put("deleted", "archived content");
+        long bytes = files.getStats().getBytes();
+        assertThat(files.archiveFile("replaced")).isEqualTo(16);
+        assertThat(files.archiveFile("deleted")).isEqualTo(16);
+        assertThat(files.archiveFile("deleted")).isEqualTo(-1);
+
+        put("replaced", "new");
+        assertThat(Files.exists(archive.resolve("replaced"))).isFalse();
+        assertThat(files.getStats().getBytes()).isEqualTo(bytes - 13);
+        mockMvc.perform(get("/files/replaced")).andExpect(content().string("new"));
+
+        mockMvc.perform(delete("/files/deleted")).andExpect(status().isOk());
+        assertThat(Files.exists(archive.resolve("deleted"))).isFalse();
+        assertThat(files.getStats().getBytes()).isEqualTo(bytes - 13 - 16);
+        mockMvc.perform(get("/files/deleted")).andExpect(status().isNotFound());
+        mockMvc.perform(delete("/files/replaced")).andExpect(status().isOk());
+    }
+
+    @Test
+    void shouldListArchivedFilesOnStartup() throws Exception {
+        Path volume = Files.createTempDirectory("webdisk-tiering-volume");
+        Path cold = Files.createTempDirectory("webdisk-tiering-cold");
+        FilesService service = new FilesService();
+        service.setPath(volume.toString());
+        service.setArchive(cold.toString());
+        try {
+            service.putFile("kept", new ByteArrayInputStream(bytes("hot")));
+            service.putFile("archived", new ByteArrayInputStream(bytes("cold file")));
+            service.archiveFile("archived");
+            // Left over by a promotion interrupted before deleting the archived copy
+            service.putFile("promoted", new ByteArrayInputStream(bytes("promoted")));
+            service.archiveFile("promoted");
+            Files.write(volume.resolve("promoted"), bytes("promoted"));
+
+            Map<String, FileMetadata> scanned = new HashMap<>();
+            service.scanFiles(scanned::put);
+
+            assertThat(scanned).containsOnlyKeys("kept", "archived", "promoted");
+            assertThat(scanned.get("archived").size()).isEqualTo(9);
+            assertThat(Files.exists(cold.resolve("promoted"))).isFalse();
+            assertThat(service.getArchivedFiles()).isEqualTo(1);
+            assertThat(service.getArchivedBytes()).isEqualTo(9);
+            assertThat(service.getStats().getBytes()).isEqualTo(3 + 9 + 8);
+            try (var walk = service.walkFiles()) {
+                assertThat(walk.toList()).containsExactlyInAnyOrder("kept", "archived", "promoted");
+            }
+        } finally {
+            service.close();
+        }
+    }
+
+    @Test
+    void shouldForgetReadsAfterEachPass() throws Exception {
+        FrequencySketch sketch = new FrequencySketch(1 << 20);
+        sketch.increment("burst");
+        sketch.increment("burst");
+        sketch.increment("burst");
+        sketch.increment("burst");
+        assertThat(sketch.frequency("burst")).isEqualTo(4);
+        // Far from a full sample of increments, only aged by the passes
+        sketch.age();
+        assertThat(sketch.frequency("burst")).isEqualTo(2);
+        sketch.age();
+        assertThat(sketch.frequency("burst")).isEqualTo(1);
+    }
+
+    private void put(String fileName, String text) throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", fileName, "text/plain", bytes(text));
+        mockMvc.perform(multipart("/files/" + fileName).file(file).with(request -> {
+            request.setMethod("PUT");
+            return request;
+        })).andExpect(status().isOk());
+    }
+
+    private double tierBytes(String tier) {
+        return registry.get("webdisk.tiering.bytes").tag("tier", tier).gauge().value();
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,210 @@
+package com.example.webdisk;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.example.webdisk.response.UploadResponse;
+import com.example.webdisk.service.CacheService;
+import com.example.webdisk.upload.UploadProperties;
+import com.example.webdisk.upload.UploadService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@AutoConfigureMockMvc
+@SpringBootTest(properties = "webdisk.upload.max-part-size=64KB")
+class UploadTests {
+
+    private static Path uploads;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CacheService cache;
+
+    @Autowired
+    private UploadService uploadService;
+
+    @Autowired
+    private UploadProperties properties;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @DynamicPropertySource
+    static void directories(DynamicPropertyRegistry registry) throws IOException {
+        Path storage = Files.createTempDirectory("webdisk-upload-storage");
+        uploads = Files.createTempDirectory("webdisk-uploads");
+        registry.add("webdisk.path", storage::toString);
+        registry.add("webdisk.upload.directory", uploads::toString);
+    }
+
+    @Test
+    void shouldAssembleParallelPartsSentInAnyOrder() throws Exception {
+        String id = start("assembled");
+        List<byte[]> parts = new ArrayList<>();
+        StringBuilder whole = new StringBuilder();
+        for (int i = 1; i <= 8; i++) {
+            String part = ("part-" + i + ";").repeat(i * 37);
+            parts.add(part.getBytes(StandardCharsets.UTF_8));
+            whole.append(part);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> sent = new ArrayList<>();
+            for (int i = parts.size(); i >= 1; i--) {
+                int number = i;
+                sent.add(executor.submit(() -> putPart(id, number, parts.get(number - 1))));
+            }
+            for (Future<?> part : sent) {
+                part.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        // A part sent again replaces the first one
+        putPart(id, 3, parts.get(2));
+
+        UploadResponse status = getUpload(id);
+        assertThat(status.parts()).extracting(UploadResponse.Part::number).containsExactly(1, 2, 3, 4, 5, 6, 7, 8);
+        assertThat(status.bytes()).isEqualTo(whole.length());
+        assertThat(Files.list(uploads.resolve(id)).count()).isEqualTo(9);
+
+        CRC32C checksum = new CRC32C();
+        checksum.update(whole.toString().getBytes(StandardCharsets.UTF_8));
+        String etag = String.format("\"%08x\"", (int) checksum.getValue());
+        mockMvc.perform(post("/files/uploads/" + id + "/commit"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", etag))
+                .andExpect(jsonPath("$.fileName").value("assembled"));
+
+        assertThat(cache.getMetadata("assembled").size()).isEqualTo(whole.length());
+        assertThat(Files.exists(uploads.resolve(id))).isFalse();
+        mockMvc.perform(get("/files/assembled"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", etag))
+                .andExpect(content().string(whole.toString()));
+        mockMvc.perform(get("/files/uploads/" + id))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(delete("/files/assembled"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void shouldRefuseCommitWithMissingParts() throws Exception {
+        String id = start("gap");
+        mockMvc.perform(post("/files/uploads/" + id + "/commit"))
+                .andExpect(status().isBadRequest());
+        putPart(id, 1, "one".getBytes(StandardCharsets.UTF_8));
+        putPart(id, 3, "three".getBytes(StandardCharsets.UTF_8));
+        mockMvc.perform(post("/files/uploads/" + id + "/commit"))
+                .andExpect(status().isBadRequest());
+        assertThat(cache.containsFile("gap")).isFalse();
+
+        // Resumed with the missing part
+        putPart(id, 2, "two".getBytes(StandardCharsets.UTF_8));
+        mockMvc.perform(post("/files/uploads/" + id + "/commit"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/files/gap"))
+                .andExpect(content().string("onetwothree"));
+        mockMvc.perform(delete("/files/gap"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void shouldRejectInvalidRequests() throws Exception {
+        mockMvc.perform(post("/files/uploads").param("name", "not/valid"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(put("/files/uploads/unknown/parts/1").content("x"))
+                .andExpect(status().isNotFound());
+        String id = start("invalid");
+        mockMvc.perform(put("/files/uploads/" + id + "/parts/0").content("x"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(put("/files/uploads/" + id + "/parts/1").content(new byte[64 * 1024 + 1]))
+                .andExpect(status().isPayloadTooLarge());
+        assertThat(getUpload(id).parts()).isEmpty();
+        assertThat(Files.list(uploads.resolve(id)).count()).isEqualTo(1);
+        mockMvc.perform(delete("/files/uploads/" + id))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void shouldAbortAndExpireSessions() throws Exception {
+        String aborted = start("aborted");
+        putPart(aborted, 1, "content".getBytes(StandardCharsets.UTF_8));
+        mockMvc.perform(delete("/files/uploads/" + aborted))
+                .andExpect(status().isOk());
+        assertThat(Files.exists(uploads.resolve(aborted))).isFalse();
+        mockMvc.perform(post("/files/uploads/" + aborted + "/commit"))
+                .andExpect(status().isNotFound());
+
+        String abandoned = start("abandoned");
+        putPart(abandoned, 1, "content".getBytes(StandardCharsets.UTF_8));
+        assertThat(uploadService.cleanup()).isZero();
+        Duration timeout = properties.getSessionTimeout();
+        properties.setSessionTimeout(Duration.ZERO);
+        try {
+            assertThat(uploadService.cleanup()).isEqualTo(1);
+        } finally {
+            properties.setSessionTimeout(timeout);
+        }
+        assertThat(Files.exists(uploads.resolve(abandoned))).isFalse();
+        mockMvc.perform(get("/files/uploads/" + abandoned))
+                .andExpect(status().isNotFound());
+        assertThat(cache.containsFile("abandoned")).isFalse();
+    }
+
+    private String start(String fileName) throws Exception {
+        MvcResult result = mockMvc.perform(post("/files/uploads").param("name", fileName))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.fileName").value(fileName))
+                .andReturn();
+        return mapper.readValue(result.getResponse().getContentAsString(), UploadResponse.class).uploadId();
+    }
+
+    private void putPart(String id, int number, byte[] content) {
+        try {
+            mockMvc.perform(put("/files/uploads/" + id + "/parts/" + number)
+                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                    .content(content))
+                    .andExpect(status().isOk());
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private UploadResponse getUpload(String id) throws Exception {
+        MvcResult result = mockMvc.perform(get("/files/uploads/" + id))
+                .andExpect(status().isOk())
+                .andReturn();
+        return mapper.readValue(result.getResponse().getContentAsString(), UploadResponse.class);
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.webdisk;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.util.unit.DataSize;
+
+import com.example.webdisk.service.Durability;
+import com.example.webdisk.service.FilesService;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@AutoConfigureMockMvc
+@SpringBootTest(properties = {
+        "webdisk.write-behind.enabled=true",
+        "webdisk.write-behind.max-file-size=1KB",
+        "webdisk.write-behind.flush-interval=1h"})
+class WriteBehindTests {
+
+    private static Path storage;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private FilesService files;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @DynamicPropertySource
+    static void directories(DynamicPropertyRegistry registry) throws IOException {
+        storage = Files.createTempDirectory("webdisk-write-behind");
+        registry.add("webdisk.path", storage::toString);
+    }
+
+    @Test
+    void shouldServeBufferedFilesUntilFlushed() throws Exception {
+        put("behind", "buffered content", null).andExpect(status().isOk());
+        assertThat(Files.exists(storage.resolve("behind"))).isFalse();
+        assertThat(files.getBufferedFiles()).isEqualTo(1);
+        assertThat(registry.get("webdisk.storage.buffered").gauge().value()).isEqualTo(16);
+        mockMvc.perform(get("/files/behind"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andExpect(content().string("buffered content"));
+
+        // Replaces the buffered content, written through
+        put("behind", "sync content", "sync").andExpect(status().isOk());
+        assertThat(Files.readString(storage.resolve("behind"))).isEqualTo("sync content");
+        assertThat(files.getBufferedFiles()).isZero();
+
+        put("large", "large content, ".repeat(100), null).andExpect(status().isOk());
+        assertThat(Files.exists(storage.resolve("large"))).isTrue();
+
+        // Deleted before reaching its volume
+        put("deleted", "buffered content", null).andExpect(status().isOk());
+        mockMvc.perform(delete("/files/deleted")).andExpect(status().isOk());
+        mockMvc.perform(get("/files/deleted")).andExpect(status().isNotFound());
+
+        // Counted once acknowledged, like the registry
+        long bytes = files.getStats().getBytes();
+        long count = files.getStats().getFiles();
+        put("flushed", "flushed content", "buffered").andExpect(status().isOk());
+        assertThat(files.getStats().getBytes()).isEqualTo(bytes + 15);
+        assertThat(files.getStats().getFiles()).isEqualTo(count + 1);
+        put("flushed", "flushed content!", "buffered").andExpect(status().isOk());
+        assertThat(files.getStats().getBytes()).isEqualTo(bytes + 16);
+        mockMvc.perform(get("/files/size"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.bytes").value(bytes + 16));
+        assertThat(files.flushFiles()).isEqualTo(1);
+        assertThat(Files.readString(storage.resolve("flushed"))).isEqualTo("flushed content!");
+        assertThat(Files.exists(storage.resolve("deleted"))).isFalse();
+        assertThat(files.getStats().getBytes()).isEqualTo(bytes + 16);
+        assertThat(files.getStats().getFiles()).isEqualTo(count + 1);
+
+        put("invalid", "content", "eventually").andExpect(status().isBadRequest());
+
+        mockMvc.perform(delete("/files/behind")).andExpect(status().isOk());
+        mockMvc.perform(delete("/files/large")).andExpect(status().isOk());
+        mockMvc.perform(delete("/files/flushed")).andExpect(status().isOk());
+    }
+
+    @Test
+    void shouldFlushBufferOnClose() throws Exception {
+        Path volume = Files.createTempDirectory("webdisk-write-behind-close");
+        FilesService service = new FilesService();
+        service.setPath(volume.toString());
+        service.setWriteBehind(true);
+        service.setWriteBehindCapacity(DataSize.ofBytes(32));
+        service.setFlushInterval(Duration.ofHours(1));
+        try {
+            for (int i = 0; i < 5; i++) {
+                service.putFile("file" + i, file("content" + i), Durability.BUFFERED);
+            }
+            // The buffer holds 4 files of 8 bytes, the fifth is written through
+            assertThat(service.getBufferedFiles()).isEqualTo(4);
+            assertThat(Files.exists(volume.resolve("file4"))).isTrue();
+            service.putFile("file5", file("content5"), Durability.SYNC);
+            assertThat(Files.exists(volume.resolve("file5"))).isTrue();
+            assertThat(service.readMetadata("file0").size()).isEqualTo(8);
+            assertThat(service.getStats().getBytes()).isEqualTo(6 * 8);
+        } finally {
+            service.close();
+        }
+
+        assertThat(service.getBufferedFiles()).isZero();
+        for (int i = 0; i < 6; i++) {
+            assertThat(Files.readString(volume.resolve("file" + i))).isEqualTo("content" + i);
+        }
+        assertThat(service.getStats().getBytes()).isEqualTo(6 * 8);
+    }
+
+    private ResultActions put(String fileName, String text, String durability) throws Exception {
+        var request = multipart("/files/" + fileName).file(file(text));
+        if (durability != null) {
+            request.param("durability", durability);
+        }
+        return mockMvc.perform(request.with(put -> {
+            put.setMethod("PUT");
+            return put;
+        }));
+    }
+
+    private static MockMultipartFile file(String text) {
+        return new MockMultipartFile("file", "file", "text/plain", text.getBytes(StandardCharsets.UTF_8));
+    }
+}
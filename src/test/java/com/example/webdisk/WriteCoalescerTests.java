@@ -0,0 +1,152 @@
+package com.example.webdisk;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.webdisk.service.NameLocks;
+import com.example.webdisk.service.WriteCoalescer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class WriteCoalescerTests {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final NameLocks locks = new NameLocks(16);
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void shouldWriteOnlyTheLatestPendingBody() throws Exception {
+        List<String> written = new CopyOnWriteArrayList<>();
+        CountDownLatch firstWriting = new CountDownLatch(1);
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+        WriteCoalescer<String, String> coalescer = new WriteCoalescer<>(locks, (name, body) -> {
+            written.add(body);
+            if (body.equals("first")) {
+                firstWriting.countDown();
+                await(releaseFirst);
+            }
+            return body;
+        });
+
+        Future<String> first = executor.submit(() -> coalescer.write("hot", "first"));
+        firstWriting.await();
+        List<Future<String>> waiting = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            String body = "body-" + i;
+            waiting.add(executor.submit(() -> coalescer.write("hot", body)));
+            // Registered in order, each superseding the previous one before waiting for the lock
+            awaitQueued("hot", i + 1);
+        }
+        releaseFirst.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("first");
+        for (Future<String> overwrite : waiting) {
+            assertThat(overwrite.get(5, TimeUnit.SECONDS)).isEqualTo("body-4");
+        }
+        assertThat(written).containsExactly("first", "body-4");
+        assertThat(coalescer.getPending()).isZero();
+    }
+
+    @Test
+    void shouldSerializeWritesOfTheSameName() throws Exception {
+        AtomicInteger inside = new AtomicInteger();
+        AtomicInteger overlaps = new AtomicInteger();
+        WriteCoalescer<Integer, Integer> coalescer = new WriteCoalescer<>(locks, (name, body) -> {
+            if (inside.incrementAndGet() > 1) {
+                overlaps.incrementAndGet();
+            }
+            Thread.onSpinWait();
+            inside.decrementAndGet();
+            return body;
+        });
+        List<Future<Integer>> writes = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            int body = i;
+            writes.add(executor.submit(() -> coalescer.write("hot", body)));
+        }
+        for (Future<Integer> write : writes) {
+            assertThat(write.get(5, TimeUnit.SECONDS)).isNotNull();
+        }
+        assertThat(overlaps).hasValue(0);
+    }
+
+    @Test
+    void shouldFailTheSupersededWritesWithTheLatest() throws Exception {
+        CountDownLatch firstWriting = new CountDownLatch(1);
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+        WriteCoalescer<String, String> coalescer = new WriteCoalescer<>(locks, (name, body) -> {
+            if (body.equals("first")) {
+                firstWriting.countDown();
+                await(releaseFirst);
+                return body;
+            }
+            throw new IOException("Disk full");
+        });
+        Future<String> first = executor.submit(() -> coalescer.write("hot", "first"));
+        firstWriting.await();
+        Future<String> second = executor.submit(() -> coalescer.write("hot", "second"));
+        awaitQueued("hot", 1);
+        Future<String> third = executor.submit(() -> coalescer.write("hot", "third"));
+        awaitQueued("hot", 2);
+        releaseFirst.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("first");
+        for (Future<String> failed : List.of(second, third)) {
+            assertThatThrownBy(() -> failed.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(IOException.class);
+        }
+    }
+
+    @Test
+    void shouldShareTheReadLockOfANameWithReadsOnly() throws Exception {
+        Lock read = locks.readLockFor("hot");
+        read.lock();
+        try {
+            assertThat(executor.submit(() -> tryLock(locks.readLockFor("hot"))).get(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(executor.submit(() -> tryLock(locks.lockFor("hot"))).get(5, TimeUnit.SECONDS)).isFalse();
+        } finally {
+            read.unlock();
+        }
+        assertThat(executor.submit(() -> tryLock(locks.lockFor("hot"))).get(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    private void awaitQueued(String fileName, int threads) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (locks.getQueueLength(fileName) < threads) {
+            assertThat(System.nanoTime()).as("Writers waiting for the lock").isLessThan(deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    private static boolean tryLock(Lock lock) {
+        if (lock.tryLock()) {
+            lock.unlock();
+            return true;
+        }
+        return false;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}